@@ -0,0 +1,141 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import geometries.*;
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+
+/**
+ * Throughput of the intersection hot paths - each operation is a single ray, so
+ * the score is rays per second. Run with {@code -prof gc} for the allocation
+ * rate per ray.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IntersectionBenchmark {
+
+	/** Number of rays that are traced in turns (a mix of hits and misses) */
+	private static final int RAYS = 1024;
+	/** Number of rays in a packet */
+	private static final int PACKET = 8;
+
+	private final Sphere sphere = new Sphere(50, new Point(0, 0, -100));
+	private final Triangle triangle = new Triangle(new Point(-60, -60, -100), new Point(60, -60, -100),
+			new Point(0, 60, -120));
+	private final Plane plane = new Plane(new Point(0, 0, -100), new Vector(0, 0.1, 1));
+
+	private final Ray[] rays = new Ray[RAYS];
+	private int next = 0;
+
+	/** Coherent rays through a 32x32 grid, as from the camera through pixels */
+	private final Ray[] gridRays = new Ray[RAYS];
+	private final RayPacket packet = new RayPacket(PACKET);
+	private final Ray[] packetRays = new Ray[PACKET];
+
+	/**
+	 * Creates rays from the origin towards random points in front of the geometries
+	 */
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		for (int i = 0; i < RAYS; ++i)
+			rays[i] = new Ray(Point.ZERO, new Vector(random.nextDouble() * 200 - 100,
+					random.nextDouble() * 200 - 100, -100));
+		for (int i = 0; i < RAYS; ++i)
+			gridRays[i] = new Ray(Point.ZERO, new Vector(i % 32 - 16, i / 32 - 16, -100));
+	}
+
+	/**
+	 * @return the next ray in turn
+	 */
+	private Ray nextRay() {
+		Ray ray = rays[next];
+		next = (next + 1) % RAYS;
+		return ray;
+	}
+
+	@Benchmark
+	public Object sphere() {
+		return sphere.findGeoIntersections(nextRay());
+	}
+
+	@Benchmark
+	public Object triangle() {
+		return triangle.findGeoIntersections(nextRay());
+	}
+
+	@Benchmark
+	public Object plane() {
+		return plane.findGeoIntersections(nextRay());
+	}
+
+	/**
+	 * Bundles of N random spheres and triangles, as a plain list and as a
+	 * hierarchy
+	 */
+	@State(Scope.Thread)
+	public static class Bundle {
+		@Param({ "100", "1000", "10000" })
+		public int size;
+
+		@Param({ "false", "true" })
+		public boolean bvh;
+
+		Geometries geometries;
+
+		@Setup
+		public void setup() {
+			Random random = new Random(2);
+			geometries = new Geometries();
+			for (int i = 0; i < size; ++i) {
+				Point p = new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 200 - 100,
+						-50 - random.nextDouble() * 200);
+				geometries.add(i % 2 == 0 ? new Sphere(2, p)
+						: new Triangle(p, p.add(new Vector(4, 0, 0)), p.add(new Vector(0, 4, 1))));
+			}
+			if (bvh)
+				geometries.buildBVH();
+		}
+	}
+
+	@Benchmark
+	public Object geometriesAll(Bundle bundle) {
+		return bundle.geometries.findGeoIntersections(nextRay());
+	}
+
+	@Benchmark
+	public GeoPoint geometriesClosest(Bundle bundle) {
+		return bundle.geometries.findClosestGeoIntersection(nextRay());
+	}
+
+	@Benchmark
+	public Double3 geometriesTransparency(Bundle bundle) {
+		return bundle.geometries.findTransparency(nextRay(), 150, 0.001);
+	}
+
+	@Benchmark
+	public GeoPoint geometriesClosestCoherent(Bundle bundle) {
+		Ray ray = gridRays[next];
+		next = (next + 1) % RAYS;
+		return bundle.geometries.findClosestGeoIntersection(ray);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PACKET)
+	public GeoPoint geometriesClosestPacket(Bundle bundle) {
+		System.arraycopy(gridRays, next, packetRays, 0, PACKET);
+		next = (next + PACKET) % RAYS;
+		bundle.geometries.findClosestGeoIntersections(packet.set(packetRays, PACKET));
+		return packet.getHit(0);
+	}
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import primitives.*;
+
+/**
+ * Throughput and allocation of the immutable arithmetic of colors, triads and
+ * vectors. Run with {@code -prof gc} for the allocation rate per operation.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrimitivesBenchmark {
+
+	private Color color = new Color(120, 40, 200);
+	private Color other = new Color(10, 20, 30);
+	private Double3 k = new Double3(0.5, 0.25, 0.125);
+	private Double3 kOther = new Double3(0.9, 0.8, 0.7);
+	private Vector v = new Vector(1, 2, 3);
+	private Vector u = new Vector(-3, 1, 2);
+
+	@Benchmark
+	public Color colorAdd() {
+		return color.add(other);
+	}
+
+	@Benchmark
+	public Color colorAddMany() {
+		return color.add(other, color, other);
+	}
+
+	@Benchmark
+	public Color colorScale() {
+		return color.scale(k);
+	}
+
+	@Benchmark
+	public Color colorReduce() {
+		return color.reduce(4);
+	}
+
+	@Benchmark
+	public Double3 double3Product() {
+		return k.product(kOther);
+	}
+
+	@Benchmark
+	public boolean double3LowerThan() {
+		return k.product(kOther).lowerThan(0.001);
+	}
+
+	@Benchmark
+	public Vector vectorCrossProduct() {
+		return v.crossProduct(u);
+	}
+
+	@Benchmark
+	public Vector vectorNormalize() {
+		return v.normalize();
+	}
+}
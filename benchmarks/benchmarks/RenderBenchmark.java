@@ -0,0 +1,97 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.Camera;
+import renderer.RayTracerBasic;
+import scene.Scene;
+
+/**
+ * Throughput of the ray tracer and the camera - the score of
+ * {@link #traceRay()} is primary rays per second (with all their shadow,
+ * reflection and refraction rays). Run with {@code -prof gc} for the allocation
+ * rate per ray.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+	/** Resolution of the (virtual) image the rays are constructed for */
+	private static final int N = 500;
+
+	private Camera camera;
+	private RayTracerBasic tracer;
+
+	private int col = 0;
+	private int row = 0;
+
+	/**
+	 * Builds the scene of the reflection and refraction tests: two transparent
+	 * spheres in front of two mirrors, lighted by a spot light
+	 */
+	@Setup
+	public void setup() {
+		Scene scene = new Scene("Benchmark scene")
+				.setAmbientLight(new AmbientLight(new Color(255, 255, 255), 0.1));
+		scene.geometries.add( //
+				new Sphere(400d, new Point(-950, -900, -1000)).setEmission(new Color(0, 50, 100)) //
+						.setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)
+								.setKt(new Double3(0.5, 0, 0))),
+				new Sphere(200d, new Point(-950, -900, -1000)).setEmission(new Color(100, 50, 20)) //
+						.setMaterial(new Material().setKd(0.25).setKs(0.25).setShininess(20)),
+				new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500), new Point(670, 670, 3000)) //
+						.setEmission(new Color(20, 20, 20)) //
+						.setMaterial(new Material().setKr(1)),
+				new Triangle(new Point(1500, -1500, -1500), new Point(-1500, 1500, -1500),
+						new Point(-1500, -1500, -2000)) //
+						.setEmission(new Color(20, 20, 20)) //
+						.setMaterial(new Material().setKr(new Double3(0.5, 0, 0.4))));
+		scene.lights.add(new SpotLight(new Color(1020, 400, 400), new Point(-750, -750, -150), new Vector(-1, -1, -4)) //
+				.setkL(0.00001).setkQ(0.000005));
+
+		tracer = new RayTracerBasic(scene);
+		camera = new Camera(new Point(0, 0, 10000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(2500, 2500).setVPDistance(10000) //
+				.setAntiAliasingFactor(4);
+	}
+
+	/**
+	 * Moves to the next pixel of the image
+	 */
+	private void nextPixel() {
+		if (++col == N) {
+			col = 0;
+			row = (row + 1) % N;
+		}
+	}
+
+	@Benchmark
+	public Color traceRay() {
+		nextPixel();
+		return tracer.traceRay(camera.constructRay(N, N, col, row));
+	}
+
+	@Benchmark
+	public Ray constructRay() {
+		nextPixel();
+		return camera.constructRay(N, N, col, row);
+	}
+
+	@Benchmark
+	public List<Ray> constructRays() {
+		nextPixel();
+		return camera.constructRays(N, N, col, row);
+	}
+}
@@ -0,0 +1,260 @@
+package geometries;
+
+import java.io.Serializable;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Axis aligned bounding box (AABB) of a geometry. The box is represented by its
+ * minimal and maximal coordinates on each one of the axes.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class BoundingBox implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** minimal coordinates of the box */
+	final double minX, minY, minZ;
+	/** maximal coordinates of the box */
+	final double maxX, maxY, maxZ;
+
+	/** The box of the unbounded geometries - the whole space */
+	public static final BoundingBox INFINITE = new BoundingBox(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+			Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+	/** The box of an empty bundle of geometries - it contains nothing */
+	public static final BoundingBox EMPTY = new BoundingBox(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+			Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+	/**
+	 * Constructor of a box according to its two opposite corners
+	 *
+	 * @param min - the corner with the minimal coordinates
+	 * @param max - the corner with the maximal coordinates
+	 */
+	public BoundingBox(Point min, Point max) {
+		this(min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+	}
+
+	/**
+	 * Constructor of a box according to its minimal and maximal coordinates
+	 *
+	 * @param minX - minimal x coordinate
+	 * @param minY - minimal y coordinate
+	 * @param minZ - minimal z coordinate
+	 * @param maxX - maximal x coordinate
+	 * @param maxY - maximal y coordinate
+	 * @param maxZ - maximal z coordinate
+	 */
+	BoundingBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+	}
+
+	/**
+	 * Creates the smallest box that contains all the given points
+	 *
+	 * @param points - the points to wrap
+	 * @return the bounding box of the points
+	 */
+	static BoundingBox of(Iterable<Point> points) {
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		for (Point p : points) {
+			minX = Math.min(minX, p.getX());
+			minY = Math.min(minY, p.getY());
+			minZ = Math.min(minZ, p.getZ());
+			maxX = Math.max(maxX, p.getX());
+			maxY = Math.max(maxY, p.getY());
+			maxZ = Math.max(maxZ, p.getZ());
+		}
+		return new BoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * @return the corner with the minimal coordinates
+	 */
+	public Point getMin() {
+		return new Point(minX, minY, minZ);
+	}
+
+	/**
+	 * @return the corner with the maximal coordinates
+	 */
+	public Point getMax() {
+		return new Point(maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Checks whether the box is unbounded on any of the axes
+	 *
+	 * @return true if the box is infinite
+	 */
+	public boolean isInfinite() {
+		return minX == Double.NEGATIVE_INFINITY || minY == Double.NEGATIVE_INFINITY
+				|| minZ == Double.NEGATIVE_INFINITY || maxX == Double.POSITIVE_INFINITY
+				|| maxY == Double.POSITIVE_INFINITY || maxZ == Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Creates the smallest box that contains both this box and the other box
+	 *
+	 * @param other - the other box
+	 * @return the united box
+	 */
+	public BoundingBox union(BoundingBox other) {
+		return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ),
+				Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+	}
+
+	/**
+	 * Calculates the surface area of the box (used by the surface area heuristic)
+	 *
+	 * @return the surface area
+	 */
+	double surfaceArea() {
+		double dx = maxX - minX;
+		double dy = maxY - minY;
+		double dz = maxZ - minZ;
+		return 2 * (dx * dy + dy * dz + dz * dx);
+	}
+
+	/**
+	 * Finds the center coordinate of the box on an axis
+	 *
+	 * @param axis - 0 for x, 1 for y and 2 for z
+	 * @return the center coordinate
+	 */
+	double center(int axis) {
+		return switch (axis) {
+		case 0 -> (minX + maxX) / 2;
+		case 1 -> (minY + maxY) / 2;
+		default -> (minZ + maxZ) / 2;
+		};
+	}
+
+	/**
+	 * Checks whether a ray crosses the box (slab method). A ray that starts inside
+	 * the box crosses it as well.
+	 *
+	 * @param ray - the checked ray
+	 * @return true if the ray crosses the box
+	 */
+	public boolean intersects(Ray ray) {
+		return intersects(ray, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Checks whether a ray crosses the box (slab method) not farther than a given
+	 * distance from the ray's head. A ray that starts inside the box crosses it as
+	 * well.
+	 *
+	 * @param ray         - the checked ray
+	 * @param maxDistance - the maximal distance of the box from the ray's head
+	 * @return true if the ray enters the box within the distance
+	 */
+	public boolean intersects(Ray ray, double maxDistance) {
+		double distance = entryDistance(ray);
+		return distance != Double.POSITIVE_INFINITY && distance <= maxDistance;
+	}
+
+	/**
+	 * Calculates the distance from the ray's head to the point where the ray
+	 * enters the box (slab method)
+	 *
+	 * @param ray - the checked ray
+	 * @return the entry distance, 0 if the ray starts inside the box, or positive
+	 *         infinity if the ray does not cross the box
+	 */
+	public double entryDistance(Ray ray) {
+		Point p0 = ray.getP0();
+		Vector dir = ray.getDir();
+		return entryDistance(p0.getX(), p0.getY(), p0.getZ(), dir.getX(), dir.getY(), dir.getZ());
+	}
+
+	/**
+	 * Checks whether any ray of a packet crosses the box not farther than the
+	 * closest intersection found for it so far
+	 *
+	 * @param packet - the checked rays
+	 * @return true if at least one of the rays enters the box
+	 */
+	boolean intersects(RayPacket packet) {
+		for (int i = 0; i < packet.size; ++i) {
+			double distance = entryDistance(packet.ox[i], packet.oy[i], packet.oz[i], packet.dx[i], packet.dy[i],
+					packet.dz[i]);
+			if (distance != Double.POSITIVE_INFINITY && distance <= packet.distances[i])
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Calculates the distance from the ray's head to the point where the ray
+	 * enters the box (slab method), see {@link #entryDistance(Ray)}
+	 *
+	 * @param ox - the x coordinate of the ray's head
+	 * @param oy - the y coordinate of the ray's head
+	 * @param oz - the z coordinate of the ray's head
+	 * @param dx - the x coordinate of the ray's direction
+	 * @param dy - the y coordinate of the ray's direction
+	 * @param dz - the z coordinate of the ray's direction
+	 * @return the entry distance, 0 if the ray starts inside the box, or positive
+	 *         infinity if the ray does not cross the box
+	 */
+	private double entryDistance(double ox, double oy, double oz, double dx, double dy, double dz) {
+		if (minX > maxX) // empty box
+			return Double.POSITIVE_INFINITY;
+
+		double tMin = Double.NEGATIVE_INFINITY;
+		double tMax = Double.POSITIVE_INFINITY;
+
+		// x slab
+		if (dx == 0) {
+			if (ox < minX || ox > maxX)
+				return Double.POSITIVE_INFINITY;
+		} else {
+			double inv = 1 / dx;
+			double t1 = (minX - ox) * inv, t2 = (maxX - ox) * inv;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		// y slab
+		if (dy == 0) {
+			if (oy < minY || oy > maxY)
+				return Double.POSITIVE_INFINITY;
+		} else {
+			double inv = 1 / dy;
+			double t1 = (minY - oy) * inv, t2 = (maxY - oy) * inv;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		// z slab
+		if (dz == 0) {
+			if (oz < minZ || oz > maxZ)
+				return Double.POSITIVE_INFINITY;
+		} else {
+			double inv = 1 / dz;
+			double t1 = (minZ - oz) * inv, t2 = (maxZ - oz) * inv;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		return tMin <= tMax && tMax >= 0 ? Math.max(tMin, 0) : Double.POSITIVE_INFINITY;
+	}
+
+	@Override
+	public String toString() {
+		return "BoundingBox [min=(" + minX + "," + minY + "," + minZ + "), max=(" + maxX + "," + maxY + "," + maxZ
+				+ ")]";
+	}
+}
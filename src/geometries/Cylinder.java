@@ -1,9 +1,13 @@
 package geometries;
 
+import primitives.Point;
 import primitives.Ray;
+import primitives.Vector;
 
 public class Cylinder extends Tube {
 
+	private static final long serialVersionUID = 1L;
+
 	final double height; // Private field for the height of cylinder
 
 	/**
@@ -23,4 +27,19 @@ public class Cylinder extends Tube {
 		return height;
 	}
 
+	@Override
+	protected BoundingBox calcBoundingBox() {
+		Point bottom = axisRay.getP0();
+		Vector dir = axisRay.getDir();
+		Point top = axisRay.getPoint(height);
+		// the extent of the base disks on each axis is radius * sin(angle between the
+		// axis and the cylinder's direction)
+		double ex = radius * Math.sqrt(Math.max(0, 1 - dir.getX() * dir.getX()));
+		double ey = radius * Math.sqrt(Math.max(0, 1 - dir.getY() * dir.getY()));
+		double ez = radius * Math.sqrt(Math.max(0, 1 - dir.getZ() * dir.getZ()));
+		return new BoundingBox(Math.min(bottom.getX(), top.getX()) - ex, Math.min(bottom.getY(), top.getY()) - ey,
+				Math.min(bottom.getZ(), top.getZ()) - ez, Math.max(bottom.getX(), top.getX()) + ex,
+				Math.max(bottom.getY(), top.getY()) + ey, Math.max(bottom.getZ(), top.getZ()) + ez);
+	}
+
 }
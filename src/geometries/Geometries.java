@@ -1,15 +1,36 @@
 package geometries;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import primitives.Double3;
 import primitives.Ray;
 
 public class Geometries extends Intersectable {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * A container for Geometries (Intersectables)
 	 **/
-	private final List<Intersectable> geometries = new LinkedList<>();
+	private final List<Intersectable> geometries = new ArrayList<>();
+
+	/** Number of bins used for evaluating the surface area heuristic */
+	static final int BVH_BINS = 12;
+	/** Maximal number of geometries in a leaf of the hierarchy */
+	static final int BVH_MAX_LEAF_SIZE = 4;
+	/** Relative cost of a box test compared to an intersection of a geometry */
+	static final double BVH_TRAVERSAL_COST = 0.125;
+
+	/**
+	 * Helping record for the hierarchy construction - a geometry with its bounding
+	 * box
+	 */
+	private record Primitive(Intersectable geometry, BoundingBox box) {
+	}
 
 	/* ********* Constructors *********** */
 	/**
@@ -35,6 +56,7 @@ public class Geometries extends Intersectable {
 	 */
 	public void add(Intersectable... geos) {
 		this.geometries.addAll(List.of(geos)); // add the new geometries to list
+		resetBoundingBox(); // the bounding box of the bundle has to be calculated again
 	}
 
 	/**
@@ -60,4 +82,269 @@ public class Geometries extends Intersectable {
 		return intersections; // return the list of intersections
 	}
 
+	/**
+	 * This function returns the closest {@link GeoPoint} intersection point of a
+	 * ray with the geometries in the bundle. The distance of the closest point
+	 * found so far bounds the search in the rest of the geometries, so the
+	 * geometries (and the hierarchy nodes) behind it are skipped. The two children
+	 * of a hierarchy node are visited from the nearer one (by the distance where
+	 * the ray enters their bounding boxes) to the farther one.
+	 * 
+	 * @param ray         - that may has intersection points with the geometries
+	 * @param maxDistance - the maximal distance of the intersection from the ray's
+	 *                    head (excluded)
+	 * @param tests       - the counter of the intersection tests, or null
+	 * @return the closest intersection point, or null if there is none
+	 */
+	@Override
+	protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance, LongAdder tests) {
+		if (geometries.size() == 2) {
+			Intersectable first = geometries.get(0), second = geometries.get(1);
+			BoundingBox firstBox = first.getBoundingBox(), secondBox = second.getBoundingBox();
+			if (!firstBox.isInfinite() && !secondBox.isInfinite()
+					&& secondBox.entryDistance(ray) < firstBox.entryDistance(ray)) {
+				first = second;
+				second = geometries.get(0);
+			}
+			GeoPoint closest = first.findClosestGeoIntersection(ray, maxDistance, tests);
+			if (closest != null)
+				maxDistance = closest.point.distance(ray.getP0());
+			GeoPoint gp = second.findClosestGeoIntersection(ray, maxDistance, tests);
+			return gp != null ? gp : closest;
+		}
+
+		GeoPoint closest = null;
+		for (Intersectable geo : geometries) {
+			GeoPoint gp = geo.findClosestGeoIntersection(ray, maxDistance, tests);
+			if (gp != null) { // the point is closer than the previous closest point
+				closest = gp;
+				maxDistance = gp.point.distance(ray.getP0());
+			}
+		}
+		return closest;
+	}
+
+	/**
+	 * This function finds the closest intersections of a packet of rays with the
+	 * geometries in the bundle. The packet is passed to each geometry, and the
+	 * closest intersections found so far bound the search in the rest of them.
+	 * 
+	 * @param packet - the rays, with the closest intersections found so far
+	 */
+	@Override
+	protected void findClosestGeoIntersectionsHelper(RayPacket packet) {
+		for (Intersectable geo : geometries)
+			geo.findClosestGeoIntersections(packet);
+	}
+
+	/**
+	 * This function accumulates the transparency of the geometries in the bundle
+	 * along a ray segment, and stops as soon as the segment is blocked
+	 * 
+	 * @param ray         - the ray segment's direction and head
+	 * @param maxDistance - the length of the segment (included)
+	 * @param k           - the transparency accumulated so far
+	 * @param minK        - the threshold under which the segment is blocked
+	 * @param tests       - the counter of the intersection tests, or null
+	 * @return the accumulated transparency
+	 */
+	@Override
+	protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 k, double minK, LongAdder tests) {
+		for (Intersectable geo : geometries) {
+			k = geo.findTransparency(ray, maxDistance, k, minK, tests);
+			if (k.lowerThan(minK)) // blocked - no need to check the other geometries
+				return k;
+		}
+		return k;
+	}
+
+	/**
+	 * The bounding box of the bundle is the union of its geometries' boxes. An
+	 * unbounded geometry makes the whole bundle unbounded. The box of an empty
+	 * bundle is empty, so it is never crossed by a ray.
+	 */
+	@Override
+	protected BoundingBox calcBoundingBox() {
+		BoundingBox result = null;
+		for (Intersectable geo : geometries) {
+			BoundingBox other = geo.getBoundingBox();
+			if (other.isInfinite())
+				return BoundingBox.INFINITE;
+			result = result == null ? other : result.union(other);
+		}
+		return result == null ? BoundingBox.EMPTY : result;
+	}
+
+	/**
+	 * Rearranges the geometries of the bundle in a bounding volume hierarchy
+	 * (BVH), built according to the surface area heuristic (SAH). The bounded
+	 * geometries are grouped in nested nodes, each one with its bounding box, so
+	 * that a ray only visits the nodes whose box it crosses (see
+	 * {@link Intersectable#getBoundingBox()}). The unbounded
+	 * geometries (planes, tubes) stay in the top level of the bundle.<br>
+	 * Geometries that are added after the construction are not part of the
+	 * hierarchy and are checked with every ray.
+	 *
+	 * @return the geometries bundle itself
+	 */
+	public Geometries buildBVH() {
+		List<Primitive> bounded = new ArrayList<>();
+		List<Intersectable> unbounded = new LinkedList<>();
+		for (Intersectable geo : geometries) {
+			BoundingBox geoBox = geo.getBoundingBox();
+			if (geoBox.isInfinite())
+				unbounded.add(geo);
+			else
+				bounded.add(new Primitive(geo, geoBox));
+		}
+
+		geometries.clear();
+		geometries.addAll(unbounded);
+		if (!bounded.isEmpty())
+			geometries.add(buildNode(bounded));
+		resetBoundingBox();
+		return this;
+	}
+
+	/**
+	 * Builds recursively a node of the hierarchy for a group of bounded geometries
+	 *
+	 * @param primitives - the geometries of the node with their boxes
+	 * @return the node (a single geometry is returned as is)
+	 */
+	private static Intersectable buildNode(List<Primitive> primitives) {
+		int size = primitives.size();
+		if (size == 1)
+			return primitives.get(0).geometry();
+
+		BoundingBox nodeBox = primitives.get(0).box();
+		double[] minCenter = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+		double[] maxCenter = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		for (Primitive primitive : primitives) {
+			nodeBox = nodeBox.union(primitive.box());
+			for (int axis = 0; axis < 3; ++axis) {
+				double center = primitive.box().center(axis);
+				minCenter[axis] = Math.min(minCenter[axis], center);
+				maxCenter[axis] = Math.max(maxCenter[axis], center);
+			}
+		}
+
+		if (size <= BVH_MAX_LEAF_SIZE)
+			return createNode(primitives.stream().map(Primitive::geometry).toList());
+
+		// split along the axis with the largest spread of the boxes' centers
+		int axis = 0;
+		for (int i = 1; i < 3; ++i)
+			if (maxCenter[i] - minCenter[i] > maxCenter[axis] - minCenter[axis])
+				axis = i;
+		double extent = maxCenter[axis] - minCenter[axis];
+
+		List<Primitive> left = new ArrayList<>();
+		List<Primitive> right = new ArrayList<>();
+		if (extent > 0 && !splitBySAH(primitives, nodeBox, axis, minCenter[axis], extent, left, right))
+			return createNode(primitives.stream().map(Primitive::geometry).toList());
+		if (left.isEmpty() || right.isEmpty()) { // fall back to a median split
+			final int sortAxis = axis;
+			List<Primitive> sorted = new ArrayList<>(primitives);
+			sorted.sort(Comparator.comparingDouble(p -> p.box().center(sortAxis)));
+			left = sorted.subList(0, size / 2);
+			right = sorted.subList(size / 2, size);
+		}
+		return createNode(List.of(buildNode(left), buildNode(right)));
+	}
+
+	/**
+	 * Divides a group of geometries into two groups along an axis, where the
+	 * division plane is chosen by the minimal surface area heuristic cost among a
+	 * fixed number of candidate planes (bins)
+	 *
+	 * @param primitives - the divided geometries
+	 * @param nodeBox    - the bounding box of all the geometries
+	 * @param axis       - the division axis
+	 * @param min        - the minimal center coordinate of the boxes on the axis
+	 * @param extent     - the spread of the center coordinates on the axis
+	 * @param left       - the list to fill with the geometries before the plane
+	 * @param right      - the list to fill with the geometries after the plane
+	 * @return false if the geometries should stay together in a leaf
+	 */
+	private static boolean splitBySAH(List<Primitive> primitives, BoundingBox nodeBox, int axis, double min,
+			double extent, List<Primitive> left, List<Primitive> right) {
+		int[] counts = new int[BVH_BINS];
+		BoundingBox[] boxes = new BoundingBox[BVH_BINS];
+		for (Primitive primitive : primitives) {
+			int bin = binOf(primitive.box(), axis, min, extent);
+			counts[bin]++;
+			boxes[bin] = boxes[bin] == null ? primitive.box() : boxes[bin].union(primitive.box());
+		}
+
+		// the area and the count of the geometries after each candidate plane
+		double[] rightAreas = new double[BVH_BINS];
+		int[] rightCounts = new int[BVH_BINS];
+		BoundingBox accumulated = null;
+		int count = 0;
+		for (int i = BVH_BINS - 1; i > 0; --i) {
+			if (boxes[i] != null)
+				accumulated = accumulated == null ? boxes[i] : accumulated.union(boxes[i]);
+			count += counts[i];
+			rightCounts[i] = count;
+			rightAreas[i] = accumulated == null ? 0 : accumulated.surfaceArea();
+		}
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int bestPlane = -1;
+		accumulated = null;
+		count = 0;
+		for (int i = 1; i < BVH_BINS; ++i) {
+			if (boxes[i - 1] != null)
+				accumulated = accumulated == null ? boxes[i - 1] : accumulated.union(boxes[i - 1]);
+			count += counts[i - 1];
+			if (count == 0 || rightCounts[i] == 0)
+				continue;
+			double cost = accumulated.surfaceArea() * count + rightAreas[i] * rightCounts[i];
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestPlane = i;
+			}
+		}
+
+		if (bestPlane < 0)
+			return true;
+		double area = nodeBox.surfaceArea();
+		// a node with few geometries is kept as a leaf when splitting it does not pay
+		if (primitives.size() <= 2 * BVH_MAX_LEAF_SIZE && area > 0
+				&& BVH_TRAVERSAL_COST + bestCost / area >= primitives.size())
+			return false;
+
+		for (Primitive primitive : primitives)
+			(binOf(primitive.box(), axis, min, extent) < bestPlane ? left : right).add(primitive);
+		return true;
+	}
+
+	/**
+	 * Finds the bin of a geometry according to the center of its box
+	 *
+	 * @param box    - the geometry's bounding box
+	 * @param axis   - the division axis
+	 * @param min    - the minimal center coordinate on the axis
+	 * @param extent - the spread of the center coordinates on the axis
+	 * @return the bin index
+	 */
+	private static int binOf(BoundingBox box, int axis, double min, double extent) {
+		int bin = (int) ((box.center(axis) - min) / extent * BVH_BINS);
+		return Math.min(bin, BVH_BINS - 1);
+	}
+
+	/**
+	 * Creates a node of the hierarchy, its bounding box is calculated from the
+	 * boxes of its children
+	 *
+	 * @param children - the geometries in the node
+	 * @return the node
+	 */
+	private static Geometries createNode(List<Intersectable> children) {
+		Geometries node = new Geometries();
+		node.geometries.addAll(children);
+		return node;
+	}
+
 }
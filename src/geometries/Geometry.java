@@ -12,6 +12,8 @@ import primitives.Point;
  */
 public abstract class Geometry extends Intersectable {
 
+	private static final long serialVersionUID = 1L;
+
 	protected Color emission = Color.BLACK;
 	private Material material = new Material();
 
@@ -23,6 +25,17 @@ public abstract class Geometry extends Intersectable {
 	 */
 	public abstract Vector getNormal(Point p);
 
+	/**
+	 * Returns the intersectable that the geometry is a part of, e.g. the mesh of a
+	 * face (see {@link Mesh.Face}). Hits of the same owner belong to the same
+	 * object, even when their geometries are different objects.
+	 * 
+	 * @return the owner of the geometry, the geometry itself by default
+	 */
+	public Intersectable getOwner() {
+		return this;
+	}
+
 	/**
 	 * @return the emission
 	 */
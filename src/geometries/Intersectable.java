@@ -1,17 +1,31 @@
 package geometries;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 
+import static primitives.Util.alignZero;
+
 /**
  * This class served all geometries for trace rays and find intersections
  * 
  * @author Hadas Carmen &amp; Naama Schweitzer
  */
-public abstract class Intersectable {
+public abstract class Intersectable implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The bounding box of the geometry, calculated at the first time it is needed
+	 * (it is not serialized, so equal geometries are serialized the same)
+	 */
+	private transient BoundingBox boundingBox = null;
 
 	/**
 	 * Helping class (contained in {@link Intersectable}) Attributes a point to the
@@ -36,12 +50,9 @@ public abstract class Intersectable {
 		public boolean equals(Object obj) {
 			if (this == obj)
 				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			GeoPoint other = (GeoPoint) obj;
-			return Objects.equals(geometry, other.geometry) && Objects.equals(point, other.point);
+			// a hit with barycentric coordinates equals the same hit without them
+			return obj instanceof GeoPoint other //
+					&& Objects.equals(geometry, other.geometry) && Objects.equals(point, other.point);
 		}
 
 		@Override
@@ -50,6 +61,44 @@ public abstract class Intersectable {
 		}
 	}
 
+	/**
+	 * Intersection point with a triangle, together with its barycentric
+	 * coordinates in the triangle (for interpolating attributes of the vertices).
+	 * The point is {@code (1-u-v)*p1 + u*p2 + v*p3} where p1, p2, p3 are the
+	 * vertices of the triangle.
+	 */
+	public static class BarycentricGeoPoint extends GeoPoint {
+
+		/** The weight of the second vertex */
+		public final double u;
+		/** The weight of the third vertex */
+		public final double v;
+
+		/**
+		 * @param geometry the intersected triangle
+		 * @param point    the intersection point
+		 * @param u        the weight of the second vertex
+		 * @param v        the weight of the third vertex
+		 */
+		public BarycentricGeoPoint(Geometry geometry, Point point, double u, double v) {
+			super(geometry, point);
+			this.u = u;
+			this.v = v;
+		}
+
+		/**
+		 * @return the weight of the first vertex
+		 */
+		public double w() {
+			return 1 - u - v;
+		}
+
+		@Override
+		public String toString() {
+			return "BarycentricGeoPoint [geometry=" + geometry + ", point=" + point + ", u=" + u + ", v=" + v + "]";
+		}
+	}
+
 	/**
 	 * This function returns all the intersection points of the geometry
 	 * 
@@ -68,9 +117,151 @@ public abstract class Intersectable {
 	 * @return a list of points that intersect a geometry
 	 */
 	public final List<GeoPoint> findGeoIntersections(Ray ray) {
+		// cheap rejection of a ray that misses the bounding box of the geometry
+		BoundingBox box = getBoundingBox();
+		if (!box.isInfinite() && !box.intersects(ray))
+			return null;
 		return findGeoIntersectionsHelper(ray);
 	}
 
+	/**
+	 * The function returns the closest intersection point between a ray and the
+	 * geometry
+	 * 
+	 * @param ray that may has intersection with a geometry
+	 * @return the closest intersection point, or null if there is none
+	 */
+	public final GeoPoint findClosestGeoIntersection(Ray ray) {
+		return findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * The function returns the closest intersection point between a ray and the
+	 * geometry, which is closer to the ray's head than a given distance. The
+	 * geometries that are farther than the distance are skipped without calculating
+	 * their intersections.
+	 * 
+	 * @param ray         that may has intersection with a geometry
+	 * @param maxDistance the maximal distance of the intersection from the ray's
+	 *                    head (excluded)
+	 * @return the closest intersection point, or null if there is none
+	 */
+	public final GeoPoint findClosestGeoIntersection(Ray ray, double maxDistance) {
+		return findClosestGeoIntersection(ray, maxDistance, null);
+	}
+
+	/**
+	 * The function returns the closest intersection point between a ray and the
+	 * geometry, which is closer to the ray's head than a given distance (see
+	 * {@link #findClosestGeoIntersection(Ray, double)}), and counts the
+	 * intersection tests of the query. Every query of a geometry or of a bounding
+	 * box in a hierarchy counts as a single test.
+	 * 
+	 * @param ray         that may has intersection with a geometry
+	 * @param maxDistance the maximal distance of the intersection from the ray's
+	 *                    head (excluded)
+	 * @param tests       the counter of the intersection tests, or null when the
+	 *                    tests are not counted
+	 * @return the closest intersection point, or null if there is none
+	 */
+	public final GeoPoint findClosestGeoIntersection(Ray ray, double maxDistance, LongAdder tests) {
+		countTest(tests);
+		BoundingBox box = getBoundingBox();
+		if (!box.isInfinite() && !box.intersects(ray, maxDistance))
+			return null;
+		return findClosestGeoIntersectionHelper(ray, maxDistance, tests);
+	}
+
+	/**
+	 * The function finds the closest intersections of a packet of rays with the
+	 * geometry. For each ray of the packet, an intersection that is closer than the
+	 * closest intersection found for it so far replaces it (see
+	 * {@link RayPacket#getHit(int)}), so the packet may be passed over several
+	 * geometries. The geometry is skipped when none of the rays crosses its
+	 * bounding box. The intersection tests are counted by the counter of the
+	 * packet, see {@link RayPacket#setTestsCounter(LongAdder)}.
+	 * 
+	 * @param packet the rays, with the closest intersections found so far
+	 */
+	public final void findClosestGeoIntersections(RayPacket packet) {
+		countTest(packet.tests);
+		BoundingBox box = getBoundingBox();
+		if (!box.isInfinite() && !box.intersects(packet))
+			return;
+		findClosestGeoIntersectionsHelper(packet);
+	}
+
+	/**
+	 * The function calculates the transparency of the geometry along a ray
+	 * segment (e.g. a shadow ray towards a light source): the product of the
+	 * transparency coefficients {@link Material#kT} of all the intersections that
+	 * are not farther than a given distance from the ray's head. The calculation
+	 * stops at the first opaque intersection, or as soon as the transparency is
+	 * lower than a given threshold.
+	 * 
+	 * @param ray         the ray segment's direction and head
+	 * @param maxDistance the length of the segment (included)
+	 * @param minK        the threshold under which the segment is considered
+	 *                    fully blocked
+	 * @return the transparency between {@link Double3#ONE} (no blocking) and
+	 *         {@link Double3#ZERO} (fully blocked)
+	 */
+	public final Double3 findTransparency(Ray ray, double maxDistance, double minK) {
+		return findTransparency(ray, maxDistance, Double3.ONE, minK, null);
+	}
+
+	/**
+	 * The function calculates the transparency of the geometry along a ray
+	 * segment (see {@link #findTransparency(Ray, double, double)}), and counts the
+	 * intersection tests of the query (see
+	 * {@link #findClosestGeoIntersection(Ray, double, LongAdder)})
+	 * 
+	 * @param ray         the ray segment's direction and head
+	 * @param maxDistance the length of the segment (included)
+	 * @param minK        the threshold under which the segment is considered
+	 *                    fully blocked
+	 * @param tests       the counter of the intersection tests, or null when the
+	 *                    tests are not counted
+	 * @return the transparency between {@link Double3#ONE} (no blocking) and
+	 *         {@link Double3#ZERO} (fully blocked)
+	 */
+	public final Double3 findTransparency(Ray ray, double maxDistance, double minK, LongAdder tests) {
+		return findTransparency(ray, maxDistance, Double3.ONE, minK, tests);
+	}
+
+	/**
+	 * The function calculates the transparency of the geometry along a ray
+	 * segment, accumulated to an initial transparency (see
+	 * {@link #findTransparency(Ray, double, double)})
+	 * 
+	 * @param ray         the ray segment's direction and head
+	 * @param maxDistance the length of the segment (included)
+	 * @param k           the transparency accumulated so far
+	 * @param minK        the threshold under which the segment is considered
+	 *                    fully blocked
+	 * @param tests       the counter of the intersection tests, or null when the
+	 *                    tests are not counted
+	 * @return the accumulated transparency, {@link Double3#ZERO} if it is lower
+	 *         than the threshold
+	 */
+	public final Double3 findTransparency(Ray ray, double maxDistance, Double3 k, double minK, LongAdder tests) {
+		countTest(tests);
+		BoundingBox box = getBoundingBox();
+		if (!box.isInfinite() && !box.intersects(ray, maxDistance))
+			return k;
+		return findTransparencyHelper(ray, maxDistance, k, minK, tests);
+	}
+
+	/**
+	 * Counts an intersection test, if the tests are counted
+	 * 
+	 * @param tests the counter of the intersection tests, or null
+	 */
+	static void countTest(LongAdder tests) {
+		if (tests != null)
+			tests.increment();
+	}
+
 	/**
 	 * Helper function for {@link #findGeoIntersections} The function returns list
 	 * of intersection points between a ray and geometry
@@ -79,4 +270,103 @@ public abstract class Intersectable {
 	 * @return a list of points that intersect a geometry
 	 */
 	protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray);
-}
\ No newline at end of file
+
+	/**
+	 * Helper function for
+	 * {@link #findClosestGeoIntersection(Ray, double, LongAdder)}. The default
+	 * implementation picks the closest point from all the intersections of the
+	 * geometry, the geometries override it with a direct calculation.
+	 * 
+	 * @param ray         that may has intersection with a geometry
+	 * @param maxDistance the maximal distance of the intersection from the ray's
+	 *                    head (excluded)
+	 * @param tests       the counter of the intersection tests, or null
+	 * @return the closest intersection point, or null if there is none
+	 */
+	protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance, LongAdder tests) {
+		List<GeoPoint> intersections = findGeoIntersectionsHelper(ray);
+		if (intersections == null)
+			return null;
+		GeoPoint closest = ray.findClosestGeoPoint(intersections);
+		return closest.point.distance(ray.getP0()) < maxDistance ? closest : null;
+	}
+
+	/**
+	 * Helper function for {@link #findClosestGeoIntersections(RayPacket)}. The
+	 * default implementation intersects the rays one by one, the simple geometries
+	 * override it with an intersection kernel over the whole packet.
+	 * 
+	 * @param packet the rays, with the closest intersections found so far
+	 */
+	protected void findClosestGeoIntersectionsHelper(RayPacket packet) {
+		BoundingBox box = getBoundingBox();
+		for (int i = 0; i < packet.size; ++i) {
+			Ray ray = packet.getRay(i);
+			double maxDistance = packet.distances[i];
+			if (!box.isInfinite() && !box.intersects(ray, maxDistance))
+				continue;
+			GeoPoint gp = findClosestGeoIntersectionHelper(ray, maxDistance, packet.tests);
+			if (gp != null)
+				packet.setHit(i, gp, gp.point.distance(ray.getP0()));
+		}
+	}
+
+	/**
+	 * Helper function for
+	 * {@link #findTransparency(Ray, double, Double3, double, LongAdder)}. The
+	 * default implementation goes over the intersections of the geometry.
+	 * 
+	 * @param ray         the ray segment's direction and head
+	 * @param maxDistance the length of the segment (included)
+	 * @param k           the transparency accumulated so far
+	 * @param minK        the threshold under which the segment is considered
+	 *                    fully blocked
+	 * @param tests       the counter of the intersection tests, or null
+	 * @return the accumulated transparency, {@link Double3#ZERO} if it is lower
+	 *         than the threshold
+	 */
+	protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 k, double minK, LongAdder tests) {
+		List<GeoPoint> intersections = findGeoIntersectionsHelper(ray);
+		if (intersections == null)
+			return k;
+		for (GeoPoint gp : intersections)
+			if (alignZero(gp.point.distance(ray.getP0()) - maxDistance) <= 0) {
+				k = k.product(gp.geometry.getMaterial().kT);
+				if (k.lowerThan(minK)) // an opaque intersection stops the search
+					return Double3.ZERO;
+			}
+		return k;
+	}
+
+	/**
+	 * Returns the conservative axis aligned bounding box of the geometry. Unbounded
+	 * geometries (e.g. plane, tube) have an infinite box
+	 * {@link BoundingBox#INFINITE}, and such geometries are never culled.
+	 * 
+	 * @return the bounding box of the geometry
+	 */
+	public final BoundingBox getBoundingBox() {
+		BoundingBox box = boundingBox;
+		if (box == null)
+			boundingBox = box = calcBoundingBox();
+		return box;
+	}
+
+	/**
+	 * Clears the bounding box of the geometry, so it is calculated again at the
+	 * next time it is needed (e.g. after a change in the geometry)
+	 */
+	protected final void resetBoundingBox() {
+		boundingBox = null;
+	}
+
+	/**
+	 * Calculates the axis aligned bounding box of the geometry. The default is an
+	 * infinite box, the geometries that are bounded override it.
+	 * 
+	 * @return the bounding box of the geometry
+	 */
+	protected BoundingBox calcBoundingBox() {
+		return BoundingBox.INFINITE;
+	}
+}
@@ -0,0 +1,791 @@
+package geometries;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Triangle mesh - a large number of triangles that share their vertices, their
+ * emission and their material. The vertices are packed in a primitive array of
+ * coordinates and the triangles (faces) are triples of vertex indices, so a
+ * mesh costs a few dozens of bytes per triangle instead of the hundreds of
+ * bytes of separate {@link Triangle} objects. The faces are arranged in an
+ * internal bounding volume hierarchy (built according to the surface area
+ * heuristic, like {@link Geometries#buildBVH()}), which is kept in primitive
+ * arrays as well.<br>
+ * The mesh holds the emission and the material of its faces, and the
+ * intersections of a ray with the mesh are {@link BarycentricGeoPoint}s whose
+ * geometry is a {@link Face} of the mesh, a light weight {@link Geometry} that
+ * is created only for the returned intersections and answers their normals.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class Mesh extends Intersectable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The emission of the faces */
+	private Color emission = Color.BLACK;
+	/** The material of the faces */
+	private Material material = new Material();
+
+	/** Coordinates of the vertices (x, y, z of each vertex) */
+	private final double[] vertices;
+	/** Indices of the vertices of the faces (3 for each face) */
+	private final int[] indices;
+	/** Normals of the vertices (x, y, z of each vertex), null for flat faces */
+	private final double[] normals;
+	/**
+	 * The reciprocals of the lengths of edge1 x edge2 of the faces (0 for a
+	 * degenerate face), which scale the determinant of a ray to the cosine between
+	 * the ray and the normal of the face, see {@link Triangle}
+	 */
+	private final double[] detScales;
+
+	/** The faces ordered by the leaves of the hierarchy */
+	private final int[] faces;
+	/** Bounds of the hierarchy nodes (min x, y, z and max x, y, z of each node) */
+	private double[] nodeBounds;
+	/**
+	 * Hierarchy nodes (2 for each node): a leaf holds the index of its first face
+	 * in {@link #faces} and the number of its faces, an inner node holds the index
+	 * of its first child (the second child follows it) and -(axis + 1) of the axis
+	 * that divides the children
+	 */
+	private int[] nodes;
+	/** Number of nodes in the hierarchy */
+	private int nodesCount = 0;
+	/** Depth of the hierarchy (the root is in level 1) */
+	private int depth = 0;
+
+	/**
+	 * Constructor of a mesh with flat faces. The arrays are kept by the mesh (they
+	 * are not copied) and must not be changed afterwards.
+	 *
+	 * @param vertices - coordinates of the vertices (x, y, z of each vertex)
+	 * @param indices  - indices of the 3 vertices of each face
+	 * @throws IllegalArgumentException if the arrays lengths are not multiples of
+	 *                                  3, there are no faces, or an index is out
+	 *                                  of range
+	 */
+	public Mesh(double[] vertices, int[] indices) {
+		this(vertices, indices, null);
+	}
+
+	/**
+	 * Constructor of a mesh with smooth faces - the normal in a point of a face is
+	 * interpolated from the normals of its vertices. The arrays are kept by the
+	 * mesh (they are not copied) and must not be changed afterwards.
+	 *
+	 * @param vertices - coordinates of the vertices (x, y, z of each vertex)
+	 * @param indices  - indices of the 3 vertices of each face
+	 * @param normals  - the normals of the vertices (x, y, z of each vertex), or
+	 *                 null for flat faces
+	 * @throws IllegalArgumentException if the arrays lengths are not multiples of
+	 *                                  3 or do not match, there are no faces, or
+	 *                                  an index is out of range
+	 */
+	public Mesh(double[] vertices, int[] indices, double[] normals) {
+		if (vertices.length % 3 != 0)
+			throw new IllegalArgumentException("The vertices array must contain 3 coordinates for each vertex");
+		if (indices.length == 0 || indices.length % 3 != 0)
+			throw new IllegalArgumentException("The indices array must contain 3 indices for each face");
+		if (normals != null && normals.length != vertices.length)
+			throw new IllegalArgumentException("The normals array must contain a normal for each vertex");
+		int verticesCount = vertices.length / 3;
+		for (int index : indices)
+			if (index < 0 || index >= verticesCount)
+				throw new IllegalArgumentException("Vertex index " + index + " is out of range");
+
+		this.vertices = vertices;
+		this.indices = indices;
+		this.normals = normals;
+
+		int facesCount = indices.length / 3;
+		faces = new int[facesCount];
+		for (int i = 0; i < facesCount; ++i)
+			faces[i] = i;
+
+		detScales = new double[facesCount];
+		for (int f = 0; f < facesCount; ++f) {
+			double e1x = vertex(f, 1, 0) - vertex(f, 0, 0), e1y = vertex(f, 1, 1) - vertex(f, 0, 1),
+					e1z = vertex(f, 1, 2) - vertex(f, 0, 2);
+			double e2x = vertex(f, 2, 0) - vertex(f, 0, 0), e2y = vertex(f, 2, 1) - vertex(f, 0, 1),
+					e2z = vertex(f, 2, 2) - vertex(f, 0, 2);
+			double cx = e1y * e2z - e1z * e2y, cy = e1z * e2x - e1x * e2z, cz = e1x * e2y - e1y * e2x;
+			double length = Math.sqrt(cx * cx + cy * cy + cz * cz);
+			detScales[f] = length == 0 ? 0 : 1 / length;
+		}
+
+		// the boxes and the centers of the faces are needed during the construction only
+		double[] boxes = new double[6 * facesCount];
+		double[] centers = new double[3 * facesCount];
+		for (int f = 0; f < facesCount; ++f) {
+			for (int axis = 0; axis < 3; ++axis) {
+				double a = vertex(f, 0, axis), b = vertex(f, 1, axis), c = vertex(f, 2, axis);
+				double min = Math.min(a, Math.min(b, c)), max = Math.max(a, Math.max(b, c));
+				boxes[6 * f + axis] = min;
+				boxes[6 * f + 3 + axis] = max;
+				centers[3 * f + axis] = (min + max) / 2;
+			}
+		}
+
+		int capacity = Math.max(1, 2 * facesCount / Geometries.BVH_MAX_LEAF_SIZE);
+		nodeBounds = new double[6 * capacity];
+		nodes = new int[2 * capacity];
+		allocateNodes(1);
+		buildNode(0, 0, facesCount, boxes, centers, 1);
+		nodeBounds = Arrays.copyOf(nodeBounds, 6 * nodesCount);
+		nodes = Arrays.copyOf(nodes, 2 * nodesCount);
+	}
+
+	/**
+	 * @return the number of vertices in the mesh
+	 */
+	public int getVerticesCount() {
+		return vertices.length / 3;
+	}
+
+	/**
+	 * @return the number of faces (triangles) in the mesh
+	 */
+	public int getFacesCount() {
+		return faces.length;
+	}
+
+	/**
+	 * @param index - the index of a vertex
+	 * @return the vertex
+	 */
+	public Point getVertex(int index) {
+		return new Point(vertices[3 * index], vertices[3 * index + 1], vertices[3 * index + 2]);
+	}
+
+	/**
+	 * Finds a coordinate of a vertex of a face
+	 *
+	 * @param face   - the face index
+	 * @param vertex - the vertex in the face (0 to 2)
+	 * @param axis   - the axis of the coordinate
+	 * @return the coordinate
+	 */
+	private double vertex(int face, int vertex, int axis) {
+		return vertices[3 * indices[3 * face + vertex] + axis];
+	}
+
+	/**
+	 * @return the emission of the faces
+	 */
+	public Color getEmission() {
+		return emission;
+	}
+
+	/**
+	 * @param emission the emission of the faces
+	 * @return the mesh itself
+	 */
+	public Mesh setEmission(Color emission) {
+		this.emission = emission;
+		return this;
+	}
+
+	/**
+	 * @return the material of the faces
+	 */
+	public Material getMaterial() {
+		return material;
+	}
+
+	/**
+	 * @param material the material of the faces
+	 * @return the mesh itself
+	 */
+	public Mesh setMaterial(Material material) {
+		this.material = material;
+		return this;
+	}
+
+	@Override
+	protected BoundingBox calcBoundingBox() {
+		return new BoundingBox(nodeBounds[0], nodeBounds[1], nodeBounds[2], nodeBounds[3], nodeBounds[4],
+				nodeBounds[5]);
+	}
+
+	// ***************** Intersections ********************** //
+
+	@Override
+	protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+		Point p0 = ray.getP0();
+		Vector dir = ray.getDir();
+		double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+		double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+		double[] uv = new double[2];
+		int[] stack = new int[depth + 1];
+		List<GeoPoint> intersections = null;
+
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (!crossesNode(node, ox, oy, oz, dx, dy, dz, Double.POSITIVE_INFINITY, null))
+				continue;
+			int first = nodes[2 * node], count = nodes[2 * node + 1];
+			if (count < 0) { // inner node
+				stack[top++] = first;
+				stack[top++] = first + 1;
+				continue;
+			}
+			for (int i = first; i < first + count; ++i) {
+				double t = intersectFace(faces[i], ox, oy, oz, dx, dy, dz, uv, null);
+				if (t > 0) {
+					if (intersections == null)
+						intersections = new LinkedList<>();
+					intersections.add(createHit(faces[i], ray, t, uv[0], uv[1]));
+				}
+			}
+		}
+		return intersections;
+	}
+
+	/**
+	 * Finds the closest intersection with the faces of the mesh. The nodes of the
+	 * hierarchy are visited from the nearer child to the farther one, and the
+	 * nodes behind the closest intersection found so far are skipped.
+	 */
+	@Override
+	protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance, LongAdder tests) {
+		Point p0 = ray.getP0();
+		Vector dir = ray.getDir();
+		double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+		double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+		double[] uv = new double[2];
+		int[] stack = new int[depth + 1];
+		int closest = -1;
+		double closestU = 0, closestV = 0;
+
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (!crossesNode(node, ox, oy, oz, dx, dy, dz, maxDistance, tests))
+				continue;
+			int first = nodes[2 * node], count = nodes[2 * node + 1];
+			if (count < 0) { // inner node - the nearer child is pushed last
+				int axis = -count - 1;
+				double d = axis == 0 ? dx : axis == 1 ? dy : dz;
+				stack[top++] = d < 0 ? first : first + 1;
+				stack[top++] = d < 0 ? first + 1 : first;
+				continue;
+			}
+			for (int i = first; i < first + count; ++i) {
+				double t = intersectFace(faces[i], ox, oy, oz, dx, dy, dz, uv, tests);
+				if (t > 0 && t < maxDistance) {
+					maxDistance = t;
+					closest = faces[i];
+					closestU = uv[0];
+					closestV = uv[1];
+				}
+			}
+		}
+		return closest < 0 ? null : createHit(closest, ray, maxDistance, closestU, closestV);
+	}
+
+	/**
+	 * Accumulates the transparency of the mesh along a ray segment - the
+	 * transparency of the mesh's material for each face that crosses the segment
+	 */
+	@Override
+	protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 k, double minK, LongAdder tests) {
+		Point p0 = ray.getP0();
+		Vector dir = ray.getDir();
+		double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+		double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+		double[] uv = new double[2];
+		int[] stack = new int[depth + 1];
+		Double3 kT = material.kT;
+
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (!crossesNode(node, ox, oy, oz, dx, dy, dz, maxDistance, tests))
+				continue;
+			int first = nodes[2 * node], count = nodes[2 * node + 1];
+			if (count < 0) { // inner node
+				stack[top++] = first;
+				stack[top++] = first + 1;
+				continue;
+			}
+			for (int i = first; i < first + count; ++i) {
+				double t = intersectFace(faces[i], ox, oy, oz, dx, dy, dz, uv, tests);
+				if (t > 0 && alignZero(t - maxDistance) <= 0) {
+					k = k.product(kT);
+					if (k.lowerThan(minK)) // an opaque face stops the search
+						return Double3.ZERO;
+				}
+			}
+		}
+		return k;
+	}
+
+	/**
+	 * Creates an intersection point of a ray with a face
+	 *
+	 * @param face - the face index
+	 * @param ray  - the ray
+	 * @param t    - the distance of the point from the ray's head
+	 * @param u    - the weight of the second vertex of the face
+	 * @param v    - the weight of the third vertex of the face
+	 * @return the intersection point
+	 */
+	private GeoPoint createHit(int face, Ray ray, double t, double u, double v) {
+		return new BarycentricGeoPoint(new Face(face, u, v), ray.getPoint(t), u, v);
+	}
+
+	/**
+	 * Intersects a ray with a face by the Möller–Trumbore method (see
+	 * {@link Triangle#findClosestGeoIntersectionHelper(Ray, double, LongAdder)}).
+	 * The edges and the vertices of the face are not intersections.
+	 *
+	 * @param face  - the face index
+	 * @param ox    - x of the ray's head
+	 * @param oy    - y of the ray's head
+	 * @param oz    - z of the ray's head
+	 * @param dx    - x of the ray's direction
+	 * @param dy    - y of the ray's direction
+	 * @param dz    - z of the ray's direction
+	 * @param uv    - array for the barycentric coordinates (u, v) of the
+	 *              intersection
+	 * @param tests - the counter of the intersection tests, or null
+	 * @return the distance of the intersection from the ray's head, or 0 if there
+	 *         is no intersection
+	 */
+	private double intersectFace(int face, double ox, double oy, double oz, double dx, double dy, double dz,
+			double[] uv, LongAdder tests) {
+		countTest(tests);
+		int a = 3 * indices[3 * face], b = 3 * indices[3 * face + 1], c = 3 * indices[3 * face + 2];
+		double p1x = vertices[a], p1y = vertices[a + 1], p1z = vertices[a + 2];
+		double e1x = vertices[b] - p1x, e1y = vertices[b + 1] - p1y, e1z = vertices[b + 2] - p1z;
+		double e2x = vertices[c] - p1x, e2y = vertices[c + 1] - p1y, e2z = vertices[c + 2] - p1z;
+
+		double px = dy * e2z - dz * e2y;
+		double py = dz * e2x - dx * e2z;
+		double pz = dx * e2y - dy * e2x;
+		double det = e1x * px + e1y * py + e1z * pz;
+		if (isZero(det * detScales[face])) // the ray is parallel to the face, or the face is degenerate
+			return 0;
+		double invDet = 1 / det;
+
+		double sx = ox - p1x, sy = oy - p1y, sz = oz - p1z;
+		double u = alignZero((sx * px + sy * py + sz * pz) * invDet);
+		if (u <= 0 || u >= 1)
+			return 0;
+
+		double qx = sy * e1z - sz * e1y;
+		double qy = sz * e1x - sx * e1z;
+		double qz = sx * e1y - sy * e1x;
+		double v = alignZero((dx * qx + dy * qy + dz * qz) * invDet);
+		if (v <= 0 || alignZero(u + v - 1) >= 0)
+			return 0;
+
+		uv[0] = u;
+		uv[1] = v;
+		return Math.max(0, alignZero((e2x * qx + e2y * qy + e2z * qz) * invDet));
+	}
+
+	/**
+	 * Checks whether a ray crosses the bounding box of a hierarchy node not
+	 * farther than a given distance (the slab method, as in
+	 * {@link BoundingBox#intersects(Ray, double)})
+	 *
+	 * @param node        - the node index
+	 * @param ox          - x of the ray's head
+	 * @param oy          - y of the ray's head
+	 * @param oz          - z of the ray's head
+	 * @param dx          - x of the ray's direction
+	 * @param dy          - y of the ray's direction
+	 * @param dz          - z of the ray's direction
+	 * @param maxDistance - the maximal distance of the box from the ray's head
+	 * @param tests       - the counter of the intersection tests, or null
+	 * @return true if the ray enters the box within the distance
+	 */
+	private boolean crossesNode(int node, double ox, double oy, double oz, double dx, double dy, double dz,
+			double maxDistance, LongAdder tests) {
+		countTest(tests);
+		int i = 6 * node;
+		double tMin = Double.NEGATIVE_INFINITY;
+		double tMax = Double.POSITIVE_INFINITY;
+
+		if (dx == 0) {
+			if (ox < nodeBounds[i] || ox > nodeBounds[i + 3])
+				return false;
+		} else {
+			double inv = 1 / dx;
+			double t1 = (nodeBounds[i] - ox) * inv, t2 = (nodeBounds[i + 3] - ox) * inv;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		if (dy == 0) {
+			if (oy < nodeBounds[i + 1] || oy > nodeBounds[i + 4])
+				return false;
+		} else {
+			double inv = 1 / dy;
+			double t1 = (nodeBounds[i + 1] - oy) * inv, t2 = (nodeBounds[i + 4] - oy) * inv;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		if (dz == 0) {
+			if (oz < nodeBounds[i + 2] || oz > nodeBounds[i + 5])
+				return false;
+		} else {
+			double inv = 1 / dz;
+			double t1 = (nodeBounds[i + 2] - oz) * inv, t2 = (nodeBounds[i + 5] - oz) * inv;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		return tMin <= tMax && tMax >= 0 && tMin <= maxDistance;
+	}
+
+	// ***************** Hierarchy construction ********************** //
+
+	/**
+	 * Allocates consecutive nodes in the hierarchy arrays
+	 *
+	 * @param count - the number of nodes
+	 * @return the index of the first allocated node
+	 */
+	private int allocateNodes(int count) {
+		int first = nodesCount;
+		nodesCount += count;
+		if (2 * nodesCount > nodes.length) {
+			int capacity = Math.max(nodesCount, nodes.length); // double the capacity
+			nodes = Arrays.copyOf(nodes, 4 * capacity);
+			nodeBounds = Arrays.copyOf(nodeBounds, 12 * capacity);
+		}
+		return first;
+	}
+
+	/**
+	 * Builds recursively a node of the hierarchy for a range of faces. The faces
+	 * of the range are reordered so that the faces of each child are consecutive.
+	 *
+	 * @param node    - the node index
+	 * @param start   - the first face of the range in {@link #faces}
+	 * @param end     - the end of the range (excluded)
+	 * @param boxes   - the bounding boxes of the faces
+	 * @param centers - the centers of the faces' boxes
+	 * @param level   - the level of the node in the hierarchy
+	 */
+	private void buildNode(int node, int start, int end, double[] boxes, double[] centers, int level) {
+		depth = Math.max(depth, level);
+		double[] bounds = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+		double[] centerBounds = bounds.clone();
+		for (int i = start; i < end; ++i) {
+			int f = faces[i];
+			for (int axis = 0; axis < 3; ++axis) {
+				bounds[axis] = Math.min(bounds[axis], boxes[6 * f + axis]);
+				bounds[axis + 3] = Math.max(bounds[axis + 3], boxes[6 * f + 3 + axis]);
+				centerBounds[axis] = Math.min(centerBounds[axis], centers[3 * f + axis]);
+				centerBounds[axis + 3] = Math.max(centerBounds[axis + 3], centers[3 * f + axis]);
+			}
+		}
+		System.arraycopy(bounds, 0, nodeBounds, 6 * node, 6);
+
+		int count = end - start;
+		if (count <= Geometries.BVH_MAX_LEAF_SIZE) {
+			setLeaf(node, start, count);
+			return;
+		}
+
+		// split along the axis with the largest spread of the boxes' centers
+		int axis = 0;
+		for (int i = 1; i < 3; ++i)
+			if (centerBounds[i + 3] - centerBounds[i] > centerBounds[axis + 3] - centerBounds[axis])
+				axis = i;
+		double min = centerBounds[axis];
+		double extent = centerBounds[axis + 3] - min;
+
+		int middle;
+		if (extent > 0) {
+			int plane = findSAHPlane(start, end, boxes, centers, axis, min, extent, surfaceArea(bounds, 0));
+			if (plane < 0) {
+				setLeaf(node, start, count);
+				return;
+			}
+			// partition the faces of the range by the plane
+			middle = start;
+			for (int i = start; i < end; ++i)
+				if (binOf(centers[3 * faces[i] + axis], min, extent) < plane) {
+					int f = faces[i];
+					faces[i] = faces[middle];
+					faces[middle++] = f;
+				}
+		} else // all the centers are in the same point
+			middle = (start + end) >>> 1;
+
+		int children = allocateNodes(2);
+		nodes[2 * node] = children;
+		nodes[2 * node + 1] = -(axis + 1);
+		buildNode(children, start, middle, boxes, centers, level + 1);
+		buildNode(children + 1, middle, end, boxes, centers, level + 1);
+	}
+
+	/**
+	 * Sets a node of the hierarchy as a leaf
+	 *
+	 * @param node  - the node index
+	 * @param start - the first face of the leaf in {@link #faces}
+	 * @param count - the number of faces in the leaf
+	 */
+	private void setLeaf(int node, int start, int count) {
+		nodes[2 * node] = start;
+		nodes[2 * node + 1] = count;
+	}
+
+	/**
+	 * Finds the division plane of a range of faces with the minimal surface area
+	 * heuristic cost among a fixed number of candidate planes (bins), see
+	 * {@link Geometries#buildBVH()}
+	 *
+	 * @param start   - the first face of the range in {@link #faces}
+	 * @param end     - the end of the range (excluded)
+	 * @param boxes   - the bounding boxes of the faces
+	 * @param centers - the centers of the faces' boxes
+	 * @param axis    - the division axis
+	 * @param min     - the minimal center coordinate on the axis
+	 * @param extent  - the spread of the center coordinates on the axis
+	 * @param area    - the surface area of the node
+	 * @return the first bin after the plane, or -1 if the faces should stay
+	 *         together in a leaf
+	 */
+	private int findSAHPlane(int start, int end, double[] boxes, double[] centers, int axis, double min,
+			double extent, double area) {
+		final int bins = Geometries.BVH_BINS;
+		int[] counts = new int[bins];
+		double[] binBounds = new double[6 * bins];
+		for (int bin = 0; bin < bins; ++bin)
+			resetBounds(binBounds, 6 * bin);
+		for (int i = start; i < end; ++i) {
+			int f = faces[i];
+			int bin = binOf(centers[3 * f + axis], min, extent);
+			counts[bin]++;
+			uniteBounds(binBounds, 6 * bin, boxes, 6 * f);
+		}
+
+		// the area and the count of the faces after each candidate plane
+		double[] rightAreas = new double[bins];
+		int[] rightCounts = new int[bins];
+		double[] accumulated = new double[6];
+		resetBounds(accumulated, 0);
+		int count = 0;
+		for (int i = bins - 1; i > 0; --i) {
+			uniteBounds(accumulated, 0, binBounds, 6 * i);
+			count += counts[i];
+			rightCounts[i] = count;
+			rightAreas[i] = count == 0 ? 0 : surfaceArea(accumulated, 0);
+		}
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int bestPlane = -1;
+		resetBounds(accumulated, 0);
+		count = 0;
+		for (int i = 1; i < bins; ++i) {
+			uniteBounds(accumulated, 0, binBounds, 6 * (i - 1));
+			count += counts[i - 1];
+			if (count == 0 || rightCounts[i] == 0)
+				continue;
+			double cost = surfaceArea(accumulated, 0) * count + rightAreas[i] * rightCounts[i];
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestPlane = i;
+			}
+		}
+
+		// a node with few faces is kept as a leaf when splitting it does not pay
+		int size = end - start;
+		if (size <= 2 * Geometries.BVH_MAX_LEAF_SIZE && area > 0
+				&& Geometries.BVH_TRAVERSAL_COST + bestCost / area >= size)
+			return -1;
+		return bestPlane;
+	}
+
+	/**
+	 * Finds the bin of a face according to the center of its box
+	 *
+	 * @param center - the center coordinate of the face's box on the axis
+	 * @param min    - the minimal center coordinate on the axis
+	 * @param extent - the spread of the center coordinates on the axis
+	 * @return the bin index
+	 */
+	private static int binOf(double center, double min, double extent) {
+		int bin = (int) ((center - min) / extent * Geometries.BVH_BINS);
+		return Math.min(bin, Geometries.BVH_BINS - 1);
+	}
+
+	/**
+	 * Sets bounds (6 coordinates in an array) to an empty box
+	 *
+	 * @param bounds - the array
+	 * @param i      - the index of the bounds in the array
+	 */
+	private static void resetBounds(double[] bounds, int i) {
+		Arrays.fill(bounds, i, i + 3, Double.POSITIVE_INFINITY);
+		Arrays.fill(bounds, i + 3, i + 6, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * Extends bounds (6 coordinates in an array) to contain other bounds
+	 *
+	 * @param bounds - the extended bounds array
+	 * @param i      - the index of the extended bounds in the array
+	 * @param other  - the other bounds array
+	 * @param j      - the index of the other bounds in its array
+	 */
+	private static void uniteBounds(double[] bounds, int i, double[] other, int j) {
+		for (int axis = 0; axis < 3; ++axis) {
+			bounds[i + axis] = Math.min(bounds[i + axis], other[j + axis]);
+			bounds[i + 3 + axis] = Math.max(bounds[i + 3 + axis], other[j + 3 + axis]);
+		}
+	}
+
+	/**
+	 * Calculates the surface area of bounds (6 coordinates in an array)
+	 *
+	 * @param bounds - the bounds array
+	 * @param i      - the index of the bounds in the array
+	 * @return the surface area, 0 for empty bounds
+	 */
+	private static double surfaceArea(double[] bounds, int i) {
+		double dx = bounds[i + 3] - bounds[i];
+		double dy = bounds[i + 4] - bounds[i + 1];
+		double dz = bounds[i + 5] - bounds[i + 2];
+		return dx < 0 ? 0 : 2 * (dx * dy + dy * dz + dz * dx);
+	}
+
+	// ***************** Faces ********************** //
+
+	/**
+	 * A face (triangle) of the mesh, as the geometry of an intersection point with
+	 * the mesh. The face is created with the emission and the material of the mesh
+	 * (changing them in the face does not change the mesh). A face of a smooth
+	 * mesh remembers the barycentric coordinates of the intersection point, for
+	 * interpolating the normal there.
+	 */
+	public class Face extends Geometry {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The index of the face in the mesh */
+		private final int index;
+		/** The weights of the second and third vertices in the intersection point */
+		private final double u, v;
+
+		/**
+		 * @param index - the index of the face in the mesh
+		 * @param u     - the weight of the second vertex in the intersection point
+		 * @param v     - the weight of the third vertex in the intersection point
+		 */
+		Face(int index, double u, double v) {
+			this.index = index;
+			this.u = u;
+			this.v = v;
+			emission = Mesh.this.emission;
+			setMaterial(Mesh.this.material);
+		}
+
+		/**
+		 * @return the index of the face in the mesh
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return the mesh of the face
+		 */
+		public Mesh getMesh() {
+			return Mesh.this;
+		}
+
+		@Override
+		public Intersectable getOwner() {
+			return Mesh.this;
+		}
+
+		/**
+		 * Returns the normal of the face. The normal of a smooth mesh is interpolated
+		 * from the normals of the face's vertices in the intersection point of the
+		 * face (the point parameter is not used).
+		 */
+		@Override
+		public Vector getNormal(Point p) {
+			if (normals != null) {
+				double w = 1 - u - v;
+				int a = 3 * indices[3 * index], b = 3 * indices[3 * index + 1], c = 3 * indices[3 * index + 2];
+				return new Vector(w * normals[a] + u * normals[b] + v * normals[c],
+						w * normals[a + 1] + u * normals[b + 1] + v * normals[c + 1],
+						w * normals[a + 2] + u * normals[b + 2] + v * normals[c + 2]).normalize();
+			}
+			double e1x = vertex(index, 1, 0) - vertex(index, 0, 0);
+			double e1y = vertex(index, 1, 1) - vertex(index, 0, 1);
+			double e1z = vertex(index, 1, 2) - vertex(index, 0, 2);
+			double e2x = vertex(index, 2, 0) - vertex(index, 0, 0);
+			double e2y = vertex(index, 2, 1) - vertex(index, 0, 1);
+			double e2z = vertex(index, 2, 2) - vertex(index, 0, 2);
+			return new Vector(e1y * e2z - e1z * e2y, e1z * e2x - e1x * e2z, e1x * e2y - e1y * e2x).normalize();
+		}
+
+		@Override
+		protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+			Point p0 = ray.getP0();
+			Vector dir = ray.getDir();
+			double[] uv = new double[2];
+			double t = intersectFace(index, p0.getX(), p0.getY(), p0.getZ(), dir.getX(), dir.getY(), dir.getZ(), uv,
+					null);
+			return t > 0 ? List.of(createHit(index, ray, t, uv[0], uv[1])) : null;
+		}
+
+		@Override
+		protected BoundingBox calcBoundingBox() {
+			double[] bounds = new double[6];
+			for (int axis = 0; axis < 3; ++axis) {
+				double a = vertex(index, 0, axis), b = vertex(index, 1, axis), c = vertex(index, 2, axis);
+				bounds[axis] = Math.min(a, Math.min(b, c));
+				bounds[axis + 3] = Math.max(a, Math.max(b, c));
+			}
+			return new BoundingBox(bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			return obj instanceof Face other && other.getMesh() == Mesh.this && other.index == index;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(Mesh.this) * 31 + index;
+		}
+
+		@Override
+		public String toString() {
+			return "Face [index=" + index + "]";
+		}
+	}
+}
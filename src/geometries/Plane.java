@@ -8,6 +8,8 @@ import static primitives.Util.*;
 
 public class Plane extends Geometry {
 
+	private static final long serialVersionUID = 1L;
+
 	private final Point q0;
 	private final Vector normal; // The normal vector to the plane
 
@@ -49,6 +51,11 @@ public class Plane extends Geometry {
 		return normal; // The normal vector to the plane is constant for all points on the plane
 	}
 
+	@Override
+	protected BoundingBox calcBoundingBox() {
+		return BoundingBox.INFINITE; // a plane is unbounded
+	}
+
 	/**
 	 * return a list of {@link GeoPoint} intersections between plane and ray
 	 * 
@@ -63,32 +70,44 @@ public class Plane extends Geometry {
 		Vector rayVector = ray.getDir();
 
 		// check if the ray is parallel to the plane
-		if (isZero(normal.dotProduct(rayVector))) // dotProduct = 0 => parallel
+		double nv = normal.dotProduct(rayVector);
+		if (isZero(nv)) // dotProduct = 0 => parallel
 			return null;
 
-		// check if the ray and the plane start at the same point
-		if (ray.getP0().equals(q0))
+		// check if the ray and the plane start at the same point (ray start on plane)
+		if (rayPoint.equals(q0))
 			return null;
-		try {
-
-			double t = alignZero((normal.dotProduct(q0.subtract(rayPoint))) / (normal.dotProduct(rayVector)));
-
-			// check if the ray starts on the plane
-			if (isZero(t))
-				return null;
-			// check if the ray crosses the plane
-			else if (t > 0)
-				return List.of(new GeoPoint(this, ray.getPoint(t))); // return list of GeoPint (convert from Point3D to
-																		// GeoPoint)
-			// no intersection between the ray and the plane
-			else
-				return null;
-
-		} catch (Exception ex) {
-			// p.subtract(rayP) is vector zero, which means the ray point is equal to the
-			// plane point (ray start on plane)
+
+		// normal * (q0 - rayPoint), calculated in primitive doubles with no allocations
+		double nQMinusP0 = normal.getX() * (q0.getX() - rayPoint.getX())
+				+ normal.getY() * (q0.getY() - rayPoint.getY()) + normal.getZ() * (q0.getZ() - rayPoint.getZ());
+		double t = alignZero(nQMinusP0 / nv);
+
+		// check if the ray starts on the plane or does not cross it
+		if (t <= 0)
 			return null;
-		}
+		return List.of(new GeoPoint(this, ray.getPoint(t))); // return list of GeoPint (convert from Point3D to
+																// GeoPoint)
 	}
 
+	/**
+	 * Intersection kernel of the plane with a packet of rays - the same
+	 * calculation as {@link #findGeoIntersectionsHelper(Ray)} for all the rays,
+	 * with the misses marked by an infinite distance instead of branches
+	 */
+	@Override
+	protected void findClosestGeoIntersectionsHelper(RayPacket packet) {
+		double nx = normal.getX(), ny = normal.getY(), nz = normal.getZ();
+		double qx = q0.getX(), qy = q0.getY(), qz = q0.getZ();
+		double[] ox = packet.ox, oy = packet.oy, oz = packet.oz;
+		double[] dx = packet.dx, dy = packet.dy, dz = packet.dz;
+		double[] candidates = packet.candidates;
+		for (int i = 0; i < packet.size; ++i) {
+			double nv = nx * dx[i] + ny * dy[i] + nz * dz[i];
+			double t = alignZero((nx * (qx - ox[i]) + ny * (qy - oy[i]) + nz * (qz - oz[i])) / nv);
+			// parallel rays and rays that start on the plane or do not cross it
+			candidates[i] = isZero(nv) || t <= 0 ? Double.POSITIVE_INFINITY : t;
+		}
+		packet.commit(this);
+	}
 }
@@ -15,6 +15,8 @@ import primitives.Vector;
  * @author Dan
  */
 public class Polygon extends Geometry {
+	private static final long serialVersionUID = 1L;
+
 	/** List of polygon's vertices */
 	protected final List<Point> vertices;
 	/** Associated plane in which the polygon lays */
@@ -87,6 +89,11 @@ public class Polygon extends Geometry {
 	public Vector getNormal(Point point) {
 		return plane.getNormal();
 	}
+
+	@Override
+	protected BoundingBox calcBoundingBox() {
+		return BoundingBox.of(vertices);
+	}
 	
 	/**
 	 * @param Ray ray - the ray that intersect the plane
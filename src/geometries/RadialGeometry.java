@@ -2,6 +2,8 @@ package geometries;
 
 public abstract class RadialGeometry extends Geometry {
 
+	private static final long serialVersionUID = 1L;
+
 	final protected double radius;
 
 	/**
@@ -0,0 +1,230 @@
+package geometries;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import geometries.Intersectable.BarycentricGeoPoint;
+import geometries.Intersectable.GeoPoint;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * A packet of rays that are intersected with the geometries together (see
+ * {@link Intersectable#findClosestGeoIntersections(RayPacket)}). The heads and
+ * the directions of the rays are kept as structure of arrays - an array of
+ * doubles for each coordinate - so the intersection kernels of the geometries
+ * run the same calculation over consecutive array elements in plain loops, which
+ * the JIT compiler may unroll and vectorize. Coherent rays (e.g. the rays from
+ * the camera through neighboring pixels) visit the same nodes of a geometries
+ * hierarchy, so the hierarchy is traversed once for the whole packet.<br>
+ * The packet keeps the closest intersection found so far for each ray, and its
+ * distance bounds the search of that ray in the rest of the geometries.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public final class RayPacket {
+
+	/**
+	 * The rays of the packet, the rays of a packet that was filled with directions
+	 * are created on demand
+	 */
+	private final Ray[] rays;
+	/** The common head of the rays of a packet that was filled with directions */
+	private Point origin;
+	/** Number of rays in the packet */
+	int size = 0;
+
+	/** Coordinates of the heads of the rays */
+	final double[] ox, oy, oz;
+	/** Coordinates of the (normalized) directions of the rays */
+	final double[] dx, dy, dz;
+	/** Distance of the closest intersection of each ray (excluded) */
+	final double[] distances;
+	/** The closest intersection of each ray, null if there is none */
+	private final GeoPoint[] hits;
+
+	/**
+	 * The distances of the intersections of each ray with the current geometry
+	 * (infinite for no intersection), filled by the intersection kernels
+	 */
+	final double[] candidates;
+	/** Barycentric coordinates of the intersections with the current triangle */
+	final double[] us, vs;
+
+	/** Counter of the intersection tests of the packet, null when not counted */
+	LongAdder tests = null;
+
+	/**
+	 * Constructs an empty packet
+	 *
+	 * @param capacity - the maximal number of rays in the packet
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public RayPacket(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The packet capacity must be positive");
+		rays = new Ray[capacity];
+		hits = new GeoPoint[capacity];
+		ox = new double[capacity];
+		oy = new double[capacity];
+		oz = new double[capacity];
+		dx = new double[capacity];
+		dy = new double[capacity];
+		dz = new double[capacity];
+		distances = new double[capacity];
+		candidates = new double[capacity];
+		us = new double[capacity];
+		vs = new double[capacity];
+	}
+
+	/**
+	 * Fills the packet with rays, without intersections
+	 *
+	 * @param rays  - the rays
+	 * @param count - the number of rays (from the beginning of the array)
+	 * @return the packet itself
+	 * @throws IllegalArgumentException if the count exceeds the capacity
+	 */
+	public RayPacket set(Ray[] rays, int count) {
+		if (count > this.rays.length)
+			throw new IllegalArgumentException("Too many rays for the packet");
+		size = count;
+		for (int i = 0; i < count; ++i) {
+			Ray ray = rays[i];
+			Point p0 = ray.getP0();
+			Vector dir = ray.getDir();
+			this.rays[i] = ray;
+			ox[i] = p0.getX();
+			oy[i] = p0.getY();
+			oz[i] = p0.getZ();
+			dx[i] = dir.getX();
+			dy[i] = dir.getY();
+			dz[i] = dir.getZ();
+			distances[i] = Double.POSITIVE_INFINITY;
+			hits[i] = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Fills the packet with rays from a common head, without intersections. The
+	 * rays are given by the coordinates of their directions only, so that no ray
+	 * object is created unless it is needed for a ray that hits a geometry.
+	 *
+	 * @param origin - the head of the rays
+	 * @param dx     - the first coordinates of the (normalized) directions
+	 * @param dy     - the second coordinates of the directions
+	 * @param dz     - the third coordinates of the directions
+	 * @param count  - the number of rays (from the beginning of the arrays)
+	 * @return the packet itself
+	 * @throws IllegalArgumentException if the count exceeds the capacity
+	 */
+	public RayPacket set(Point origin, double[] dx, double[] dy, double[] dz, int count) {
+		if (count > rays.length)
+			throw new IllegalArgumentException("Too many rays for the packet");
+		size = count;
+		this.origin = origin;
+		double x = origin.getX(), y = origin.getY(), z = origin.getZ();
+		System.arraycopy(dx, 0, this.dx, 0, count);
+		System.arraycopy(dy, 0, this.dy, 0, count);
+		System.arraycopy(dz, 0, this.dz, 0, count);
+		for (int i = 0; i < count; ++i) {
+			rays[i] = null;
+			ox[i] = x;
+			oy[i] = y;
+			oz[i] = z;
+			distances[i] = Double.POSITIVE_INFINITY;
+			hits[i] = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the counter of the intersection tests of the packet's queries (see
+	 * {@link Intersectable#findClosestGeoIntersection(Ray, double, LongAdder)})
+	 *
+	 * @param tests - the counter, or null when the tests are not counted
+	 * @return the packet itself
+	 */
+	public RayPacket setTestsCounter(LongAdder tests) {
+		this.tests = tests;
+		return this;
+	}
+
+	/**
+	 * @return the number of rays in the packet
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index - the index of a ray in the packet
+	 * @return the ray
+	 */
+	public Ray getRay(int index) {
+		Ray ray = rays[index];
+		if (ray == null)
+			rays[index] = ray = new Ray(origin, new Vector(dx[index], dy[index], dz[index]));
+		return ray;
+	}
+
+	/**
+	 * Calculates a point on a ray of the packet
+	 *
+	 * @param index - the index of the ray
+	 * @param t     - the distance of the point from the ray's head
+	 * @return the point
+	 */
+	private Point getPoint(int index, double t) {
+		return new Point(ox[index] + dx[index] * t, oy[index] + dy[index] * t, oz[index] + dz[index] * t);
+	}
+
+	/**
+	 * @param index - the index of a ray in the packet
+	 * @return the closest intersection of the ray, null if there is none
+	 */
+	public GeoPoint getHit(int index) {
+		return hits[index];
+	}
+
+	/**
+	 * Replaces the closest intersection of a ray
+	 *
+	 * @param index    - the index of the ray
+	 * @param hit      - the intersection
+	 * @param distance - the distance of the intersection from the ray's head
+	 */
+	void setHit(int index, GeoPoint hit, double distance) {
+		hits[index] = hit;
+		distances[index] = distance;
+	}
+
+	/**
+	 * Keeps the candidate intersections of a geometry that are closer than the
+	 * closest intersections found so far
+	 *
+	 * @param geometry - the intersected geometry
+	 */
+	void commit(Geometry geometry) {
+		for (int i = 0; i < size; ++i) {
+			double t = candidates[i];
+			if (t < distances[i])
+				setHit(i, new GeoPoint(geometry, getPoint(i, t)), t);
+		}
+	}
+
+	/**
+	 * Keeps the candidate intersections of a triangle (with their barycentric
+	 * coordinates) that are closer than the closest intersections found so far
+	 *
+	 * @param triangle - the intersected triangle
+	 */
+	void commitBarycentric(Geometry triangle) {
+		for (int i = 0; i < size; ++i) {
+			double t = candidates[i];
+			if (t < distances[i])
+				setHit(i, new BarycentricGeoPoint(triangle, getPoint(i, t), us[i], vs[i]), t);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package geometries;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import static primitives.Util.*;
 import primitives.Point;
 import primitives.Ray;
@@ -8,6 +9,8 @@ import primitives.Vector;
 
 public class Sphere extends RadialGeometry {
 
+	private static final long serialVersionUID = 1L;
+
 	private final Point center; // The center point of the sphere
 
 	/**
@@ -29,6 +32,12 @@ public class Sphere extends RadialGeometry {
 												// sphere
 	}
 
+	@Override
+	protected BoundingBox calcBoundingBox() {
+		return new BoundingBox(center.getX() - radius, center.getY() - radius, center.getZ() - radius,
+				center.getX() + radius, center.getY() + radius, center.getZ() + radius);
+	}
+
 	/**
 	 * @param Ray ray - the ray that intersect the plane
 	 * @return List<GeoPoint> - the list of intersection GeoPoints
@@ -66,16 +75,18 @@ public class Sphere extends RadialGeometry {
 	 */
 
 	public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-
-		Vector pointToCenter;
-		try {
-			pointToCenter = center.subtract(ray.getP0());
-		} catch (IllegalArgumentException ignore) {
+		// the vector from the ray's head to the center is calculated in primitive
+		// doubles, with no allocations on the miss path
+		Point p0 = ray.getP0();
+		double ux = center.getX() - p0.getX();
+		double uy = center.getY() - p0.getY();
+		double uz = center.getZ() - p0.getZ();
+		if (isZero(ux) && isZero(uy) && isZero(uz)) // the ray starts at the center
 			return List.of(new GeoPoint(this, ray.getPoint(radius)));
-		}
 
-		double tm = pointToCenter.dotProduct(ray.getDir());
-		double distanceFromCenterSquared = pointToCenter.dotProduct(pointToCenter) - tm * tm;
+		Vector dir = ray.getDir();
+		double tm = ux * dir.getX() + uy * dir.getY() + uz * dir.getZ();
+		double distanceFromCenterSquared = ux * ux + uy * uy + uz * uz - tm * tm;
 		double thSquared = radius * radius - distanceFromCenterSquared;
 		// check that ray crosses area of sphere, if not then return null
 		if (alignZero(thSquared) <= 0)
@@ -90,4 +101,54 @@ public class Sphere extends RadialGeometry {
 				: List.of(new GeoPoint(this, ray.getPoint(firstDistance)),
 						new GeoPoint(this, ray.getPoint(secondDistance)));
 	}
+
+	@Override
+	protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance, LongAdder tests) {
+		Point p0 = ray.getP0();
+		double ux = center.getX() - p0.getX();
+		double uy = center.getY() - p0.getY();
+		double uz = center.getZ() - p0.getZ();
+		if (isZero(ux) && isZero(uy) && isZero(uz)) // the ray starts at the center
+			return radius < maxDistance ? new GeoPoint(this, ray.getPoint(radius)) : null;
+
+		Vector dir = ray.getDir();
+		double tm = ux * dir.getX() + uy * dir.getY() + uz * dir.getZ();
+		double thSquared = radius * radius - (ux * ux + uy * uy + uz * uz - tm * tm);
+		if (alignZero(thSquared) <= 0)
+			return null;
+
+		double th = Math.sqrt(thSquared);
+		double secondDistance = tm + th;
+		if (alignZero(secondDistance) <= 0)
+			return null;
+		double firstDistance = tm - th;
+		double distance = firstDistance <= 0 ? secondDistance : firstDistance; // the closest point in front of the ray
+		return distance < maxDistance ? new GeoPoint(this, ray.getPoint(distance)) : null;
+	}
+
+	/**
+	 * Intersection kernel of the sphere with a packet of rays - the same
+	 * calculation as {@link #findClosestGeoIntersectionHelper(Ray, double, LongAdder)} for all
+	 * the rays, with the misses marked by an infinite distance instead of branches
+	 */
+	@Override
+	protected void findClosestGeoIntersectionsHelper(RayPacket packet) {
+		double cx = center.getX(), cy = center.getY(), cz = center.getZ();
+		double radiusSquared = radius * radius;
+		double[] ox = packet.ox, oy = packet.oy, oz = packet.oz;
+		double[] dx = packet.dx, dy = packet.dy, dz = packet.dz;
+		double[] candidates = packet.candidates;
+		for (int i = 0; i < packet.size; ++i) {
+			double ux = cx - ox[i], uy = cy - oy[i], uz = cz - oz[i];
+			double tm = ux * dx[i] + uy * dy[i] + uz * dz[i];
+			double thSquared = radiusSquared - (ux * ux + uy * uy + uz * uz - tm * tm);
+			double th = Math.sqrt(Math.max(thSquared, 0));
+			double firstDistance = tm - th, secondDistance = tm + th;
+			double distance = alignZero(thSquared) <= 0 || alignZero(secondDistance) <= 0 ? Double.POSITIVE_INFINITY
+					: firstDistance <= 0 ? secondDistance : firstDistance;
+			// a ray that starts at the center
+			candidates[i] = isZero(ux) && isZero(uy) && isZero(uz) ? radius : distance;
+		}
+		packet.commit(this);
+	}
 }
@@ -1,6 +1,7 @@
 package geometries;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 import static primitives.Util.*;
 
@@ -10,6 +11,21 @@ import primitives.Vector;
 
 public class Triangle extends Polygon {
 
+	private static final long serialVersionUID = 1L;
+
+	/** The first vertex, in primitive doubles for the intersection */
+	private final double p1x, p1y, p1z;
+	/** The edge from the first vertex to the second one */
+	private final double e1x, e1y, e1z;
+	/** The edge from the first vertex to the third one */
+	private final double e2x, e2y, e2z;
+	/**
+	 * The reciprocal of the length of edge1 x edge2, which scales the determinant
+	 * of a ray to the cosine between the ray and the normal, independently of the
+	 * size of the triangle
+	 */
+	private final double detScale;
+
 	/**
 	 * Constructs a triangle with given 3 points
 	 * 
@@ -19,46 +35,118 @@ public class Triangle extends Polygon {
 	 */
 	public Triangle(Point p1, Point p2, Point p3) {
 		super(p1, p2, p3); // Use the constructor of Polygon and set the size of points list to 3
+		p1x = p1.getX();
+		p1y = p1.getY();
+		p1z = p1.getZ();
+		e1x = p2.getX() - p1x;
+		e1y = p2.getY() - p1y;
+		e1z = p2.getZ() - p1z;
+		e2x = p3.getX() - p1x;
+		e2y = p3.getY() - p1y;
+		e2z = p3.getZ() - p1z;
+		detScale = 1 / Math.sqrt(square(e1y * e2z - e1z * e2y) + square(e1z * e2x - e1x * e2z)
+				+ square(e1x * e2y - e1y * e2x));
+	}
+
+	/**
+	 * @param x - a number
+	 * @return the number squared
+	 */
+	private static double square(double x) {
+		return x * x;
 	}
 
 	/**
-	 * return a list of intersections between triangle and ray find intersections
-	 * using barycentric method I is the traced point on the ray if (0 < a, b < 1)
-	 * => I is inside the triangle
+	 * return a list of intersections between triangle and ray, see
+	 * {@link #findClosestGeoIntersectionHelper(Ray, double, LongAdder)}
 	 * 
 	 * @param ray - ray that may has intersection with the triangle
 	 * @return list of intersection points
 	 */
 	@Override
 	public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-		List<GeoPoint> intersections = plane.findGeoIntersections(ray);
-		if (intersections == null)
-			return null;
+		GeoPoint intersection = findClosestGeoIntersectionHelper(ray, Double.POSITIVE_INFINITY, null);
+		return intersection == null ? null : List.of(intersection);
+	}
 
+	/**
+	 * Finds the intersection of the triangle with a ray by the Möller–Trumbore
+	 * method: the intersection is solved directly in the barycentric coordinates
+	 * (u, v) of the triangle and the distance t on the ray, with the precomputed
+	 * edges of the triangle. If (0 < u, v and u + v < 1) the point is inside the
+	 * triangle (the edges and the vertices are not intersections).
+	 * 
+	 * @param ray         - ray that may has intersection with the triangle
+	 * @param maxDistance - the maximal distance of the intersection from the ray's
+	 *                    head (excluded)
+	 * @param tests       - the counter of the intersection tests (not used, the
+	 *                    triangle is a single test)
+	 * @return the intersection point with its barycentric coordinates
+	 *         ({@link BarycentricGeoPoint}), or null if there is none
+	 */
+	@Override
+	protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double maxDistance, LongAdder tests) {
 		Point rayPoint = ray.getP0();
 		Vector rayVector = ray.getDir();
+		double dx = rayVector.getX(), dy = rayVector.getY(), dz = rayVector.getZ();
 
-		Vector v1 = vertices.get(0).subtract(rayPoint); // vertex v1
-		Vector v2 = vertices.get(1).subtract(rayPoint); // vertex v2
-		Vector v3 = vertices.get(2).subtract(rayPoint); // vertex v3
+		// p = dir x edge2, det = edge1 * p (0 if the ray is parallel to the triangle)
+		double px = dy * e2z - dz * e2y;
+		double py = dz * e2x - dx * e2z;
+		double pz = dx * e2y - dy * e2x;
+		double det = e1x * px + e1y * py + e1z * pz;
+		if (isZero(det * detScale)) // the ray is parallel to the triangle
+			return null;
+		double invDet = 1 / det;
 
-		Vector n1 = v1.crossProduct(v2).normalize();
-		Vector n2 = v2.crossProduct(v3).normalize();
-		Vector n3 = v3.crossProduct(v1).normalize();
-		double vN1 = rayVector.dotProduct(n1); // rayVector*n1
-		double vN2 = rayVector.dotProduct(n2); // rayVector*n2
-		double vN3 = rayVector.dotProduct(n3); // rayVector*n3
-		// check if all vNi are not zero
-		if (isZero(vN1) || isZero(vN2) || isZero(vN3))
+		// s = p0 - p1
+		double sx = rayPoint.getX() - p1x, sy = rayPoint.getY() - p1y, sz = rayPoint.getZ() - p1z;
+		double u = alignZero((sx * px + sy * py + sz * pz) * invDet);
+		if (u <= 0 || u >= 1)
 			return null;
-		// check if all vNi have a same sign(-/+)
-		if ((vN1 > 0 && vN2 > 0 && vN3 > 0) || (vN1 < 0 && vN2 < 0 && vN3 < 0)) {
-			intersections.get(0).geometry = this;
-			return intersections;
-		} 
-		else
+
+		// q = s x edge1
+		double qx = sy * e1z - sz * e1y;
+		double qy = sz * e1x - sx * e1z;
+		double qz = sx * e1y - sy * e1x;
+		double v = alignZero((dx * qx + dy * qy + dz * qz) * invDet);
+		if (v <= 0 || alignZero(u + v - 1) >= 0)
 			return null;
 
+		double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * invDet);
+		return t <= 0 || t >= maxDistance ? null : new BarycentricGeoPoint(this, ray.getPoint(t), u, v);
 	}
 
+	/**
+	 * Intersection kernel of the triangle with a packet of rays - the same
+	 * Möller–Trumbore calculation as
+	 * {@link #findClosestGeoIntersectionHelper(Ray, double, LongAdder)} for all the rays,
+	 * with the misses marked by an infinite distance instead of branches
+	 */
+	@Override
+	protected void findClosestGeoIntersectionsHelper(RayPacket packet) {
+		double[] ox = packet.ox, oy = packet.oy, oz = packet.oz;
+		double[] dx = packet.dx, dy = packet.dy, dz = packet.dz;
+		double[] candidates = packet.candidates, us = packet.us, vs = packet.vs;
+		for (int i = 0; i < packet.size; ++i) {
+			double px = dy[i] * e2z - dz[i] * e2y;
+			double py = dz[i] * e2x - dx[i] * e2z;
+			double pz = dx[i] * e2y - dy[i] * e2x;
+			double det = e1x * px + e1y * py + e1z * pz;
+			double invDet = 1 / det;
+			double sx = ox[i] - p1x, sy = oy[i] - p1y, sz = oz[i] - p1z;
+			double u = alignZero((sx * px + sy * py + sz * pz) * invDet);
+			double qx = sy * e1z - sz * e1y;
+			double qy = sz * e1x - sx * e1z;
+			double qz = sx * e1y - sy * e1x;
+			double v = alignZero((dx[i] * qx + dy[i] * qy + dz[i] * qz) * invDet);
+			double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * invDet);
+			us[i] = u;
+			vs[i] = v;
+			candidates[i] = isZero(det * detScale) || u <= 0 || u >= 1 || v <= 0 || alignZero(u + v - 1) >= 0 || t <= 0
+					? Double.POSITIVE_INFINITY
+					: t;
+		}
+		packet.commitBarycentric(this);
+	}
 }
@@ -8,6 +8,8 @@ import primitives.Vector;
 
 public class Tube extends RadialGeometry {
 
+	private static final long serialVersionUID = 1L;
+
 	final protected Ray axisRay; // The central ray of the tube
 
 	/**
@@ -42,6 +44,11 @@ public class Tube extends RadialGeometry {
 		return p.subtract(O).normalize(); // Calculate and return the normal vector at the given point on the tube
 	}
 
+	@Override
+	protected BoundingBox calcBoundingBox() {
+		return BoundingBox.INFINITE; // an infinite tube is unbounded
+	}
+
 	/**
 	 * This function returns all intersections {@link GeoPoint} between a ray and
 	 * the tube
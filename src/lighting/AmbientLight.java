@@ -10,6 +10,8 @@ import primitives.Double3;
  */
 public class AmbientLight extends Light {
 
+	private static final long serialVersionUID = 1L;
+
 	// a constant field the default intensity is black (no light intensity):
 	public static final AmbientLight NONE = new AmbientLight(Color.BLACK, Double3.ZERO);
 
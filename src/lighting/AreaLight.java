@@ -0,0 +1,133 @@
+package lighting;
+
+import static primitives.Util.isZero;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Light source with an area, which casts soft shadows. The shading of a point
+ * (the direction and the attenuation of the light) is calculated from the
+ * center of the light, as for a {@link PointLight}, while the shadow of the
+ * point is the average over shadow rays towards sample points on the area of
+ * the light. The area is divided into n x n equal cells, and each shadow ray
+ * goes to a random point in its own cell (stratified sampling). <br>
+ * In the adaptive mode, a few samples spread over the area are traced first,
+ * and when all of them are equally shadowed (usually fully lit or fully
+ * blocked) the point is not on the edge of a shadow, so the rest of the samples
+ * are not traced.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public abstract class AreaLight extends PointLight {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The center of the light */
+	protected final Point center;
+
+	/** Number of the cells on the side of the sampled area */
+	private int samplesSide = 1;
+	/** Number of the first samples of the adaptive mode, 0 for all the samples */
+	private int adaptiveSamples = 0;
+
+	/**
+	 * Constructor of an area light
+	 *
+	 * @param intensity - the intensity of the light
+	 * @param center    - the center of the light
+	 */
+	protected AreaLight(Color intensity, Point center) {
+		super(intensity, center);
+		this.center = center;
+	}
+
+	/**
+	 * Sets the number of the shadow rays towards the light: its area is sampled by
+	 * n x n stratified samples. A single sample (the default) is the center of the
+	 * light, so the shadow is hard as the shadow of a point light.
+	 *
+	 * @param n - the number of the samples on the side of the area
+	 * @return the light itself
+	 * @throws IllegalArgumentException if the number is not positive, or the
+	 *                                  number of the rays (n squared) is not an
+	 *                                  int
+	 */
+	public AreaLight setShadowSamples(int n) {
+		if (n < 1 || (long) n * n > Integer.MAX_VALUE)
+			throw new IllegalArgumentException(
+					"ERROR: The number of shadow samples must be positive, and its square an int");
+		this.samplesSide = n;
+		return this;
+	}
+
+	/**
+	 * Sets the adaptive mode: the first k samples are traced, and the rest of them
+	 * only when the first ones are not equally shadowed
+	 *
+	 * @param k - the number of the first samples, 0 for tracing all the samples
+	 * @return the light itself
+	 * @throws IllegalArgumentException if the number is negative
+	 */
+	public AreaLight setAdaptiveSamples(int k) {
+		if (k < 0)
+			throw new IllegalArgumentException("ERROR: The number of adaptive samples must not be negative");
+		this.adaptiveSamples = k;
+		return this;
+	}
+
+	/**
+	 * @return the number of the shadow rays towards the light
+	 */
+	public int getShadowSamples() {
+		return samplesSide * samplesSide;
+	}
+
+	/**
+	 * @return the number of the first samples of the adaptive mode, 0 if it is
+	 *         off
+	 */
+	public int getAdaptiveSamples() {
+		return adaptiveSamples;
+	}
+
+	/**
+	 * Finds a sample point on the light for a shadow ray from a point
+	 *
+	 * @param p      - the shadowed point
+	 * @param index  - the index of the sample (its cell of the area)
+	 * @param jitter - 2 random numbers from 0 to 1, the position of the sample
+	 *               in its cell
+	 * @return the sample point
+	 */
+	public Point getSample(Point p, int index, double[] jitter) {
+		if (samplesSide == 1)
+			return center;
+		double u = (index % samplesSide + jitter[0]) / samplesSide;
+		double v = (index / samplesSide + jitter[1]) / samplesSide;
+		return getSample(p, u, v);
+	}
+
+	/**
+	 * Maps a point of the unit square to the area of the light
+	 *
+	 * @param p - the shadowed point
+	 * @param u - first coordinate in the unit square
+	 * @param v - second coordinate in the unit square
+	 * @return the point on the light
+	 */
+	protected abstract Point getSample(Point p, double u, double v);
+
+	/**
+	 * Moves a point along a vector
+	 *
+	 * @param p - the point
+	 * @param v - the vector
+	 * @param t - the scale of the vector
+	 * @return the moved point
+	 */
+	protected static Point move(Point p, Vector v, double t) {
+		return isZero(t) ? p : p.add(v.scale(t));
+	}
+}
@@ -13,6 +13,8 @@ import primitives.Vector;
  */
 public class DirectionalLight extends Light implements LightSource {
 
+	private static final long serialVersionUID = 1L;
+
 	private final Vector direction;
 
 	/**
@@ -0,0 +1,45 @@
+package lighting;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Util;
+import primitives.Vector;
+
+/**
+ * Disk shaped area light (like a round lamp), see {@link AreaLight}
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class DiskLight extends AreaLight {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Orthogonal unit vectors in the plane of the disk */
+	private final Vector u, v;
+	/** The radius of the disk */
+	private final double radius;
+
+	/**
+	 * Constructor of a disk light
+	 *
+	 * @param intensity - the intensity of the light
+	 * @param center    - the center of the disk
+	 * @param normal    - the normal of the disk
+	 * @param radius    - the radius of the disk
+	 * @throws IllegalArgumentException if the radius is not positive
+	 */
+	public DiskLight(Color intensity, Point center, Vector normal, double radius) {
+		super(intensity, center);
+		if (radius <= 0)
+			throw new IllegalArgumentException("ERROR: The radius must be positive");
+		this.u = normal.orthogonal();
+		this.v = normal.normalize().crossProduct(u);
+		this.radius = radius;
+	}
+
+	@Override
+	protected Point getSample(Point p, double x, double y) {
+		double[] disk = Util.concentricDisk(x, y);
+		return move(move(center, u, disk[0] * radius), v, disk[1] * radius);
+	}
+}
@@ -3,13 +3,17 @@
  */
 package lighting;
 
+import java.io.Serializable;
+
 import primitives.Color;
 
 /**
  * @author user1
  *
  */
-abstract class Light {
+abstract class Light implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private final Color intensity;
 
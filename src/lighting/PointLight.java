@@ -15,6 +15,8 @@ import primitives.Vector;
  */
 public class PointLight extends Light implements LightSource {
 
+	private static final long serialVersionUID = 1L;
+
 	// #region fields
 	/**
 	 * the position of the light source in the scene
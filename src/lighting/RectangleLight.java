@@ -0,0 +1,41 @@
+package lighting;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+
+/**
+ * Rectangular area light (like a window or a ceiling panel), see
+ * {@link AreaLight}
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class RectangleLight extends AreaLight {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The edges of the rectangle */
+	private final Vector width, height;
+
+	/**
+	 * Constructor of a rectangular light
+	 *
+	 * @param intensity - the intensity of the light
+	 * @param center    - the center of the rectangle
+	 * @param width     - the first edge of the rectangle (its length is the width)
+	 * @param height    - the second edge of the rectangle (its length is the
+	 *                  height)
+	 * @throws IllegalArgumentException if the edges are parallel
+	 */
+	public RectangleLight(Color intensity, Point center, Vector width, Vector height) {
+		super(intensity, center);
+		width.crossProduct(height); // throws for parallel edges
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	protected Point getSample(Point p, double u, double v) {
+		return move(move(center, width, u - 0.5), height, v - 0.5);
+	}
+}
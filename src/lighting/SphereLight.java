@@ -0,0 +1,48 @@
+package lighting;
+
+import primitives.Color;
+import primitives.Point;
+import primitives.Util;
+import primitives.Vector;
+
+/**
+ * Spherical area light (like a light bulb), see {@link AreaLight}. From a
+ * shadowed point, the sphere is seen as a disk facing the point, so the samples
+ * are taken on that disk: they are spread evenly over the visible light, and
+ * none of them is wasted on the far side of the sphere.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class SphereLight extends AreaLight {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The radius of the sphere */
+	private final double radius;
+
+	/**
+	 * Constructor of a spherical light
+	 *
+	 * @param intensity - the intensity of the light
+	 * @param center    - the center of the sphere
+	 * @param radius    - the radius of the sphere
+	 * @throws IllegalArgumentException if the radius is not positive
+	 */
+	public SphereLight(Color intensity, Point center, double radius) {
+		super(intensity, center);
+		if (radius <= 0)
+			throw new IllegalArgumentException("ERROR: The radius must be positive");
+		this.radius = radius;
+	}
+
+	@Override
+	protected Point getSample(Point p, double x, double y) {
+		if (p.equals(center))
+			return center;
+		Vector normal = p.subtract(center);
+		Vector u = normal.orthogonal();
+		Vector v = normal.normalize().crossProduct(u);
+		double[] disk = Util.concentricDisk(x, y);
+		return move(move(center, u, disk[0] * radius), v, disk[1] * radius);
+	}
+}
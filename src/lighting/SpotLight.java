@@ -13,6 +13,8 @@ import primitives.Vector;
  */
 public class SpotLight extends PointLight {
 
+	private static final long serialVersionUID = 1L;
+
 	private final Vector direction;
 
 	/**
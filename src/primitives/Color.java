@@ -1,5 +1,7 @@
 package primitives;
 
+import java.io.Serializable;
+
 /**
  * Wrapper class for java.jwt.Color The constructors operate with any
  * non-negative RGB values. The colors are maintained without upper limit of
@@ -8,7 +10,9 @@ package primitives;
  * 
  * @author Dan Zilberstein
  */
-public class Color {
+public class Color implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The internal fields maintain RGB components as double numbers from 0 to
 	 * whatever...
@@ -71,6 +75,38 @@ public class Color {
 		return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
 	}
 
+	/**
+	 * @return the red component (without upper limit)
+	 */
+	public double getRed() {
+		return rgb.d1;
+	}
+
+	/**
+	 * @return the green component (without upper limit)
+	 */
+	public double getGreen() {
+		return rgb.d2;
+	}
+
+	/**
+	 * @return the blue component (without upper limit)
+	 */
+	public double getBlue() {
+		return rgb.d3;
+	}
+
+	/**
+	 * Operation of adding this and another color (by component), without the
+	 * array allocation of the variable arguments version
+	 * 
+	 * @param color other color to add
+	 * @return new Color object which is a result of the operation
+	 */
+	public Color add(Color color) {
+		return new Color(rgb.d1 + color.rgb.d1, rgb.d2 + color.rgb.d2, rgb.d3 + color.rgb.d3);
+	}
+
 	/**
 	 * Operation of adding this and one or more other colors (by component)
 	 * 
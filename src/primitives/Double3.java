@@ -3,11 +3,15 @@
  */
 package primitives;
 
+import java.io.Serializable;
+
 import static primitives.Util.isZero;
 
 /** This class will serve all primitive classes based on three numbers
  * @author Dan Zilberstein */
-public class Double3 {
+public class Double3 implements Serializable {
+   private static final long serialVersionUID = 1L;
+
    /** First number */
    final double                d1;
    /** Second number */
@@ -112,4 +116,10 @@ public class Double3 {
    public boolean lowerThan(Double3 other) {
       return d1 < other.d1 && d2 < other.d2 && d3 < other.d3;
    }
+
+   /** Finds the largest of the three numbers
+    * @return the maximal number of the triad */
+   public double max() {
+      return Math.max(d1, Math.max(d2, d3));
+   }
 }
@@ -1,12 +1,16 @@
 package primitives;
 
+import java.io.Serializable;
+
 /**
  * The Material class holds the attenuation and the shininess factors of a
  * {@link Geometry}
  * These factors are uses for Light-Geometry interaction calculating in the
  * Phong Reflectance Model
  */
-public class Material {
+public class Material implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     //#region coefficients fields
 
@@ -36,6 +40,18 @@ public class Material {
      */
     public int nShininess = 0;
 
+    /**
+     * the glossiness of the reflection: the radius of the cone of the reflected rays
+     * at a distance of 1 from the reflection point (0 for a perfect mirror)
+     */
+    public double glossiness = 0;
+
+    /**
+     * the blurriness of the refraction: the radius of the cone of the refracted rays
+     * at a distance of 1 from the refraction point (0 for clear glass)
+     */
+    public double blurriness = 0;
+
     //#endregion
 
     /**
@@ -136,4 +152,32 @@ public class Material {
         this.nShininess = shininess;
         return this;
     }
+
+    /**
+     * Setter of the glossiness of the reflection
+     * 
+     * @param glossiness the radius of the cone of the reflected rays at a distance of 1
+     * @return the material
+     * @throws IllegalArgumentException if the glossiness is negative
+     */
+    public Material setGlossiness(double glossiness) {
+        if (glossiness < 0)
+            throw new IllegalArgumentException("ERROR: The glossiness must not be negative");
+        this.glossiness = glossiness;
+        return this;
+    }
+
+    /**
+     * Setter of the blurriness of the refraction
+     * 
+     * @param blurriness the radius of the cone of the refracted rays at a distance of 1
+     * @return the material
+     * @throws IllegalArgumentException if the blurriness is negative
+     */
+    public Material setBlurriness(double blurriness) {
+        if (blurriness < 0)
+            throw new IllegalArgumentException("ERROR: The blurriness must not be negative");
+        this.blurriness = blurriness;
+        return this;
+    }
 }
\ No newline at end of file
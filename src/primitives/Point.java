@@ -1,5 +1,6 @@
 package primitives;
 
+import java.io.Serializable;
 import java.util.Objects;
 
 /**
@@ -7,7 +8,9 @@ import java.util.Objects;
  * @author Hadas Carmen &amp; Naama Schweitzer
  *
  */
-public class Point {
+public class Point implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	final Double3 xyz; // Private field for the X, Y, and Z values of the 3 damentional point
 
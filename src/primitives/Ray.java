@@ -1,10 +1,13 @@
 package primitives;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Objects;
 import geometries.Intersectable.GeoPoint;
 
-public class Ray {
+public class Ray implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	final private Point p0; // Private field for the starting point of the ray
 	final private Vector dir; // Private field for the direction of the ray
@@ -27,8 +30,9 @@ public class Ray {
      * @param normal normal
      */
     public Ray(Point p0, Vector direction, Vector normal) {
-        Vector delta = normal.scale(normal.dotProduct(direction) > 0 ? DELTA : - DELTA);
-        this.p0 = p0.add(delta);
+        double delta = normal.dotProduct(direction) > 0 ? DELTA : - DELTA;
+        this.p0 = new Point(p0.xyz.d1 + normal.xyz.d1 * delta, p0.xyz.d2 + normal.xyz.d2 * delta,
+                p0.xyz.d3 + normal.xyz.d3 * delta);
         this.dir = direction;
     }
 
@@ -73,8 +77,10 @@ public class Ray {
 	 *         is P0 + vector direction * scalar
 	 */
 	public Point getPoint(double t) {
-		Point p = p0.add(dir.scale(t));
-		return Util.isZero(t) ? p0 : p;
+		if (Util.isZero(t))
+			return p0;
+		// calculated in primitive doubles to avoid the intermediate vector
+		return new Point(p0.xyz.d1 + dir.xyz.d1 * t, p0.xyz.d2 + dir.xyz.d2 * t, p0.xyz.d3 + dir.xyz.d3 * t);
 	}
 
 	/**
@@ -59,6 +59,29 @@ public abstract class Util {
 		return (n1 < 0 && n2 < 0) || (n1 > 0 && n2 > 0);
 	}
 
+	/**
+	 * Maps a point of the unit square to the unit disk by the concentric mapping,
+	 * which keeps the stratification of the samples
+	 * 
+	 * @param u first coordinate in the unit square
+	 * @param v second coordinate in the unit square
+	 * @return the coordinates in the unit disk
+	 */
+	public static double[] concentricDisk(double u, double v) {
+		double a = 2 * u - 1, b = 2 * v - 1;
+		if (isZero(a) && isZero(b))
+			return new double[] { 0, 0 };
+		double r, phi;
+		if (Math.abs(a) > Math.abs(b)) {
+			r = a;
+			phi = Math.PI / 4 * b / a;
+		} else {
+			r = b;
+			phi = Math.PI / 2 - Math.PI / 4 * a / b;
+		}
+		return new double[] { r * Math.cos(phi), r * Math.sin(phi) };
+	}
+
 	/**
 	 * Provide a real random number in range between min and max
 	 * 
@@ -2,6 +2,8 @@ package primitives;
 
 public class Vector extends Point {
 
+	private static final long serialVersionUID = 1L;
+
 	// Override the toString() method to print the Vector's components.
 	@Override
 	public String toString() {
@@ -118,4 +120,17 @@ public class Vector extends Point {
 		// the two vectors and summing the results.
 		return (xyz.d1 * vec.xyz.d1) + (xyz.d2 * vec.xyz.d2) + (xyz.d3 * vec.xyz.d3);
 	}
+
+	/**
+	 * Finds a unit vector orthogonal to this Vector (one of many)
+	 *
+	 * @return the orthogonal unit vector
+	 */
+	public Vector orthogonal() {
+		// cross with the axis that is farthest from being parallel to this vector
+		Vector axis = Math.abs(xyz.d1) < Math.abs(xyz.d2) ? new Vector(1, 0, 0) : new Vector(0, 1, 0);
+		if (Math.abs(xyz.d3) < Math.min(Math.abs(xyz.d1), Math.abs(xyz.d2)))
+			axis = new Vector(0, 0, 1);
+		return crossProduct(axis).normalize();
+	}
 }
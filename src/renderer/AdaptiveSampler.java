@@ -0,0 +1,126 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Ray;
+
+/**
+ * Adaptive super sampler of the pixels of a single tile. The view plane is
+ * divided into a lattice of sample points, with {@code scale} lattice cells on
+ * the side of a pixel. A pixel (and recursively each quarter of it) is sampled
+ * by the rays through its 4 corners, and it is divided into quarters only when
+ * the colors of the corners differ, down to a single lattice cell. The color of
+ * a cell is the average of its quarters, or of its corners if they are similar.
+ * <br>
+ * The colors of the corners are cached in a grid of the tile's lattice points,
+ * keyed by their integer coordinates, so each corner is traced once even though
+ * it is shared by up to 4 cells of all the levels, in the same pixel or in
+ * neighboring pixels. A sampler is used by a single thread, the tiles of the
+ * image are sampled concurrently by different samplers.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+class AdaptiveSampler {
+
+	/**
+	 * Constructor of the rays through the lattice points of the view plane
+	 */
+	@FunctionalInterface
+	interface LatticeRays {
+		/**
+		 * @param x - the column of the lattice point (0 at the left edge of the view
+		 *          plane)
+		 * @param y - the row of the lattice point (0 at the top edge of the view
+		 *          plane)
+		 * @return the ray from the camera through the lattice point
+		 */
+		Ray construct(int x, int y);
+	}
+
+	private final RayTracerBase rayTracer;
+	private final LatticeRays rays;
+	private final RenderStatistics statistics;
+	/** Number of lattice cells on the side of a pixel (a power of 2) */
+	private final int scale;
+
+	/** Lattice coordinates of the top left corner of the tile */
+	private final int originX, originY;
+	/** Number of lattice points in a row of the tile */
+	private final int rowLength;
+	/** Colors of the traced lattice points of the tile, null if not traced yet */
+	private final Color[] corners;
+
+	/**
+	 * Constructor of an adaptive sampler of a tile
+	 *
+	 * @param rayTracer  - the tracer of the rays
+	 * @param rays       - the constructor of the rays through the lattice points
+	 * @param statistics - the statistics of the rendering, null if they are not
+	 *                   collected
+	 * @param scale      - number of lattice cells on the side of a pixel (a power
+	 *                   of 2)
+	 * @param tile       - the sampled tile
+	 */
+	AdaptiveSampler(RayTracerBase rayTracer, LatticeRays rays, RenderStatistics statistics, int scale,
+			PixelManager.Tile tile) {
+		this.rayTracer = rayTracer;
+		this.rays = rays;
+		this.statistics = statistics;
+		this.scale = scale;
+		originX = tile.col() * scale;
+		originY = tile.row() * scale;
+		rowLength = tile.width() * scale + 1;
+		corners = new Color[rowLength * (tile.height() * scale + 1)];
+	}
+
+	/**
+	 * Samples a pixel of the tile
+	 *
+	 * @param col - the column of the pixel in the image
+	 * @param row - the row of the pixel in the image
+	 * @return the color of the pixel
+	 */
+	Color samplePixel(int col, int row) {
+		return sampleCell(col * scale, row * scale, scale);
+	}
+
+	/**
+	 * Samples a square cell of the lattice, and subdivides it if the colors of its
+	 * corners are not similar
+	 *
+	 * @param x    - the column of the top left corner of the cell
+	 * @param y    - the row of the top left corner of the cell
+	 * @param size - the length of the side of the cell (in lattice cells)
+	 * @return the color of the cell
+	 */
+	private Color sampleCell(int x, int y, int size) {
+		Color topLeft = corner(x, y);
+		Color topRight = corner(x + size, y);
+		Color bottomLeft = corner(x, y + size);
+		Color bottomRight = corner(x + size, y + size);
+		if (size == 1 || topLeft.isAlmostEquals(topRight) && topLeft.isAlmostEquals(bottomLeft)
+				&& topLeft.isAlmostEquals(bottomRight))
+			return topLeft.add(topRight, bottomLeft, bottomRight).reduce(4);
+
+		if (statistics != null)
+			statistics.subdivision();
+		int half = size / 2;
+		return sampleCell(x, y, half).add(sampleCell(x + half, y, half), sampleCell(x, y + half, half),
+				sampleCell(x + half, y + half, half)).reduce(4);
+	}
+
+	/**
+	 * Finds the color of a lattice point, it is traced at the first time it is
+	 * needed
+	 *
+	 * @param x - the column of the lattice point
+	 * @param y - the row of the lattice point
+	 * @return the color of the ray through the point
+	 */
+	private Color corner(int x, int y) {
+		int index = (y - originY) * rowLength + x - originX;
+		Color color = corners[index];
+		if (color == null)
+			corners[index] = color = rayTracer.traceRay(rays.construct(x, y));
+		return color;
+	}
+}
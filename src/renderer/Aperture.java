@@ -0,0 +1,32 @@
+package renderer;
+
+/**
+ * Shape of the aperture of a thin lens camera (see
+ * {@link Camera#setDepthOfField(double, double)}). An aperture maps the samples
+ * of the unit square to points on its shape, evenly, so a stratified pattern
+ * stays stratified on the aperture.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+@FunctionalInterface
+public interface Aperture {
+
+	/** A round aperture */
+	Aperture CIRCLE = SamplePatterns::circle;
+
+	/** A square aperture */
+	Aperture SQUARE = SamplePatterns::square;
+
+	/** A hexagonal aperture (of a 6 blades diaphragm) */
+	Aperture HEXAGON = SamplePatterns::hexagon;
+
+	/**
+	 * Maps samples of the unit square to the aperture, in place. The aperture is
+	 * centered at the origin and its radius is 1, so the mapped coordinates are
+	 * from -1 to 1 (the horizontal ones to the right, the vertical ones up).
+	 *
+	 * @param xs - the first coordinates of the samples (0 to 1)
+	 * @param ys - the second coordinates of the samples (0 to 1)
+	 */
+	void map(double[] xs, double[] ys);
+}
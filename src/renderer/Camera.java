@@ -1,12 +1,27 @@
 package renderer;
 
 import static primitives.Util.isZero;
-import static primitives.Util.alignZero;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.MissingResourceException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
 
+import geometries.RayPacket;
 import primitives.Color;
 import primitives.Point;
 import primitives.Ray;
@@ -29,11 +44,108 @@ public class Camera {
 
 	// --------- field Anti Aliasing -------
 	private int antiAliasingFactor = 1;
+	private SamplePattern samplePattern = SamplePattern.GRID;
+	private double noiseThreshold = 0;
+	/** Minimal number of samples of a pixel for estimating its variance */
+	private static final int MIN_SAMPLES = 4;
+
+	// --------- field Depth of Field -------
+	private double apertureRadius = 0;
+	private double focalDistance;
+	private Aperture aperture = Aperture.CIRCLE;
 
 	private boolean adaptive = true;
 	private int threadsCount = 1;
     private double printInterval;
 
+	private int packetSize = 1;
+
+	private boolean collectStatistics = false;
+	private RenderStatistics statistics = null;
+	private TileListener tileListener = null;
+
+	/** Side of the blocks of pixels of the preview pass of a progressive rendering */
+	private static final int PREVIEW_BLOCK = 8;
+
+
+	/**
+	 * Reused arrays of the samples of a pixel: the points in the pixel and the
+	 * points on the aperture of the lens
+	 */
+	private static final class PixelSamples {
+		final double[] xs, ys, lensXs, lensYs;
+
+		/**
+		 * @param count - the number of the samples
+		 */
+		PixelSamples(int count) {
+			xs = new double[count];
+			ys = new double[count];
+			lensXs = new double[count];
+			lensYs = new double[count];
+		}
+	}
+
+	/**
+	 * State of a progressive rendering (see {@link Camera#renderProgressive(long)}):
+	 * the number of samples of each pixel and the sums of squared differences of
+	 * their colors from the mean (by Welford's algorithm), for estimating the
+	 * noise of the pixels. The mean colors themselves are in the image writer.
+	 * Each pixel is refined by a single thread in a pass, and the passes are
+	 * separated, so the arrays are not synchronized.
+	 */
+	private static final class Progress {
+		final int[] counts;
+		final float[] m2;
+		/** The start time (nanoseconds) and the time budget of the rendering */
+		private final long start, budget;
+		/** The thread that renders progressively, its interrupt stops the rendering */
+		private final Thread caller = Thread.currentThread();
+		/** Set when the thread is interrupted while it waits for the rendering pool */
+		final AtomicBoolean interrupted = new AtomicBoolean();
+		/** Whether the time is up or the rendering was interrupted */
+		private volatile boolean stopped = false;
+		/** Number of pixels that were refined and are still noisy in the pass */
+		final LongAdder noisy = new LongAdder();
+
+		/**
+		 * @param pixels - the number of pixels in the image
+		 * @param budget - the time budget of the rendering in nanoseconds
+		 */
+		Progress(int pixels, long budget) {
+			counts = new int[pixels];
+			m2 = new float[3 * pixels];
+			start = System.nanoTime();
+			this.budget = budget;
+		}
+
+		/**
+		 * @return true if the rendering should stop: the time budget is over or the
+		 *         rendering thread was interrupted
+		 */
+		boolean isStopped() {
+			if (!stopped && (System.nanoTime() - start >= budget || interrupted.get() || caller.isInterrupted()))
+				stopped = true;
+			return stopped;
+		}
+
+		/**
+		 * Checks whether the estimated standard error of the color of a pixel is
+		 * small enough
+		 *
+		 * @param pixel     - the index of the pixel
+		 * @param threshold - the maximal squared standard error of the pixel
+		 * @return true if the pixel has enough samples and its noise is below the
+		 *         threshold in every channel
+		 */
+		boolean isConverged(int pixel, double threshold) {
+			int count = counts[pixel];
+			if (count < MIN_SAMPLES)
+				return false;
+			double maxVariance = Math.max(m2[3 * pixel], Math.max(m2[3 * pixel + 1], m2[3 * pixel + 2]));
+			return maxVariance / (count - 1) / count <= threshold;
+		}
+	}
 
 	/**
 	 * 
@@ -106,6 +218,13 @@ public class Camera {
 		return distance;
 	}
 
+	/**
+	 * @return the image writer
+	 */
+	public ImageWriter getImageWriter() {
+		return imageWriter;
+	}
+
 	// setters
 
 	/**
@@ -166,7 +285,85 @@ public class Camera {
 	}
 
 	/**
-	 * set the adaptive
+	 * set the pattern of the anti aliasing rays in a pixel (when the super sampling
+	 * is not adaptive), the default is a regular grid. The stratified and low
+	 * discrepancy patterns reach the quality of a grid with fewer rays.
+	 *
+	 * @param samplePattern - the pattern of the samples
+	 * @return the Camera object
+	 */
+	public Camera setSamplePattern(SamplePattern samplePattern) {
+		if (samplePattern == null)
+			throw new IllegalArgumentException("ERROR: The sample pattern is null");
+		this.samplePattern = samplePattern;
+		return this;
+	}
+
+	/**
+	 * set the noise threshold of the variance driven sampling (when the super
+	 * sampling is not adaptive): the samples of a pixel are traced one by one in
+	 * the order of the sample pattern, and the sampling stops when the estimated
+	 * standard error of the pixel's color (in every channel, 0 to 255) is at most
+	 * the threshold, or after the anti aliasing factor squared samples. Flat
+	 * pixels take a few samples and edges take all of them. The prefixes of the
+	 * low discrepancy patterns are spread over the pixel, so they suit this mode
+	 * best. The default 0 traces all the samples of every pixel.
+	 *
+	 * @param noiseThreshold - the noise threshold, 0 for no early stop
+	 * @return the Camera object
+	 */
+	public Camera setNoiseThreshold(double noiseThreshold) {
+		if (noiseThreshold < 0)
+			throw new IllegalArgumentException("ERROR: The noise threshold must not be negative");
+		this.noiseThreshold = noiseThreshold;
+		return this;
+	}
+
+	/**
+	 * set the depth of field of a thin lens camera: the rays of a pixel start at
+	 * points on the aperture of the lens (around the camera location) and meet at
+	 * the focal plane, so only the objects near that plane are sharp. The aperture
+	 * points are paired with the anti aliasing samples of the pixel (in a random
+	 * order), so the depth of field needs no additional rays - but it needs enough
+	 * samples in a pixel, of a randomized pattern (see
+	 * {@link #setSamplePattern(SamplePattern)}). The adaptive super sampling and
+	 * the packets are not used with a lens.
+	 *
+	 * @param apertureRadius - the radius of the aperture, 0 for a pinhole camera
+	 * @param focalDistance  - the distance of the focal plane from the camera
+	 * @return the Camera object
+	 * @throws IllegalArgumentException if the radius is negative or the distance
+	 *                                  is not positive
+	 */
+	public Camera setDepthOfField(double apertureRadius, double focalDistance) {
+		if (apertureRadius < 0)
+			throw new IllegalArgumentException("ERROR: The aperture radius must not be negative");
+		if (focalDistance <= 0)
+			throw new IllegalArgumentException("ERROR: The focal distance must be positive");
+		this.apertureRadius = apertureRadius;
+		this.focalDistance = focalDistance;
+		return this;
+	}
+
+	/**
+	 * set the shape of the aperture of the lens (see
+	 * {@link #setDepthOfField(double, double)}), the default is a circle
+	 *
+	 * @param aperture - the shape of the aperture
+	 * @return the Camera object
+	 */
+	public Camera setAperture(Aperture aperture) {
+		if (aperture == null)
+			throw new IllegalArgumentException("ERROR: The aperture is null");
+		this.aperture = aperture;
+		return this;
+	}
+
+	/**
+	 * set the adaptive super sampling: each pixel is sampled by the rays through
+	 * its corners, and it is divided into quarters only where the colors of the
+	 * corners differ, down to sub-pixels of at most the anti aliasing factor rays
+	 * in a pixel (see {@link #setAntiAliasingFactor(int)})
 	 *
 	 * @return the Camera object
 	 */
@@ -188,8 +385,8 @@ public class Camera {
 	/**
      * Set multi threading functionality for accelerating the rendering speed.
      * Initialize the number of threads.
-     * The defaultive value is 0 (no threads).
-     * The recommended value for the multithreading is 3.
+     * The default is rendering on the calling thread only, and 0 keeps the
+     * current value. The recommended value is the number of available processors.
      *
      * @param threads, the threads amount
      * @return This Camera object
@@ -215,28 +412,68 @@ public class Camera {
 
 
 	/**
-	 * function that calculates the pixels location
+	 * Sets the size of the ray packets. In packet mode the rays from the camera
+	 * through consecutive pixels of a row are traced together as a packet, so the
+	 * geometries hierarchy is traversed once for all of them and the intersection
+	 * kernels of the geometries run over the whole packet. Packets are used when
+	 * each pixel is rendered by a single ray (no anti aliasing).
 	 *
-	 * @param nX the x resolution
-	 * @param nY the y resolution
-	 * @param i  the x coordinate
-	 * @param j  the y coordinate
-	 * @return the ray
+	 * @param packetSize - the number of rays in a packet (e.g. 4, 8 or 16), 1 for
+	 *                   tracing the rays one by one (the default)
+	 * @return This Camera object
+	 * @throws IllegalArgumentException if the size is not positive
 	 */
-	private Point findPixelLocation(int nX, int nY, int j, int i) {
+	public Camera setPacketSize(int packetSize) {
+		if (packetSize < 1)
+			throw new IllegalArgumentException("The packet size must be positive");
+		this.packetSize = packetSize;
+		return this;
+	}
 
-		double rY = height / nY;
-		double rX = width / nX;
+	/**
+	 * Sets whether the statistics of the rendering are collected (rays,
+	 * intersection tests, hits, tile times). Collecting them costs a little
+	 * rendering time, so it is off by default.
+	 *
+	 * @param collect - true for collecting the statistics
+	 * @return This Camera object
+	 */
+	public Camera setStatistics(boolean collect) {
+		this.collectStatistics = collect;
+		return this;
+	}
 
-		double yI = -(i - (nY - 1d) / 2) * rY;
-		double jX = (j - (nX - 1d) / 2) * rX;
-		Point pIJ = p0.add(vTo.scale(distance));
+	/**
+	 * Sets the listener to the rendered tiles of the image, e.g. for sending the
+	 * image while it is rendered
+	 *
+	 * @param tileListener - the listener, null for none (the default)
+	 * @return This Camera object
+	 */
+	public Camera setTileListener(TileListener tileListener) {
+		this.tileListener = tileListener;
+		return this;
+	}
 
-		if (yI != 0)
-			pIJ = pIJ.add(vUp.scale(yI));
-		if (jX != 0)
-			pIJ = pIJ.add(vRight.scale(jX));
-		return pIJ;
+	/**
+	 * @return the statistics of the last rendering, null if they were not
+	 *         collected
+	 */
+	public RenderStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Creates the generator of the rays from the camera through the view plane,
+	 * which precomputes the geometry of the view plane for the resolution
+	 *
+	 * @param nX the x resolution
+	 * @param nY the y resolution
+	 * @return the generator
+	 */
+	private RayGenerator createRayGenerator(int nX, int nY) {
+		return new RayGenerator(p0, vTo, vUp, vRight, width, height, distance, nX, nY, apertureRadius,
+				focalDistance);
 	}
 
 	/**
@@ -249,45 +486,132 @@ public class Camera {
 	 * @return the ray
 	 */
 	public Ray constructRay(int nX, int nY, int j, int i) {
-		return new Ray(p0, findPixelLocation(nX, nY, j, i).subtract(p0));
+		return createRayGenerator(nX, nY).ray(j + 0.5, i + 0.5);
 	}
 
 	/**
-	 * This function return a ray from the camera to the point (x,y) on the view
-	 * plane
+	 * This function return the anti aliasing rays from the camera through a pixel,
+	 * placed by the sample pattern (see {@link #setSamplePattern(SamplePattern)}),
+	 * and starting on the aperture of the lens (see
+	 * {@link #setDepthOfField(double, double)})
 	 * 
 	 * @param nX - column height
 	 * @param nY - row width
 	 * @param j  - column index
 	 * @param i  - row index
-	 * @return Ray
+	 * @return the rays
 	 */
 	public List<Ray> constructRays(int nX, int nY, int j, int i) {
-		List<Ray> rays = new LinkedList<>();
-		Point centralPixel = findPixelLocation(nX, nY, j, i);
-		double rY = height / nY / antiAliasingFactor;
-		double rX = width / nX / antiAliasingFactor;
-		double x, y;
-
-		for (int rowNumber = 0; rowNumber < antiAliasingFactor; rowNumber++) {
-			for (int colNumber = 0; colNumber < antiAliasingFactor; colNumber++) {
-				y = -(rowNumber - (antiAliasingFactor - 1d) / 2) * rY;
-				x = (colNumber - (antiAliasingFactor - 1d) / 2) * rX;
-				Point pIJ = centralPixel;
-				if (y != 0)
-					pIJ = pIJ.add(vUp.scale(y));
-				if (x != 0)
-					pIJ = pIJ.add(vRight.scale(x));
-				rays.add(new Ray(p0, pIJ.subtract(p0)));
+		return constructRays(createRayGenerator(nX, nY), nX, j, i,
+				new PixelSamples(antiAliasingFactor * antiAliasingFactor));
+	}
+
+	/**
+	 * Constructs the anti aliasing rays through a pixel, the coordinates of the
+	 * samples are generated into the given arrays, so they are reused for all the
+	 * pixels of a tile
+	 * 
+	 * @param generator - the generator of the rays
+	 * @param nX        - column height
+	 * @param j         - column index
+	 * @param i         - row index
+	 * @param samples   - arrays for the samples
+	 * @return the rays
+	 */
+	private List<Ray> constructRays(RayGenerator generator, int nX, int j, int i, PixelSamples samples) {
+		generateSamples(nX, j, i, samples);
+		List<Ray> rays = new ArrayList<>(samples.xs.length);
+		for (int k = 0; k < samples.xs.length; ++k)
+			rays.add(constructSampleRay(generator, j, i, samples, k));
+		return rays;
+	}
+
+	/**
+	 * Generates the samples of a pixel: the points in the pixel by the sample
+	 * pattern, and with a lens, the points on the aperture by the same pattern
+	 * (with another seed), shuffled so that the two are not correlated
+	 * 
+	 * @param nX      - resolution on X axis
+	 * @param col     - column index of the pixel
+	 * @param row     - row index of the pixel
+	 * @param samples - arrays for the samples
+	 */
+	private void generateSamples(int nX, int col, int row, PixelSamples samples) {
+		long pixel = (long) row * nX + col;
+		samplePattern.generate(antiAliasingFactor, pixel, samples.xs, samples.ys);
+		if (apertureRadius == 0)
+			return;
+		double[] lensXs = samples.lensXs, lensYs = samples.lensYs;
+		samplePattern.generate(antiAliasingFactor, ~pixel, lensXs, lensYs);
+		aperture.map(lensXs, lensYs);
+		SplittableRandom random = new SplittableRandom(pixel);
+		for (int k = lensXs.length - 1; k > 0; --k) {
+			int other = random.nextInt(k + 1);
+			double x = lensXs[k], y = lensYs[k];
+			lensXs[k] = lensXs[other];
+			lensYs[k] = lensYs[other];
+			lensXs[other] = x;
+			lensYs[other] = y;
+		}
+	}
+
+	/**
+	 * Constructs a ray through a sample point of a pixel. With a lens, the ray
+	 * starts at the sample's point on the aperture, and passes through the point
+	 * of the focal plane that the pinhole ray through the sample reaches.
+	 * 
+	 * @param generator - the generator of the rays
+	 * @param col       - column index of the pixel
+	 * @param row       - row index of the pixel
+	 * @param samples   - the samples of the pixel (the coordinates in the pixel
+	 *                  are 0 to 1 from its top left corner)
+	 * @param k         - the index of the sample
+	 * @return the ray
+	 */
+	private Ray constructSampleRay(RayGenerator generator, int col, int row, PixelSamples samples, int k) {
+		double u = col + samples.xs[k], v = row + samples.ys[k];
+		return apertureRadius == 0 ? generator.ray(u, v) //
+				: generator.ray(u, v, samples.lensXs[k], samples.lensYs[k]);
+	}
+
+	/**
+	 * Calculates a fingerprint of the rendering: a digest of the camera settings,
+	 * the settings of the ray tracer and the serialized scene. The sample pattern
+	 * and the aperture are represented by the samples they generate for a pixel.
+	 * The checkpoint of a streamed image is continued only by a rendering of the
+	 * same fingerprint.
+	 * 
+	 * @return the fingerprint
+	 * @throws IllegalStateException if the scene cannot be serialized
+	 */
+	private long fingerprint() {
+		int samples = antiAliasingFactor * antiAliasingFactor;
+		double[] xs = new double[samples], ys = new double[samples];
+		samplePattern.generate(antiAliasingFactor, 0, xs, ys);
+		double[] lensXs = xs.clone(), lensYs = ys.clone();
+		aperture.map(lensXs, lensYs);
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			try (ObjectOutputStream out = new ObjectOutputStream(
+					new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+				out.writeObject(List.of(p0, vTo, vUp, width, height, distance, noiseThreshold, apertureRadius,
+						focalDistance, adaptive));
+				out.writeObject(new double[][] { xs, ys, lensXs, lensYs });
+				out.writeObject(rayTracerBase.getSettings());
+				out.writeObject(rayTracerBase.scene);
 			}
+			return ByteBuffer.wrap(digest.digest()).getLong();
+		} catch (IOException | NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Cannot calculate the fingerprint of the rendering", e);
 		}
-		return rays;
 	}
 
 	/**
-	 * This function checks if all the parameters are valid for the camera
+	 * Checks that all the parameters of the camera are set for rendering
+	 * 
+	 * @throws MissingResourceException if a parameter is missing
 	 */
-	public Camera renderImage() {
+	private void checkResources() {
 		if (p0 == null)
 			throw new MissingResourceException("ERROR: The camera position is null", "Camera", "p0");
 		if (vUp == null)
@@ -307,33 +631,365 @@ public class Camera {
 			throw new MissingResourceException("ERROR: The image writer is null", "Camera", "imageWriter");
 		if (rayTracerBase == null)
 			throw new MissingResourceException("ERROR: The ray tracer base is null", "Camera", "rayTracerBase");
+	}
+
+	/**
+	 * This function checks if all the parameters are valid for the camera and
+	 * renders the image. The rendering of a streamed image (see
+	 * {@link ImageWriter#ImageWriter(String, int, int, boolean)}) continues from the
+	 * last rendered tile of a former rendering of the same scene and camera
+	 * settings that was stopped.<br>
+	 * The rendering stops when the rendering thread is interrupted: the tiles that
+	 * are being rendered are completed, the rest of the tiles are not rendered and
+	 * the interrupt status of the thread is kept.
+	 */
+	public Camera renderImage() {
+		checkResources();
 
 		int ny = imageWriter.getNy();
 		int nx = imageWriter.getNx();
+		RayGenerator generator = createRayGenerator(nx, ny);
 
 		PixelManager pixelManager = new PixelManager(ny, nx, printInterval);
+		if (imageWriter.isStreaming())
+			imageWriter.openCheckpoint(pixelManager.getTileSize(), pixelManager.getTilesCount(), fingerprint());
 
-		if (!adaptive) {
-			while (threadsCount-- > 0) {
-				PixelManager.Pixel pixel;
-				while ((pixel = pixelManager.nextPixel()) != null) {
-					Color color = this.castRay(nx, ny, pixel.col(), pixel.row());
-					imageWriter.writePixel(pixel.col(), pixel.row(), color);
-					pixelManager.pixelDone();
-				}
+		statistics = collectStatistics ? new RenderStatistics(pixelManager.getTilesCount(), nx * ny) : null;
+		if (statistics != null) {
+			rayTracerBase.setStatistics(statistics);
+			statistics.start();
+		}
+		ForkJoinPool pool = threadsCount <= 1 ? null : new ForkJoinPool(threadsCount);
+		Thread caller = Thread.currentThread(); // its interrupt stops the rendering
+		AtomicBoolean interrupted = new AtomicBoolean();
+		try {
+			renderTiles(pool, pixelManager.getTilesCount(), i -> {
+				if (!interrupted.get() && !caller.isInterrupted())
+					renderTile(pixelManager, i, nx, generator);
+			}, interrupted);
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+			if (statistics != null) {
+				statistics.finish();
+				rayTracerBase.setStatistics(null);
+			}
+		}
+		pixelManager.printProgress();
+
+		return this;
+	}
+
+	/**
+	 * Renders the image progressively, so that an image is ready at a deadline.
+	 * The first pass renders a low resolution preview - a single ray through each
+	 * block of {@value #PREVIEW_BLOCK}x{@value #PREVIEW_BLOCK} pixels. The
+	 * following passes refine all the pixels with more samples, each pass doubles
+	 * the number of samples of a pixel: 1, 2, 4 and so on up to the anti aliasing
+	 * factor squared. The samples of a pixel are the ones of the sample pattern
+	 * (and the lens aperture), taken in a random order, and their mean color is
+	 * accumulated in the (floating point) pixels of the image writer. The
+	 * rendering stops when the time budget is over or the rendering thread is
+	 * interrupted - even in the middle of a pass - or when all the samples are
+	 * traced. With a noise threshold (see {@link #setNoiseThreshold(double)}) a
+	 * pixel is not refined after its noise is below the threshold, and the
+	 * rendering stops when all the pixels are.<br>
+	 * In any case the image writer holds the best image so far, to be written by
+	 * {@link #writeToImage()}. The preview pass is always completed. The
+	 * sampling is not adaptive, and the statistics are not collected.
+	 * 
+	 * @param timeBudget - the time of the rendering in milliseconds, 0 for the
+	 *                   preview only
+	 * @return the Camera object
+	 * @throws IllegalArgumentException if the time budget is negative
+	 * @throws IllegalStateException    if the image is streamed
+	 * @throws MissingResourceException if a parameter of the camera is missing
+	 */
+	public Camera renderProgressive(long timeBudget) {
+		if (timeBudget < 0)
+			throw new IllegalArgumentException("ERROR: The time budget must not be negative");
+		checkResources();
+		if (imageWriter.isStreaming())
+			throw new IllegalStateException("ERROR: A streamed image cannot be rendered progressively");
+
+		int ny = imageWriter.getNy();
+		int nx = imageWriter.getNx();
+		RayGenerator generator = createRayGenerator(nx, ny);
+		PixelManager pixelManager = new PixelManager(ny, nx, 0);
+		int tiles = pixelManager.getTilesCount();
+		Progress progress = new Progress(nx * ny, Math.min(timeBudget, Long.MAX_VALUE / 1_000_000) * 1_000_000);
+		statistics = null;
+
+		ForkJoinPool pool = threadsCount <= 1 ? null : new ForkJoinPool(threadsCount);
+		try {
+			renderTiles(pool, tiles, i -> renderPreview(pixelManager.getTile(i), generator), progress.interrupted);
+			int total = antiAliasingFactor * antiAliasingFactor;
+			for (int passSamples = 1; !progress.isStopped(); passSamples = Math.min(total, 2 * passSamples)) {
+				progress.noisy.reset();
+				int samples = passSamples;
+				renderTiles(pool, tiles, i -> refineTile(pixelManager.getTile(i), nx, generator, progress, samples),
+						progress.interrupted);
+				if (progress.noisy.sum() == 0 || samples == total)
+					break;
 			}
-		} else {
-			while (threadsCount-- > 0) {
-				PixelManager.Pixel pixel;
-				while ((pixel = pixelManager.nextPixel()) != null) {
-					imageWriter.writePixel(pixel.col(), pixel.row(),
-							AdaptiveSuperSampling(nx, ny, pixel.col(), pixel.row(), antiAliasingFactor));
-					pixelManager.pixelDone();
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+		}
+		return this;
+	}
+
+	/**
+	 * Notifies the tile listener (if any) that the pixels of a tile were written
+	 *
+	 * @param tile - the written tile
+	 */
+	private void tileRendered(PixelManager.Tile tile) {
+		if (tileListener != null)
+			tileListener.tileRendered(tile.row(), tile.col(), tile.height(), tile.width());
+	}
+
+	/**
+	 * Renders the preview of a tile: each block of pixels has the color of the
+	 * ray through its center
+	 *
+	 * @param tile      - the rendered tile
+	 * @param generator - the generator of the rays
+	 */
+	private void renderPreview(PixelManager.Tile tile, RayGenerator generator) {
+		for (int row = tile.row(); row < tile.row() + tile.height(); row += PREVIEW_BLOCK)
+			for (int col = tile.col(); col < tile.col() + tile.width(); col += PREVIEW_BLOCK) {
+				int height = Math.min(PREVIEW_BLOCK, tile.row() + tile.height() - row);
+				int width = Math.min(PREVIEW_BLOCK, tile.col() + tile.width() - col);
+				Color color = rayTracerBase.traceRay(generator.ray(col + width / 2d, row + height / 2d));
+				for (int y = row; y < row + height; ++y)
+					for (int x = col; x < col + width; ++x)
+						imageWriter.writePixel(x, y, color);
+			}
+		tileRendered(tile);
+	}
+
+	/**
+	 * Refines the pixels of a tile in a pass of a progressive rendering: the
+	 * samples of each pixel that is not converged are traced up to the number of
+	 * samples of the pass, and their mean color is written to the image writer.
+	 * The tile listener is notified if any pixel was refined.
+	 *
+	 * @param tile      - the refined tile
+	 * @param nx        - resolution on X axis
+	 * @param generator - the generator of the rays
+	 * @param progress  - the state of the rendering
+	 * @param samples   - the number of samples of each pixel after the pass
+	 */
+	private void refineTile(PixelManager.Tile tile, int nx, RayGenerator generator, Progress progress,
+			int samples) {
+		PixelSamples pixelSamples = new PixelSamples(antiAliasingFactor * antiAliasingFactor);
+		double threshold = noiseThreshold * noiseThreshold;
+		double[] mean = new double[3];
+		boolean refined = false;
+		pixels: for (int row = tile.row(); row < tile.row() + tile.height(); ++row)
+			for (int col = tile.col(); col < tile.col() + tile.width(); ++col) {
+				if (progress.isStopped())
+					break pixels;
+				int pixel = row * nx + col;
+				if (noiseThreshold > 0 && progress.isConverged(pixel, threshold))
+					continue;
+				generateSamples(nx, col, row, pixelSamples);
+				shuffleSamples(pixelSamples, ~pixel);
+				int count = progress.counts[pixel];
+				if (count > 0) {
+					Color color = imageWriter.getPixel(col, row);
+					mean[0] = color.getRed();
+					mean[1] = color.getGreen();
+					mean[2] = color.getBlue();
+				}
+				while (count < samples) {
+					Color color = rayTracerBase.traceRay(constructSampleRay(generator, col, row, pixelSamples, count));
+					++count;
+					for (int c = 0; c < 3; ++c) {
+						double value = c == 0 ? color.getRed() : c == 1 ? color.getGreen() : color.getBlue();
+						double delta = value - mean[c];
+						mean[c] += delta / count;
+						progress.m2[3 * pixel + c] += delta * (value - mean[c]);
+					}
 				}
+				progress.counts[pixel] = count;
+				imageWriter.writePixel(col, row, new Color(mean[0], mean[1], mean[2]));
+				refined = true;
+				if (noiseThreshold == 0 || !progress.isConverged(pixel, threshold))
+					progress.noisy.increment();
 			}
+		if (refined)
+			tileRendered(tile);
+	}
+
+	/**
+	 * Shuffles the samples of a pixel (keeping each point in the pixel with its
+	 * point on the aperture), so any prefix of the samples is spread over the
+	 * pixel
+	 *
+	 * @param samples - the samples of the pixel
+	 * @param seed    - the seed of the shuffle
+	 */
+	private static void shuffleSamples(PixelSamples samples, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int k = samples.xs.length - 1; k > 0; --k) {
+			int other = random.nextInt(k + 1);
+			swap(samples.xs, k, other);
+			swap(samples.ys, k, other);
+			swap(samples.lensXs, k, other);
+			swap(samples.lensYs, k, other);
 		}
+	}
 
-		return this;
+	/**
+	 * Swaps two elements of an array
+	 *
+	 * @param array - the array
+	 * @param i     - the index of an element
+	 * @param j     - the index of the other element
+	 */
+	private static void swap(double[] array, int i, int j) {
+		double temp = array[i];
+		array[i] = array[j];
+		array[j] = temp;
+	}
+
+	/**
+	 * Renders the pixels of a single tile of the image and writes them to the
+	 * image writer. Different tiles may be rendered concurrently. A tile that is
+	 * in the checkpoint of a streamed image is not rendered again.
+	 *
+	 * @param pixelManager - the pixel manager that follows the progress
+	 * @param index        - the index of the tile to render
+	 * @param nx           - resolution on X axis
+	 * @param generator    - the generator of the rays
+	 */
+	private void renderTile(PixelManager pixelManager, int index, int nx, RayGenerator generator) {
+		PixelManager.Tile tile = pixelManager.getTile(index);
+		if (imageWriter.isTileDone(index)) {
+			pixelManager.tileDone(tile);
+			return;
+		}
+		long start = statistics == null ? 0 : System.nanoTime();
+		boolean lens = apertureRadius > 0;
+		int scale = adaptive && !lens ? adaptiveScale() : 1;
+		if (scale > 1) {
+			AdaptiveSampler sampler = new AdaptiveSampler(rayTracerBase,
+					(x, y) -> generator.ray((double) x / scale, (double) y / scale), statistics, scale, tile);
+			for (int row = tile.row(); row < tile.row() + tile.height(); ++row)
+				for (int col = tile.col(); col < tile.col() + tile.width(); ++col)
+					imageWriter.writePixel(col, row, sampler.samplePixel(col, row));
+		} else if (packetSize > 1 && !lens && (adaptive || antiAliasingFactor == 1))
+			renderPackets(tile, generator);
+		else {
+			boolean single = adaptive && !lens;
+			PixelSamples samples = new PixelSamples(single ? 1 : antiAliasingFactor * antiAliasingFactor);
+			for (int row = tile.row(); row < tile.row() + tile.height(); ++row)
+				for (int col = tile.col(); col < tile.col() + tile.width(); ++col)
+					imageWriter.writePixel(col, row, single //
+							? rayTracerBase.traceRay(generator.ray(col + 0.5, row + 0.5))
+							: castRay(generator, nx, col, row, samples));
+		}
+		if (statistics != null)
+			statistics.tileRendered(index, System.nanoTime() - start);
+		imageWriter.tileDone(index);
+		pixelManager.tileDone(tile);
+		tileRendered(tile);
+	}
+
+	/**
+	 * Renders the pixels of a tile by packets of rays through consecutive pixels
+	 * of each row. The directions of the rays are generated incrementally along the
+	 * row, and the packet is reused for the whole tile.
+	 *
+	 * @param tile      - the rendered tile
+	 * @param generator - the generator of the rays
+	 */
+	private void renderPackets(PixelManager.Tile tile, RayGenerator generator) {
+		RayPacket packet = new RayPacket(packetSize);
+		double[] dx = new double[packetSize], dy = new double[packetSize], dz = new double[packetSize];
+		Color[] colors = new Color[packetSize];
+		for (int row = tile.row(); row < tile.row() + tile.height(); ++row)
+			for (int col = tile.col(); col < tile.col() + tile.width(); col += packetSize) {
+				int count = Math.min(packetSize, tile.col() + tile.width() - col);
+				generator.directions(col, row, count, dx, dy, dz);
+				rayTracerBase.traceRays(packet.set(generator.origin(), dx, dy, dz, count), colors);
+				for (int i = 0; i < count; ++i)
+					imageWriter.writePixel(col + i, row, colors[i]);
+			}
+	}
+
+	/**
+	 * Renders the tiles of the image, on the calling thread or concurrently by a
+	 * fork-join pool. The calling thread waits for the pool interruptibly (the
+	 * waiting of {@link ForkJoinPool#invoke} hides the interrupt status of the
+	 * thread from the rendering threads): an interrupt is reported to the
+	 * renderers by a flag, and the interrupt status is restored at the end.
+	 *
+	 * @param pool        - the pool of the rendering threads, null for rendering
+	 *                    on the calling thread
+	 * @param count       - the number of the tiles
+	 * @param renderer    - the renderer of a tile by its index
+	 * @param interrupted - set when the calling thread is interrupted while it
+	 *                    waits for the pool
+	 */
+	private static void renderTiles(ForkJoinPool pool, int count, IntConsumer renderer, AtomicBoolean interrupted) {
+		if (pool == null) {
+			for (int i = 0; i < count; ++i)
+				renderer.accept(i);
+			return;
+		}
+		ForkJoinTask<Void> task = pool.submit(new RenderTask(renderer, 0, count));
+		while (true)
+			try {
+				task.get();
+				break;
+			} catch (InterruptedException e) {
+				interrupted.set(true);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException cause)
+					throw cause;
+				if (e.getCause() instanceof Error cause)
+					throw cause;
+				throw new IllegalStateException(e.getCause());
+			}
+		if (interrupted.get())
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Fork-join task that renders a range of tiles. The range is split in halves
+	 * until a single tile remains, so idle threads steal the halves that were not
+	 * rendered yet.
+	 */
+	private static class RenderTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final transient IntConsumer renderer;
+		private final int from;
+		private final int to;
+
+		/**
+		 * @param renderer - the renderer of a tile by its index
+		 * @param from     - the index of the first tile (included)
+		 * @param to       - the index of the last tile (excluded)
+		 */
+		RenderTask(IntConsumer renderer, int from, int to) {
+			this.renderer = renderer;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				renderer.accept(from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new RenderTask(renderer, from, middle), new RenderTask(renderer, middle, to));
+		}
 	}
 
 	/**
@@ -366,50 +1022,84 @@ public class Camera {
 		imageWriter.writeToImage();
 	}
 
+	/**
+	 * Activates the image maker's method of writing the high dynamic range image
+	 * 
+	 * @throws MissingResourceException - if the image writer is null
+	 */
+	public void writeToPFM() {
+		if (imageWriter == null)
+			throw new MissingResourceException("ERROR: The image writer is null", "Camera", "imageWriter");
+
+		imageWriter.writeToPFM();
+	}
+
 	/**
 	 * Cast ray from camera in order to color a pixel
 	 * 
-	 * @param nX  - resolution on X axis (number of pixels in row)
-	 * @param nY  - resolution on Y axis (number of pixels in column)
-	 * @param col - pixel's column number (pixel index in row)
-	 * @param row - pixel's row number (pixel index in column)
-	 */
-	private Color castRay(int nX, int nY, int col, int row) {
-		if (antiAliasingFactor == 1) // no improvement
-			return rayTracerBase.traceRay(constructRay(nX, nY, col, row));
+	 * @param generator - the generator of the rays
+	 * @param nX        - resolution on X axis (number of pixels in row)
+	 * @param col       - pixel's column number (pixel index in row)
+	 * @param row       - pixel's row number (pixel index in column)
+	 * @param samples   - reused arrays for the samples of the pixel
+	 */
+	private Color castRay(RayGenerator generator, int nX, int col, int row, PixelSamples samples) {
+		if (antiAliasingFactor == 1 && apertureRadius == 0) // no improvement
+			return rayTracerBase.traceRay(generator.ray(col + 0.5, row + 0.5));
+		else if (noiseThreshold > 0)
+			return castRaysUntilConverged(generator, nX, col, row, samples);
 		else
-			return rayTracerBase.traceRays(constructRays(nX, nY, col, row));
+			return rayTracerBase.traceRays(constructRays(generator, nX, col, row, samples));
 	}
 
 	/**
-	 * Checks the color of the pixel with the help of individual rays and averages
-	 * between them and only if necessary continues to send beams of rays in
-	 * recursion
+	 * Casts the rays of the samples of a pixel one by one, until the color of the
+	 * pixel converges (see {@link #setNoiseThreshold(double)}). The variance of
+	 * the samples is estimated online (by Welford's algorithm) in each channel.
 	 * 
-	 * @param nX        Pixel length
-	 * @param nY        Pixel width
-	 * @param j         The position of the pixel relative to the y-axis
-	 * @param i         The position of the pixel relative to the x-axis
-	 * @param numOfRays The amount of rays sent
-	 * @return Pixel color
+	 * @param generator - the generator of the rays
+	 * @param nX        - resolution on X axis (number of pixels in row)
+	 * @param col       - pixel's column number (pixel index in row)
+	 * @param row       - pixel's row number (pixel index in column)
+	 * @param samples   - reused arrays for the samples of the pixel
+	 * @return the average color of the traced samples
 	 */
-	private Color AdaptiveSuperSampling(int nX, int nY, int j, int i, int numOfRays) {
-		Vector Vright = vRight;
-		Vector Vup = vUp;
-		Point cameraLoc = this.getP0();
-		int numOfRaysInRowCol = (int) Math.floor(Math.sqrt(numOfRays));
-		if (numOfRaysInRowCol == 1)
-			return rayTracerBase.traceRay(constructRayThroughPixel(nX, nY, j, i));
-
-		Point pIJ = this.findPixelLocation(nX, nY, j, i);
-
-		double rY = alignZero(height / nY);
-		// the ratio Rx = w/Nx, the width of the pixel
-		double rX = alignZero(width / nX);
+	private Color castRaysUntilConverged(RayGenerator generator, int nX, int col, int row, PixelSamples samples) {
+		generateSamples(nX, col, row, samples);
+		int total = samples.xs.length;
+		int minSamples = Math.min(MIN_SAMPLES, total);
+		double threshold = noiseThreshold * noiseThreshold;
+		double[] mean = new double[3], m2 = new double[3];
+		int count = 0;
+		while (count < total) {
+			Color color = rayTracerBase.traceRay(constructSampleRay(generator, col, row, samples, count));
+			++count;
+			double maxVariance = 0;
+			for (int c = 0; c < 3; ++c) {
+				double value = c == 0 ? color.getRed() : c == 1 ? color.getGreen() : color.getBlue();
+				double delta = value - mean[c];
+				mean[c] += delta / count;
+				m2[c] += delta * (value - mean[c]);
+				maxVariance = Math.max(maxVariance, m2[c]);
+			}
+			// the squared standard error of the mean: the sample variance / count
+			if (count >= minSamples && maxVariance / (count - 1) / count <= threshold)
+				break;
+		}
+		return new Color(mean[0], mean[1], mean[2]);
+	}
 
-		double PRy = rY / numOfRaysInRowCol;
-		double PRx = rX / numOfRaysInRowCol;
-		return rayTracerBase.AdaptiveSuperSamplingRec(pIJ, rX, rY, PRx, PRy, cameraLoc, Vright, Vup, null);
+	/**
+	 * Finds the number of sub-pixels on the side of a pixel for adaptive super
+	 * sampling: the largest power of 2 that is not larger than the square root of
+	 * the anti aliasing factor (the maximal number of rays in a pixel)
+	 * 
+	 * @return the number of sub-pixels on the side of a pixel, 1 for a single ray
+	 *         through the pixel's center
+	 */
+	private int adaptiveScale() {
+		int raysInRow = (int) Math.floor(Math.sqrt(antiAliasingFactor));
+		return raysInRow <= 1 ? 1 : Integer.highestOneBit(raysInRow);
 	}
 
 	/**
@@ -423,11 +1113,7 @@ public class Camera {
 	 * @return ray that goes through the pixel (j, i) Ray(p0, Vi,j)
 	 */
 	public Ray constructRayThroughPixel(int nX, int nY, int j, int i) {
-		Point pIJ = findPixelLocation(nX, nY, j, i); // center point of the pixel
-
-		// Vi,j = Pi,j - P0, the direction of the ray to the pixel(j, i)
-		Vector vIJ = pIJ.subtract(p0);
-		return new Ray(p0, vIJ);
+		return constructRay(nX, nY, j, i);
 	}
 
 }
@@ -4,6 +4,16 @@ import primitives.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,7 +23,23 @@ import javax.imageio.*;
  * Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible of holding image related parameters of View Plane - pixel matrix
- * size and resolution
+ * size and resolution<br>
+ * The pixels are kept as linear floating point components (high dynamic range),
+ * so colors brighter than white and samples accumulated over several passes
+ * keep their precision. They are converted to the displayed range by a
+ * {@link ToneMapping} once, when the image is written, or written as they are to
+ * a PFM file.<br>
+ * In streaming mode the pixels are not kept in memory. They are written to a
+ * binary PPM file that is mapped to memory, so each rendered tile reaches the
+ * file while the rendering goes on and the image may be larger than the heap.
+ * The rendered tiles are recorded in a checkpoint file next to the image, so a
+ * rendering that was stopped is continued by a new image writer of the same
+ * name from the last rendered tile (see {@link Camera#renderImage()}), unless
+ * the scene or the camera settings were changed in between.<br>
+ * A mapped file stays mapped until its buffer is collected, and on Windows a
+ * mapped file cannot be deleted or truncated, so the streamed files are only
+ * written: a finished or obsolete checkpoint is cleared rather than deleted,
+ * and an image file is extended rather than recreated.
  * 
  * @author Dan
  */
@@ -23,9 +49,30 @@ public class ImageWriter {
 
 	private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
-	private BufferedImage image;
+	/** Linear RGB components of the pixels by rows, null if streaming */
+	private float[] pixels;
+	private ToneMapping toneMapping = ToneMapping.CLAMP;
 	private String imageName;
 
+	/** Header of the checkpoint files */
+	private static final int CHECKPOINT_MAGIC = 0x54494C45;
+	/**
+	 * Size of the header of the checkpoint files: magic, nX, nY, tile size, tiles
+	 * and the fingerprint of the rendering
+	 */
+	private static final int CHECKPOINT_HEADER = 5 * Integer.BYTES + Long.BYTES;
+	/** Maximal size of a mapped band of rows of the streamed image */
+	private static final long BAND_SIZE = 1L << 28;
+
+	/** Mapped bands of rows of the streamed image, null if not streaming */
+	private MappedByteBuffer[] bands = null;
+	/** Number of rows in each band of the streamed image */
+	private int bandRows;
+	/** Offset of the pixels in the streamed image file */
+	private long pixelsOffset;
+	/** Mapped checkpoint of the streamed image, null until the rendering starts */
+	private MappedByteBuffer checkpoint = null;
+
 	private Logger logger = Logger.getLogger("ImageWriter");
 
 	// ***************** Constructors ********************** //
@@ -37,11 +84,30 @@ public class ImageWriter {
 	 * @param nY        - amount of pixels by height
 	 */
 	public ImageWriter(String imageName, int nX, int nY) {
+		this(imageName, nX, nY, false);
+	}
+
+	/**
+	 * Image Writer constructor accepting image name and View Plane parameters. In
+	 * streaming mode the image is written to the PPM file imageName.ppm while it is
+	 * rendered. If the file of an unfinished rendering of the same resolution
+	 * exists, its rendered tiles are kept.
+	 * 
+	 * @param imageName - the name of the image file
+	 * @param nX        - amount of pixels by Width
+	 * @param nY        - amount of pixels by height
+	 * @param streaming - true for writing the image to the file while rendering
+	 * @throws IllegalStateException if the image file cannot be opened
+	 */
+	public ImageWriter(String imageName, int nX, int nY, boolean streaming) {
 		this.imageName = imageName;
 		this.nX = nX;
 		this.nY = nY;
 
-		image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+		if (streaming)
+			openStream();
+		else
+			pixels = new float[3 * nX * nY];
 	}
 
 	// ***************** Getters/Setters ********************** //
@@ -63,22 +129,90 @@ public class ImageWriter {
 		return nX;
 	}
 
+	/**
+	 * Sets the tone mapping of the written image. A streamed image is mapped when
+	 * its pixels are written, so the tone mapping is set before the rendering.
+	 * 
+	 * @param toneMapping - the tone mapping operator
+	 * @return the image writer itself
+	 */
+	public ImageWriter setToneMapping(ToneMapping toneMapping) {
+		this.toneMapping = toneMapping;
+		return this;
+	}
+
+	/**
+	 * @return true if the image is written to its file while rendering
+	 */
+	public boolean isStreaming() {
+		return bands != null;
+	}
+
 	// ***************** Operations ******************** //
 
 	/**
 	 * Function writeToImage produces unoptimized png file of the image according to
-	 * pixel color matrix in the directory of the project
+	 * pixel color matrix in the directory of the project. In streaming mode the
+	 * image file is already written, it is flushed to the disk and the tiles of
+	 * the rendering checkpoint are cleared, so a new rendering of the image
+	 * renders all its tiles.
 	 */
 	public void writeToImage() {
+		if (isStreaming()) {
+			for (MappedByteBuffer band : bands)
+				band.force();
+			if (checkpoint != null) {
+				for (int i = 0; i < checkpoint.capacity(); ++i)
+					checkpoint.put(i, (byte) 0);
+				checkpoint.force();
+				checkpoint = null;
+			}
+			return;
+		}
 		try {
+			new File(FOLDER_PATH).mkdirs(); // create the images directory on a clean checkout
 			File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-			ImageIO.write(image, "png", file);
+			ImageIO.write(toImage(), "png", file);
 		} catch (IOException e) {
 			logger.log(Level.SEVERE, "I/O error", e);
 			throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
 		}
 	}
 
+	/**
+	 * Writes the image in PNG format to a stream (e.g. the response to a client
+	 * that renders remotely), instead of the image file
+	 * 
+	 * @param out - the stream, it is not closed
+	 * @throws IllegalStateException if the image is streamed or the stream cannot
+	 *                               be written
+	 */
+	public void writeToImage(OutputStream out) {
+		if (isStreaming())
+			throw new IllegalStateException("The pixels of a streamed image are not kept");
+		try {
+			ImageIO.write(toImage(), "png", out);
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot write the image " + imageName, e);
+		}
+	}
+
+	/**
+	 * Converts the pixels to a displayed image by the tone mapping
+	 * 
+	 * @return the image
+	 */
+	private BufferedImage toImage() {
+		BufferedImage image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+		int[] row = new int[nX];
+		for (int y = 0; y < nY; ++y) {
+			for (int x = 0; x < nX; ++x)
+				row[x] = getDisplayedPixel(x, y);
+			image.setRGB(0, y, nX, 1, row, 0, nX);
+		}
+		return image;
+	}
+
 	/**
 	 * The function writePixel writes a color of a specific pixel into pixel color
 	 * matrix
@@ -88,7 +222,258 @@ public class ImageWriter {
 	 * @param color  - final color of the pixel
 	 */
 	public void writePixel(int xIndex, int yIndex, Color color) {
-		image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+		if (!isStreaming()) {
+			int i = 3 * (yIndex * nX + xIndex);
+			pixels[i] = (float) color.getRed();
+			pixels[i + 1] = (float) color.getGreen();
+			pixels[i + 2] = (float) color.getBlue();
+			return;
+		}
+		MappedByteBuffer band = bands[yIndex / bandRows];
+		int offset = 3 * ((yIndex % bandRows) * nX + xIndex);
+		// absolute puts - different pixels may be written concurrently
+		band.put(offset, (byte) toDisplay(color.getRed()));
+		band.put(offset + 1, (byte) toDisplay(color.getGreen()));
+		band.put(offset + 2, (byte) toDisplay(color.getBlue()));
+	}
+
+	/**
+	 * Adds a color to the color of a pixel, for accumulating the samples of
+	 * several rendering passes
+	 * 
+	 * @param xIndex - X axis index of the pixel
+	 * @param yIndex - Y axis index of the pixel
+	 * @param color  - the color to add
+	 * @throws IllegalStateException if the image is streamed
+	 */
+	public void addPixel(int xIndex, int yIndex, Color color) {
+		if (isStreaming())
+			throw new IllegalStateException("The pixels of a streamed image cannot be accumulated");
+		int i = 3 * (yIndex * nX + xIndex);
+		pixels[i] += (float) color.getRed();
+		pixels[i + 1] += (float) color.getGreen();
+		pixels[i + 2] += (float) color.getBlue();
+	}
+
+	/**
+	 * Finds the (linear) color of a pixel
+	 * 
+	 * @param xIndex - X axis index of the pixel
+	 * @param yIndex - Y axis index of the pixel
+	 * @return the color of the pixel
+	 * @throws IllegalStateException if the image is streamed
+	 */
+	public Color getPixel(int xIndex, int yIndex) {
+		if (isStreaming())
+			throw new IllegalStateException("The pixels of a streamed image are not kept");
+		int i = 3 * (yIndex * nX + xIndex);
+		return new Color(pixels[i], pixels[i + 1], pixels[i + 2]);
+	}
+
+	/**
+	 * Finds the displayed color of a pixel, after the tone mapping
+	 * 
+	 * @param xIndex - X axis index of the pixel
+	 * @param yIndex - Y axis index of the pixel
+	 * @return the components of the color packed in an int (8 bits each, red in
+	 *         the highest ones) as in {@link BufferedImage#TYPE_INT_RGB}
+	 * @throws IllegalStateException if the image is streamed
+	 */
+	public int getDisplayedPixel(int xIndex, int yIndex) {
+		if (isStreaming())
+			throw new IllegalStateException("The pixels of a streamed image are not kept");
+		int i = 3 * (yIndex * nX + xIndex);
+		return toDisplay(pixels[i]) << 16 | toDisplay(pixels[i + 1]) << 8 | toDisplay(pixels[i + 2]);
+	}
+
+	/**
+	 * Converts a linear color component to a displayed component by the tone
+	 * mapping
+	 * 
+	 * @param value - the linear component
+	 * @return the displayed component (0..255)
+	 */
+	private int toDisplay(double value) {
+		int result = (int) toneMapping.map(value);
+		return result > 255 ? 255 : result < 0 ? 0 : result;
+	}
+
+	/**
+	 * Writes the linear (not tone mapped) image to a PFM file (portable float map)
+	 * in the images directory, where 1 is the printed white (255)
+	 * 
+	 * @throws IllegalStateException if the image is streamed or the file cannot be
+	 *                               written
+	 */
+	public void writeToPFM() {
+		if (isStreaming())
+			throw new IllegalStateException("The pixels of a streamed image are not kept");
+		Path file = Path.of(FOLDER_PATH, imageName + ".pfm");
+		byte[] header = ("PF\n" + nX + " " + nY + "\n-1.0\n").getBytes(StandardCharsets.US_ASCII);
+		// little endian (negative scale), the rows from the bottom to the top
+		ByteBuffer buffer = ByteBuffer.allocate(header.length + 4 * pixels.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(header);
+		for (int y = nY - 1; y >= 0; --y)
+			for (int i = 3 * y * nX, end = i + 3 * nX; i < end; ++i)
+				buffer.putFloat(pixels[i] / 255);
+		try (FileChannel channel = FileChannel.open(Files.createDirectories(file.getParent()).resolve(file.getFileName()),
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "I/O error", e);
+			throw new IllegalStateException("I/O error - cannot write " + file, e);
+		}
+	}
+
+	// ***************** Streaming ******************** //
+
+	/**
+	 * @return the path of the streamed image file
+	 */
+	private Path getStreamFile() {
+		return Path.of(FOLDER_PATH, imageName + ".ppm");
+	}
+
+	/**
+	 * @return the path of the checkpoint file of the streamed image
+	 */
+	private Path getCheckpointFile() {
+		return Path.of(FOLDER_PATH, imageName + ".ppm.checkpoint");
+	}
+
+	/**
+	 * Opens the streamed image file and maps its pixels. An existing file is kept
+	 * if it has a checkpoint and the same resolution, otherwise its checkpoint is
+	 * cleared and the file is reused for the new image.
+	 */
+	private void openStream() {
+		Path file = getStreamFile();
+		byte[] header = ("P6\n" + nX + " " + nY + "\n255\n").getBytes(StandardCharsets.US_ASCII);
+		long size = header.length + 3L * nX * nY;
+		try {
+			Files.createDirectories(file.getParent());
+			boolean resume = Files.isRegularFile(getCheckpointFile()) && Files.isRegularFile(file)
+					&& Files.size(file) == size;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE)) {
+				if (resume) {
+					ByteBuffer existing = ByteBuffer.allocate(header.length);
+					channel.read(existing, 0);
+					resume = ByteBuffer.wrap(header).equals(existing.flip());
+				}
+				if (!resume) {
+					clearCheckpoint();
+					// the file is reused, all its tiles are rendered again
+					if (channel.size() < size)
+						channel.write(ByteBuffer.allocate(1), size - 1);
+					else if (channel.size() > size)
+						shrink(channel, size);
+					channel.write(ByteBuffer.wrap(header), 0);
+				}
+				pixelsOffset = header.length;
+				bandRows = (int) Math.max(1, Math.min(nY, BAND_SIZE / (3L * nX)));
+				bands = new MappedByteBuffer[(nY + bandRows - 1) / bandRows];
+				for (int i = 0; i < bands.length; ++i) {
+					long first = (long) i * bandRows;
+					long rows = Math.min(bandRows, nY - first);
+					bands[i] = channel.map(MapMode.READ_WRITE, pixelsOffset + 3 * first * nX, 3 * rows * nX);
+				}
+			}
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "I/O error", e);
+			throw new IllegalStateException("I/O error - cannot open the image file " + file, e);
+		}
+	}
+
+	/**
+	 * Shrinks the image file of a former larger image. The file cannot be
+	 * truncated while it is still mapped by a former image writer on Windows, and
+	 * then it keeps its extra bytes after the pixels.
+	 *
+	 * @param channel - the channel of the image file
+	 * @param size    - the size of the image
+	 */
+	private void shrink(FileChannel channel, long size) {
+		try {
+			channel.truncate(size);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Cannot truncate the mapped image file " + getStreamFile(), e);
+		}
+	}
+
+	/**
+	 * Clears the header of the checkpoint file of the streamed image, if there is
+	 * one, so the checkpoint is restarted. The file is not deleted, since it may
+	 * be still mapped by a former image writer.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	private void clearCheckpoint() throws IOException {
+		Path file = getCheckpointFile();
+		if (!Files.isRegularFile(file))
+			return;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			if (channel.size() >= Integer.BYTES)
+				channel.write(ByteBuffer.allocate(Integer.BYTES), 0);
+		}
+	}
+
+	/**
+	 * Opens the checkpoint of the rendered tiles of a streamed image. An existing
+	 * checkpoint of another division into tiles or of another rendering (a changed
+	 * scene or camera) is restarted. Does nothing if the image is not streamed.
+	 * 
+	 * @param tileSize    - the length of the side of a tile
+	 * @param tilesCount  - the number of tiles in the image
+	 * @param fingerprint - the fingerprint of the scene and the camera settings
+	 */
+	void openCheckpoint(int tileSize, int tilesCount, long fingerprint) {
+		if (!isStreaming())
+			return;
+		Path file = getCheckpointFile();
+		long size = CHECKPOINT_HEADER + (long) tilesCount;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_HEADER);
+			header.putInt(CHECKPOINT_MAGIC).putInt(nX).putInt(nY).putInt(tileSize).putInt(tilesCount)
+					.putLong(fingerprint).flip();
+			ByteBuffer existing = ByteBuffer.allocate(CHECKPOINT_HEADER);
+			channel.read(existing, 0);
+			// a larger file of a former checkpoint is not truncated, its extra bytes are not used
+			if (channel.size() < size || !header.equals(existing.flip())) {
+				channel.write(ByteBuffer.allocate(tilesCount), CHECKPOINT_HEADER);
+				channel.write(header, 0); // after the tiles, so a stopped restart is restarted again
+			}
+			checkpoint = channel.map(MapMode.READ_WRITE, CHECKPOINT_HEADER, tilesCount);
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "I/O error", e);
+			throw new IllegalStateException("I/O error - cannot open the checkpoint " + file, e);
+		}
+	}
+
+	/**
+	 * Checks whether a tile was already rendered (in a former rendering of a
+	 * streamed image)
+	 * 
+	 * @param index - the index of the tile
+	 * @return true if the tile is in the checkpoint
+	 */
+	boolean isTileDone(int index) {
+		return checkpoint != null && checkpoint.get(index) != 0;
+	}
+
+	/**
+	 * Records a rendered tile in the checkpoint of a streamed image. The tile is
+	 * recorded after its pixels were written, so the checkpoint and the image in
+	 * the file system stay consistent if the process stops.
+	 * 
+	 * @param index - the index of the tile
+	 */
+	void tileDone(int index) {
+		if (checkpoint != null)
+			checkpoint.put(index, (byte) 1);
 	}
 
 }
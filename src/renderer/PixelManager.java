@@ -0,0 +1,147 @@
+package renderer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pixel manager divides the image into rectangular tiles and follows the
+ * progress of rendering them. It is used by the {@link Camera} when rendering
+ * the image in several threads, each tile is rendered by a single thread and
+ * different tiles are rendered concurrently. The class is thread safe.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+class PixelManager {
+
+	/** Default length (in pixels) of the side of a tile */
+	static final int DEFAULT_TILE_SIZE = 16;
+
+	/**
+	 * A rectangular tile of the image
+	 *
+	 * @param row    - the first row of the tile
+	 * @param col    - the first column of the tile
+	 * @param height - the number of rows in the tile
+	 * @param width  - the number of columns in the tile
+	 */
+	record Tile(int row, int col, int height, int width) {
+		/**
+		 * @return the number of pixels in the tile
+		 */
+		int size() {
+			return height * width;
+		}
+	}
+
+	/** Number of rows in the image */
+	private final int maxRows;
+	/** Number of columns in the image */
+	private final int maxCols;
+	/** Length of the side of a tile */
+	private final int tileSize;
+	/** Number of tiles in a row of tiles */
+	private final int tilesInRow;
+	/** Total number of tiles */
+	private final int tilesCount;
+	/** Total number of pixels */
+	private final long pixels;
+
+	/** Number of pixels that were already rendered */
+	private final LongAdder pixelsDone = new LongAdder();
+	/** Interval between progress prints (in milliseconds), 0 for no printing */
+	private final long printInterval;
+	/** Time of the last progress print (in milliseconds) */
+	private final AtomicLong lastPrint;
+
+	/**
+	 * Constructor of pixel manager with default tile size
+	 *
+	 * @param maxRows       - number of rows in the image
+	 * @param maxCols       - number of columns in the image
+	 * @param printInterval - interval between progress prints in seconds (0 for no
+	 *                      printing)
+	 */
+	PixelManager(int maxRows, int maxCols, double printInterval) {
+		this(maxRows, maxCols, printInterval, DEFAULT_TILE_SIZE);
+	}
+
+	/**
+	 * Constructor of pixel manager
+	 *
+	 * @param maxRows       - number of rows in the image
+	 * @param maxCols       - number of columns in the image
+	 * @param printInterval - interval between progress prints in seconds (0 for no
+	 *                      printing)
+	 * @param tileSize      - length of the side of a tile
+	 */
+	PixelManager(int maxRows, int maxCols, double printInterval, int tileSize) {
+		if (tileSize < 1)
+			throw new IllegalArgumentException("Tile size must be positive");
+		this.maxRows = maxRows;
+		this.maxCols = maxCols;
+		this.tileSize = tileSize;
+		tilesInRow = (maxCols + tileSize - 1) / tileSize;
+		tilesCount = tilesInRow * ((maxRows + tileSize - 1) / tileSize);
+		pixels = (long) maxRows * maxCols;
+		this.printInterval = (long) (printInterval * 1000);
+		lastPrint = new AtomicLong(System.currentTimeMillis());
+	}
+
+	/**
+	 * @return the length of the side of a tile
+	 */
+	int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * @return the total number of tiles in the image
+	 */
+	int getTilesCount() {
+		return tilesCount;
+	}
+
+	/**
+	 * Finds a tile by its index. The tiles are ordered by rows of tiles.
+	 *
+	 * @param index - the index of the tile (0 to {@link #getTilesCount()} - 1)
+	 * @return the tile
+	 */
+	Tile getTile(int index) {
+		int row = index / tilesInRow * tileSize;
+		int col = index % tilesInRow * tileSize;
+		return new Tile(row, col, Math.min(tileSize, maxRows - row), Math.min(tileSize, maxCols - col));
+	}
+
+	/**
+	 * Marks a tile as rendered and prints the progress if the print interval has
+	 * passed since the last print
+	 *
+	 * @param tile - the rendered tile
+	 */
+	void tileDone(Tile tile) {
+		pixelsDone.add(tile.size());
+		if (printInterval <= 0)
+			return;
+		long now = System.currentTimeMillis();
+		long last = lastPrint.get();
+		// only one of the threads prints in each interval
+		if (now - last >= printInterval && lastPrint.compareAndSet(last, now))
+			printProgress();
+	}
+
+	/**
+	 * @return the percentage of the rendered pixels
+	 */
+	double getProgress() {
+		return pixels == 0 ? 100 : 100d * pixelsDone.sum() / pixels;
+	}
+
+	/**
+	 * Prints the rendering progress (if printing is enabled)
+	 */
+	void printProgress() {
+		if (printInterval > 0)
+			System.out.printf("\r %5.1f%%", getProgress());
+	}
+}
@@ -0,0 +1,139 @@
+package renderer;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Generator of the rays from the camera for a single rendering. The view plane
+ * geometry is precomputed once as plain coordinates: the corner of the view
+ * plane relative to the camera location, and the steps of a pixel to the right
+ * and down. The direction through any point of the view plane - a pixel's
+ * center, a sample in a pixel or a corner of an adaptive sampling cell - is then
+ * a few multiplications and additions, without intermediate points and vectors,
+ * and the directions along a row of pixels are generated incrementally into
+ * primitive arrays. The generator is immutable, so the rendering threads share
+ * it.<br>
+ * The points of the view plane are given in pixel units: (u, v) is u pixels to
+ * the right of the left edge of the view plane and v pixels below its top edge.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+final class RayGenerator {
+
+	/** The camera location */
+	private final Point p0;
+	/** The top left corner of the view plane, relative to the camera location */
+	private final double cornerX, cornerY, cornerZ;
+	/** A step of a pixel to the right */
+	private final double rightX, rightY, rightZ;
+	/** A step of a pixel down */
+	private final double downX, downY, downZ;
+
+	/** The right and up vectors of the lens, scaled by the aperture radius */
+	private final double lensRightX, lensRightY, lensRightZ, lensUpX, lensUpY, lensUpZ;
+	/** The ratio of the focal distance to the view plane distance */
+	private final double focalScale;
+
+	/**
+	 * Constructor of the generator of the rays of a camera
+	 *
+	 * @param p0             - the camera location
+	 * @param vTo            - the camera direction (normalized)
+	 * @param vUp            - the camera up direction (normalized)
+	 * @param vRight         - the camera right direction (normalized)
+	 * @param width          - the width of the view plane
+	 * @param height         - the height of the view plane
+	 * @param distance       - the distance of the view plane from the camera
+	 * @param nX             - resolution on X axis
+	 * @param nY             - resolution on Y axis
+	 * @param apertureRadius - the radius of the lens aperture, 0 for a pinhole
+	 * @param focalDistance  - the distance of the focal plane from the camera
+	 */
+	RayGenerator(Point p0, Vector vTo, Vector vUp, Vector vRight, double width, double height, double distance,
+			int nX, int nY, double apertureRadius, double focalDistance) {
+		this.p0 = p0;
+		double rX = width / nX, rY = height / nY;
+		rightX = vRight.getX() * rX;
+		rightY = vRight.getY() * rX;
+		rightZ = vRight.getZ() * rX;
+		downX = -vUp.getX() * rY;
+		downY = -vUp.getY() * rY;
+		downZ = -vUp.getZ() * rY;
+		cornerX = vTo.getX() * distance - (rightX * nX + downX * nY) / 2;
+		cornerY = vTo.getY() * distance - (rightY * nX + downY * nY) / 2;
+		cornerZ = vTo.getZ() * distance - (rightZ * nX + downZ * nY) / 2;
+		lensRightX = vRight.getX() * apertureRadius;
+		lensRightY = vRight.getY() * apertureRadius;
+		lensRightZ = vRight.getZ() * apertureRadius;
+		lensUpX = vUp.getX() * apertureRadius;
+		lensUpY = vUp.getY() * apertureRadius;
+		lensUpZ = vUp.getZ() * apertureRadius;
+		focalScale = apertureRadius == 0 ? 1 : focalDistance / distance;
+	}
+
+	/**
+	 * Constructs the pinhole ray through a point of the view plane
+	 *
+	 * @param u - pixels from the left edge of the view plane
+	 * @param v - pixels from the top edge of the view plane
+	 * @return the ray
+	 */
+	Ray ray(double u, double v) {
+		return new Ray(p0, new Vector(cornerX + rightX * u + downX * v, cornerY + rightY * u + downY * v,
+				cornerZ + rightZ * u + downZ * v));
+	}
+
+	/**
+	 * Constructs the ray from a point of the lens aperture through the focal
+	 * point of a point of the view plane (where the pinhole ray through the point
+	 * meets the focal plane)
+	 *
+	 * @param u     - pixels from the left edge of the view plane
+	 * @param v     - pixels from the top edge of the view plane
+	 * @param lensX - the horizontal coordinate on the aperture (-1 to 1)
+	 * @param lensY - the vertical coordinate on the aperture (-1 to 1)
+	 * @return the ray
+	 */
+	Ray ray(double u, double v, double lensX, double lensY) {
+		double offsetX = lensRightX * lensX + lensUpX * lensY;
+		double offsetY = lensRightY * lensX + lensUpY * lensY;
+		double offsetZ = lensRightZ * lensX + lensUpZ * lensY;
+		Point origin = offsetX == 0 && offsetY == 0 && offsetZ == 0 ? p0 : p0.add(new Vector(offsetX, offsetY, offsetZ));
+		return new Ray(origin,
+				new Vector((cornerX + rightX * u + downX * v) * focalScale - offsetX,
+						(cornerY + rightY * u + downY * v) * focalScale - offsetY,
+						(cornerZ + rightZ * u + downZ * v) * focalScale - offsetZ));
+	}
+
+	/**
+	 * @return the camera location, the head of the pinhole rays
+	 */
+	Point origin() {
+		return p0;
+	}
+
+	/**
+	 * Generates the normalized directions of the pinhole rays through the centers
+	 * of consecutive pixels in a row. The direction of each pixel is the one of
+	 * the previous pixel plus a step to the right.
+	 *
+	 * @param col   - the column of the first pixel
+	 * @param row   - the row of the pixels
+	 * @param count - the number of the pixels
+	 * @param dx    - the array to fill with the first coordinates
+	 * @param dy    - the array to fill with the second coordinates
+	 * @param dz    - the array to fill with the third coordinates
+	 */
+	void directions(int col, int row, int count, double[] dx, double[] dy, double[] dz) {
+		double x = cornerX + rightX * (col + 0.5) + downX * (row + 0.5);
+		double y = cornerY + rightY * (col + 0.5) + downY * (row + 0.5);
+		double z = cornerZ + rightZ * (col + 0.5) + downZ * (row + 0.5);
+		for (int i = 0; i < count; ++i, x += rightX, y += rightY, z += rightZ) {
+			double scale = 1 / Math.sqrt(x * x + y * y + z * z);
+			dx[i] = x * scale;
+			dy[i] = y * scale;
+			dz[i] = z * scale;
+		}
+	}
+}
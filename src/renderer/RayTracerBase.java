@@ -4,11 +4,11 @@
 package renderer;
 
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
+import geometries.RayPacket;
 import primitives.Color;
-import primitives.Point;
 import primitives.Ray;
-import primitives.Vector;
 import scene.Scene;
 
 /**
@@ -19,6 +19,16 @@ public abstract class RayTracerBase {
 
 	protected final Scene scene;
 
+	/**
+	 * The statistics of the current rendering, null when they are not collected
+	 */
+	protected RenderStatistics statistics = null;
+	/**
+	 * The counter of the intersection tests of the current rendering (passed to
+	 * the queries of the geometries), null when they are not counted
+	 */
+	protected LongAdder intersectionTests = null;
+
 	/**
 	 * RayTracerBase constructor
 	 * 
@@ -29,6 +39,17 @@ public abstract class RayTracerBase {
 
 	}
 
+	/**
+	 * Sets the statistics that the tracer updates while rendering
+	 * 
+	 * @param statistics - the statistics of the rendering, or null to stop
+	 *                   collecting them
+	 */
+	void setStatistics(RenderStatistics statistics) {
+		this.statistics = statistics;
+		intersectionTests = statistics == null ? null : statistics.getTestsCounter();
+	}
+
 	/**
 	 * Abstract trace ray function
 	 * 
@@ -45,22 +66,26 @@ public abstract class RayTracerBase {
 	abstract Color traceRays(List<Ray> rays);
 
 	/**
-	 * Checks the color of the pixel with the help of individual rays and averages
-	 * between them and only if necessary continues to send beams of rays in
-	 * recursion
+	 * Traces a packet of coherent rays (e.g. the rays from the camera through
+	 * neighboring pixels). The default implementation traces the rays one by one.
+	 * 
+	 * @param packet - the rays to trace
+	 * @param colors - the array to fill with the colors of the rays
+	 */
+	void traceRays(RayPacket packet, Color[] colors) {
+		for (int i = 0; i < packet.size(); ++i)
+			colors[i] = traceRay(packet.getRay(i));
+	}
+
+	/**
+	 * Returns the settings of the tracer that affect the rendered colors, for the
+	 * fingerprint of a rendering (see {@link Camera#renderImage()}). The default
+	 * implementation has no settings.
 	 * 
-	 * @param centerP   center pixl
-	 * @param Width     Length
-	 * @param Height    width
-	 * @param minWidth  min Width
-	 * @param minHeight min Height
-	 * @param cameraLoc Camera location
-	 * @param Vright    Vector right
-	 * @param Vup       vector up
-	 * @param prePoints pre Points
-	 * @return Pixel color
+	 * @return the settings
 	 */
-	public abstract Color AdaptiveSuperSamplingRec(Point centerP, double Width, double Height, double minWidth,
-			double minHeight, Point cameraLoc, Vector Vright, Vector Vup, List<Point> prePoints);
+	List<Object> getSettings() {
+		return List.of();
+	}
 
 }
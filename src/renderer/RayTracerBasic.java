@@ -3,10 +3,14 @@ package renderer;
 import static primitives.Util.alignZero;
 import static primitives.Util.isZero;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
+import geometries.RayPacket;
 import geometries.Intersectable.GeoPoint;
+import lighting.AreaLight;
 import lighting.LightSource;
 import primitives.Color;
 import primitives.Double3;
@@ -18,14 +22,20 @@ import scene.Scene;
 
 /**
  * The class extends RayTracerBase. Find the intersections of ray with the scene
- * objects and returns the color of the intersections.
+ * objects and returns the color of the intersections.<br>
+ * The reflected and refracted rays of a point are not traced recursively. They
+ * are kept in a work stack with their accumulated attenuation, and the stack is
+ * evaluated in a loop, so the depth of the ray tree does not affect the Java
+ * stack. A ray is not traced when its attenuation is very small, or - with
+ * Russian roulette - it is traced with a probability that is proportional to
+ * its attenuation, and its contribution is scaled up accordingly.
  * 
  * @author Naama and Hadas
  */
 public class RayTracerBasic extends RayTracerBase {
 
 	/**
-	 * constant value of max recursive level of transparency calculation
+	 * default value of the max level of transparency and reflection calculation
 	 */
 	private static final int MAX_CALC_COLOR_LEVEL = 10;
 
@@ -42,6 +52,43 @@ public class RayTracerBasic extends RayTracerBase {
 	 */
 	private static final Double3 INITIAL_K = Double3.ONE;
 
+	/** Maximal depth of the ray tree (the ray from the camera is level 1) */
+	private int maxLevel = MAX_CALC_COLOR_LEVEL;
+
+	/**
+	 * Attenuation below which the rays are terminated by Russian roulette, 0 for
+	 * the fixed cut-off of very small attenuation
+	 */
+	private double rouletteThreshold = 0;
+
+	/**
+	 * Number of the rays in a beam of a glossy reflection or a blurry refraction
+	 * from the first hit of a ray from the camera
+	 */
+	private int beamSize = 1;
+
+	/**
+	 * Number of the first rays of a beam, which are traced before the rest of the
+	 * rays for the adaptive early out
+	 */
+	private static final int BEAM_PROBES = 4;
+
+	/** The golden angle, the rotation between successive rays of a beam */
+	private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+	/**
+	 * A point whose color was not calculated yet, with the accumulated attenuation
+	 * of the rays that reached it
+	 *
+	 * @param gp     - the point on a geometry
+	 * @param ray    - the ray that intersected the geometry
+	 * @param normal - the normal of the geometry at the point
+	 * @param level  - the remaining levels of the ray tree
+	 * @param k      - the accumulated attenuation coefficient
+	 */
+	private record ShadingTask(GeoPoint gp, Ray ray, Vector normal, int level, Double3 k) {
+	}
+
 	/**
 	 * RayTracerBase constructor, using scene parameter
 	 * 
@@ -51,6 +98,67 @@ public class RayTracerBasic extends RayTracerBase {
 		super(scene);
 	}
 
+	/**
+	 * Sets the maximal depth of the ray tree
+	 * 
+	 * @param maxLevel - the maximal number of rays in a path from the camera (1 for
+	 *                 no reflections and refractions)
+	 * @return the ray tracer itself
+	 * @throws IllegalArgumentException if the level is not positive
+	 */
+	public RayTracerBasic setMaxLevel(int maxLevel) {
+		if (maxLevel < 1)
+			throw new IllegalArgumentException("The maximal level must be positive");
+		this.maxLevel = maxLevel;
+		return this;
+	}
+
+	/**
+	 * Sets Russian roulette termination of the reflected and refracted rays. A ray
+	 * whose accumulated attenuation is below the threshold is traced with a
+	 * probability of its attenuation divided by the threshold, and its contribution
+	 * is divided by the probability, so the expected color is kept.
+	 * 
+	 * @param threshold - the attenuation below which the rays may be terminated (0
+	 *                  to 1), 0 for the fixed cut-off of very small attenuation
+	 * @return the ray tracer itself
+	 * @throws IllegalArgumentException if the threshold is out of range
+	 */
+	public RayTracerBasic setRussianRoulette(double threshold) {
+		if (threshold < 0 || threshold > 1)
+			throw new IllegalArgumentException("The threshold must be between 0 and 1");
+		this.rouletteThreshold = threshold;
+		return this;
+	}
+
+	/**
+	 * Sets the number of the rays in a beam of a glossy reflection or a blurry
+	 * refraction (see {@link Material#setGlossiness(double)} and
+	 * {@link Material#setBlurriness(double)}). The rays are spread evenly over the
+	 * cone around the perfect ray (a golden angle spiral, randomly rotated). The
+	 * budget shrinks at deeper levels: the beams from the hits of the beam rays
+	 * have a quarter of the rays, down to a single perfect ray. When the first
+	 * rays of a beam all hit the same object (see
+	 * {@link geometries.Geometry#getOwner()}, e.g. any faces of the same mesh) or
+	 * all miss the scene, the rest of the beam is not traced.
+	 * 
+	 * @param beamSize - the number of the rays in a beam, 1 (the default) for a
+	 *                 single perfect ray
+	 * @return the ray tracer itself
+	 * @throws IllegalArgumentException if the size is not positive
+	 */
+	public RayTracerBasic setBeamSize(int beamSize) {
+		if (beamSize < 1)
+			throw new IllegalArgumentException("The beam size must be positive");
+		this.beamSize = beamSize;
+		return this;
+	}
+
+	@Override
+	List<Object> getSettings() {
+		return List.of(maxLevel, rouletteThreshold, beamSize);
+	}
+
 	/**
 	 * An inheritance function from base this function returns the color of the
 	 * closest point to the ray.
@@ -60,6 +168,8 @@ public class RayTracerBasic extends RayTracerBase {
 	 */
 	@Override
 	public Color traceRay(Ray ray) {
+		if (statistics != null)
+			statistics.primaryRay();
 		GeoPoint closestPoint = findClosestIntersection(ray);
 		return closestPoint == null ? scene.background : calcColor(closestPoint, ray);
 	}
@@ -80,20 +190,41 @@ public class RayTracerBasic extends RayTracerBase {
 
 	}
 
+	/**
+	 * Traces a packet of rays: the closest intersections of all the rays are found
+	 * together (see {@link geometries.Intersectable#findClosestGeoIntersections(RayPacket)}),
+	 * and then the color of each intersection is calculated
+	 * 
+	 * @param packet - the rays to trace
+	 * @param colors - the array to fill with the colors of the rays
+	 */
+	@Override
+	void traceRays(RayPacket packet, Color[] colors) {
+		scene.geometries.findClosestGeoIntersections(packet.setTestsCounter(intersectionTests));
+		for (int i = 0; i < packet.size(); ++i) {
+			if (statistics != null)
+				statistics.primaryRay();
+			GeoPoint gp = packet.getHit(i);
+			if (statistics != null && gp != null)
+				statistics.hit(gp.geometry);
+			colors[i] = gp == null ? scene.background : calcColor(gp, packet.getRay(i));
+		}
+	}
+
 	/**
 	 * Helping method for color calculation of a point on a geometry as it seems
 	 * from the camera point of view. Calculating the local effects: the diffusion
 	 * and the specular factors.
 	 * 
-	 * @param gp  - the observed point on the geometry
-	 * @param ray - ray from the camera that intersect the geometry
-	 * @param k   - initial attenuation coefficient value (between 0-1)
+	 * @param gp     - the observed point on the geometry
+	 * @param ray    - ray from the camera that intersect the geometry
+	 * @param normal - the normal of the geometry at the point
+	 * @param k      - initial attenuation coefficient value (between 0-1)
 	 * @return the color of the point with consideration of local effects
 	 */
-	private Color calcLocalEffects(GeoPoint gp, Ray ray, Double3 k) {
+	private Color calcLocalEffects(GeoPoint gp, Ray ray, Vector normal, Double3 k) {
 		Color color = gp.geometry.getEmission();
 		Vector vector = ray.getDir();
-		Vector normal = gp.geometry.getNormal(gp.point);
 		double nv = alignZero(normal.dotProduct(vector));
 		if (nv == 0)
 			return color;
@@ -104,9 +235,10 @@ public class RayTracerBasic extends RayTracerBase {
 			if (nl * nv > 0) {// sign(nl) == sing(nv)
 				Double3 ktr = transparency(gp, lightSource, lightVector, normal);
 				if (!ktr.product(k).lowerThan(MIN_CALC_COLOR_K)) {
-					Color lightIntensity = lightSource.getIntensity(gp.point).scale(ktr);
-					color = color.add(lightIntensity.scale(calcDiffusive(material, nl)),
-							lightIntensity.scale(calcSpecular(material, normal, lightVector, nl, vector)));
+					// (kD * |nl| + kS * max(0, -v*r)^nShininess) * ktr, scaled once
+					Double3 factor = calcDiffusive(material, nl)
+							.add(calcSpecular(material, lightVector, nl, nv, vector)).product(ktr);
+					color = color.add(lightSource.getIntensity(gp.point).scale(factor));
 				}
 			}
 		}
@@ -118,44 +250,139 @@ public class RayTracerBasic extends RayTracerBase {
 	 * the camera point of view. The function is modeling transparent objects (with
 	 * various opacity levels) and reflecting surfaces such as mirrors.
 	 * 
-	 * @param geoPoint - the observed point on the geometry
-	 * @param ray      - from the camera that intersect the geometry
-	 * @param level    - of recursion for the global effects calculation
-	 * @param k        - initial attenuation coefficient value (between 0-1)
-	 * @return the color of the point with consideration of global effects
+	 * @param task  - the observed point with its attenuation
+	 * @param tasks - the work stack for the points that the rays hit
+	 * @return the color of the background seen by the reflected and refracted rays
 	 */
-	private Color calcGlobalEffects(GeoPoint geoPoint, Ray ray, int level, Double3 k) {
-		Material material = geoPoint.geometry.getMaterial();
-		Vector v = ray.getDir();
-		Vector normal = geoPoint.geometry.getNormal(geoPoint.point);
-		Ray reflectedRay = constructReflectionRay(geoPoint, normal, v);
-		Ray refractedRay = constructRefractionRay(geoPoint, normal, v);
-		return calcGlobalEffect(reflectedRay, level, k, material.kR)
-				.add(calcGlobalEffect(refractedRay, level, k, material.kT));
+	private Color calcGlobalEffects(ShadingTask task, Deque<ShadingTask> tasks) {
+		Material material = task.gp().geometry.getMaterial();
+		Vector v = task.ray().getDir();
+		Ray reflectedRay = constructReflectionRay(task.gp(), task.normal(), v);
+		Ray refractedRay = constructRefractionRay(task.gp(), task.normal(), v);
+		return calcGlobalEffect(reflectedRay, task.normal(), material.glossiness, task.level(), task.k(),
+				material.kR, tasks)
+				.add(calcGlobalEffect(refractedRay, task.normal(), material.blurriness, task.level(), task.k(),
+						material.kT, tasks));
 	}
 
 	/**
 	 * Helping method for color calculation (function calcGlobalEffects) of a point
-	 * on a geometry as it sees from the camera point of view. Calculating the
-	 * global effects.
+	 * on a geometry as it sees from the camera point of view. Traces a reflected or
+	 * refracted ray (or a beam of rays around it for a glossy or blurry material),
+	 * the points it hits are pushed to the work stack.
 	 * 
-	 * @param ray   - ray from the camera that intersect the geometry
-	 * @param level - level of recursion
-	 * @param k     - the material reflection\refraction coefficient value (between
-	 *              0-1)
-	 * @param kx    - product of the global and local attenuation coefficient
-	 * @return the color of the point with consideration of global effect
+	 * @param ray    - the perfect reflected or refracted ray
+	 * @param normal - the normal of the geometry at the origin of the ray
+	 * @param blur   - the radius of the cone of the beam at a distance of 1, 0 for
+	 *               the perfect ray only
+	 * @param level  - the remaining levels of the ray tree at the origin of the ray
+	 * @param k      - the accumulated attenuation coefficient at the origin of the
+	 *               ray (between 0-1)
+	 * @param kx     - the material reflection\refraction coefficient value
+	 *               (between 0-1)
+	 * @param tasks  - the work stack
+	 * @return the color of the background seen by the rays that hit nothing
+	 *         (scaled by the attenuation)
 	 */
-	private Color calcGlobalEffect(Ray ray, int level, Double3 k, Double3 kx) {
+	private Color calcGlobalEffect(Ray ray, Vector normal, double blur, int level, Double3 k, Double3 kx,
+			Deque<ShadingTask> tasks) {
 		Double3 kkx = k.product(kx);
-		if (kkx.lowerThan(MIN_CALC_COLOR_K))
-			return Color.BLACK;
-		GeoPoint gp = findClosestIntersection(ray);
+		if (rouletteThreshold == 0) {
+			if (kkx.lowerThan(MIN_CALC_COLOR_K))
+				return Color.BLACK;
+		} else {
+			double survival = kkx.max() / rouletteThreshold;
+			if (survival < 1) {
+				if (ThreadLocalRandom.current().nextDouble() >= survival)
+					return Color.BLACK;
+				kkx = kkx.scale(1 / survival);
+			}
+		}
+		int depth = maxLevel - level + 1;
+		int shift = 2 * (depth - 1); // an int shift uses its 5 low bits only, so a deep shift is clamped
+		int count = blur == 0 || shift >= Integer.SIZE - 1 ? 1 : beamSize >> shift;
+		if (count <= 1)
+			return traceSecondaryRay(ray, findClosestIntersection(ray), depth, level, kkx, tasks);
+
+		// the first rays of the beam, then the rest of it unless they all agree
+		Ray[] rays = new Ray[count];
+		GeoPoint[] hits = new GeoPoint[count];
+		double rotation = ThreadLocalRandom.current().nextDouble(2 * Math.PI);
+		int probes = Math.min(BEAM_PROBES, count);
+		boolean agree = true;
+		for (int i = 0; i < count; ++i) {
+			if (i == probes && agree)
+				count = probes;
+			if (i == count)
+				break;
+			rays[i] = constructBeamRay(ray, normal, blur, i, count, rotation);
+			hits[i] = findClosestIntersection(rays[i]);
+			if (i > 0 && i < probes)
+				agree = agree && (hits[i] == null ? hits[0] == null
+						: hits[0] != null && hits[i].geometry.getOwner() == hits[0].geometry.getOwner());
+		}
+		Color color = Color.BLACK;
+		Double3 kRay = kkx.reduce(count);
+		for (int i = 0; i < count; ++i)
+			color = color.add(traceSecondaryRay(rays[i], hits[i], depth, level, kRay, tasks));
+		return color;
+	}
+
+	/**
+	 * Pushes the hit of a reflected or refracted ray to the work stack
+	 * 
+	 * @param ray   - the ray
+	 * @param gp    - the closest intersection of the ray, null if it hits nothing
+	 * @param depth - the recursion level of the ray
+	 * @param level - the remaining levels of the ray tree at the origin of the ray
+	 * @param kkx   - the attenuation of the ray
+	 * @param tasks - the work stack
+	 * @return the color of the background if the ray hits nothing (scaled by the
+	 *         attenuation), otherwise black
+	 */
+	private Color traceSecondaryRay(Ray ray, GeoPoint gp, int depth, int level, Double3 kkx,
+			Deque<ShadingTask> tasks) {
+		if (statistics != null)
+			statistics.secondaryRay(depth);
 		if (gp == null)
-			return scene.background.scale(kx);
-		return isZero(gp.geometry.getNormal(gp.point).dotProduct(ray.getDir())) ? Color.BLACK
-				: calcColor(gp, ray, level - 1, kkx).scale(kx);
+			return scene.background.scale(kkx);
+		Vector normal = gp.geometry.getNormal(gp.point); // calculated once for all the effects
+		if (!isZero(normal.dotProduct(ray.getDir())))
+			tasks.push(new ShadingTask(gp, ray, normal, level - 1, kkx));
+		return Color.BLACK;
+	}
 
+	/**
+	 * Constructs a ray of a beam around a perfect ray. The rays go through the
+	 * points of a golden angle spiral on a disk of the blur radius, at a distance
+	 * of 1 along the perfect ray, so any number of rays is spread evenly over the
+	 * cone. A ray that would cross the surface is mirrored back to its side.
+	 * 
+	 * @param ray      - the perfect ray
+	 * @param normal   - the normal of the surface at the origin of the ray
+	 * @param blur     - the radius of the disk
+	 * @param index    - the index of the ray in the beam
+	 * @param count    - the number of the rays in the beam
+	 * @param rotation - the random rotation of the spiral
+	 * @return the ray of the beam
+	 */
+	private Ray constructBeamRay(Ray ray, Vector normal, double blur, int index, int count, double rotation) {
+		Vector direction = ray.getDir();
+		double radius = blur * Math.sqrt((index + 0.5) / count);
+		double angle = rotation + index * GOLDEN_ANGLE;
+		Vector u = direction.orthogonal();
+		Vector v = direction.crossProduct(u);
+		double x = radius * Math.cos(angle), y = radius * Math.sin(angle);
+		Vector sample = direction;
+		if (!isZero(x))
+			sample = sample.add(u.scale(x));
+		if (!isZero(y))
+			sample = sample.add(v.scale(y));
+		double side = normal.dotProduct(direction);
+		double sampleSide = normal.dotProduct(sample);
+		if (side * sampleSide <= 0) // mirror the sample to the side of the perfect ray
+			sample = sample.subtract(normal.scale(2 * sampleSide));
+		return new Ray(ray.getP0(), sample.normalize());
 	}
 
 	/**
@@ -163,15 +390,16 @@ public class RayTracerBasic extends RayTracerBase {
 	 * 
 	 * @param material - material of geometry, used for its kS and nShininess fields
 	 *                 - its specular component and smoothness factor
-	 * @param normal   - normal of geometry
 	 * @param lv       - light vector
 	 * @param nl       - dot product of normal and light vector
+	 * @param nv       - dot product of normal and direction of ray
 	 * @param vector   - direction of ray
 	 * @return the color's specular component
 	 */
-	private Double3 calcSpecular(Material material, Vector normal, Vector lv, double nl, Vector vector) {
-		Vector reflectedVector = lv.subtract(normal.scale(2 * nl));
-		double max = Math.max(0, vector.scale(-1).dotProduct(reflectedVector));
+	private Double3 calcSpecular(Material material, Vector lv, double nl, double nv, Vector vector) {
+		// -v*r where r = l - 2*nl*n, expanded to dot products to avoid the vectors
+		double minusVR = 2 * nl * nv - vector.dotProduct(lv);
+		double max = Math.max(0, minusVR);
 		return material.kS.scale(Math.pow(max, material.nShininess));
 
 	}
@@ -222,10 +450,12 @@ public class RayTracerBasic extends RayTracerBase {
 	 * @return The closest intersection point of the ray and geometry.
 	 */
 	private GeoPoint findClosestIntersection(Ray ray) {
-		List<GeoPoint> intersections = scene.geometries.findGeoIntersections(ray);// find intersection point
-		if (intersections == null) // if there are no intersection points return color of background
-			return null;
-		return ray.findClosestGeoPoint(intersections);
+		// the geometries skip the intersections behind the closest point found so far
+		GeoPoint gp = scene.geometries.findClosestGeoIntersection(ray, Double.POSITIVE_INFINITY,
+				intersectionTests);
+		if (statistics != null && gp != null)
+			statistics.hit(gp.geometry);
+		return gp;
 	}
 
 	/**
@@ -233,7 +463,9 @@ public class RayTracerBasic extends RayTracerBase {
 	 * camera position, with consideration of the ambient-light and the transparency
 	 * of the object. The final color is a combination of the material color and the
 	 * attributes of the object, the ambient-light color, the distance from the
-	 * camera and sometimes other object in the scene.
+	 * camera and sometimes other object in the scene.<br>
+	 * The points hit by the reflected and refracted rays are evaluated from a work
+	 * stack, each scaled by the attenuation accumulated along its path.
 	 * 
 	 * @param gp  - a point on a geometry with its geometry
 	 * @param ray - the ray that constructed from the camera and intersected the
@@ -241,24 +473,17 @@ public class RayTracerBasic extends RayTracerBase {
 	 * @return the color of the point
 	 */
 	private Color calcColor(GeoPoint gp, Ray ray) {
-		return scene.ambientLight.getIntensity().add(calcColor(gp, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K));
-	}
-
-	/**
-	 * The function calculates the color of point on a geometry as it sees from the
-	 * camera position (helping method for calcColor(GeoPoint, Ray)).
-	 * 
-	 * @param gp    - a point on a geometry
-	 * @param ray   - the ray that constructed from the camera and intersected the
-	 *              geometry
-	 * @param level - of recursion for the transparency and global effects
-	 *              calculation
-	 * @param k     - initial attenuation coefficient value (between 0-1)
-	 * @return the color of the point on the geometry
-	 */
-	private Color calcColor(GeoPoint gp, Ray ray, int level, Double3 k) {
-		Color color = calcLocalEffects(gp, ray, k);
-		return 1 == level ? color : color.add(calcGlobalEffects(gp, ray, level, k));
+		Color color = scene.ambientLight.getIntensity();
+		Deque<ShadingTask> tasks = new ArrayDeque<>();
+		tasks.push(new ShadingTask(gp, ray, gp.geometry.getNormal(gp.point), maxLevel, INITIAL_K));
+		while (!tasks.isEmpty()) {
+			ShadingTask task = tasks.pop();
+			Color local = calcLocalEffects(task.gp(), task.ray(), task.normal(), task.k());
+			color = color.add(task.k() == INITIAL_K ? local : local.scale(task.k()));
+			if (task.level() > 1)
+				color = color.add(calcGlobalEffects(task, tasks));
+		}
+		return color;
 	}
 
 	/**
@@ -299,97 +524,89 @@ public class RayTracerBasic extends RayTracerBase {
 	 * @return the transparency value of the point
 	 */
 	private Double3 transparency(GeoPoint geoPoint, LightSource ls, Vector l, Vector n) {
+		if (ls instanceof AreaLight area && area.getShadowSamples() > 1)
+			return areaTransparency(geoPoint, area, l, n);
 		Vector lightDirection = l.scale(-1);
 		double lightDistance = ls.getDistance(geoPoint.point);
-		var intersections = scene.geometries.findGeoIntersections(new Ray(geoPoint.point, lightDirection, n));
-		if (intersections == null)
-			return Double3.ONE;
+		if (statistics != null)
+			statistics.shadowRay();
+		// the shadow ray stops at the first opaque geometry before the light source
+		return scene.geometries.findTransparency(new Ray(geoPoint.point, lightDirection, n), lightDistance,
+				MIN_CALC_COLOR_K, intersectionTests);
+	}
 
-		var ktr = Double3.ONE;
-		for (GeoPoint gp : intersections) {
-			if (alignZero(gp.point.distance(geoPoint.point) - lightDistance) <= 0) {
-				ktr = ktr.product(gp.geometry.getMaterial().kT);
-				if (ktr.lowerThan(MIN_CALC_COLOR_K)) {
-					return Double3.ZERO;
-				}
-			}
+	/**
+	 * The function calculates the soft shadow of a point: the average
+	 * transparency of the shadow rays towards stratified samples on the area of
+	 * the light. In the adaptive mode, the first samples (spread over the light)
+	 * are traced first, and when they are all equally shadowed, the rest of the
+	 * samples are skipped.
+	 * 
+	 * @param gp    - a point on a geometry
+	 * @param light - the area light
+	 * @param l     - the vector of the light direction from its center
+	 * @param n     - the normal of the geometry
+	 * @return the average transparency value of the point
+	 */
+	private Double3 areaTransparency(GeoPoint gp, AreaLight light, Vector l, Vector n) {
+		int count = light.getShadowSamples();
+		int first = light.getAdaptiveSamples();
+		if (first == 0 || first >= count)
+			first = count;
+		// the side of the surface that is lit by the center of the light
+		boolean front = n.dotProduct(l) < 0;
+		double[] jitter = new double[2];
+		Double3 sum = Double3.ZERO;
+		Double3 firstKtr = null;
+		boolean agree = true;
+		for (int j = 0; j < first; ++j) {
+			Double3 ktr = sampleTransparency(gp, light, j * count / first, front, n, jitter);
+			if (firstKtr == null)
+				firstKtr = ktr;
+			else
+				agree = agree && ktr.equals(firstKtr);
+			sum = sum.add(ktr);
 		}
-		return ktr;
+		if (first == count || agree)
+			return sum.reduce(first);
+		for (int i = 0; i < count; ++i) {
+			int j = (int) (((long) i * first + count - 1) / count); // the first sample of index at least i
+			if (j >= first || j * count / first != i) // not traced yet
+				sum = sum.add(sampleTransparency(gp, light, i, front, n, jitter));
+		}
+		return sum.reduce(count);
 	}
+
 	/**
-     * Checks the color of the pixel with the help of individual rays and averages between
-     * them and only if necessary continues to send beams of rays in recursion
-     * @param centerP center pixl
-     * @param Width Length
-     * @param Height width
-     * @param minWidth min Width
-     * @param minHeight min Height
-     * @param cameraLoc Camera location
-     * @param Vright Vector right
-     * @param Vup vector up
-     * @param prePoints pre Points
-     * @return Pixel color
-     */
-    @Override
-    public Color AdaptiveSuperSamplingRec(Point centerP, double Width, double Height, double minWidth, double minHeight, Point cameraLoc, Vector Vright, Vector Vup, List<Point> prePoints) {
-        if (Width < minWidth * 2 || Height < minHeight * 2) {
-            return this.traceRay(new Ray(cameraLoc, centerP.subtract(cameraLoc))) ;
-        }
-
-        List<Point> nextCenterPList = new LinkedList<>();
-        List<Point> cornersList = new LinkedList<>();
-        List<primitives.Color> colorList = new LinkedList<>();
-        Point tempCorner;
-        Ray tempRay;
-        for (int i = -1; i <= 1; i += 2){
-            for (int j = -1; j <= 1; j += 2) {
-                tempCorner = centerP.add(Vright.scale(i * Width / 2)).add(Vup.scale(j * Height / 2));
-                cornersList.add(tempCorner);
-                if (prePoints == null || !isInList(prePoints, tempCorner)) {
-                    tempRay = new Ray(cameraLoc, tempCorner.subtract(cameraLoc));
-                    nextCenterPList.add(centerP.add(Vright.scale(i * Width / 4)).add(Vup.scale(j * Height / 4)));
-                    colorList.add(traceRay(tempRay));
-                }
-            }
-        }
-
-
-        if (nextCenterPList == null || nextCenterPList.size() == 0) {
-            return primitives.Color.BLACK;
-        }
-
-
-        boolean isAllEquals = true;
-        primitives.Color tempColor = colorList.get(0);
-        for (primitives.Color color : colorList) {
-            if (!tempColor.isAlmostEquals(color))
-                isAllEquals = false;
-        }
-        if (isAllEquals && colorList.size() > 1)
-            return tempColor;
-
-
-        tempColor = primitives.Color.BLACK;
-        for (Point center : nextCenterPList) {
-            tempColor = tempColor.add(AdaptiveSuperSamplingRec(center, Width/2,  Height/2,  minWidth,  minHeight ,  cameraLoc, Vright, Vup, cornersList));
-        }
-        return tempColor.reduce(nextCenterPList.size());
-
-
-    }
-
-    /**
-     * Find a point in the list
-     * @param pointsList the list
-     * @param point the point that we look for
-     * @return
-     */
-    private boolean isInList(List<Point> pointsList, Point point) {
-        for (Point tempPoint : pointsList) {
-            if(point.equals(tempPoint))
-                return true;
-        }
-        return false;
-    }
+	 * Traces a shadow ray towards a sample on an area light
+	 * 
+	 * @param gp     - a point on a geometry
+	 * @param light  - the area light
+	 * @param index  - the index of the sample
+	 * @param front  - whether the lit side of the surface is the side of the
+	 *               normal
+	 * @param n      - the normal of the geometry
+	 * @param jitter - reused array for the random position of the sample in its
+	 *               cell
+	 * @return the transparency value of the shadow ray
+	 */
+	private Double3 sampleTransparency(GeoPoint gp, AreaLight light, int index, boolean front, Vector n,
+			double[] jitter) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		jitter[0] = random.nextDouble();
+		jitter[1] = random.nextDouble();
+		Point sample = light.getSample(gp.point, index, jitter);
+		if (sample.equals(gp.point))
+			return Double3.ONE;
+		Vector direction = sample.subtract(gp.point);
+		double nd = alignZero(n.dotProduct(direction));
+		if (nd == 0 || nd > 0 != front) // the sample is behind the surface
+			return Double3.ZERO;
+		if (statistics != null)
+			statistics.shadowRay();
+		double distance = direction.length();
+		return scene.geometries.findTransparency(new Ray(gp.point, direction.scale(1 / distance), n), distance,
+				MIN_CALC_COLOR_K, intersectionTests);
+	}
 
 }
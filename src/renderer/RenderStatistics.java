@@ -0,0 +1,298 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import geometries.Geometry;
+import geometries.Intersectable;
+
+/**
+ * Statistics of a single rendering of an image: the numbers of the traced rays
+ * by their kinds, the intersection tests, the hits by geometry type, the
+ * deepest recursion level of the global effects, the average samples per
+ * pixel, the adaptive super sampling subdivisions and the rendering time of
+ * every tile. The statistics are collected by the {@link Camera} when it is
+ * asked to, see {@link Camera#setStatistics(boolean)}. The counters are striped
+ * ({@link LongAdder}), so the rendering threads do not contend on them.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class RenderStatistics {
+
+	private final LongAdder primaryRays = new LongAdder();
+	private final LongAdder secondaryRays = new LongAdder();
+	private final LongAdder shadowRays = new LongAdder();
+	private final LongAdder intersectionTests = new LongAdder();
+	private final LongAdder subdivisions = new LongAdder();
+	private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+	private final Map<String, LongAdder> hits = new ConcurrentHashMap<>();
+
+	/** Rendering time of every tile in nanoseconds (each tile by its index) */
+	private final long[] tileTimes;
+	/** Number of pixels in the image */
+	private final int pixelsCount;
+
+	private long startTime;
+	private long elapsedTime;
+
+	/**
+	 * Constructor of the statistics of a rendering
+	 *
+	 * @param tilesCount  - the number of tiles in the image
+	 * @param pixelsCount - the number of pixels in the image
+	 */
+	RenderStatistics(int tilesCount, int pixelsCount) {
+		tileTimes = new long[tilesCount];
+		this.pixelsCount = pixelsCount;
+	}
+
+	// ***************** Collection ********************** //
+
+	/**
+	 * Starts the rendering time
+	 */
+	void start() {
+		startTime = System.nanoTime();
+	}
+
+	/**
+	 * Stops the rendering time
+	 */
+	void finish() {
+		elapsedTime = System.nanoTime() - startTime;
+	}
+
+	/**
+	 * @return the counter of the intersection tests of the rendering, which the
+	 *         tracer passes to the queries of the geometries (see
+	 *         {@link Intersectable#findClosestGeoIntersection(primitives.Ray, double, LongAdder)})
+	 */
+	LongAdder getTestsCounter() {
+		return intersectionTests;
+	}
+
+	/**
+	 * Counts a ray from the camera
+	 */
+	void primaryRay() {
+		primaryRays.increment();
+	}
+
+	/**
+	 * Counts a reflected or refracted ray
+	 *
+	 * @param depth - the recursion level of the ray (1 for the rays from the
+	 *              first hit of a ray from the camera)
+	 */
+	void secondaryRay(int depth) {
+		secondaryRays.increment();
+		maxDepth.accumulate(depth);
+	}
+
+	/**
+	 * Counts a ray towards a light source
+	 */
+	void shadowRay() {
+		shadowRays.increment();
+	}
+
+	/**
+	 * Counts a hit (closest intersection) of a ray with a geometry. A hit of a
+	 * face of a mesh is counted as a hit of the mesh.
+	 *
+	 * @param geometry - the hit geometry
+	 */
+	void hit(Geometry geometry) {
+		hits.computeIfAbsent(geometry.getOwner().getClass().getSimpleName(), name -> new LongAdder()).increment();
+	}
+
+	/**
+	 * Counts a subdivision of a pixel (or of a part of it) by the adaptive super
+	 * sampling
+	 */
+	void subdivision() {
+		subdivisions.increment();
+	}
+
+	/**
+	 * Records the rendering time of a tile
+	 *
+	 * @param index - the index of the tile
+	 * @param time  - the rendering time in nanoseconds
+	 */
+	void tileRendered(int index, long time) {
+		tileTimes[index] = time;
+	}
+
+	// ***************** Getters ********************** //
+
+	/**
+	 * @return the number of rays from the camera
+	 */
+	public long getPrimaryRays() {
+		return primaryRays.sum();
+	}
+
+	/**
+	 * @return the average number of rays from the camera per pixel
+	 */
+	public double getSamplesPerPixel() {
+		return pixelsCount == 0 ? 0 : (double) getPrimaryRays() / pixelsCount;
+	}
+
+	/**
+	 * @return the number of reflected and refracted rays
+	 */
+	public long getSecondaryRays() {
+		return secondaryRays.sum();
+	}
+
+	/**
+	 * @return the number of rays towards the light sources
+	 */
+	public long getShadowRays() {
+		return shadowRays.sum();
+	}
+
+	/**
+	 * @return the total number of traced rays
+	 */
+	public long getRays() {
+		return getPrimaryRays() + getSecondaryRays() + getShadowRays();
+	}
+
+	/**
+	 * @return the number of the intersection tests of geometries and bounding
+	 *         boxes
+	 */
+	public long getIntersectionTests() {
+		return intersectionTests.sum();
+	}
+
+	/**
+	 * @return the average number of intersection tests per traced ray
+	 */
+	public double getTestsPerRay() {
+		long rays = getRays();
+		return rays == 0 ? 0 : (double) getIntersectionTests() / rays;
+	}
+
+	/**
+	 * @return the deepest recursion level of the reflected and refracted rays
+	 */
+	public int getMaxDepth() {
+		return (int) maxDepth.get();
+	}
+
+	/**
+	 * @return the number of subdivisions of the adaptive super sampling
+	 */
+	public long getSubdivisions() {
+		return subdivisions.sum();
+	}
+
+	/**
+	 * @return the numbers of the hits by the simple names of the geometry classes
+	 */
+	public Map<String, Long> getHits() {
+		Map<String, Long> result = new TreeMap<>();
+		hits.forEach((name, count) -> result.put(name, count.sum()));
+		return result;
+	}
+
+	/**
+	 * @return the rendering time of every tile in milliseconds (by the indices of
+	 *         the tiles)
+	 */
+	public double[] getTileTimes() {
+		double[] times = new double[tileTimes.length];
+		for (int i = 0; i < times.length; ++i)
+			times[i] = tileTimes[i] / 1e6;
+		return times;
+	}
+
+	/**
+	 * @return the total rendering time in milliseconds
+	 */
+	public double getElapsedTime() {
+		return elapsedTime / 1e6;
+	}
+
+	/**
+	 * @return the number of traced rays per second
+	 */
+	public double getRaysPerSecond() {
+		return elapsedTime == 0 ? 0 : getRays() * 1e9 / elapsedTime;
+	}
+
+	// ***************** Export ********************** //
+
+	/**
+	 * @return the statistics as a JSON object
+	 */
+	public String toJSON() {
+		StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"elapsedMillis\": ").append(number(getElapsedTime())).append(",\n");
+		json.append("  \"rays\": ").append(getRays()).append(",\n");
+		json.append("  \"primaryRays\": ").append(getPrimaryRays()).append(",\n");
+		json.append("  \"samplesPerPixel\": ").append(number(getSamplesPerPixel())).append(",\n");
+		json.append("  \"secondaryRays\": ").append(getSecondaryRays()).append(",\n");
+		json.append("  \"shadowRays\": ").append(getShadowRays()).append(",\n");
+		json.append("  \"raysPerSecond\": ").append(number(getRaysPerSecond())).append(",\n");
+		json.append("  \"intersectionTests\": ").append(getIntersectionTests()).append(",\n");
+		json.append("  \"testsPerRay\": ").append(number(getTestsPerRay())).append(",\n");
+		json.append("  \"maxDepth\": ").append(getMaxDepth()).append(",\n");
+		json.append("  \"subdivisions\": ").append(getSubdivisions()).append(",\n");
+		json.append("  \"hits\": {");
+		String separator = "";
+		for (Map.Entry<String, Long> entry : getHits().entrySet()) {
+			json.append(separator).append('"').append(entry.getKey()).append("\": ").append(entry.getValue());
+			separator = ", ";
+		}
+		json.append("},\n  \"tileMillis\": [");
+		separator = "";
+		for (double time : getTileTimes()) {
+			json.append(separator).append(number(time));
+			separator = ", ";
+		}
+		return json.append("]\n}\n").toString();
+	}
+
+	/**
+	 * Writes the statistics as a JSON file
+	 *
+	 * @param file - the path of the file
+	 * @throws IllegalStateException if the file cannot be written
+	 */
+	public void writeJSON(Path file) {
+		try {
+			Files.writeString(file, toJSON());
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot write " + file, e);
+		}
+	}
+
+	/**
+	 * Formats a number for JSON (with up to 3 decimal digits)
+	 *
+	 * @param value - the number
+	 * @return the formatted number
+	 */
+	private static String number(double value) {
+		return Double.isFinite(value) ? String.valueOf(Math.round(value * 1000) / 1000d) : "0";
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%d rays in %.1f ms (%.0f rays/s), %.2f samples per pixel, %.1f tests per ray, max depth %d, hits %s",
+				getRays(), getElapsedTime(), getRaysPerSecond(), getSamplesPerPixel(), getTestsPerRay(), getMaxDepth(),
+				getHits());
+	}
+}
@@ -0,0 +1,55 @@
+package renderer;
+
+/**
+ * Pattern of the sample points in a pixel for anti aliasing (see
+ * {@link Camera#setSamplePattern(SamplePattern)}). A pattern fills primitive
+ * arrays with the coordinates of the samples in the unit square of the pixel, so
+ * the same arrays are reused for all the pixels of a tile. The randomized
+ * patterns are derived from the index of the pixel, so an image is rendered the
+ * same way every time, by any number of threads.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+@FunctionalInterface
+public interface SamplePattern {
+
+	/** Regular grid: the centers of n x n equal sub-pixels (the default) */
+	SamplePattern GRID = SamplePatterns::grid;
+
+	/**
+	 * Stratified jitter: a random point in each of the n x n equal sub-pixels
+	 */
+	SamplePattern JITTERED = SamplePatterns::jittered;
+
+	/**
+	 * Halton low discrepancy sequence (bases 2 and 3), shifted randomly in each
+	 * pixel
+	 */
+	SamplePattern HALTON = SamplePatterns::halton;
+
+	/**
+	 * Sobol low discrepancy sequence (the first two dimensions), scrambled randomly
+	 * in each pixel. For a power of 2 samples, each of the sub-pixels of all the
+	 * shapes of that area (e.g. 1 x 1/16, 1/4 x 1/4, 1/16 x 1) has a single sample.
+	 */
+	SamplePattern SOBOL = SamplePatterns::sobol;
+
+	/**
+	 * Blue noise: precomputed evenly spread random points (best candidate sampling
+	 * on the torus), shifted randomly in each pixel
+	 */
+	SamplePattern BLUE_NOISE = SamplePatterns::blueNoise;
+
+	/**
+	 * Fills the coordinates of the samples of a pixel
+	 *
+	 * @param n     - the anti aliasing factor, the pattern has n x n samples
+	 * @param pixel - the index of the pixel in the image (for the randomized
+	 *              patterns)
+	 * @param xs    - the array to fill with the horizontal coordinates (0 to 1 from
+	 *              the left edge of the pixel)
+	 * @param ys    - the array to fill with the vertical coordinates (0 to 1 from
+	 *              the top edge of the pixel)
+	 */
+	void generate(int n, long pixel, double[] xs, double[] ys);
+}
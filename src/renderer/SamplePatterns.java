@@ -0,0 +1,220 @@
+package renderer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import primitives.Util;
+
+/**
+ * Implementations of the sample patterns of {@link SamplePattern} and of the
+ * lens apertures of {@link Aperture}
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+final class SamplePatterns {
+
+	/** Number of candidates for each point of a blue noise pattern */
+	private static final int BLUE_NOISE_CANDIDATES = 32;
+
+	/**
+	 * Precomputed blue noise patterns by their number of samples, the coordinates
+	 * are interleaved (x0, y0, x1, y1, ...)
+	 */
+	private static final Map<Integer, double[]> blueNoise = new ConcurrentHashMap<>();
+
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private SamplePatterns() {
+	}
+
+	/**
+	 * See {@link SamplePattern#GRID}
+	 */
+	static void grid(int n, long pixel, double[] xs, double[] ys) {
+		for (int row = 0, i = 0; row < n; ++row)
+			for (int col = 0; col < n; ++col, ++i) {
+				xs[i] = (col + 0.5) / n;
+				ys[i] = (row + 0.5) / n;
+			}
+	}
+
+	/**
+	 * See {@link SamplePattern#JITTERED}
+	 */
+	static void jittered(int n, long pixel, double[] xs, double[] ys) {
+		long state = mix(pixel);
+		for (int row = 0, i = 0; row < n; ++row)
+			for (int col = 0; col < n; ++col, ++i) {
+				state = mix(state);
+				xs[i] = (col + toUnit(state)) / n;
+				state = mix(state);
+				ys[i] = (row + toUnit(state)) / n;
+			}
+	}
+
+	/**
+	 * See {@link SamplePattern#HALTON}
+	 */
+	static void halton(int n, long pixel, double[] xs, double[] ys) {
+		long hash = mix(pixel);
+		double shiftX = toUnit(hash), shiftY = toUnit(mix(hash));
+		for (int i = 0; i < n * n; ++i) {
+			xs[i] = wrap(radicalInverse(i + 1, 2) + shiftX);
+			ys[i] = wrap(radicalInverse(i + 1, 3) + shiftY);
+		}
+	}
+
+	/**
+	 * See {@link SamplePattern#SOBOL}. The first dimension is the bits of the index
+	 * in reverse order, the second one is generated by the direction numbers of
+	 * the polynomial x+1. The random digit scrambling (xor with the same bits for
+	 * all the samples) keeps the stratification of the sequence.
+	 */
+	static void sobol(int n, long pixel, double[] xs, double[] ys) {
+		long hash = mix(pixel);
+		int scrambleX = (int) hash, scrambleY = (int) (hash >>> 32);
+		for (int i = 0; i < n * n; ++i) {
+			int y = 0;
+			for (int bits = i, v = 1 << 31; bits != 0; bits >>>= 1, v ^= v >>> 1)
+				if ((bits & 1) != 0)
+					y ^= v;
+			xs[i] = Integer.toUnsignedLong(Integer.reverse(i) ^ scrambleX) * 0x1.0p-32;
+			ys[i] = Integer.toUnsignedLong(y ^ scrambleY) * 0x1.0p-32;
+		}
+	}
+
+	/**
+	 * See {@link SamplePattern#BLUE_NOISE}. A shift on the torus keeps the distances
+	 * between the points, so the shifted patterns are evenly spread as well.
+	 */
+	static void blueNoise(int n, long pixel, double[] xs, double[] ys) {
+		double[] points = blueNoise.computeIfAbsent(n * n, SamplePatterns::createBlueNoise);
+		long hash = mix(pixel);
+		double shiftX = toUnit(hash), shiftY = toUnit(mix(hash));
+		for (int i = 0; i < n * n; ++i) {
+			xs[i] = wrap(points[2 * i] + shiftX);
+			ys[i] = wrap(points[2 * i + 1] + shiftY);
+		}
+	}
+
+	/**
+	 * Creates a blue noise pattern by best candidate sampling: each point is the
+	 * farthest one from the previous points among a few random candidates. The
+	 * distances are measured on the torus, so the pattern tiles seamlessly.
+	 *
+	 * @param count - the number of points
+	 * @return the interleaved coordinates of the points
+	 */
+	private static double[] createBlueNoise(int count) {
+		double[] points = new double[2 * count];
+		long state = mix(count);
+		for (int i = 0; i < count; ++i) {
+			double bestDistance = -1;
+			for (int candidate = 0; candidate < BLUE_NOISE_CANDIDATES; ++candidate) {
+				state = mix(state);
+				double x = toUnit(state);
+				state = mix(state);
+				double y = toUnit(state);
+				double distance = Double.POSITIVE_INFINITY;
+				for (int j = 0; j < i && distance > bestDistance; ++j) {
+					double dx = Math.abs(x - points[2 * j]), dy = Math.abs(y - points[2 * j + 1]);
+					dx = Math.min(dx, 1 - dx);
+					dy = Math.min(dy, 1 - dy);
+					distance = Math.min(distance, dx * dx + dy * dy);
+				}
+				if (distance > bestDistance) {
+					bestDistance = distance;
+					points[2 * i] = x;
+					points[2 * i + 1] = y;
+				}
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * See {@link Aperture#CIRCLE}, by the concentric mapping of the square to the
+	 * disk
+	 */
+	static void circle(double[] xs, double[] ys) {
+		for (int i = 0; i < xs.length; ++i) {
+			double[] disk = Util.concentricDisk(xs[i], ys[i]);
+			xs[i] = disk[0];
+			ys[i] = disk[1];
+		}
+	}
+
+	/**
+	 * See {@link Aperture#SQUARE}
+	 */
+	static void square(double[] xs, double[] ys) {
+		for (int i = 0; i < xs.length; ++i) {
+			xs[i] = 2 * xs[i] - 1;
+			ys[i] = 2 * ys[i] - 1;
+		}
+	}
+
+	/**
+	 * See {@link Aperture#HEXAGON}. The first coordinate selects one of the 6
+	 * triangles of the hexagon (and the position across it), and the second one
+	 * the distance from the center, with a density that grows with the width of
+	 * the triangle.
+	 */
+	static void hexagon(double[] xs, double[] ys) {
+		for (int i = 0; i < xs.length; ++i) {
+			double sector = Math.min(xs[i] * 6, 5.999999);
+			int k = (int) sector;
+			double t = sector - k, r = Math.sqrt(ys[i]);
+			double a = k * Math.PI / 3, b = a + Math.PI / 3;
+			xs[i] = r * ((1 - t) * Math.cos(a) + t * Math.cos(b));
+			ys[i] = r * ((1 - t) * Math.sin(a) + t * Math.sin(b));
+		}
+	}
+
+	/**
+	 * Radical inverse of an index: its digits in a base mirrored around the
+	 * decimal point
+	 *
+	 * @param index - the index
+	 * @param base  - the base
+	 * @return the radical inverse (0 to 1)
+	 */
+	private static double radicalInverse(int index, int base) {
+		double result = 0;
+		double factor = 1d / base;
+		for (; index > 0; index /= base, factor /= base)
+			result += index % base * factor;
+		return result;
+	}
+
+	/**
+	 * @param value - a non negative number
+	 * @return the fraction of the number
+	 */
+	private static double wrap(double value) {
+		return value - Math.floor(value);
+	}
+
+	/**
+	 * Hash function of 64 bits (the mixing function of SplitMix64), used as a
+	 * deterministic random number generator
+	 *
+	 * @param value - the hashed value
+	 * @return the hash
+	 */
+	private static long mix(long value) {
+		long z = value + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * @param bits - random bits
+	 * @return a random number from 0 (included) to 1 (excluded)
+	 */
+	private static double toUnit(long bits) {
+		return (bits >>> 11) * 0x1.0p-53;
+	}
+}
@@ -0,0 +1,26 @@
+package renderer;
+
+/**
+ * Listener to the rendering of the tiles of an image (see
+ * {@link Camera#setTileListener(TileListener)}), e.g. for showing or sending the
+ * image while it is rendered. The listener is called by the rendering threads,
+ * concurrently for different tiles, right after the pixels of a tile were
+ * written to the image writer. In a progressive rendering (see
+ * {@link Camera#renderProgressive(long)}) it is called for each tile in every
+ * pass.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+@FunctionalInterface
+public interface TileListener {
+
+	/**
+	 * Called when the pixels of a tile are written
+	 *
+	 * @param row    - the top row of the tile
+	 * @param col    - the left column of the tile
+	 * @param height - the number of rows of the tile
+	 * @param width  - the number of columns of the tile
+	 */
+	void tileRendered(int row, int col, int height, int width);
+}
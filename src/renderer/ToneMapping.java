@@ -0,0 +1,47 @@
+package renderer;
+
+/**
+ * Tone mapping operator that maps the linear color components of a rendered
+ * image to the displayed range 0..255. The components of a {@link primitives.Color}
+ * have no upper limit (255 is the printed white), so bright lights and
+ * accumulated samples may exceed the displayed range. The operator is applied
+ * once for each component when the image is written (see
+ * {@link ImageWriter#setToneMapping(ToneMapping)}), and its result is clamped to
+ * 0..255.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+@FunctionalInterface
+public interface ToneMapping {
+
+	/** Clamps the components that are brighter than white (the default) */
+	ToneMapping CLAMP = value -> value;
+
+	/**
+	 * Reinhard operator: compresses the bright components smoothly, so details of
+	 * bright areas are kept (white is mapped to half of the range)
+	 */
+	ToneMapping REINHARD = value -> 255 * value / (255 + value);
+
+	/**
+	 * Exposure operator: simulates the exposure of a film, the components approach
+	 * white exponentially
+	 *
+	 * @param exposure - the exposure factor (positive), larger for brighter images
+	 * @return the operator
+	 * @throws IllegalArgumentException if the exposure is not positive
+	 */
+	static ToneMapping exposure(double exposure) {
+		if (exposure <= 0)
+			throw new IllegalArgumentException("Exposure must be positive");
+		return value -> 255 * (1 - Math.exp(-exposure * value / 255));
+	}
+
+	/**
+	 * Maps a linear color component
+	 *
+	 * @param value - the component (non-negative, 255 is white)
+	 * @return the displayed component, values out of 0..255 are clamped
+	 */
+	double map(double value);
+}
@@ -0,0 +1,693 @@
+package scene;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import geometries.Mesh;
+
+/**
+ * Loader of triangle meshes from Wavefront OBJ files and PLY (Stanford
+ * polygon) files. The files are memory mapped and parsed directly from their
+ * bytes into the packed arrays of a {@link Mesh}, without creating a string or
+ * an object for each line, vertex or face. Polygons are divided into triangles
+ * (as fans around their first vertex).<br>
+ * Supported content:
+ * <ul>
+ * <li>OBJ - vertices (v), vertex normals (vn) and faces (f) with any of the
+ * index forms v, v/vt, v//vn and v/vt/vn (negative indices are relative to the
+ * end). Other statements (texture coordinates, groups, materials etc.) are
+ * skipped. The normals are used only if all the faces' vertices have
+ * normals.</li>
+ * <li>PLY - binary little endian and big endian files with a vertex element
+ * (x, y, z and optionally nx, ny, nz) and a face element with a list of vertex
+ * indices. Other elements and properties are skipped.</li>
+ * </ul>
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public final class MeshLoader {
+
+	/** Size of the mapped window of the file */
+	private static final long WINDOW_SIZE = 1L << 28;
+
+	/** Powers of 10 for the conversion of decimal numbers */
+	private static final double[] POWERS_OF_10 = new double[23];
+	static {
+		POWERS_OF_10[0] = 1;
+		for (int i = 1; i < POWERS_OF_10.length; ++i)
+			POWERS_OF_10[i] = POWERS_OF_10[i - 1] * 10;
+	}
+
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private MeshLoader() {
+	}
+
+	/**
+	 * Loads a mesh from a file according to its extension (.obj or .ply)
+	 *
+	 * @param file - the path of the file
+	 * @return the mesh
+	 * @throws IllegalArgumentException if the file type is not supported or the
+	 *                                  file content is illegal
+	 * @throws IllegalStateException    if the file cannot be read
+	 */
+	public static Mesh load(Path file) {
+		String name = file.getFileName().toString().toLowerCase();
+		if (name.endsWith(".obj"))
+			return loadOBJ(file);
+		if (name.endsWith(".ply"))
+			return loadPLY(file);
+		throw new IllegalArgumentException("Unsupported mesh file type: " + file);
+	}
+
+	// ***************** OBJ ********************** //
+
+	/**
+	 * Loads a mesh from a Wavefront OBJ file
+	 *
+	 * @param file - the path of the file
+	 * @return the mesh
+	 * @throws IllegalArgumentException if the file content is illegal
+	 * @throws IllegalStateException    if the file cannot be read
+	 */
+	public static Mesh loadOBJ(Path file) {
+		try (Input in = new Input(file)) {
+			DoubleArray vertices = new DoubleArray();
+			DoubleArray normals = new DoubleArray();
+			IntArray cornerVertices = new IntArray(); // the vertex of each corner of the triangles
+			IntArray cornerNormals = new IntArray(); // the normal of each corner, -1 for none
+			IntArray faceVertices = new IntArray(); // the corners of the current face
+			IntArray faceNormals = new IntArray();
+			boolean allNormals = true;
+
+			while (in.peek() >= 0) {
+				in.skipBlanks();
+				int c = in.next();
+				if (c == '\n') // empty line
+					continue;
+				if (c == 'v') {
+					if (isBlank(in.peek()))
+						readTriple(in, vertices);
+					else if (in.peek() == 'n') {
+						in.next();
+						if (isBlank(in.peek()))
+							readTriple(in, normals);
+					}
+				} else if (c == 'f' && isBlank(in.peek())) {
+					faceVertices.clear();
+					faceNormals.clear();
+					in.skipBlanks();
+					while (!isLineEnd(in.peek())) {
+						faceVertices.add(objIndex(in.readInt(), vertices.size() / 3));
+						int normal = -1;
+						if (in.peek() == '/') {
+							in.next();
+							if (in.peek() != '/' && !isBlank(in.peek()) && !isLineEnd(in.peek()))
+								in.readInt(); // texture coordinates index
+							if (in.peek() == '/') {
+								in.next();
+								normal = objIndex(in.readInt(), normals.size() / 3);
+							}
+						}
+						faceNormals.add(normal);
+						allNormals &= normal >= 0;
+						in.skipBlanks();
+					}
+					if (faceVertices.size() < 3)
+						throw new IllegalArgumentException("A face with less than 3 vertices in " + file);
+					for (int i = 1; i < faceVertices.size() - 1; ++i) { // a fan of triangles
+						cornerVertices.add(faceVertices.get(0));
+						cornerVertices.add(faceVertices.get(i));
+						cornerVertices.add(faceVertices.get(i + 1));
+						cornerNormals.add(faceNormals.get(0));
+						cornerNormals.add(faceNormals.get(i));
+						cornerNormals.add(faceNormals.get(i + 1));
+					}
+				}
+				in.skipLine();
+			}
+
+			if (cornerVertices.size() == 0)
+				throw new IllegalArgumentException("No faces in " + file);
+			if (!allNormals || normals.size() == 0)
+				return new Mesh(vertices.toArray(), cornerVertices.toArray());
+			return createSmoothMesh(vertices, normals, cornerVertices, cornerNormals);
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot read " + file, e);
+		}
+	}
+
+	/**
+	 * Reads 3 coordinates into an array (the rest of the line is skipped by the
+	 * caller)
+	 *
+	 * @param in    - the input
+	 * @param array - the array of coordinates
+	 */
+	private static void readTriple(Input in, DoubleArray array) {
+		array.add(in.readDouble());
+		array.add(in.readDouble());
+		array.add(in.readDouble());
+	}
+
+	/**
+	 * Converts an OBJ index (1 based, or negative relative to the end) to a 0 based
+	 * index
+	 *
+	 * @param index - the OBJ index
+	 * @param count - the number of elements read so far
+	 * @return the 0 based index
+	 */
+	private static int objIndex(int index, int count) {
+		int result = index < 0 ? count + index : index - 1;
+		if (result < 0 || result >= count)
+			throw new IllegalArgumentException("Index " + index + " is out of range");
+		return result;
+	}
+
+	/**
+	 * Creates a mesh with normals in its vertices. In an OBJ file the positions and
+	 * the normals are indexed separately, so a vertex of the mesh is created for
+	 * each distinct pair of position and normal.
+	 *
+	 * @param positions      - the positions coordinates
+	 * @param normals        - the normals coordinates
+	 * @param cornerVertices - the position of each corner of the triangles
+	 * @param cornerNormals  - the normal of each corner of the triangles
+	 * @return the mesh
+	 */
+	private static Mesh createSmoothMesh(DoubleArray positions, DoubleArray normals, IntArray cornerVertices,
+			IntArray cornerNormals) {
+		int corners = cornerVertices.size();
+		// open addressing hash table from (position, normal) pairs to mesh vertices
+		int capacity = Integer.highestOneBit(Math.max(16, corners * 2 - 1)) << 1;
+		long[] keys = new long[capacity];
+		int[] values = new int[capacity];
+		Arrays.fill(keys, -1);
+
+		DoubleArray vertices = new DoubleArray();
+		DoubleArray vertexNormals = new DoubleArray();
+		int[] indices = new int[corners];
+		for (int i = 0; i < corners; ++i) {
+			int position = cornerVertices.get(i), normal = cornerNormals.get(i);
+			long key = (long) position << 32 | normal;
+			int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & (capacity - 1);
+			while (keys[slot] != -1 && keys[slot] != key)
+				slot = (slot + 1) & (capacity - 1);
+			if (keys[slot] == -1) {
+				keys[slot] = key;
+				values[slot] = vertices.size() / 3;
+				for (int axis = 0; axis < 3; ++axis) {
+					vertices.add(positions.get(3 * position + axis));
+					vertexNormals.add(normals.get(3 * normal + axis));
+				}
+			}
+			indices[i] = values[slot];
+		}
+		return new Mesh(vertices.toArray(), indices, vertexNormals.toArray());
+	}
+
+	// ***************** PLY ********************** //
+
+	/**
+	 * Property of an element in a PLY file
+	 *
+	 * @param name      - the name of the property
+	 * @param type      - the type of the value (or of the list items)
+	 * @param countType - the type of the list count, null if it is not a list
+	 */
+	private record Property(String name, String type, String countType) {
+	}
+
+	/**
+	 * Element in a PLY file
+	 *
+	 * @param name       - the name of the element
+	 * @param count      - the number of the element's instances
+	 * @param properties - the properties of the element
+	 */
+	private record Element(String name, int count, List<Property> properties) {
+	}
+
+	/**
+	 * Loads a mesh from a binary PLY file
+	 *
+	 * @param file - the path of the file
+	 * @return the mesh
+	 * @throws IllegalArgumentException if the file format is not supported or the
+	 *                                  file content is illegal
+	 * @throws IllegalStateException    if the file cannot be read
+	 */
+	public static Mesh loadPLY(Path file) {
+		try (Input in = new Input(file)) {
+			// the header is short, so it is read line by line
+			if (!"ply".equals(in.readLine()))
+				throw new IllegalArgumentException("Not a PLY file: " + file);
+			List<Element> elements = new ArrayList<>();
+			String line;
+			while (!"end_header".equals(line = in.readLine())) {
+				if (line == null)
+					throw new IllegalArgumentException("Missing end of header in " + file);
+				String[] words = line.trim().split("\\s+");
+				switch (words[0]) {
+				case "format" -> {
+					if (words[1].equals("binary_little_endian"))
+						in.order(ByteOrder.LITTLE_ENDIAN);
+					else if (words[1].equals("binary_big_endian"))
+						in.order(ByteOrder.BIG_ENDIAN);
+					else
+						throw new IllegalArgumentException("Unsupported PLY format " + words[1] + " in " + file);
+				}
+				case "element" -> elements.add(new Element(words[1], Integer.parseInt(words[2]), new ArrayList<>()));
+				case "property" -> {
+					if (elements.isEmpty())
+						throw new IllegalArgumentException("A property out of an element in " + file);
+					elements.get(elements.size() - 1).properties().add(words[1].equals("list") //
+							? new Property(words[4], words[3], words[2])
+							: new Property(words[2], words[1], null));
+				}
+				default -> {
+					// comments and object information
+				}
+				}
+			}
+
+			double[] vertices = null;
+			double[] normals = null;
+			IntArray indices = new IntArray();
+			for (Element element : elements) {
+				List<Property> properties = element.properties();
+				if (element.name().equals("vertex")) {
+					int x = indexOf(properties, "x"), y = indexOf(properties, "y"), z = indexOf(properties, "z");
+					if (x < 0 || y < 0 || z < 0)
+						throw new IllegalArgumentException("Missing vertex coordinates in " + file);
+					int nx = indexOf(properties, "nx"), ny = indexOf(properties, "ny"), nz = indexOf(properties, "nz");
+					boolean hasNormals = nx >= 0 && ny >= 0 && nz >= 0;
+					vertices = new double[3 * element.count()];
+					normals = hasNormals ? new double[3 * element.count()] : null;
+					for (int i = 0; i < element.count(); ++i)
+						for (int p = 0; p < properties.size(); ++p) {
+							Property property = properties.get(p);
+							if (property.countType() != null) {
+								skipList(in, property);
+								continue;
+							}
+							double value = in.readValue(property.type());
+							if (p == x || p == y || p == z)
+								vertices[3 * i + (p == x ? 0 : p == y ? 1 : 2)] = value;
+							else if (hasNormals && (p == nx || p == ny || p == nz))
+								normals[3 * i + (p == nx ? 0 : p == ny ? 1 : 2)] = value;
+						}
+				} else if (element.name().equals("face")) {
+					int list = indexOf(properties, "vertex_indices");
+					if (list < 0)
+						list = indexOf(properties, "vertex_index");
+					if (list < 0 || properties.get(list).countType() == null)
+						throw new IllegalArgumentException("Missing face vertex indices in " + file);
+					for (int i = 0; i < element.count(); ++i)
+						for (int p = 0; p < properties.size(); ++p) {
+							Property property = properties.get(p);
+							if (p != list) {
+								if (property.countType() != null)
+									skipList(in, property);
+								else
+									in.readValue(property.type());
+								continue;
+							}
+							int count = (int) in.readValue(property.countType());
+							if (count < 3)
+								throw new IllegalArgumentException("A face with less than 3 vertices in " + file);
+							int first = (int) in.readValue(property.type());
+							int previous = (int) in.readValue(property.type());
+							for (int j = 2; j < count; ++j) { // a fan of triangles
+								int current = (int) in.readValue(property.type());
+								indices.add(first);
+								indices.add(previous);
+								indices.add(current);
+								previous = current;
+							}
+						}
+				} else // another element is skipped
+					for (int i = 0; i < element.count(); ++i)
+						for (Property property : properties)
+							if (property.countType() != null)
+								skipList(in, property);
+							else
+								in.readValue(property.type());
+			}
+
+			if (vertices == null || indices.size() == 0)
+				throw new IllegalArgumentException("No vertices or faces in " + file);
+			return new Mesh(vertices, indices.toArray(), normals);
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot read " + file, e);
+		}
+	}
+
+	/**
+	 * Finds a property by its name
+	 *
+	 * @param properties - the properties of an element
+	 * @param name       - the property name
+	 * @return the index of the property, -1 if it is missing
+	 */
+	private static int indexOf(List<Property> properties, String name) {
+		for (int i = 0; i < properties.size(); ++i)
+			if (properties.get(i).name().equals(name))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Skips a list property value
+	 *
+	 * @param in       - the input
+	 * @param property - the list property
+	 */
+	private static void skipList(Input in, Property property) {
+		int count = (int) in.readValue(property.countType());
+		for (int i = 0; i < count; ++i)
+			in.readValue(property.type());
+	}
+
+	// ***************** Input ********************** //
+
+	/**
+	 * @param c - a character
+	 * @return true for a space or a tab
+	 */
+	private static boolean isBlank(int c) {
+		return c == ' ' || c == '\t';
+	}
+
+	/**
+	 * @param c - a character (or -1 for the end of the input)
+	 * @return true for the end of a line or of the input
+	 */
+	private static boolean isLineEnd(int c) {
+		return c == '\n' || c == '\r' || c == '#' || c < 0;
+	}
+
+	/**
+	 * Memory mapped input of a file. Large files are mapped in consecutive windows,
+	 * so the file size is not limited by the size of a single buffer.
+	 */
+	private static class Input implements AutoCloseable {
+		private final FileChannel channel;
+		private final long size;
+		private MappedByteBuffer buffer;
+		/** Position of the mapped window in the file */
+		private long base = 0;
+		private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+		/**
+		 * @param file - the path of the file
+		 * @throws IOException if the file cannot be opened
+		 */
+		Input(Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+			size = channel.size();
+			map(0);
+		}
+
+		/**
+		 * Maps the window that starts at a position of the file
+		 *
+		 * @param position - the position in the file
+		 */
+		private void map(long position) {
+			try {
+				base = position;
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(WINDOW_SIZE, size - base));
+				buffer.order(order);
+			} catch (IOException e) {
+				throw new IllegalStateException("I/O error - cannot map the file", e);
+			}
+		}
+
+		/**
+		 * Makes sure that a number of bytes is available in the mapped window
+		 *
+		 * @param count - the number of bytes
+		 * @return false if the end of the file is reached before the bytes
+		 */
+		private boolean ensure(int count) {
+			if (buffer.remaining() >= count)
+				return true;
+			long position = base + buffer.position();
+			if (position + count > size)
+				return false;
+			map(position);
+			return true;
+		}
+
+		/**
+		 * Sets the order of the binary values
+		 *
+		 * @param order - the byte order
+		 */
+		void order(ByteOrder order) {
+			this.order = order;
+			buffer.order(order);
+		}
+
+		/**
+		 * @return the next byte without consuming it, -1 at the end of the input
+		 */
+		int peek() {
+			return ensure(1) ? buffer.get(buffer.position()) & 0xFF : -1;
+		}
+
+		/**
+		 * @return the next byte, -1 at the end of the input
+		 */
+		int next() {
+			return ensure(1) ? buffer.get() & 0xFF : -1;
+		}
+
+		/**
+		 * Skips spaces and tabs
+		 */
+		void skipBlanks() {
+			while (isBlank(peek()))
+				next();
+		}
+
+		/**
+		 * Skips the rest of the line (including the line end)
+		 */
+		void skipLine() {
+			int c;
+			while ((c = next()) >= 0 && c != '\n') {
+				// skip
+			}
+		}
+
+		/**
+		 * Reads a line as a string (for the short header lines)
+		 *
+		 * @return the line without its end, null at the end of the input
+		 */
+		String readLine() {
+			if (peek() < 0)
+				return null;
+			byte[] bytes = new byte[64];
+			int length = 0;
+			int c;
+			while ((c = next()) >= 0 && c != '\n') {
+				if (length == bytes.length)
+					bytes = Arrays.copyOf(bytes, 2 * length);
+				bytes[length++] = (byte) c;
+			}
+			if (length > 0 && bytes[length - 1] == '\r')
+				--length;
+			return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+		}
+
+		/**
+		 * Reads a decimal integer after optional blanks
+		 *
+		 * @return the integer
+		 * @throws IllegalArgumentException if there is no integer
+		 */
+		int readInt() {
+			skipBlanks();
+			boolean negative = peek() == '-';
+			if (negative || peek() == '+')
+				next();
+			if (!isDigit(peek()))
+				throw new IllegalArgumentException("An integer is expected at position " + (base + buffer.position()));
+			int value = 0;
+			while (isDigit(peek()))
+				value = value * 10 + next() - '0';
+			return negative ? -value : value;
+		}
+
+		/**
+		 * Reads a decimal number (with optional fraction and exponent) after
+		 * optional blanks
+		 *
+		 * @return the number
+		 * @throws IllegalArgumentException if there is no number
+		 */
+		double readDouble() {
+			skipBlanks();
+			boolean negative = peek() == '-';
+			if (negative || peek() == '+')
+				next();
+			long mantissa = 0;
+			int digits = 0; // significant digits in the mantissa
+			int exponent = 0;
+			boolean any = false;
+			while (isDigit(peek())) {
+				int digit = next() - '0';
+				any = true;
+				if (digits < 18) {
+					mantissa = mantissa * 10 + digit;
+					if (mantissa != 0)
+						++digits;
+				} else
+					++exponent;
+			}
+			if (peek() == '.') {
+				next();
+				while (isDigit(peek())) {
+					int digit = next() - '0';
+					any = true;
+					if (digits < 18) {
+						mantissa = mantissa * 10 + digit;
+						if (mantissa != 0)
+							++digits;
+						--exponent;
+					}
+				}
+			}
+			if (!any)
+				throw new IllegalArgumentException("A number is expected at position " + (base + buffer.position()));
+			if (peek() == 'e' || peek() == 'E') {
+				next();
+				exponent += readInt();
+			}
+			double value = mantissa;
+			if (exponent != 0 && mantissa != 0) {
+				if (exponent > 0)
+					value = exponent < POWERS_OF_10.length ? value * POWERS_OF_10[exponent]
+							: value * Math.pow(10, exponent);
+				else
+					value = -exponent < POWERS_OF_10.length ? value / POWERS_OF_10[-exponent]
+							: value / Math.pow(10, -exponent);
+			}
+			return negative ? -value : value;
+		}
+
+		/**
+		 * Reads a binary value
+		 *
+		 * @param type - the PLY type of the value
+		 * @return the value
+		 * @throws IllegalArgumentException if the type is unknown or the input ends
+		 */
+		double readValue(String type) {
+			int bytes = switch (type) {
+			case "char", "int8", "uchar", "uint8" -> 1;
+			case "short", "int16", "ushort", "uint16" -> 2;
+			case "int", "int32", "uint", "uint32", "float", "float32" -> 4;
+			case "double", "float64" -> 8;
+			default -> throw new IllegalArgumentException("Unknown PLY type " + type);
+			};
+			if (!ensure(bytes))
+				throw new IllegalArgumentException("Unexpected end of the PLY file");
+			return switch (type) {
+			case "char", "int8" -> buffer.get();
+			case "uchar", "uint8" -> buffer.get() & 0xFF;
+			case "short", "int16" -> buffer.getShort();
+			case "ushort", "uint16" -> buffer.getShort() & 0xFFFF;
+			case "int", "int32" -> buffer.getInt();
+			case "uint", "uint32" -> buffer.getInt() & 0xFFFFFFFFL;
+			case "float", "float32" -> buffer.getFloat();
+			default -> buffer.getDouble();
+			};
+		}
+
+		/**
+		 * @param c - a character
+		 * @return true for a decimal digit
+		 */
+		private static boolean isDigit(int c) {
+			return c >= '0' && c <= '9';
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	// ***************** Growable arrays ********************** //
+
+	/**
+	 * Growable array of doubles
+	 */
+	private static class DoubleArray {
+		private double[] values = new double[1024];
+		private int size = 0;
+
+		void add(double value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, 2 * size);
+			values[size++] = value;
+		}
+
+		double get(int index) {
+			return values[index];
+		}
+
+		int size() {
+			return size;
+		}
+
+		double[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * Growable array of integers
+	 */
+	private static class IntArray {
+		private int[] values = new int[1024];
+		private int size = 0;
+
+		void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, 2 * size);
+			values[size++] = value;
+		}
+
+		int get(int index) {
+			return values[index];
+		}
+
+		int size() {
+			return size;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
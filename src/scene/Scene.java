@@ -3,6 +3,7 @@
  */
 package scene;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -15,7 +16,9 @@ import primitives.Color;
  * @author Hadas &amp; Naama
  *
  */
-public class Scene {
+public class Scene implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	// scene is PDS so the fields would be public:
 	public final String name; // The name of the scene
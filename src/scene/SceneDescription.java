@@ -0,0 +1,157 @@
+package scene;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.MissingResourceException;
+
+import primitives.Point;
+import primitives.Vector;
+import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.RayTracerBasic;
+
+/**
+ * Description of a scene as read from a scene file (see {@link SceneParser}):
+ * the scene itself (with its geometries hierarchy, if it was built) and the
+ * settings of the camera that renders it. The description is serializable, so a
+ * parsed scene may be cached in a binary file together with the stamps of the
+ * files it was read from.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class SceneDescription implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Stamp of a file the scene was read from, for checking whether a cached
+	 * description is up to date
+	 *
+	 * @param path     - the absolute path of the file
+	 * @param modified - the last modification time of the file (milliseconds)
+	 * @param size     - the size of the file
+	 */
+	private record FileStamp(String path, long modified, long size) implements Serializable {
+	}
+
+	/** The scene */
+	public final Scene scene;
+
+	// camera settings, the position is null if the file has no camera
+	Point position;
+	Vector direction;
+	Vector up;
+	double width;
+	double height;
+	double distance;
+	int nX;
+	int nY;
+	int antiAliasing = 1;
+	boolean adaptive = true;
+	int threads = 1;
+	double aperture = 0;
+	double focalDistance = 1;
+	String imageName;
+
+	/** The files the scene was read from */
+	private final List<FileStamp> files = new ArrayList<>();
+
+	/**
+	 * Constructor of a description of a scene
+	 *
+	 * @param scene - the scene
+	 */
+	SceneDescription(Scene scene) {
+		this.scene = scene;
+		this.imageName = scene.name;
+	}
+
+	/**
+	 * Adds a file to the files the scene was read from
+	 *
+	 * @param file - the file
+	 * @throws IOException if the file attributes cannot be read
+	 */
+	void addFile(Path file) throws IOException {
+		files.add(new FileStamp(file.toAbsolutePath().toString(), Files.getLastModifiedTime(file).toMillis(),
+				Files.size(file)));
+	}
+
+	/**
+	 * Checks whether all the files the scene was read from are unchanged
+	 *
+	 * @return true if the description is up to date
+	 */
+	boolean isUpToDate() {
+		try {
+			for (FileStamp stamp : files) {
+				Path file = Path.of(stamp.path());
+				if (Files.getLastModifiedTime(file).toMillis() != stamp.modified() || Files.size(file) != stamp.size())
+					return false;
+			}
+			return true;
+		} catch (IOException e) { // a missing file
+			return false;
+		}
+	}
+
+	/**
+	 * @return the number of the columns of the image
+	 */
+	public int getNx() {
+		return nX;
+	}
+
+	/**
+	 * @return the number of the rows of the image
+	 */
+	public int getNy() {
+		return nY;
+	}
+
+	/**
+	 * @return the anti aliasing factor of the camera (the square root of the
+	 *         samples of a pixel)
+	 */
+	public int getAntiAliasing() {
+		return antiAliasing;
+	}
+
+	/**
+	 * @return the number of the rendering threads of the camera
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return true if the scene file describes a camera
+	 */
+	public boolean hasCamera() {
+		return position != null;
+	}
+
+	/**
+	 * Creates the camera of the scene, with an image writer of the described
+	 * resolution and a basic ray tracer of the scene
+	 *
+	 * @return the camera
+	 * @throws MissingResourceException if the scene file has no camera
+	 */
+	public Camera createCamera() {
+		if (!hasCamera())
+			throw new MissingResourceException("ERROR: The scene file has no camera", "SceneDescription", "camera");
+		return new Camera(position, direction, up) //
+				.setVPSize(width, height).setVPDistance(distance) //
+				.setImageWriter(new ImageWriter(imageName, nX, nY)) //
+				.setRayTracer(new RayTracerBasic(scene)) //
+				.setAntiAliasingFactor(antiAliasing) //
+				.setadaptive(adaptive) //
+				.setDepthOfField(aperture, focalDistance) //
+				.setMultithreading(threads);
+	}
+}
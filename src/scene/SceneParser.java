@@ -0,0 +1,592 @@
+package scene;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+
+/**
+ * Parser of XML scene files. The file is read by a streaming (StAX) parser,
+ * element after element, without building a document tree. A scene file looks
+ * like:
+ *
+ * <pre>
+ * &lt;scene name="example" background="0 0 0"&gt;
+ *   &lt;camera position="0 0 1000" direction="0 0 -1" up="0 1 0" vp-size="200 200"
+ *           vp-distance="1000" resolution="500 500" anti-aliasing="1" threads="4"
+ *           aperture="0" focal-distance="1000"/&gt;
+ *   &lt;ambient-light color="255 255 255" k="0.1"/&gt;
+ *   &lt;lights&gt;
+ *     &lt;point-light intensity="500 300 0" position="50 50 50" kL="0.00001" kQ="0.000005"/&gt;
+ *     &lt;spot-light intensity="500 300 0" position="50 50 50" direction="-1 -1 -4"/&gt;
+ *     &lt;directional-light intensity="100 100 100" direction="0 0 -1"/&gt;
+ *     &lt;rectangle-light intensity="..." center="..." width="..." height="..." shadow-samples="4"/&gt;
+ *     &lt;disk-light intensity="..." center="..." normal="..." radius="..." adaptive-samples="4"/&gt;
+ *     &lt;sphere-light intensity="..." center="..." radius="..."/&gt;
+ *   &lt;/lights&gt;
+ *   &lt;materials&gt;
+ *     &lt;material id="glass" kD="0.2" kS="0.5" kT="0.6" kR="0 0 0.1" shininess="100"/&gt;
+ *     &lt;material id="frosted" kT="0.8" blurriness="0.1"/&gt;
+ *     &lt;material id="brushed" kR="0.7" glossiness="0.05"/&gt;
+ *   &lt;/materials&gt;
+ *   &lt;geometries bvh="true"&gt;
+ *     &lt;sphere center="0 0 -100" radius="50" emission="0 0 100" material="glass"/&gt;
+ *     &lt;triangle p0="..." p1="..." p2="..."/&gt;
+ *     &lt;polygon vertices="x y z, x y z, x y z, x y z"/&gt;
+ *     &lt;plane point="..." normal="..."/&gt;
+ *     &lt;tube axis-point="..." axis-direction="..." radius="..."/&gt;
+ *     &lt;cylinder axis-point="..." axis-direction="..." radius="..." height="..."/&gt;
+ *     &lt;mesh file="model.obj"/&gt;
+ *   &lt;/geometries&gt;
+ * &lt;/scene&gt;
+ * </pre>
+ *
+ * Points, vectors and colors are 3 numbers. The coefficients of the lights and
+ * the materials are either a single number or 3 numbers. A material is defined
+ * before the geometries that refer to it. Mesh files (see {@link MeshLoader})
+ * are relative to the scene file, and they must be in its directory or in a
+ * subdirectory of it - a mesh path that leaves the directory (an absolute path
+ * or a path with "..") is illegal. When the geometries element has
+ * bvh="true", the geometries are arranged in a hierarchy after parsing (see
+ * {@link Geometries#buildBVH()}).<br>
+ * {@link #load(Path)} keeps a binary snapshot of the parsed scene (including the
+ * built hierarchy and the loaded meshes) next to the scene file, so the next
+ * loading of an unchanged scene skips the parsing and the hierarchy
+ * construction.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public final class SceneParser {
+
+	/** Suffix of the binary snapshot file name, added to the scene file name */
+	public static final String CACHE_SUFFIX = ".cache";
+
+	/**
+	 * Header of the snapshot files. The header is changed whenever the layout of
+	 * the snapshot file changes, and a snapshot with another header is ignored.
+	 * The classes of the snapshot declare fixed serial version numbers, so the
+	 * header does not cover them: a snapshot of classes whose serialized fields
+	 * were changed since it was written is detected while it is read (see
+	 * {@link SnapshotInputStream}) and ignored as well.
+	 */
+	private static final long CACHE_HEADER = 0x5343454E45_01L;
+
+	/** The classes a snapshot may contain */
+	private static final ObjectInputFilter CACHE_FILTER = ObjectInputFilter.Config
+			.createFilter("primitives.*;geometries.*;lighting.*;scene.*;java.util.*;java.lang.*;!*");
+
+	private static final Logger logger = Logger.getLogger("SceneParser");
+
+	/**
+	 * Don't let anyone instantiate this class.
+	 */
+	private SceneParser() {
+	}
+
+	// ***************** Snapshot ********************** //
+
+	/**
+	 * Loads a scene file, from its binary snapshot if the snapshot is up to date.
+	 * Otherwise the file is parsed and a new snapshot is written next to it.
+	 *
+	 * @param file - the path of the scene file
+	 * @return the scene description
+	 * @throws IllegalArgumentException if the file content is illegal
+	 * @throws IllegalStateException    if the file cannot be read
+	 */
+	public static SceneDescription load(Path file) {
+		return load(file, file.resolveSibling(file.getFileName() + CACHE_SUFFIX));
+	}
+
+	/**
+	 * Loads a scene file, from a binary snapshot if the snapshot is up to date.
+	 * Otherwise the file is parsed and a new snapshot is written. A snapshot that
+	 * cannot be written is not an error - the scene is just parsed again the next
+	 * time.
+	 *
+	 * @param file  - the path of the scene file
+	 * @param cache - the path of the snapshot file
+	 * @return the scene description
+	 * @throws IllegalArgumentException if the file content is illegal
+	 * @throws IllegalStateException    if the file cannot be read
+	 */
+	public static SceneDescription load(Path file, Path cache) {
+		SceneDescription description = readCache(cache);
+		if (description != null && description.isUpToDate())
+			return description;
+
+		description = parse(file);
+		writeCache(cache, description);
+		return description;
+	}
+
+	/**
+	 * Writes a scene snapshot. The snapshot is written to a temporary file in the
+	 * same directory, which then replaces the snapshot file atomically, so a
+	 * reader never sees a partially written snapshot and concurrent writers do not
+	 * mix their snapshots.
+	 *
+	 * @param cache       - the path of the snapshot file
+	 * @param description - the scene description
+	 */
+	private static void writeCache(Path cache, SceneDescription description) {
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(cache.toAbsolutePath().getParent(), cache.getFileName().toString(),
+					".tmp");
+			try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeLong(CACHE_HEADER);
+				out.writeObject(description);
+			}
+			Files.move(temp, cache, StandardCopyOption.ATOMIC_MOVE);
+			temp = null;
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Cannot write the scene snapshot " + cache, e);
+		} finally {
+			if (temp != null)
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException e) {
+					logger.log(Level.FINE, "Cannot delete " + temp, e);
+				}
+		}
+	}
+
+	/**
+	 * Reads a scene snapshot
+	 *
+	 * @param cache - the path of the snapshot file
+	 * @return the scene description, or null if there is no valid snapshot
+	 */
+	private static SceneDescription readCache(Path cache) {
+		if (!Files.isRegularFile(cache))
+			return null;
+		try (ObjectInputStream in = new SnapshotInputStream(new BufferedInputStream(Files.newInputStream(cache)))) {
+			in.setObjectInputFilter(CACHE_FILTER);
+			if (in.readLong() != CACHE_HEADER)
+				return null;
+			return (SceneDescription) in.readObject();
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			logger.log(Level.FINE, "Ignoring the scene snapshot " + cache, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Input stream of a snapshot, which rejects a class whose serialized fields
+	 * in the snapshot differ from its current ones. A class with a fixed serial
+	 * version number is otherwise read with the fields that were removed ignored
+	 * and the fields that were added left with their default values - a stale
+	 * scene that would be rendered without any warning.
+	 */
+	private static final class SnapshotInputStream extends ObjectInputStream {
+
+		/**
+		 * @param in - the snapshot stream
+		 * @throws IOException if the stream header cannot be read
+		 */
+		SnapshotInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			Class<?> type = super.resolveClass(desc);
+			ObjectStreamClass local = ObjectStreamClass.lookupAny(type);
+			if (!fields(desc).equals(fields(local)))
+				throw new InvalidClassException(desc.getName(), "the class was changed since the snapshot was written");
+			return type;
+		}
+
+		/**
+		 * @param desc - a class descriptor
+		 * @return the names and the types of the serialized fields of the class
+		 */
+		private static Set<String> fields(ObjectStreamClass desc) {
+			Set<String> fields = new HashSet<>();
+			for (ObjectStreamField field : desc.getFields())
+				fields.add(field.getName() + ':' + field.getTypeCode() + field.getTypeString());
+			return fields;
+		}
+	}
+
+	// ***************** Parsing ********************** //
+
+	/**
+	 * Parses a scene file
+	 *
+	 * @param file - the path of the scene file
+	 * @return the scene description
+	 * @throws IllegalArgumentException if the file content is illegal
+	 * @throws IllegalStateException    if the file cannot be read
+	 */
+	public static SceneDescription parse(Path file) {
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+			XMLStreamReader reader = factory.createXMLStreamReader(input);
+			try {
+				SceneDescription description = new Handler(file, reader).parse();
+				description.addFile(file);
+				return description;
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IllegalArgumentException("Illegal scene file " + file + ": " + e.getMessage(), e);
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot read " + file, e);
+		}
+	}
+
+	/**
+	 * Handler of the elements of a scene file while it is parsed
+	 */
+	private static class Handler {
+		private final Path file;
+		private final XMLStreamReader reader;
+		private final Map<String, Material> materials = new HashMap<>();
+		private SceneDescription description = null;
+		private boolean bvh = false;
+
+		/**
+		 * @param file   - the path of the scene file
+		 * @param reader - the reader of the file
+		 */
+		Handler(Path file, XMLStreamReader reader) {
+			this.file = file;
+			this.reader = reader;
+		}
+
+		/**
+		 * Parses the elements of the file
+		 *
+		 * @return the scene description
+		 * @throws XMLStreamException if the XML is illegal
+		 * @throws IOException        if a mesh file cannot be read
+		 */
+		SceneDescription parse() throws XMLStreamException, IOException {
+			while (reader.hasNext())
+				if (reader.next() == XMLStreamConstants.START_ELEMENT)
+					element(reader.getLocalName());
+			if (description == null)
+				throw error("Missing scene element");
+			if (bvh)
+				description.scene.geometries.buildBVH();
+			return description;
+		}
+
+		/**
+		 * Handles an element
+		 *
+		 * @param name - the element name
+		 * @throws IOException if a mesh file cannot be read
+		 */
+		private void element(String name) throws IOException {
+			if (name.equals("scene")) {
+				if (description != null)
+					throw error("A second scene element");
+				Scene scene = new Scene(required("name"));
+				String background = attribute("background");
+				if (background != null)
+					scene.setBackground(color(background));
+				description = new SceneDescription(scene);
+				return;
+			}
+			if (description == null)
+				throw error("The " + name + " element is out of the scene element");
+			Scene scene = description.scene;
+
+			switch (name) {
+			case "camera" -> camera();
+			case "ambient-light" -> scene.setAmbientLight(new AmbientLight(color(required("color")),
+					attribute("k") == null ? Double3.ONE : double3(attribute("k"))));
+			case "point-light" -> scene.lights.add(attenuation(
+					new PointLight(color(required("intensity")), point(required("position")))));
+			case "spot-light" -> scene.lights.add(attenuation(new SpotLight(color(required("intensity")),
+					point(required("position")), vector(required("direction")))));
+			case "directional-light" -> scene.lights
+					.add(new DirectionalLight(color(required("intensity")), vector(required("direction"))));
+			case "rectangle-light" -> scene.lights.add(area(new RectangleLight(color(required("intensity")),
+					point(required("center")), vector(required("width")), vector(required("height")))));
+			case "disk-light" -> scene.lights.add(area(new DiskLight(color(required("intensity")),
+					point(required("center")), vector(required("normal")), number(required("radius")))));
+			case "sphere-light" -> scene.lights.add(area(new SphereLight(color(required("intensity")),
+					point(required("center")), number(required("radius")))));
+			case "material" -> {
+				String id = required("id");
+				if (materials.put(id, material()) != null)
+					throw error("The material " + id + " is defined twice");
+			}
+			case "geometries" -> bvh = Boolean.parseBoolean(attribute("bvh"));
+			case "lights", "materials" -> {
+				// containers
+			}
+			default -> scene.geometries.add(appearance(geometry(name)));
+			}
+		}
+
+		/**
+		 * Reads the camera settings
+		 */
+		private void camera() {
+			description.position = point(required("position"));
+			description.direction = vector(required("direction"));
+			description.up = vector(required("up"));
+			double[] size = numbers(required("vp-size"), 2);
+			description.width = size[0];
+			description.height = size[1];
+			description.distance = number(required("vp-distance"));
+			double[] resolution = numbers(required("resolution"), 2);
+			description.nX = (int) resolution[0];
+			description.nY = (int) resolution[1];
+			if (attribute("anti-aliasing") != null)
+				description.antiAliasing = (int) number(attribute("anti-aliasing"));
+			if (attribute("adaptive") != null)
+				description.adaptive = Boolean.parseBoolean(attribute("adaptive"));
+			if (attribute("threads") != null)
+				description.threads = (int) number(attribute("threads"));
+			if (attribute("image") != null)
+				description.imageName = attribute("image");
+			if (attribute("aperture") != null) {
+				description.aperture = number(attribute("aperture"));
+				description.focalDistance = number(required("focal-distance"));
+			}
+		}
+
+		/**
+		 * Creates a geometry according to its element
+		 *
+		 * @param name - the element name
+		 * @return the geometry
+		 * @throws IOException if a mesh file cannot be read
+		 */
+		private Intersectable geometry(String name) throws IOException {
+			return switch (name) {
+			case "sphere" -> new Sphere(number(required("radius")), point(required("center")));
+			case "triangle" -> new Triangle(point(required("p0")), point(required("p1")), point(required("p2")));
+			case "polygon" -> {
+				String[] vertices = required("vertices").split(",");
+				Point[] points = new Point[vertices.length];
+				for (int i = 0; i < vertices.length; ++i)
+					points[i] = point(vertices[i]);
+				yield new Polygon(points);
+			}
+			case "plane" -> new Plane(point(required("point")), vector(required("normal")));
+			case "tube" -> new Tube(number(required("radius")), axis());
+			case "cylinder" -> new Cylinder(number(required("radius")), axis(), number(required("height")));
+			case "mesh" -> {
+				Path directory = file.toAbsolutePath().normalize().getParent();
+				String path = required("file");
+				Path meshFile = directory.resolve(path).normalize();
+				if (!meshFile.startsWith(directory)) // checked before the file is accessed
+					throw error("The mesh file " + path + " is out of the directory of the scene");
+				Mesh mesh = MeshLoader.load(meshFile);
+				description.addFile(meshFile);
+				yield mesh;
+			}
+			default -> throw error("Unknown element " + name);
+			};
+		}
+
+		/**
+		 * @return the axis ray of a tube or a cylinder
+		 */
+		private Ray axis() {
+			return new Ray(point(required("axis-point")), vector(required("axis-direction")));
+		}
+
+		/**
+		 * Sets the emission and the material of a geometry (or of the faces of a
+		 * mesh) according to its element
+		 *
+		 * @param geometry - the geometry
+		 * @return the geometry
+		 */
+		private Intersectable appearance(Intersectable geometry) {
+			String emission = attribute("emission");
+			Material material = null;
+			String id = attribute("material");
+			if (id != null) {
+				material = materials.get(id);
+				if (material == null)
+					throw error("Unknown material " + id);
+			}
+			if (geometry instanceof Mesh mesh) {
+				if (emission != null)
+					mesh.setEmission(color(emission));
+				if (material != null)
+					mesh.setMaterial(material);
+			} else if (geometry instanceof Geometry shape) {
+				if (emission != null)
+					shape.setEmission(color(emission));
+				if (material != null)
+					shape.setMaterial(material);
+			}
+			return geometry;
+		}
+
+		/**
+		 * @return the material of a material element
+		 */
+		private Material material() {
+			Material material = new Material();
+			if (attribute("kD") != null)
+				material.setKd(double3(attribute("kD")));
+			if (attribute("kS") != null)
+				material.setKs(double3(attribute("kS")));
+			if (attribute("kT") != null)
+				material.setKt(double3(attribute("kT")));
+			if (attribute("kR") != null)
+				material.setKr(double3(attribute("kR")));
+			if (attribute("shininess") != null)
+				material.setShininess((int) number(attribute("shininess")));
+			if (attribute("glossiness") != null)
+				material.setGlossiness(number(attribute("glossiness")));
+			if (attribute("blurriness") != null)
+				material.setBlurriness(number(attribute("blurriness")));
+			return material;
+		}
+
+		/**
+		 * Sets the attenuation factors of a point light according to its element
+		 *
+		 * @param light - the light
+		 * @return the light
+		 */
+		private PointLight attenuation(PointLight light) {
+			if (attribute("kC") != null)
+				light.setkC(number(attribute("kC")));
+			if (attribute("kL") != null)
+				light.setkL(number(attribute("kL")));
+			if (attribute("kQ") != null)
+				light.setkQ(number(attribute("kQ")));
+			return light;
+		}
+
+		/**
+		 * Sets the attenuation factors and the shadow sampling of an area light
+		 * according to its element
+		 *
+		 * @param light - the light
+		 * @return the light
+		 */
+		private AreaLight area(AreaLight light) {
+			attenuation(light);
+			if (attribute("shadow-samples") != null)
+				light.setShadowSamples((int) number(attribute("shadow-samples")));
+			if (attribute("adaptive-samples") != null)
+				light.setAdaptiveSamples((int) number(attribute("adaptive-samples")));
+			return light;
+		}
+
+		// ***************** Values ********************** //
+
+		/**
+		 * @param name - an attribute name
+		 * @return the attribute value of the current element, null if it is missing
+		 */
+		private String attribute(String name) {
+			return reader.getAttributeValue(null, name);
+		}
+
+		/**
+		 * @param name - an attribute name
+		 * @return the attribute value of the current element
+		 * @throws IllegalArgumentException if the attribute is missing
+		 */
+		private String required(String name) {
+			String value = attribute(name);
+			if (value == null)
+				throw error("Missing attribute " + name + " of " + reader.getLocalName());
+			return value;
+		}
+
+		/**
+		 * Parses numbers separated by blanks
+		 *
+		 * @param value - the attribute value
+		 * @param count - the expected count of numbers
+		 * @return the numbers
+		 * @throws IllegalArgumentException if the value is not the expected count of
+		 *                                  numbers
+		 */
+		private double[] numbers(String value, int count) {
+			String[] words = value.trim().split("\\s+");
+			if (words.length != count)
+				throw error(count + " numbers are expected instead of '" + value + "'");
+			double[] result = new double[count];
+			try {
+				for (int i = 0; i < count; ++i)
+					result[i] = Double.parseDouble(words[i]);
+			} catch (NumberFormatException e) {
+				throw error("Illegal number in '" + value + "'");
+			}
+			return result;
+		}
+
+		private double number(String value) {
+			return numbers(value, 1)[0];
+		}
+
+		private Point point(String value) {
+			double[] xyz = numbers(value, 3);
+			return new Point(xyz[0], xyz[1], xyz[2]);
+		}
+
+		private Vector vector(String value) {
+			double[] xyz = numbers(value, 3);
+			return new Vector(xyz[0], xyz[1], xyz[2]);
+		}
+
+		private Color color(String value) {
+			double[] rgb = numbers(value, 3);
+			return new Color(rgb[0], rgb[1], rgb[2]);
+		}
+
+		/**
+		 * @param value - a single number or 3 numbers
+		 * @return the triad
+		 */
+		private Double3 double3(String value) {
+			double[] numbers = value.trim().split("\\s+").length == 1 ? numbers(value, 1) : numbers(value, 3);
+			return numbers.length == 1 ? new Double3(numbers[0]) : new Double3(numbers[0], numbers[1], numbers[2]);
+		}
+
+		/**
+		 * Creates an exception of an illegal content, with its location in the file
+		 *
+		 * @param message - the error description
+		 * @return the exception
+		 */
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(
+					file + " line " + reader.getLocation().getLineNumber() + ": " + message);
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import renderer.Camera;
+import renderer.ImageWriter;
+import scene.SceneDescription;
+
+/**
+ * A rendering job of the render service (see {@link RenderService}): the
+ * loading of a posted scene and its rendering by its camera, fully or progressively in a time budget
+ * (see {@link Camera#renderProgressive(long)}). The tiles of the image are sent
+ * as they are rendered - each one as a line of JSON with the tone mapped pixels
+ * of the tile encoded in base 64 - to the clients that follow the rendering
+ * (see {@link Subscription}). The latest version of each tile is kept while the
+ * job runs, so a client that joins later gets the image rendered so far first,
+ * and the tiles are dropped when the job ends (its image remains).
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+final class RenderJob implements Runnable {
+
+	/** The states of a job */
+	enum State {
+		/** Waiting in the queue of the scheduler */
+		QUEUED,
+		/** Being rendered */
+		RUNNING,
+		/** Rendered */
+		DONE,
+		/** The rendering failed */
+		FAILED,
+		/** Cancelled by a client */
+		CANCELLED;
+
+		/**
+		 * @return true if the job will not change anymore
+		 */
+		boolean isFinal() {
+			return this != QUEUED && this != RUNNING;
+		}
+	}
+
+	/** The identifier of the job */
+	final long id;
+	/** Gets the scene of the job on its worker, see {@link #setCached()} */
+	private final Function<RenderJob, SceneDescription> scene;
+	/** The time budget of a progressive rendering (ms), negative for a full one */
+	private final long budget;
+
+	// guarded by this
+	private State state = State.QUEUED;
+	/** Whether the scene was built for another job, known when the job runs */
+	private boolean cached = false;
+	private String error = null;
+	private ImageWriter imageWriter = null;
+	/** The latest version of each tile by its position, null when the job ended */
+	private Map<Long, byte[]> tiles = new LinkedHashMap<>();
+	private final List<Subscription> subscriptions = new ArrayList<>();
+	/** The number of the tiles rendered, including the tiles rendered again */
+	private int rendered = 0;
+	private Future<?> future = null;
+
+	/**
+	 * Constructor of a job
+	 *
+	 * @param id     - the identifier of the job
+	 * @param scene  - gets the scene of the job (with a camera) on its worker,
+	 *               it throws a runtime exception if the scene cannot be loaded
+	 * @param budget - the time budget of a progressive rendering (ms), negative
+	 *               for a full rendering
+	 */
+	RenderJob(long id, Function<RenderJob, SceneDescription> scene, long budget) {
+		this.id = id;
+		this.scene = scene;
+		this.budget = budget;
+	}
+
+	/**
+	 * Marks the scene of the job as built for another job - it was taken from the
+	 * cache, or it was loaded for another job at the same time
+	 */
+	synchronized void setCached() {
+		cached = true;
+	}
+
+	/**
+	 * Sets the future of the job in the scheduler, for cancelling it
+	 *
+	 * @param future - the future
+	 */
+	synchronized void setFuture(Future<?> future) {
+		this.future = future;
+	}
+
+	@Override
+	public void run() {
+		synchronized (this) {
+			if (state != State.QUEUED)
+				return;
+			state = State.RUNNING;
+		}
+		Camera camera;
+		try {
+			camera = scene.apply(this).createCamera().setTileListener(this::tileRendered);
+		} catch (RuntimeException | Error e) { // e.g. out of memory, the job must end anyway
+			finish(State.FAILED, String.valueOf(e.getMessage()));
+			return;
+		}
+		synchronized (this) {
+			if (state != State.RUNNING) // cancelled while the scene was loaded
+				return;
+			imageWriter = camera.getImageWriter();
+		}
+		try {
+			if (budget < 0)
+				camera.renderImage();
+			else
+				camera.renderProgressive(budget);
+			finish(State.DONE, null);
+		} catch (RuntimeException | Error e) {
+			finish(State.FAILED, String.valueOf(e.getMessage()));
+		}
+	}
+
+	/**
+	 * Sends a rendered tile to the subscriptions and keeps it, called by the
+	 * rendering threads
+	 *
+	 * @param row    - the top row of the tile
+	 * @param col    - the left column of the tile
+	 * @param height - the number of rows of the tile
+	 * @param width  - the number of columns of the tile
+	 */
+	private void tileRendered(int row, int col, int height, int width) {
+		ByteBuffer rgb = ByteBuffer.allocate(3 * height * width);
+		for (int y = row; y < row + height; ++y)
+			for (int x = col; x < col + width; ++x) {
+				int pixel = imageWriter.getDisplayedPixel(x, y);
+				rgb.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel);
+			}
+		String line = "{\"row\":" + row + ",\"col\":" + col + ",\"height\":" + height + ",\"width\":" + width
+				+ ",\"rgb\":\"" + Base64.getEncoder().encodeToString(rgb.array()) + "\"}\n";
+		byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+		Long position = (long) row << Integer.SIZE | col;
+		synchronized (this) {
+			if (tiles == null) // a tile that was being rendered when the job was cancelled
+				return;
+			++rendered;
+			tiles.put(position, bytes);
+			for (Subscription subscription : subscriptions)
+				subscription.pending.put(position, bytes);
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Ends the job, unless it was cancelled
+	 *
+	 * @param state - the final state
+	 * @param error - the error of a failed job
+	 */
+	private synchronized void finish(State state, String error) {
+		if (this.state == State.RUNNING) {
+			this.state = state;
+			this.error = error;
+			tiles = null;
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Cancels the job: a queued job is not rendered, and a running rendering is
+	 * interrupted - it stops after the tiles that are being rendered
+	 */
+	synchronized void cancel() {
+		if (state.isFinal())
+			return;
+		state = State.CANCELLED;
+		tiles = null;
+		if (future != null)
+			future.cancel(true);
+		notifyAll();
+	}
+
+	/**
+	 * @return the state of the job
+	 */
+	synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Writes the image rendered so far in PNG format
+	 *
+	 * @param out - the stream
+	 * @return false if the rendering did not start yet or was cancelled
+	 * @throws IllegalStateException if the stream cannot be written
+	 */
+	boolean writeImage(OutputStream out) {
+		ImageWriter writer;
+		synchronized (this) {
+			if (imageWriter == null || state == State.CANCELLED)
+				return false;
+			writer = imageWriter;
+		}
+		writer.writeToImage(out);
+		return true;
+	}
+
+	/**
+	 * Subscribes a client to the tiles of the job
+	 *
+	 * @return the subscription, with the tiles rendered so far
+	 */
+	synchronized Subscription subscribe() {
+		Subscription subscription = new Subscription();
+		if (tiles != null) {
+			subscription.pending.putAll(tiles);
+			subscriptions.add(subscription);
+		}
+		return subscription;
+	}
+
+	/**
+	 * A client that follows the rendered tiles of the job. The tiles that were
+	 * not sent to the client yet wait in the subscription - at most the latest
+	 * version of each tile, so a slow client skips the older versions.
+	 */
+	final class Subscription implements AutoCloseable {
+		/** The tiles to send by their positions, guarded by the job */
+		private final Map<Long, byte[]> pending = new LinkedHashMap<>();
+
+		private Subscription() {
+		}
+
+		/**
+		 * Writes the rendered tiles (one line of JSON each) until the job ends,
+		 * and then a last line of the status of the job
+		 *
+		 * @param out - the stream, flushed after each group of tiles
+		 * @throws IOException          if the stream cannot be written (e.g. the
+		 *                              client disconnected)
+		 * @throws InterruptedException if the thread was interrupted while waiting
+		 */
+		void streamTiles(OutputStream out) throws IOException, InterruptedException {
+			while (true) {
+				List<byte[]> batch;
+				boolean ended;
+				synchronized (RenderJob.this) {
+					while (pending.isEmpty() && !state.isFinal())
+						RenderJob.this.wait();
+					batch = new ArrayList<>(pending.values());
+					pending.clear();
+					ended = state.isFinal();
+				}
+				for (byte[] line : batch)
+					out.write(line);
+				if (ended)
+					break;
+				out.flush();
+			}
+			out.write((toJson() + "\n").getBytes(StandardCharsets.UTF_8));
+			out.flush();
+		}
+
+		/**
+		 * Ends the subscription
+		 */
+		@Override
+		public void close() {
+			synchronized (RenderJob.this) {
+				subscriptions.remove(this);
+			}
+		}
+	}
+
+	/**
+	 * @return the status of the job as JSON
+	 */
+	synchronized String toJson() {
+		return "{\"id\":" + id + ",\"state\":\"" + state + "\",\"cached\":" + cached + ",\"tiles\":" + rendered
+				+ (error == null ? "" : ",\"error\":\"" + escape(error) + "\"") + "}";
+	}
+
+	/**
+	 * Escapes a text for a JSON string
+	 *
+	 * @param text - the text
+	 * @return the escaped text
+	 */
+	static String escape(String text) {
+		StringBuilder result = new StringBuilder(text.length());
+		for (char c : text.toCharArray())
+			if (c == '"' || c == '\\')
+				result.append('\\').append(c);
+			else if (c < ' ')
+				result.append(String.format("\\u%04x", (int) c));
+			else
+				result.append(c);
+		return result.toString();
+	}
+}
@@ -0,0 +1,490 @@
+package service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import lighting.AreaLight;
+import lighting.LightSource;
+import scene.SceneDescription;
+import scene.SceneParser;
+
+/**
+ * Rendering service over HTTP, embedded in the JDK's HTTP server. A client posts
+ * a scene file (see {@link SceneParser}) and gets a job, which is rendered by
+ * the camera of the scene when its turn comes:
+ * <ul>
+ * <li>POST /render - the body is the scene file, the optional parameter
+ * budget=ms renders the scene progressively in the time budget (see
+ * {@link renderer.Camera#renderProgressive(long)}). The response (202) is the
+ * status of the new job, 400 for an illegal budget and 503 when the queue is
+ * full. An illegal scene, or a scene beyond the limits of the service (the
+ * resolution, the samples and the threads), fails the job.</li>
+ * <li>GET /jobs/id - the status of the job: its state, whether its scene was
+ * cached, the number of the tiles rendered so far and the error of a failed
+ * job</li>
+ * <li>GET /jobs/id/tiles - the rendered tiles, streamed as they are rendered:
+ * a line of JSON for each tile with its pixels in base 64 (red, green and blue
+ * bytes by rows), and a last line of the status of the job. A running job
+ * sends the latest version of each tile rendered so far first, and an ended
+ * job sends its status only (its image is at /jobs/id/image).</li>
+ * <li>GET /jobs/id/image - the image rendered so far in PNG format</li>
+ * <li>DELETE /jobs/id - cancels the job</li>
+ * </ul>
+ * The jobs are rendered by a fixed number of workers, and a bounded queue holds
+ * the waiting jobs. The requests are handled by a bounded pool of threads as
+ * well (the service targets Java 17, which has no virtual threads), so the
+ * number of clients that stream tiles at the same time is limited by that
+ * pool.<br>
+ * A posted scene is loaded by the worker of its job, not by the thread of the
+ * request: it is saved in the scenes directory by the hash of its content, so
+ * its mesh files are relative to that directory (a mesh file out of the
+ * directory fails the job, see {@link SceneParser}), and it is loaded with its
+ * binary snapshot (see {@link SceneParser#load(java.nio.file.Path)}). The built
+ * scenes (with their geometries hierarchies) are kept in a cache of the most
+ * recently used ones, so a repeated rendering of the same scene skips the
+ * parsing and the hierarchy construction, and the jobs that need the same scene
+ * while it is being loaded wait for that loading.
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class RenderService {
+
+	/** Number of the threads that handle the requests */
+	private static final int HANDLER_THREADS = 16;
+	/** Number of the built scenes kept in the cache */
+	private static final int CACHED_SCENES = 8;
+	/** Number of the jobs kept, the oldest ended jobs are forgotten */
+	private static final int KEPT_JOBS = 256;
+	/** Maximal number of the pixels of a posted scene's image */
+	private static final long MAX_PIXELS = 4096L * 4096;
+	/** Maximal anti aliasing factor of a posted scene (256 samples a pixel) */
+	private static final int MAX_ANTI_ALIASING = 16;
+	/** Maximal number of the shadow rays towards an area light of a posted scene */
+	private static final int MAX_SHADOW_SAMPLES = 1024;
+	/** Maximal number of the rendering threads of a posted scene */
+	private static final int MAX_THREADS = 64;
+
+	private final HttpServer server;
+	private final ExecutorService handlers = Executors.newFixedThreadPool(HANDLER_THREADS);
+	private final ThreadPoolExecutor scheduler;
+	private final Path sceneDirectory;
+
+	private final AtomicLong nextId = new AtomicLong(1);
+	/** The jobs by their identifiers, guarded by itself */
+	private final Map<Long, RenderJob> jobs = new LinkedHashMap<>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, RenderJob> eldest) {
+			return size() > KEPT_JOBS && eldest.getValue().getState().isFinal();
+		}
+	};
+	/** The built scenes by the hashes of their files, guarded by itself */
+	private final Map<String, SceneDescription> scenes = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, SceneDescription> eldest) {
+			return size() > CACHED_SCENES;
+		}
+	};
+	/** The scenes being loaded by the hashes of their files */
+	private final ConcurrentHashMap<String, CompletableFuture<SceneDescription>> loading = new ConcurrentHashMap<>();
+
+	private static final Logger logger = Logger.getLogger("RenderService");
+
+	/**
+	 * Constructs the service, it accepts requests after {@link #start()}
+	 *
+	 * @param address        - the address of the server, port 0 for any free port
+	 * @param sceneDirectory - the directory of the posted scenes and their
+	 *                       meshes
+	 * @param workers        - the number of jobs rendered at the same time
+	 * @param queueSize      - the maximal number of waiting jobs
+	 * @throws IllegalArgumentException if the number of workers or the queue size
+	 *                                  is not positive
+	 * @throws IllegalStateException    if the server cannot be created or the
+	 *                                  directory cannot be created
+	 */
+	public RenderService(InetSocketAddress address, Path sceneDirectory, int workers, int queueSize) {
+		if (workers < 1 || queueSize < 1)
+			throw new IllegalArgumentException("The workers and the queue size must be positive");
+		this.sceneDirectory = sceneDirectory;
+		scheduler = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize));
+		try {
+			Files.createDirectories(sceneDirectory);
+			server = HttpServer.create(address, 0);
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot create the server", e);
+		}
+		server.setExecutor(handlers);
+		server.createContext("/render", this::handleRender);
+		server.createContext("/jobs/", this::handleJob);
+	}
+
+	/**
+	 * Starts accepting requests
+	 *
+	 * @return the service itself
+	 */
+	public RenderService start() {
+		server.start();
+		return this;
+	}
+
+	/**
+	 * Stops the service: the open requests are closed and the jobs are stopped
+	 */
+	public void stop() {
+		server.stop(0);
+		scheduler.shutdownNow();
+		handlers.shutdownNow();
+	}
+
+	/**
+	 * @return the address of the server (with the actual port)
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	/**
+	 * Handles a request for rendering a scene
+	 *
+	 * @param exchange - the request and its response
+	 * @throws IOException if the response cannot be sent
+	 */
+	private void handleRender(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			if (!exchange.getRequestMethod().equals("POST")) {
+				send(exchange, 405, "Method not allowed");
+				return;
+			}
+			long budget;
+			try {
+				budget = parseBudget(exchange.getRequestURI());
+			} catch (IllegalArgumentException e) {
+				send(exchange, 400, e.getMessage());
+				return;
+			}
+			byte[] content;
+			try (InputStream body = exchange.getRequestBody()) {
+				content = body.readAllBytes();
+			}
+			String hash = hash(content);
+
+			RenderJob job = new RenderJob(nextId.getAndIncrement(), j -> scene(j, hash, content), budget);
+			try {
+				synchronized (job) { // the job does not start before it has its future
+					job.setFuture(scheduler.submit(job));
+				}
+			} catch (RejectedExecutionException e) {
+				send(exchange, 503, "The queue of the jobs is full");
+				return;
+			}
+			synchronized (jobs) {
+				jobs.put(job.id, job);
+			}
+			exchange.getResponseHeaders().set("Location", "/jobs/" + job.id);
+			sendJson(exchange, 202, job.toJson());
+		}
+	}
+
+	/**
+	 * Handles a request about a job
+	 *
+	 * @param exchange - the request and its response
+	 * @throws IOException if the response cannot be sent
+	 */
+	private void handleJob(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			String[] parts = exchange.getRequestURI().getPath().substring("/jobs/".length()).split("/");
+			RenderJob job = null;
+			try {
+				synchronized (jobs) {
+					job = jobs.get(Long.parseLong(parts[0]));
+				}
+			} catch (NumberFormatException e) {
+				// an illegal identifier is an unknown job
+			}
+			String resource = parts.length == 1 ? "" : parts[1];
+			String method = exchange.getRequestMethod();
+			if (job == null || parts.length > 2)
+				send(exchange, 404, "No such job");
+			else if (resource.isEmpty() && method.equals("GET"))
+				sendJson(exchange, 200, job.toJson());
+			else if (resource.isEmpty() && method.equals("DELETE")) {
+				job.cancel();
+				sendJson(exchange, 200, job.toJson());
+			} else if (resource.equals("tiles") && method.equals("GET"))
+				streamTiles(exchange, job);
+			else if (resource.equals("image") && method.equals("GET"))
+				sendImage(exchange, job);
+			else
+				send(exchange, 404, "No such resource");
+		}
+	}
+
+	/**
+	 * Streams the tiles of a job, until the job ends
+	 *
+	 * @param exchange - the request and its response
+	 * @param job      - the job
+	 * @throws IOException if the response cannot be sent
+	 */
+	private void streamTiles(HttpExchange exchange, RenderJob job) throws IOException {
+		// subscribed before the response starts, so a client that got the headers gets every following tile
+		try (RenderJob.Subscription subscription = job.subscribe()) {
+			exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+			exchange.sendResponseHeaders(200, 0); // chunked
+			try (OutputStream out = exchange.getResponseBody()) {
+				subscription.streamTiles(out);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Sends the image of a job rendered so far
+	 *
+	 * @param exchange - the request and its response
+	 * @param job      - the job
+	 * @throws IOException if the response cannot be sent
+	 */
+	private void sendImage(HttpExchange exchange, RenderJob job) throws IOException {
+		ByteArrayOutputStream image = new ByteArrayOutputStream();
+		if (!job.writeImage(image)) {
+			send(exchange, 409, "The job has no image");
+			return;
+		}
+		exchange.getResponseHeaders().set("Content-Type", "image/png");
+		exchange.sendResponseHeaders(200, image.size());
+		try (OutputStream out = exchange.getResponseBody()) {
+			image.writeTo(out);
+		}
+	}
+
+	/**
+	 * Gets the scene of a job, called by the worker of the job: the scene is taken
+	 * from the cache, or waited for while it is loaded for another job, or loaded
+	 *
+	 * @param job     - the job
+	 * @param hash    - the hash of the scene file content
+	 * @param content - the scene file content
+	 * @return the scene description
+	 * @throws IllegalArgumentException if the file is illegal or has no camera
+	 * @throws IllegalStateException    if the file cannot be saved
+	 */
+	private SceneDescription scene(RenderJob job, String hash, byte[] content) {
+		SceneDescription description;
+		synchronized (scenes) {
+			description = scenes.get(hash);
+		}
+		if (description != null) {
+			job.setCached();
+			return description;
+		}
+
+		CompletableFuture<SceneDescription> loaded = new CompletableFuture<>();
+		CompletableFuture<SceneDescription> other = loading.putIfAbsent(hash, loaded);
+		if (other != null) {
+			job.setCached();
+			try {
+				return other.join();
+			} catch (CompletionException e) { // the loading failed, and its exception is the job's one
+				if (e.getCause() instanceof Error error)
+					throw error;
+				throw (RuntimeException) e.getCause();
+			}
+		}
+		try {
+			synchronized (scenes) { // loaded since it was looked for
+				description = scenes.get(hash);
+			}
+			if (description == null) {
+				description = loadScene(hash, content);
+				synchronized (scenes) {
+					scenes.put(hash, description);
+				}
+			} else
+				job.setCached();
+			loaded.complete(description);
+			return description;
+		} catch (RuntimeException | Error e) {
+			if (e instanceof IllegalStateException)
+				logger.log(Level.SEVERE, "Cannot load a scene", e);
+			loaded.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(hash);
+		}
+	}
+
+	/**
+	 * Saves a posted scene file in the scenes directory and loads it
+	 *
+	 * @param hash    - the hash of the file content
+	 * @param content - the file content
+	 * @return the scene description
+	 * @throws IllegalArgumentException if the file is illegal, has no camera or
+	 *                                  is beyond the limits of the service
+	 * @throws IllegalStateException    if the file cannot be saved
+	 */
+	private SceneDescription loadScene(String hash, byte[] content) {
+		Path file = sceneDirectory.resolve(hash + ".xml");
+		try {
+			if (!Files.isRegularFile(file))
+				Files.write(file, content);
+		} catch (IOException e) {
+			throw new IllegalStateException("I/O error - cannot save the scene " + file, e);
+		}
+		SceneDescription description = SceneParser.load(file);
+		if (!description.hasCamera())
+			throw new IllegalArgumentException("The scene has no camera");
+		checkLimits(description);
+		return description;
+	}
+
+	/**
+	 * Checks that a posted scene is within the limits of the service, so a single
+	 * job cannot exhaust the memory or the processors of the server
+	 *
+	 * @param description - the scene description
+	 * @throws IllegalArgumentException if the scene is beyond a limit
+	 */
+	private static void checkLimits(SceneDescription description) {
+		if ((long) description.getNx() * description.getNy() > MAX_PIXELS)
+			throw new IllegalArgumentException("The resolution is beyond the limit of " + MAX_PIXELS + " pixels");
+		if (description.getAntiAliasing() > MAX_ANTI_ALIASING)
+			throw new IllegalArgumentException("The anti aliasing is beyond the limit of " + MAX_ANTI_ALIASING);
+		if (description.getThreads() > MAX_THREADS)
+			throw new IllegalArgumentException("The threads are beyond the limit of " + MAX_THREADS);
+		for (LightSource light : description.scene.lights)
+			if (light instanceof AreaLight area && area.getShadowSamples() > MAX_SHADOW_SAMPLES)
+				throw new IllegalArgumentException(
+						"The shadow samples are beyond the limit of " + MAX_SHADOW_SAMPLES);
+	}
+
+	/**
+	 * Parses the time budget parameter of a rendering request
+	 *
+	 * @param uri - the request URI
+	 * @return the time budget (ms), -1 for a full rendering
+	 * @throws IllegalArgumentException if the budget is illegal
+	 */
+	private static long parseBudget(URI uri) {
+		String query = uri.getQuery();
+		if (query == null)
+			return -1;
+		for (String parameter : query.split("&"))
+			if (parameter.startsWith("budget=")) {
+				try {
+					long budget = Long.parseLong(parameter.substring("budget=".length()));
+					if (budget >= 0)
+						return budget;
+				} catch (NumberFormatException e) {
+					// reported below
+				}
+				throw new IllegalArgumentException("Illegal time budget: " + parameter);
+			}
+		return -1;
+	}
+
+	/**
+	 * @param content - a scene file content
+	 * @return the SHA-256 hash of the content in hexadecimal digits
+	 */
+	private static String hash(byte[] content) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+		} catch (NoSuchAlgorithmException e) { // every Java platform has SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Sends a text response
+	 *
+	 * @param exchange - the request and its response
+	 * @param code     - the status code
+	 * @param text     - the text
+	 * @throws IOException if the response cannot be sent
+	 */
+	private static void send(HttpExchange exchange, int code, String text) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		sendBytes(exchange, code, String.valueOf(text).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Sends a JSON response
+	 *
+	 * @param exchange - the request and its response
+	 * @param code     - the status code
+	 * @param json     - the JSON text
+	 * @throws IOException if the response cannot be sent
+	 */
+	private static void sendJson(HttpExchange exchange, int code, String json) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		sendBytes(exchange, code, json.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Sends a response body
+	 *
+	 * @param exchange - the request and its response
+	 * @param code     - the status code
+	 * @param body     - the body
+	 * @throws IOException if the response cannot be sent
+	 */
+	private static void sendBytes(HttpExchange exchange, int code, byte[] body) throws IOException {
+		exchange.sendResponseHeaders(code, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * Runs the service until the process is stopped
+	 *
+	 * @param args - the port (8080 by default), the scenes directory ("scenes" by
+	 *             default), the number of workers (the number of processors by
+	 *             default) and the queue size (16 by default)
+	 */
+	public static void main(String[] args) {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+		Path directory = Path.of(args.length > 1 ? args[1] : "scenes");
+		int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		int queueSize = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+		RenderService service = new RenderService(new InetSocketAddress(port), directory, workers, queueSize).start();
+		logger.log(Level.INFO, "Rendering service on port {0}", service.getAddress().getPort());
+	}
+}
@@ -0,0 +1,330 @@
+/**
+ *
+ */
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ *
+ */
+class GeometriesTests {
+
+	/**
+	 * Creates a bundle of a plane and a grid of spheres and triangles
+	 *
+	 * @return the bundle
+	 */
+	private Geometries createScene() {
+		Geometries geometries = new Geometries(new Plane(new Point(0, 0, -100), new Vector(0, 0, 1)));
+		for (int i = -5; i <= 5; ++i)
+			for (int j = -5; j <= 5; ++j) {
+				geometries.add(new Sphere(3, new Point(i * 10, j * 10, -50)));
+				geometries.add(new Triangle(new Point(i * 10, j * 10, -20), new Point(i * 10 + 5, j * 10, -20),
+						new Point(i * 10, j * 10 + 5, -25)));
+			}
+		return geometries;
+	}
+
+	/**
+	 * Sorts points by their distance from a point, so lists of points can be
+	 * compared regardless of their order
+	 */
+	private List<Point> sorted(List<Point> points, Point from) {
+		return points == null ? null
+				: points.stream().sorted(Comparator.comparingDouble(p -> p.distance(from))).toList();
+	}
+
+	/**
+	 * Test method for {@link geometries.Geometries#findIntersections(Ray)}.
+	 */
+	@Test
+	void testFindIntersections() {
+		Geometries geometries = new Geometries(new Sphere(1, new Point(1, 0, 0)),
+				new Triangle(new Point(-1, 0, 2), new Point(-1, 0, -2), new Point(-1, 2, 0)),
+				new Plane(new Point(0, 0, -5), new Vector(0, 0, 1)));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Some of the geometries are intersected
+		assertEquals(3, geometries.findIntersections(new Ray(new Point(-3, 0.5, 0), new Vector(1, 0, 0))).size(),
+				"Wrong number of points");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Empty bundle
+		assertNull(new Geometries().findIntersections(new Ray(new Point(-3, 0, 0), new Vector(1, 0, 0))),
+				"Empty bundle must not have intersections");
+		// TC12: No geometry is intersected
+		assertNull(geometries.findIntersections(new Ray(new Point(-3, 5, 0), new Vector(0, 1, 0))),
+				"There must not be intersections");
+		// TC13: All the geometries are intersected
+		assertEquals(4, geometries.findIntersections(new Ray(new Point(3, 0.5, 0.1), new Vector(-1, 0, -0.1)))
+				.size(), "Wrong number of points");
+	}
+
+	/**
+	 * Test method for {@link geometries.Geometries#buildBVH()}.
+	 */
+	@Test
+	void testBuildBVH() {
+		Geometries list = createScene();
+		Geometries bvh = createScene().buildBVH();
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The hierarchy finds the same points as the plain list
+		Point p0 = new Point(3, -7, 100);
+		for (int i = -60; i <= 60; i += 3)
+			for (int j = -60; j <= 60; j += 3) {
+				Ray ray = new Ray(p0, new Point(i, j, -30).subtract(p0));
+				assertEquals(sorted(list.findIntersections(ray), p0), sorted(bvh.findIntersections(ray), p0),
+						"BVH intersections differ from the list intersections");
+			}
+
+		// TC02: A ray that misses all the bounded geometries hits only the plane
+		assertEquals(1, bvh.findIntersections(new Ray(new Point(200, 200, 0), new Vector(0, 0, -1))).size(),
+				"Wrong number of points");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Hierarchy of an empty bundle
+		assertNull(new Geometries().buildBVH().findIntersections(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0))),
+				"Empty bundle must not have intersections");
+		// TC12: A ray parallel to the axes that runs along the boxes' faces
+		Ray ray = new Ray(new Point(-100, 0, -47), new Vector(1, 0, 0));
+		assertEquals(sorted(list.findIntersections(ray), ray.getP0()),
+				sorted(bvh.findIntersections(ray), ray.getP0()), "BVH intersections differ from the list intersections");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.Intersectable#findClosestGeoIntersection(Ray, double)}.
+	 */
+	@Test
+	void testFindClosestGeoIntersection() {
+		Geometries list = createScene();
+		Geometries bvh = createScene().buildBVH();
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: The closest point is the closest of all the intersections
+		Point p0 = new Point(3, -7, 100);
+		for (int i = -60; i <= 60; i += 3)
+			for (int j = -60; j <= 60; j += 3) {
+				Ray ray = new Ray(p0, new Point(i, j, -30).subtract(p0));
+				Point expected = ray.findClosestPoint(list.findIntersections(ray));
+				assertEquals(expected, list.findClosestGeoIntersection(ray).point, "Wrong closest point");
+				assertEquals(expected, bvh.findClosestGeoIntersection(ray).point, "Wrong closest point");
+			}
+
+		// TC02: The closest point is farther than the maximal distance
+		Ray ray = new Ray(new Point(1, 1, 0), new Vector(0, 0, -1));
+		assertNull(bvh.findClosestGeoIntersection(ray, 15), "The point is too far");
+
+		// TC03: The maximal distance is after the closest point
+		assertEquals(new Point(1, 1, -21), bvh.findClosestGeoIntersection(ray, 60).point, "Wrong closest point");
+
+		// TC04: The nearer of two geometries is the second in the bundle, and the
+		// first one is farther than the closest point
+		Geometries pair = new Geometries(new Sphere(1, new Point(0, 0, -20)), new Sphere(1, new Point(0, 0, -5)));
+		Ray axis = new Ray(Point.ZERO, new Vector(0, 0, -1));
+		assertEquals(new Point(0, 0, -4), pair.findClosestGeoIntersection(axis).point, "Wrong closest point");
+		assertEquals(new Point(0, 0, -19),
+				pair.findClosestGeoIntersection(new Ray(new Point(0, 0, -10), new Vector(0, 0, -1))).point,
+				"Wrong closest point");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Ray starts inside a sphere
+		ray = new Ray(new Point(0, 0, -50), new Vector(0, 0, -1));
+		assertEquals(new Point(0, 0, -53), bvh.findClosestGeoIntersection(ray).point, "Wrong closest point");
+		// TC12: The closest point is exactly at the maximal distance
+		assertNull(bvh.findClosestGeoIntersection(ray, 3), "The maximal distance is excluded");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.Intersectable#findTransparency(Ray, double, double)}.
+	 */
+	@Test
+	void testFindTransparency() {
+		Geometries geometries = new Geometries(
+				new Sphere(1, new Point(0, 0, -5)).setMaterial(new Material().setKt(0.5)),
+				new Sphere(1, new Point(0, 0, -10)).setMaterial(new Material().setKt(new Double3(1, 0.5, 0.5))),
+				new Sphere(1, new Point(0, 0, -15))).buildBVH();
+		Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, -1));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Nothing on the segment
+		assertEquals(Double3.ONE, geometries.findTransparency(ray, 2, 0.001), "Segment is not blocked");
+		// TC02: Transparent geometries on the segment (two points in each sphere)
+		assertEquals(new Double3(0.25, 0.0625, 0.0625), geometries.findTransparency(ray, 12, 0.001),
+				"Wrong transparency");
+		// TC03: An opaque geometry on the segment
+		assertEquals(Double3.ZERO, geometries.findTransparency(ray, 20, 0.001), "Segment is blocked");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: The segment ends inside a geometry
+		assertEquals(new Double3(0.5), geometries.findTransparency(ray, 5, 0.001), "Wrong transparency");
+		// TC12: The transparency is lower than the threshold
+		assertEquals(Double3.ZERO, geometries.findTransparency(ray, 12, 0.3), "Segment is blocked");
+	}
+
+	/**
+	 * Test method for {@link geometries.BoundingBox#intersects(Ray)}.
+	 */
+	@Test
+	void testBoundingBoxIntersects() {
+		BoundingBox box = new BoundingBox(new Point(-1, -1, -1), new Point(1, 1, 1));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray crosses the box
+		assertTrue(box.intersects(new Ray(new Point(-5, 0.5, 0), new Vector(1, 0.1, 0))), "Ray crosses the box");
+		// TC02: Ray misses the box
+		assertFalse(box.intersects(new Ray(new Point(-5, 3, 0), new Vector(1, 0.1, 0))), "Ray misses the box");
+		// TC03: Ray starts after the box
+		assertFalse(box.intersects(new Ray(new Point(5, 0, 0), new Vector(1, 0, 0))), "Box is behind the ray");
+		// TC04: Ray starts inside the box
+		assertTrue(box.intersects(new Ray(new Point(0, 0, 0), new Vector(1, 2, 3))), "Ray starts in the box");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Ray parallel to a face outside the box
+		assertFalse(box.intersects(new Ray(new Point(-5, 2, 0), new Vector(1, 0, 0))), "Ray misses the box");
+		// TC12: Ray along a face of the box
+		assertTrue(box.intersects(new Ray(new Point(-5, 1, 0), new Vector(1, 0, 0))), "Ray touches the box");
+		// TC13: Empty box
+		assertFalse(BoundingBox.EMPTY.intersects(new Ray(new Point(0, 0, 0), new Vector(1, 0, 0))),
+				"Empty box can't be crossed");
+	}
+
+	/**
+	 * Test method for {@link geometries.BoundingBox#entryDistance(Ray)}.
+	 */
+	@Test
+	void testBoundingBoxEntryDistance() {
+		BoundingBox box = new BoundingBox(new Point(-1, -1, -1), new Point(1, 1, 1));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Ray crosses the box
+		assertEquals(4, box.entryDistance(new Ray(new Point(-5, 0.5, 0), new Vector(1, 0, 0))), 0.00001,
+				"Wrong entry distance");
+		// TC02: Ray misses the box
+		assertEquals(Double.POSITIVE_INFINITY, box.entryDistance(new Ray(new Point(-5, 3, 0), new Vector(1, 0, 0))),
+				"Ray misses the box");
+		// TC03: Ray starts inside the box
+		assertEquals(0, box.entryDistance(new Ray(new Point(0, 0, 0), new Vector(1, 2, 3))), "Ray starts in the box");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Empty box
+		assertEquals(Double.POSITIVE_INFINITY, BoundingBox.EMPTY.entryDistance(new Ray(Point.ZERO, new Vector(1, 0, 0))),
+				"Empty box can't be crossed");
+	}
+
+	/**
+	 * Test method for {@link geometries.Intersectable#getBoundingBox()}.
+	 */
+	@Test
+	void testGetBoundingBox() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Bounded geometry
+		BoundingBox box = new Sphere(2, new Point(1, 2, 3)).getBoundingBox();
+		assertEquals(new Point(-1, 0, 1), box.getMin(), "Wrong sphere box");
+		assertEquals(new Point(3, 4, 5), box.getMax(), "Wrong sphere box");
+		// TC02: Unbounded geometry
+		assertTrue(new Plane(new Point(0, 0, 1), new Vector(0, 0, 1)).getBoundingBox().isInfinite(),
+				"Plane's box must be infinite");
+		// TC03: Bundle of bounded geometries
+		box = new Geometries(new Sphere(1, new Point(0, 0, 0)),
+				new Triangle(new Point(5, 0, 0), new Point(0, 5, 0), new Point(0, 0, 5))).getBoundingBox();
+		assertEquals(new Point(-1, -1, -1), box.getMin(), "Wrong bundle box");
+		assertEquals(new Point(5, 5, 5), box.getMax(), "Wrong bundle box");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: Bundle with an unbounded geometry
+		assertTrue(new Geometries(new Sphere(1, new Point(0, 0, 0)), new Plane(new Point(0, 0, 1), new Vector(0, 0, 1)))
+				.getBoundingBox().isInfinite(), "Bundle's box must be infinite");
+		// TC12: A geometry added to the bundle after its box was calculated
+		Geometries geometries = new Geometries(new Sphere(1, new Point(0, 0, 0)));
+		assertNull(geometries.findIntersections(new Ray(new Point(10, 0, 5), new Vector(0, 0, -1))),
+				"There must not be intersections");
+		geometries.add(new Sphere(1, new Point(10, 0, 0)));
+		assertEquals(2, geometries.findIntersections(new Ray(new Point(10, 0, 5), new Vector(0, 0, -1))).size(),
+				"The box of the bundle was not updated");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.Intersectable#findClosestGeoIntersections(RayPacket)}.
+	 */
+	@Test
+	void testFindClosestGeoIntersectionsPacket() {
+		Geometries geometries = createScene();
+		// geometries without a packet kernel
+		geometries.add(new Polygon(new Point(-60, -60, -30), new Point(60, -60, -30), new Point(60, 60, -30),
+				new Point(-60, 60, -30)));
+		geometries.add(new Mesh(new double[] { -70, -70, -40, 70, -70, -40, 0, 70, -40 }, new int[] { 0, 1, 2 }));
+		geometries.buildBVH();
+		Ray[] rays = new Ray[8];
+		RayPacket packet = new RayPacket(rays.length);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: coherent packets have the same closest intersections as single rays
+		for (int row = -60; row <= 60; row += 3)
+			for (int col = -64; col < 64; col += rays.length) {
+				for (int i = 0; i < rays.length; ++i)
+					rays[i] = new Ray(new Point(0, 0, 100), new Vector(col + i + 0.3, row + 0.7, -150));
+				geometries.findClosestGeoIntersections(packet.set(rays, rays.length));
+				for (int i = 0; i < rays.length; ++i)
+					assertEquals(geometries.findClosestGeoIntersection(rays[i]), packet.getHit(i),
+							"TC01: wrong closest intersection of ray " + rays[i]);
+			}
+
+		// TC02: the rays of a packet are in different directions
+		rays[0] = new Ray(new Point(1, 1, 100), new Vector(0, 0, -1));
+		rays[1] = new Ray(new Point(1, 1, 100), new Vector(0, 0, 1));
+		rays[2] = new Ray(new Point(-200, 0.5, -50), new Vector(1, 0.01, 0));
+		geometries.findClosestGeoIntersections(packet.set(rays, 3));
+		assertEquals(3, packet.size(), "TC02: wrong packet size");
+		for (int i = 0; i < 3; ++i)
+			assertEquals(geometries.findClosestGeoIntersection(rays[i]), packet.getHit(i),
+					"TC02: wrong closest intersection of ray " + i);
+		assertNull(packet.getHit(1), "TC02: no intersection expected");
+
+		// TC03: too many rays for the packet
+		assertThrows(IllegalArgumentException.class, () -> new RayPacket(2).set(rays, 3), "TC03: too many rays");
+
+		// TC04: a packet of directions from a common head has the same closest
+		// intersections and rays as a packet of rays
+		Point head = new Point(0, 0, 100);
+		double[] dx = new double[rays.length], dy = new double[rays.length], dz = new double[rays.length];
+		for (int i = 0; i < rays.length; ++i) {
+			rays[i] = new Ray(head, new Vector(i * 8 - 30, i * 5 - 20, -150));
+			Vector dir = rays[i].getDir();
+			dx[i] = dir.getX();
+			dy[i] = dir.getY();
+			dz[i] = dir.getZ();
+		}
+		geometries.findClosestGeoIntersections(packet.set(head, dx, dy, dz, rays.length));
+		for (int i = 0; i < rays.length; ++i) {
+			assertEquals(rays[i], packet.getRay(i), "TC04: wrong ray " + i);
+			assertEquals(geometries.findClosestGeoIntersection(rays[i]), packet.getHit(i),
+					"TC04: wrong closest intersection of ray " + i);
+		}
+		assertThrows(IllegalArgumentException.class, () -> new RayPacket(2).set(head, dx, dy, dz, 3),
+				"TC04: too many rays");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a ray that starts on a geometry does not intersect it
+		rays[0] = new Ray(new Point(0, 0, -100), new Vector(0, 1, 1));
+		new Plane(new Point(0, 0, -100), new Vector(0, 0, 1)).findClosestGeoIntersections(packet.set(rays, 1));
+		assertNull(packet.getHit(0), "TC11: no intersection expected");
+	}
+}
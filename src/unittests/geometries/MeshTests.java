@@ -0,0 +1,263 @@
+/**
+ *
+ */
+package unittests.geometries;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import geometries.Intersectable.BarycentricGeoPoint;
+import geometries.Intersectable.GeoPoint;
+import primitives.Color;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ *
+ */
+class MeshTests {
+
+	/** Size of the grid of the test mesh */
+	private static final int N = 20;
+
+	/**
+	 * Creates a wavy height field mesh over the square [0, N] x [0, N] (2 faces in
+	 * each unit square)
+	 *
+	 * @return the coordinates of the vertices and the indices of the faces
+	 */
+	private Object[] createGrid() {
+		double[] vertices = new double[3 * (N + 1) * (N + 1)];
+		for (int i = 0; i <= N; ++i)
+			for (int j = 0; j <= N; ++j) {
+				int v = 3 * (i * (N + 1) + j);
+				vertices[v] = i;
+				vertices[v + 1] = j;
+				vertices[v + 2] = Math.sin(i * 0.7) + Math.cos(j * 0.5);
+			}
+		int[] indices = new int[6 * N * N];
+		int f = 0;
+		for (int i = 0; i < N; ++i)
+			for (int j = 0; j < N; ++j) {
+				int a = i * (N + 1) + j, b = a + N + 1;
+				indices[f++] = a;
+				indices[f++] = b;
+				indices[f++] = a + 1;
+				indices[f++] = b;
+				indices[f++] = b + 1;
+				indices[f++] = a + 1;
+			}
+		return new Object[] { vertices, indices };
+	}
+
+	/**
+	 * Creates the triangles of a mesh as separate geometries
+	 */
+	private Geometries toTriangles(double[] vertices, int[] indices) {
+		Geometries triangles = new Geometries();
+		for (int f = 0; f < indices.length; f += 3)
+			triangles.add(new Triangle(point(vertices, indices[f]), point(vertices, indices[f + 1]),
+					point(vertices, indices[f + 2])));
+		return triangles;
+	}
+
+	private Point point(double[] vertices, int index) {
+		return new Point(vertices[3 * index], vertices[3 * index + 1], vertices[3 * index + 2]);
+	}
+
+	/**
+	 * Sorts points by their distance from a point, so lists of points can be
+	 * compared regardless of their order
+	 */
+	private List<Point> sorted(List<Point> points, Point from) {
+		return points == null ? null
+				: points.stream().sorted(Comparator.comparingDouble(p -> p.distance(from))).toList();
+	}
+
+	/**
+	 * Test method for {@link geometries.Mesh#Mesh(double[], int[], double[])}.
+	 */
+	@Test
+	void testConstructor() {
+		double[] vertices = { 0, 0, 0, 1, 0, 0, 0, 1, 0 };
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: a single face
+		Mesh mesh = assertDoesNotThrow(() -> new Mesh(vertices, new int[] { 0, 1, 2 }), "TC01: wrong exception");
+		assertEquals(3, mesh.getVerticesCount(), "TC01: wrong vertices count");
+		assertEquals(1, mesh.getFacesCount(), "TC01: wrong faces count");
+		assertEquals(new Point(1, 0, 0), mesh.getVertex(1), "TC01: wrong vertex");
+
+		// TC02: vertex index out of range
+		assertThrows(IllegalArgumentException.class, () -> new Mesh(vertices, new int[] { 0, 1, 3 }),
+				"TC02: index out of range");
+
+		// TC03: coordinates of a partial vertex
+		assertThrows(IllegalArgumentException.class, () -> new Mesh(new double[] { 0, 0, 0, 1 }, new int[] { 0, 0, 0 }),
+				"TC03: partial vertex");
+
+		// TC04: indices of a partial face
+		assertThrows(IllegalArgumentException.class, () -> new Mesh(vertices, new int[] { 0, 1 }),
+				"TC04: partial face");
+
+		// TC05: normals that do not match the vertices
+		assertThrows(IllegalArgumentException.class,
+				() -> new Mesh(vertices, new int[] { 0, 1, 2 }, new double[] { 0, 0, 1 }), "TC05: wrong normals");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: no faces
+		assertThrows(IllegalArgumentException.class, () -> new Mesh(vertices, new int[0]), "TC11: no faces");
+	}
+
+	/**
+	 * Test method for {@link geometries.Mesh#findIntersections(Ray)}.
+	 */
+	@Test
+	void testFindIntersections() {
+		Object[] grid = createGrid();
+		double[] vertices = (double[]) grid[0];
+		int[] indices = (int[]) grid[1];
+		Mesh mesh = new Mesh(vertices, indices);
+		Geometries triangles = toTriangles(vertices, indices);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the mesh has the same intersections as its separate triangles
+		Random random = new Random(5);
+		for (int i = 0; i < 200; ++i) {
+			Point p0 = new Point(random.nextDouble() * 30 - 5, random.nextDouble() * 30 - 5, 10);
+			Ray ray = new Ray(p0, new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+			assertEquals(sorted(triangles.findIntersections(ray), p0), sorted(mesh.findIntersections(ray), p0),
+					"TC01: wrong intersections of ray " + ray);
+		}
+
+		// TC02: a ray that misses the mesh
+		assertNull(mesh.findIntersections(new Ray(new Point(-5, -5, 10), new Vector(0, 0, 1))),
+				"TC02: no intersections expected");
+
+		// TC03: a wavy ray crosses the surface several times
+		Ray ray = new Ray(new Point(-1, 10.3, 0.6), new Vector(1, 0, 0));
+		Point p0 = ray.getP0();
+		List<Point> result = mesh.findIntersections(ray);
+		assertNotNull(result, "TC03: intersections expected");
+		assertTrue(result.size() > 1, "TC03: several intersections expected");
+		assertEquals(sorted(triangles.findIntersections(ray), p0), sorted(result, p0), "TC03: wrong intersections");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a ray through a shared vertex of faces
+		assertNull(mesh.findIntersections(new Ray(new Point(1, 1, 10), new Vector(0, 0, -1))),
+				"TC11: no intersections on a vertex");
+	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.Mesh#findClosestGeoIntersection(Ray, double)}.
+	 */
+	@Test
+	void testFindClosestGeoIntersection() {
+		Object[] grid = createGrid();
+		double[] vertices = (double[]) grid[0];
+		int[] indices = (int[]) grid[1];
+		Mesh mesh = new Mesh(vertices, indices);
+		Geometries triangles = toTriangles(vertices, indices);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the closest intersection is the same as the one of the triangles
+		Random random = new Random(7);
+		for (int i = 0; i < 200; ++i) {
+			Ray ray = new Ray(new Point(random.nextDouble() * 30 - 5, random.nextDouble() * 30 - 5, 3),
+					new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -0.3));
+			GeoPoint expected = triangles.findClosestGeoIntersection(ray);
+			GeoPoint result = mesh.findClosestGeoIntersection(ray);
+			assertEquals(expected == null ? null : expected.point, result == null ? null : result.point,
+					"TC01: wrong closest intersection of ray " + ray);
+		}
+
+		// TC02: the hit is a face of the mesh with barycentric coordinates and the
+		// face's normal
+		Ray ray = new Ray(new Point(2.25, 3.5, 10), new Vector(0, 0, -1));
+		GeoPoint gp = mesh.findClosestGeoIntersection(ray);
+		BarycentricGeoPoint hit = assertInstanceOf(BarycentricGeoPoint.class, gp, "TC02: barycentric hit expected");
+		Mesh.Face face = assertInstanceOf(Mesh.Face.class, hit.geometry, "TC02: face expected");
+		assertSame(mesh, face.getMesh(), "TC02: wrong mesh");
+		Vector normal = face.getNormal(hit.point);
+		GeoPoint expected = triangles.findClosestGeoIntersection(ray);
+		assertEquals(expected.point, hit.point, "TC02: wrong point");
+		assertTrue(normal.equals(expected.geometry.getNormal(expected.point))
+				|| normal.equals(expected.geometry.getNormal(expected.point).scale(-1)), "TC02: wrong normal");
+		assertTrue(hit.u > 0 && hit.v > 0 && hit.w() > 0, "TC02: wrong barycentric coordinates");
+
+		// TC03: the intersection is farther than the maximal distance
+		assertNull(mesh.findClosestGeoIntersection(ray, 5), "TC03: no intersection expected");
+
+		// TC04: the face is created with the emission and the material of the mesh,
+		// and changing them in the face does not change the mesh
+		Material material = new Material().setKd(0.3);
+		Color emission = new Color(10, 20, 30);
+		mesh.setMaterial(material).setEmission(emission);
+		Mesh.Face hitFace = (Mesh.Face) mesh.findClosestGeoIntersection(ray).geometry;
+		assertSame(material, hitFace.getMaterial(), "TC04: wrong material");
+		assertSame(emission, hitFace.getEmission(), "TC04: wrong emission");
+		hitFace.setMaterial(new Material()).setEmission(Color.BLACK);
+		assertSame(material, mesh.getMaterial(), "TC04: the mesh material was changed");
+		assertSame(emission, mesh.getEmission(), "TC04: the mesh emission was changed");
+
+		// TC05: a tiny face (edges of 2e-6) hit by an oblique ray, whose determinant
+		// is tiny as well
+		Mesh tiny = new Mesh(new double[] { 0, 0, 0, 2e-6, 0, 0, 0, 2e-6, 0 }, new int[] { 0, 1, 2 });
+		gp = tiny.findClosestGeoIntersection(new Ray(new Point(0.5e-6 - 10, 0.5e-6, 1), new Vector(10, 0, -1)));
+		hit = assertInstanceOf(BarycentricGeoPoint.class, gp, "TC05: the tiny face was missed");
+		assertEquals(0.25, hit.u, 1e-6, "TC05: wrong barycentric coordinates");
+		assertEquals(0.25, hit.v, 1e-6, "TC05: wrong barycentric coordinates");
+	}
+
+	/**
+	 * Test method for {@link geometries.Mesh.Face#getNormal(Point)} of a smooth
+	 * mesh.
+	 */
+	@Test
+	void testSmoothNormal() {
+		double[] vertices = { 0, 0, 0, 1, 0, 0, 0, 1, 0 };
+		double[] normals = { 0, 0, 1, 1, 0, 1, 0, 1, 1 };
+		Mesh mesh = new Mesh(vertices, new int[] { 0, 1, 2 }, normals);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the normal is interpolated from the vertices' normals
+		GeoPoint gp = mesh.findClosestGeoIntersection(new Ray(new Point(0.5, 0.25, 1), new Vector(0, 0, -1)));
+		assertEquals(new Vector(0.5, 0.25, 1).normalize(), gp.geometry.getNormal(gp.point),
+				"TC01: wrong interpolated normal");
+	}
+
+	/**
+	 * Test method for {@link geometries.Mesh#findTransparency(Ray, double, double)}.
+	 */
+	@Test
+	void testFindTransparency() {
+		Object[] grid = createGrid();
+		Mesh mesh = new Mesh((double[]) grid[0], (int[]) grid[1]);
+		mesh.setMaterial(new Material().setKt(0.5));
+		Ray ray = new Ray(new Point(-1, 10.3, 0.6), new Vector(1, 0, 0));
+		int count = mesh.findIntersections(ray).size();
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: each crossed face reduces the transparency
+		assertEquals(new Double3(Math.pow(0.5, count)), mesh.findTransparency(ray, 100, 0.0001),
+				"TC01: wrong transparency");
+
+		// TC02: the segment ends before the mesh
+		assertEquals(Double3.ONE, mesh.findTransparency(ray, 0.5, 0.0001), "TC02: wrong transparency");
+
+		// TC03: an opaque mesh blocks the segment
+		mesh.setMaterial(new Material());
+		assertEquals(Double3.ZERO, mesh.findTransparency(ray, 100, 0.001), "TC03: wrong transparency");
+	}
+}
@@ -10,6 +10,8 @@ import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
+import geometries.Intersectable.BarycentricGeoPoint;
+import geometries.Intersectable.GeoPoint;
 import geometries.Triangle;
 import primitives.Point;
 import primitives.Ray;
@@ -80,4 +82,48 @@ class TriangleTest {
 				"TC13: ERROR: have to be no intersection on the edge");
 
 	}
+
+	/**
+	 * Test method for
+	 * {@link geometries.Intersectable#findClosestGeoIntersection(primitives.Ray, double)}.
+	 */
+	@Test
+	public void testFindClosestGeoIntersection() {
+		Triangle triangle = new Triangle(new Point(1, 0, 0), new Point(1, 1, 0), new Point(1, 0, 1));
+		Ray ray = new Ray(new Point(0.25, 0.25, 0.25), new Vector(2, 0.5, 0.5));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the intersection has the barycentric coordinates of the point
+		GeoPoint result = triangle.findClosestGeoIntersection(ray);
+		assertInstanceOf(BarycentricGeoPoint.class, result, "TC01: ERROR: missing barycentric coordinates");
+		BarycentricGeoPoint hit = (BarycentricGeoPoint) result;
+		assertEquals(new Point(1, 0.4375, 0.4375), hit.point, "TC01: ERROR: wrong intersection point");
+		assertEquals(0.4375, hit.u, 1e-10, "TC01: ERROR: wrong weight of the second vertex");
+		assertEquals(0.4375, hit.v, 1e-10, "TC01: ERROR: wrong weight of the third vertex");
+		assertEquals(0.125, hit.w(), 1e-10, "TC01: ERROR: wrong weight of the first vertex");
+
+		// TC02: the intersection is farther than the maximal distance
+		assertNull(triangle.findClosestGeoIntersection(ray, 0.5), "TC02: ERROR: have to be no intersection");
+
+		// TC03: the triangle is behind the ray
+		assertNull(triangle.findClosestGeoIntersection(new Ray(new Point(2, 0.25, 0.25), new Vector(1, 0, 0))),
+				"TC03: ERROR: have to be no intersection behind the ray");
+
+		// TC04: a tiny triangle (edges of 2e-6) hit by an oblique ray, whose
+		// determinant is tiny as well
+		Triangle tiny = new Triangle(Point.ZERO, new Point(2e-6, 0, 0), new Point(0, 2e-6, 0));
+		result = tiny.findClosestGeoIntersection(new Ray(new Point(0.5e-6 - 10, 0.5e-6, 1), new Vector(10, 0, -1)));
+		hit = assertInstanceOf(BarycentricGeoPoint.class, result, "TC04: ERROR: the tiny triangle was missed");
+		assertEquals(0.25, hit.u, 1e-6, "TC04: ERROR: wrong weight of the second vertex");
+		assertEquals(0.25, hit.v, 1e-6, "TC04: ERROR: wrong weight of the third vertex");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: the ray is parallel to the triangle
+		assertNull(triangle.findClosestGeoIntersection(new Ray(new Point(0, 0.25, 0.25), new Vector(0, 1, 0))),
+				"TC11: ERROR: have to be no intersection with a parallel ray");
+
+		// TC12: the ray starts on the triangle
+		assertNull(triangle.findClosestGeoIntersection(new Ray(new Point(1, 0.25, 0.25), new Vector(1, 0, 0))),
+				"TC12: ERROR: have to be no intersection from the triangle");
+	}
 }
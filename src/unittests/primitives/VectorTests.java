@@ -110,6 +110,24 @@ class VectorTests {
 		assertEquals(new Vector(0, 0.6, 0.8), n, "ERROR: Wrong normalized vector");
 	}
 
+	/**
+	 * Test method for {@link primitives.Vector#orthogonal()}.
+	 */
+	@Test
+	void testOrthogonal() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: a general vector
+		Vector v = new Vector(1, 2, 3);
+		Vector u = v.orthogonal();
+		assertEquals(1d, u.lengthSquared(), 0.00001, "ERROR: orthogonal() is not a unit vector");
+		assertTrue(isZero(v.dotProduct(u)), "ERROR: orthogonal() is not orthogonal");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: the axes
+		for (Vector axis : new Vector[] { new Vector(1, 0, 0), new Vector(0, 1, 0), new Vector(0, 0, -1) })
+			assertTrue(isZero(axis.dotProduct(axis.orthogonal())), "ERROR: orthogonal() of an axis");
+	}
+
 	/**
 	 * Test method for {@link primitives.Vector#dotProduct(primitives.Vector)}.
 	 */
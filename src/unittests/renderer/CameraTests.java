@@ -2,10 +2,19 @@ package unittests.renderer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
+import geometries.Sphere;
 import primitives.*;
+import renderer.Aperture;
 import renderer.Camera;
+import renderer.ImageWriter;
+import renderer.RayTracerBasic;
+import renderer.RenderStatistics;
+import renderer.SamplePattern;
+import scene.Scene;
 
 /**
  * Testing Camera Class
@@ -57,4 +66,205 @@ class CameraTests {
 
 }
 
+	/**
+	 * Test method for {@link renderer.Camera#setadaptive(boolean)} with super
+	 * sampling.
+	 */
+	@Test
+	void testAdaptiveSuperSampling() {
+		Scene scene = new Scene("adaptive").setBackground(new Color(10, 20, 30));
+		// a 20x20 image is divided into tiles of 16x16, 4x16, 16x4 and 4x4 pixels
+		Camera camera = new Camera(new Point(0, 0, 100), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(20, 20).setVPDistance(100) //
+				.setImageWriter(new ImageWriter("adaptive", 20, 20)) //
+				.setRayTracer(new RayTracerBasic(scene)) //
+				.setAntiAliasingFactor(16).setadaptive(true).setStatistics(true);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: a uniform image - only the corners of the pixels are traced, each
+		// corner once in a tile
+		RenderStatistics statistics = camera.renderImage().getStatistics();
+		assertEquals(17 * 17 + 2 * 17 * 5 + 5 * 5, statistics.getPrimaryRays(), "TC01: wrong number of rays");
+		assertEquals(0, statistics.getSubdivisions(), "TC01: no subdivisions expected");
+
+		// TC02: the pixels on the edge of a sphere are subdivided, but no lattice
+		// point (4x4 sub-pixels in a pixel) is traced twice
+		scene.geometries.add(new Sphere(5d, new Point(0, 0, 0)).setEmission(new Color(200, 0, 0)));
+		statistics = camera.renderImage().getStatistics();
+		assertTrue(statistics.getSubdivisions() > 0, "TC02: subdivisions expected");
+		assertTrue(statistics.getPrimaryRays() > 17 * 17 + 2 * 17 * 5 + 5 * 5, "TC02: more rays expected");
+		assertTrue(statistics.getPrimaryRays() <= 65 * 65 + 2 * 65 * 17 + 17 * 17, "TC02: a lattice point traced twice");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: anti aliasing factor below 4 - a single ray through each pixel
+		assertEquals(400, camera.setAntiAliasingFactor(3).renderImage().getStatistics().getPrimaryRays(),
+				"TC11: wrong number of rays");
+	}
+
+	/**
+	 * Test method for {@link renderer.Camera#setNoiseThreshold(double)}.
+	 */
+	@Test
+	void testSetNoiseThreshold() {
+		Scene scene = new Scene("noise").setBackground(new Color(10, 20, 30));
+		Camera camera = new Camera(new Point(0, 0, 100), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(20, 20).setVPDistance(100) //
+				.setImageWriter(new ImageWriter("noise", 20, 20)) //
+				.setRayTracer(new RayTracerBasic(scene)) //
+				.setAntiAliasingFactor(4).setadaptive(false).setSamplePattern(SamplePattern.SOBOL) //
+				.setStatistics(true);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: a uniform image - the minimal number of samples in each pixel
+		RenderStatistics statistics = camera.setNoiseThreshold(1).renderImage().getStatistics();
+		assertEquals(4, statistics.getSamplesPerPixel(), 1e-10, "TC01: wrong samples per pixel");
+
+		// TC02: the pixels on the edge of a sphere take more samples
+		scene.geometries.add(new Sphere(5d, new Point(0, 0, 0)).setEmission(new Color(200, 0, 0)));
+		statistics = camera.renderImage().getStatistics();
+		assertTrue(statistics.getSamplesPerPixel() > 4, "TC02: more samples expected");
+		assertTrue(statistics.getSamplesPerPixel() < 16, "TC02: fewer samples expected");
+
+		// TC03: a negative threshold
+		assertThrows(IllegalArgumentException.class, () -> camera.setNoiseThreshold(-1), "TC03: negative threshold");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: no threshold - all the samples of every pixel
+		statistics = camera.setNoiseThreshold(0).renderImage().getStatistics();
+		assertEquals(16, statistics.getSamplesPerPixel(), 1e-10, "TC11: wrong samples per pixel");
+	}
+
+	/**
+	 * Test method for {@link renderer.Camera#setDepthOfField(double, double)}.
+	 */
+	@Test
+	void testSetDepthOfField() {
+		Camera camera = new Camera(ZERO_POINT, new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPDistance(10).setVPSize(6, 6).setAntiAliasingFactor(3).setSamplePattern(SamplePattern.JITTERED) //
+				.setDepthOfField(0.5, 20);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the rays of the center pixel of a 3x3 image start on the aperture and
+		// pass through the pixel's area on the focal plane
+		for (Aperture aperture : new Aperture[] { Aperture.CIRCLE, Aperture.SQUARE, Aperture.HEXAGON }) {
+			List<Ray> rays = camera.setAperture(aperture).constructRays(3, 3, 1, 1);
+			assertEquals(9, rays.size(), "TC01: wrong number of rays");
+			for (Ray ray : rays) {
+				Point origin = ray.getP0();
+				assertEquals(0, origin.getZ(), 1e-10, "TC01: the ray does not start on the lens");
+				assertTrue(Math.abs(origin.getX()) <= 0.5 && Math.abs(origin.getY()) <= 0.5,
+						"TC01: the ray starts out of the aperture");
+				Point focal = ray.getPoint(-20 / ray.getDir().getZ());
+				assertTrue(Math.abs(focal.getX()) <= 2 && Math.abs(focal.getY()) <= 2,
+						"TC01: the ray misses the pixel on the focal plane");
+			}
+		}
+
+		// TC02: illegal parameters
+		assertThrows(IllegalArgumentException.class, () -> camera.setDepthOfField(-1, 20), "TC02: negative aperture");
+		assertThrows(IllegalArgumentException.class, () -> camera.setDepthOfField(1, 0), "TC02: zero focal distance");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: the lens needs no additional rays
+		Scene scene = new Scene("lens");
+		RenderStatistics statistics = camera.setAntiAliasingFactor(2) //
+				.setImageWriter(new ImageWriter("lens", 10, 10)) //
+				.setRayTracer(new RayTracerBasic(scene)).setStatistics(true) //
+				.renderImage().getStatistics();
+		assertEquals(400, statistics.getPrimaryRays(), "TC11: wrong number of rays");
+
+		// TC12: no aperture - the pinhole ray through the pixel center
+		camera.setDepthOfField(0, 20).setAntiAliasingFactor(1).setSamplePattern(SamplePattern.GRID);
+		assertEquals(List.of(camera.constructRay(3, 3, 1, 1)), camera.constructRays(3, 3, 1, 1), "TC12: wrong ray");
+	}
+
+	/**
+	 * Test method for {@link renderer.Camera#renderImage()}.
+	 */
+	@Test
+	void testRenderImage() {
+		Scene scene = new Scene("render").setBackground(new Color(10, 20, 30));
+		Camera camera = new Camera(new Point(0, 0, 100), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(20, 20).setVPDistance(100) //
+				.setRayTracer(new RayTracerBasic(scene)) //
+				.setImageWriter(new ImageWriter("render", 40, 40)) //
+				.setadaptive(false).setStatistics(true);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: all the tiles are rendered
+		assertEquals(40 * 40, camera.renderImage().getStatistics().getPrimaryRays(), "TC01: wrong number of rays");
+
+		// TC02: an interrupted rendering stops, in a single thread or in several
+		for (int threads : new int[] { 1, 3 }) {
+			Thread.currentThread().interrupt();
+			try {
+				camera.setMultithreading(threads).renderImage();
+			} finally {
+				assertTrue(Thread.interrupted(), "TC02: the interrupt was cleared");
+			}
+			assertEquals(0, camera.getStatistics().getPrimaryRays(), "TC02: tiles were rendered");
+		}
+	}
+
+	/**
+	 * Test method for {@link renderer.Camera#renderProgressive(long)}.
+	 */
+	@Test
+	void testRenderProgressive() {
+		Scene scene = new Scene("progressive").setBackground(new Color(10, 20, 30));
+		scene.geometries.add(new Sphere(5d, new Point(0, 0, 0)).setEmission(new Color(200, 0, 0)));
+		ImageWriter reference = new ImageWriter("progressive", 20, 20);
+		ImageWriter progressive = new ImageWriter("progressive", 20, 20);
+		Camera camera = new Camera(new Point(0, 0, 100), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(20, 20).setVPDistance(100) //
+				.setRayTracer(new RayTracerBasic(scene)) //
+				.setAntiAliasingFactor(4).setadaptive(false).setSamplePattern(SamplePattern.JITTERED);
+		camera.setImageWriter(reference).renderImage();
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: enough time for all the samples - the same image as a full rendering
+		camera.setImageWriter(progressive).renderProgressive(Long.MAX_VALUE);
+		for (int y = 0; y < 20; ++y)
+			for (int x = 0; x < 20; ++x) {
+				Color expected = reference.getPixel(x, y), result = progressive.getPixel(x, y);
+				assertEquals(expected.getRed(), result.getRed(), 1e-3, "TC01: wrong pixel " + x + "," + y);
+				assertEquals(expected.getGreen(), result.getGreen(), 1e-3, "TC01: wrong pixel " + x + "," + y);
+				assertEquals(expected.getBlue(), result.getBlue(), 1e-3, "TC01: wrong pixel " + x + "," + y);
+			}
+
+		// TC02: with a noise threshold the flat pixels have their exact colors
+		progressive = new ImageWriter("progressive", 20, 20);
+		camera.setImageWriter(progressive).setNoiseThreshold(1).renderProgressive(Long.MAX_VALUE);
+		assertEquals(new Color(10, 20, 30).toString(), progressive.getPixel(0, 0).toString(),
+				"TC02: wrong background pixel");
+		assertEquals(new Color(200, 0, 0).toString(), progressive.getPixel(10, 10).toString(),
+				"TC02: wrong sphere pixel");
+
+		// TC03: a negative time budget
+		assertThrows(IllegalArgumentException.class, () -> camera.renderProgressive(-1), "TC03: negative budget");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: no time - the preview of blocks of 8x8 pixels
+		ImageWriter preview = new ImageWriter("progressive", 20, 20);
+		camera.setImageWriter(preview).renderProgressive(0);
+		for (int y = 8; y < 16; ++y)
+			for (int x = 8; x < 16; ++x)
+				assertEquals(preview.getPixel(8, 8).toString(), preview.getPixel(x, y).toString(),
+						"TC11: the block is not uniform");
+		assertNotEquals(preview.getPixel(8, 8).toString(), preview.getPixel(0, 0).toString(),
+				"TC11: the blocks are equal");
+
+		// TC12: an interrupted rendering stops after the preview
+		ImageWriter interrupted = new ImageWriter("progressive", 20, 20);
+		Thread.currentThread().interrupt();
+		try {
+			camera.setImageWriter(interrupted).renderProgressive(Long.MAX_VALUE);
+		} finally {
+			assertTrue(Thread.interrupted(), "TC12: the interrupt was cleared");
+		}
+		for (int y = 0; y < 20; ++y)
+			for (int x = 0; x < 20; ++x)
+				assertEquals(preview.getPixel(x, y).toString(), interrupted.getPixel(x, y).toString(),
+						"TC12: wrong pixel " + x + "," + y);
+	}
 }
@@ -3,10 +3,29 @@
  */
 package unittests.renderer;
 
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
 import org.junit.jupiter.api.Test;
 
 import primitives.Color;
+import primitives.Point;
+import primitives.Vector;
+import renderer.Camera;
 import renderer.ImageWriter;
+import renderer.RayTracerBasic;
+import renderer.ToneMapping;
+import scene.Scene;
 
 /**
  * @author Naama
@@ -37,4 +56,155 @@ class ImageWriterTests {
 		imageWriter.writeToImage(); // finally create this image
 	}
 
+	/**
+	 * Creates a camera of an empty scene, that renders a streamed image
+	 * 
+	 * @param background - the background color of the scene
+	 * @return the camera (40x30 pixels)
+	 */
+	private Camera createStreamingCamera(Color background) {
+		return new Camera(new Point(0, 0, 10), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(40, 30).setVPDistance(10) //
+				.setRayTracer(new RayTracerBasic(new Scene("stream").setBackground(background))) //
+				.setImageWriter(new ImageWriter("streamTest", 40, 30, true)) //
+				.setadaptive(false).setStatistics(true);
+	}
+
+	/**
+	 * Test method for {@link renderer.ImageWriter#ImageWriter(String, int, int, boolean)}.
+	 */
+	@Test
+	public void streamingTest() throws IOException {
+		Path image = Path.of(System.getProperty("user.dir"), "images", "streamTest.ppm");
+		Path checkpoint = Path.of(System.getProperty("user.dir"), "images", "streamTest.ppm.checkpoint");
+		byte[] header = "P6\n40 30\n255\n".getBytes();
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the rendered pixels are in the file before the image is finished
+		Files.deleteIfExists(checkpoint);
+		createStreamingCamera(new Color(200, 0, 0)).renderImage();
+		byte[] content = Files.readAllBytes(image);
+		assertEquals(header.length + 3 * 40 * 30, content.length, "TC01: wrong file size");
+		assertEquals((byte) 200, content[content.length - 3], "TC01: wrong red component");
+		assertEquals(0, content[content.length - 1], "TC01: wrong blue component");
+		assertTrue(Files.isRegularFile(checkpoint), "TC01: a checkpoint is expected");
+
+		// TC02: the stopped rendering continues from its checkpoint - all the tiles
+		// are already rendered
+		Camera camera = createStreamingCamera(new Color(200, 0, 0)).renderImage();
+		assertEquals(0, camera.getStatistics().getPrimaryRays(), "TC02: no tiles should be rendered");
+		assertEquals((byte) 200, Files.readAllBytes(image)[header.length], "TC02: wrong red component");
+
+		// TC03: a stopped rendering of another scene is rendered again
+		camera = createStreamingCamera(new Color(0, 0, 200)).renderImage();
+		assertEquals(40 * 30, camera.getStatistics().getPrimaryRays(), "TC03: all the tiles should be rendered");
+		content = Files.readAllBytes(image);
+		assertEquals(0, content[header.length], "TC03: the image was not rendered again");
+		assertEquals((byte) 200, content[header.length + 2], "TC03: wrong blue component");
+		camera.writeToImage();
+		// the checkpoint is kept (a mapped file cannot be deleted on Windows), without
+		// rendered tiles after its header of 5 ints and a long
+		byte[] tiles = Files.readAllBytes(checkpoint);
+		for (int i = 5 * Integer.BYTES + Long.BYTES; i < tiles.length; ++i)
+			assertEquals(0, tiles[i], "TC03: the checkpoint should be cleared");
+
+		// TC04: a finished image is rendered again
+		camera = createStreamingCamera(new Color(0, 0, 200)).renderImage();
+		assertEquals(40 * 30, camera.getStatistics().getPrimaryRays(), "TC04: all the tiles should be rendered");
+		content = Files.readAllBytes(image);
+		assertEquals((byte) 200, content[header.length + 2], "TC04: wrong blue component");
+		camera.writeToImage();
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a smaller image of the same name replaces the former one in its file
+		new Camera(new Point(0, 0, 10), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(40, 30).setVPDistance(10) //
+				.setRayTracer(new RayTracerBasic(new Scene("stream").setBackground(new Color(0, 200, 0)))) //
+				.setImageWriter(new ImageWriter("streamTest", 20, 10, true)) //
+				.setadaptive(false).renderImage().writeToImage();
+		header = "P6\n20 10\n255\n".getBytes();
+		content = Files.readAllBytes(image);
+		assertEquals(header.length + 3 * 20 * 10, content.length, "TC11: wrong file size");
+		assertEquals((byte) 200, content[content.length - 2], "TC11: wrong green component");
+	}
+
+	/**
+	 * Test method for {@link renderer.ImageWriter#writeToPFM()}.
+	 */
+	@Test
+	public void writeToPFMTest() throws IOException {
+		ImageWriter imageWriter = new ImageWriter("hdrTest", 3, 2);
+		imageWriter.writePixel(0, 0, new Color(510, 255, 0));
+		imageWriter.writePixel(2, 1, new Color(0.5, 1, 1.5));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the components brighter than white are kept, the rows are written
+		// from the bottom
+		imageWriter.writeToPFM();
+		Path file = Path.of(System.getProperty("user.dir"), "images", "hdrTest.pfm");
+		byte[] content = Files.readAllBytes(file);
+		byte[] header = "PF\n3 2\n-1.0\n".getBytes();
+		assertEquals(header.length + 4 * 3 * 3 * 2, content.length, "TC01: wrong file size");
+		ByteBuffer buffer = ByteBuffer.wrap(content, header.length, content.length - header.length)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(0.5f / 255, buffer.getFloat(header.length + 4 * 6), 1e-7, "TC01: wrong bottom row");
+		assertEquals(1.5f / 255, buffer.getFloat(header.length + 4 * 8), 1e-7, "TC01: wrong bottom row");
+		assertEquals(2f, buffer.getFloat(header.length + 4 * 9), "TC01: wrong top row");
+		assertEquals(1f, buffer.getFloat(header.length + 4 * 10), "TC01: wrong top row");
+
+		// TC02: samples of several passes are accumulated without rounding
+		imageWriter.addPixel(2, 1, new Color(0.25, 0.25, 0.25));
+		assertEquals(0.75, imageWriter.getPixel(2, 1).getRed(), 1e-6, "TC02: wrong accumulated pixel");
+		assertEquals(1.75, imageWriter.getPixel(2, 1).getBlue(), 1e-6, "TC02: wrong accumulated pixel");
+
+		// TC03: a streamed image has no high dynamic range pixels
+		assertThrows(IllegalStateException.class, () -> new ImageWriter("streamHdrTest", 3, 2, true).writeToPFM(),
+				"TC03: streamed image");
+	}
+
+	/**
+	 * Test method for {@link renderer.ImageWriter#writeToImage(java.io.OutputStream)}.
+	 */
+	@Test
+	public void writeToStreamTest() throws IOException {
+		ImageWriter imageWriter = new ImageWriter("streamTest", 3, 2).setToneMapping(ToneMapping.CLAMP);
+		imageWriter.writePixel(1, 0, new Color(510, 128, 0));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the displayed pixels are tone mapped
+		assertEquals(0xFF8000, imageWriter.getDisplayedPixel(1, 0), "TC01: wrong displayed pixel");
+		assertEquals(0, imageWriter.getDisplayedPixel(2, 1), "TC01: wrong displayed pixel");
+
+		// TC02: the PNG image in the stream has the displayed pixels
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		imageWriter.writeToImage(out);
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(3, image.getWidth(), "TC02: wrong width");
+		assertEquals(2, image.getHeight(), "TC02: wrong height");
+		assertEquals(0xFF8000, image.getRGB(1, 0) & 0xFFFFFF, "TC02: wrong pixel");
+	}
+
+	/**
+	 * Test method for {@link renderer.ToneMapping}.
+	 */
+	@Test
+	public void toneMappingTest() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Reinhard keeps the order of bright components below white
+		assertTrue(ToneMapping.REINHARD.map(1000) < 255, "TC01: wrong Reinhard mapping");
+		assertTrue(ToneMapping.REINHARD.map(500) < ToneMapping.REINHARD.map(1000), "TC01: wrong Reinhard order");
+
+		// TC02: the exposure approaches white
+		ToneMapping exposure = ToneMapping.exposure(2);
+		assertEquals(255 * (1 - Math.exp(-2)), exposure.map(255), 1e-9, "TC02: wrong exposure mapping");
+		assertTrue(exposure.map(5000) <= 255, "TC02: wrong exposure mapping");
+
+		// TC03: illegal exposure
+		assertThrows(IllegalArgumentException.class, () -> ToneMapping.exposure(0), "TC03: zero exposure");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: black stays black
+		assertEquals(0, ToneMapping.REINHARD.map(0), "TC11: wrong Reinhard black");
+		assertEquals(0, exposure.map(0), "TC11: wrong exposure black");
+	}
 }
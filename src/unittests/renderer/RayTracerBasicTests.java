@@ -0,0 +1,278 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing the evaluation of the ray tree by the basic ray tracer
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class RayTracerBasicTests {
+
+	/** Resolution of the rendered images */
+	private static final int N = 50;
+
+	/**
+	 * Renders a black transparent sphere (kT = 0.5) in front of a gray plane. The
+	 * sphere covers the whole view, so each ray from the camera crosses both sides
+	 * of the sphere before it hits the plane, and the expected color of every pixel
+	 * is 100 * 0.5 * 0.5 = 25 (there are no lights).
+	 *
+	 * @param rayTracer - sets the ray tracer of the scene
+	 * @return the rendered image
+	 */
+	private ImageWriter render(Function<Scene, RayTracerBasic> rayTracer) {
+		Scene scene = new Scene("Ray tree scene");
+		scene.geometries.add( //
+				new Sphere(50d, new Point(0, 0, 0)).setMaterial(new Material().setKt(0.5)),
+				new Plane(new Point(0, 0, -200), new Vector(0, 0, 1)).setEmission(new Color(100, 100, 100)));
+		ImageWriter imageWriter = new ImageWriter("rayTree", N, N);
+		new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(10, 10).setVPDistance(1000) //
+				.setRayTracer(rayTracer.apply(scene)) //
+				.setImageWriter(imageWriter) //
+				.setadaptive(false) //
+				.renderImage();
+		return imageWriter;
+	}
+
+	/**
+	 * @param imageWriter - a rendered image
+	 * @return the average red component of the pixels
+	 */
+	private double average(ImageWriter imageWriter) {
+		double sum = 0;
+		for (int i = 0; i < N; ++i)
+			for (int j = 0; j < N; ++j)
+				sum += imageWriter.getPixel(j, i).getRed();
+		return sum / (N * N);
+	}
+
+	/**
+	 * Test method for {@link renderer.RayTracerBasic#setMaxLevel(int)}.
+	 */
+	@Test
+	public void testSetMaxLevel() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the default depth reaches the plane
+		assertEquals(25, average(render(RayTracerBasic::new)), 1e-9, "TC01: wrong color");
+
+		// TC02: the rays stop inside the sphere
+		assertEquals(0, average(render(scene -> new RayTracerBasic(scene).setMaxLevel(2))), 1e-9,
+				"TC02: wrong color");
+
+		// TC03: illegal depth
+		assertThrows(IllegalArgumentException.class, () -> new RayTracerBasic(new Scene("s")).setMaxLevel(0),
+				"TC03: zero depth");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: the smallest depth that reaches the plane
+		assertEquals(25, average(render(scene -> new RayTracerBasic(scene).setMaxLevel(3))), 1e-9,
+				"TC11: wrong color");
+	}
+
+	/**
+	 * Test method for {@link renderer.RayTracerBasic#setRussianRoulette(double)}.
+	 */
+	@Test
+	public void testSetRussianRoulette() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: each pixel is either black or the full plane color, and the average
+		// is the expected color
+		ImageWriter image = render(scene -> new RayTracerBasic(scene).setRussianRoulette(1));
+		for (int i = 0; i < N; ++i)
+			for (int j = 0; j < N; ++j) {
+				double red = image.getPixel(j, i).getRed();
+				assertTrue(red == 0 || Math.abs(red - 100) < 1e-4, "TC01: wrong pixel color " + red);
+			}
+		assertEquals(25, average(image), 4, "TC01: wrong average color");
+
+		// TC02: illegal threshold
+		assertThrows(IllegalArgumentException.class,
+				() -> new RayTracerBasic(new Scene("s")).setRussianRoulette(1.5), "TC02: threshold above 1");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: no roulette below the threshold - the rays are never terminated
+		assertEquals(25, average(render(scene -> new RayTracerBasic(scene).setRussianRoulette(0.25))), 1e-4,
+				"TC11: wrong color");
+	}
+
+	/**
+	 * Test method for {@link renderer.Camera#setPacketSize(int)}.
+	 */
+	@Test
+	public void testSetPacketSize() {
+		Scene scene = new Scene("Packet scene");
+		scene.geometries.add( //
+				new Sphere(3d, new Point(0, 0, 0)).setEmission(new Color(0, 0, 100))
+						.setMaterial(new Material().setKd(0.5).setKr(0.3)),
+				new Triangle(new Point(-5, -5, -2), new Point(5, -5, -2), new Point(0, 5, -4))
+						.setEmission(new Color(50, 0, 0)).setMaterial(new Material().setKs(0.5).setShininess(20)),
+				new Plane(new Point(0, 0, -10), new Vector(0, 0, 1)).setEmission(new Color(20, 20, 20)));
+		scene.geometries.buildBVH();
+		scene.lights.add(new lighting.PointLight(new Color(300, 300, 300), new Point(10, 10, 20)));
+		ImageWriter single = new ImageWriter("packet1", N, N);
+		ImageWriter packets = new ImageWriter("packet8", N, N);
+		Camera camera = new Camera(new Point(0, 0, 100), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(12, 12).setVPDistance(100) //
+				.setRayTracer(new RayTracerBasic(scene));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the image is the same with and without packets (a tile width that is
+		// not a multiple of the packet size)
+		camera.setImageWriter(single).renderImage();
+		camera.setImageWriter(packets).setPacketSize(7).renderImage();
+		for (int i = 0; i < N; ++i)
+			for (int j = 0; j < N; ++j)
+				assertEquals(single.getPixel(j, i).toString(), packets.getPixel(j, i).toString(),
+						"TC01: wrong pixel (" + j + "," + i + ")");
+
+		// TC02: illegal packet size
+		assertThrows(IllegalArgumentException.class, () -> camera.setPacketSize(0), "TC02: zero packet size");
+	}
+
+	/**
+	 * Test method for the soft shadows of {@link lighting.AreaLight}s in
+	 * {@link renderer.RayTracerBasic#traceRay(Ray)}.
+	 */
+	@Test
+	public void testAreaLightShadow() {
+		// an opaque sphere between a square light and a diffusive plane, seen by a
+		// camera below the sphere
+		Scene scene = new Scene("Soft shadow scene");
+		scene.geometries.add(new Sphere(5d, new Point(0, 0, 10)),
+				new Plane(Point.ZERO, new Vector(0, 0, 1)).setMaterial(new Material().setKd(1)));
+		lighting.AreaLight light = new lighting.RectangleLight(new Color(100, 100, 100), new Point(0, 0, 20),
+				new Vector(6, 0, 0), new Vector(0, 6, 0)).setShadowSamples(4);
+		scene.lights.add(light);
+		RayTracerBasic rayTracer = new RayTracerBasic(scene);
+		Vector down = new Vector(0, 0, -1);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the umbra, the penumbra and a fully lit point
+		assertEquals(0, rayTracer.traceRay(new Ray(new Point(0, 0, 1), down)).getRed(), 1e-9, "TC01: wrong umbra");
+		double penumbra = rayTracer.traceRay(new Ray(new Point(10, 0, 1), down)).getRed();
+		double lit = rayTracer.traceRay(new Ray(new Point(30, 0, 1), down)).getRed();
+		assertTrue(lit > 0, "TC01: the point is not lit");
+		assertTrue(penumbra > 0 && penumbra < 20 / Math.sqrt(500) * 100, "TC01: wrong penumbra " + penumbra);
+
+		// TC02: the adaptive mode skips the samples of unshadowed points
+		Camera camera = new Camera(new Point(0, 0, 4), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(20, 20).setVPDistance(1) //
+				.setImageWriter(new ImageWriter("softShadow", 20, 20)) //
+				.setRayTracer(rayTracer).setadaptive(false).setStatistics(true);
+		long allSamples = camera.renderImage().getStatistics().getShadowRays();
+		light.setAdaptiveSamples(4);
+		long adaptiveSamples = camera.renderImage().getStatistics().getShadowRays();
+		assertEquals(400 * 16, allSamples, "TC02: wrong number of shadow rays");
+		assertTrue(adaptiveSamples < allSamples / 2, "TC02: too many adaptive shadow rays " + adaptiveSamples);
+		assertEquals(0, rayTracer.traceRay(new Ray(new Point(0, 0, 1), down)).getRed(), 1e-9, "TC02: wrong umbra");
+		assertEquals(lit, rayTracer.traceRay(new Ray(new Point(30, 0, 1), down)).getRed(), 1e-9,
+				"TC02: wrong lit point");
+
+		// TC03: illegal samples counts
+		assertThrows(IllegalArgumentException.class, () -> light.setShadowSamples(0), "TC03: no samples");
+		assertThrows(IllegalArgumentException.class, () -> light.setAdaptiveSamples(-1), "TC03: negative samples");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a single sample is a hard shadow
+		light.setShadowSamples(1);
+		assertEquals(0, rayTracer.traceRay(new Ray(new Point(10, 0, 1), down)).getRed(), 1e-9,
+				"TC11: the point is lit");
+	}
+
+	/**
+	 * Test method for {@link renderer.RayTracerBasic#setBeamSize(int)}.
+	 */
+	@Test
+	public void testSetBeamSize() {
+		// a glossy mirror below the camera, which reflects the background and an
+		// emissive sphere
+		Scene scene = new Scene("Glossy scene").setBackground(new Color(0, 0, 100));
+		scene.geometries.add(new Plane(Point.ZERO, new Vector(0, 0, 1))
+				.setMaterial(new Material().setKr(1).setGlossiness(0.2)));
+		RayTracerBasic rayTracer = new RayTracerBasic(scene).setBeamSize(16);
+		Camera camera = new Camera(new Point(0, 0, 100), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(20, 20).setVPDistance(100) //
+				.setImageWriter(new ImageWriter("glossy", 20, 20)) //
+				.setRayTracer(rayTracer).setadaptive(false).setStatistics(true);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: all the rays of the beams miss the scene - only the first rays of
+		// each beam are traced
+		RenderStatistics statistics = camera.renderImage().getStatistics();
+		assertEquals(400 * 4, statistics.getSecondaryRays(), "TC01: wrong number of reflected rays");
+		Color pixel = rayTracer.traceRay(new Ray(new Point(5, 5, 100), new Vector(0, 0, -1)));
+		assertEquals(100, pixel.getBlue(), 1e-9, "TC01: wrong reflected background");
+
+		// TC02: the beams on the edge of the reflection of a sphere (behind the
+		// camera) are traced fully
+		scene.geometries.add(new Sphere(10d, new Point(0, 0, 150)).setEmission(new Color(200, 0, 0)));
+		long rays = camera.renderImage().getStatistics().getSecondaryRays();
+		assertTrue(rays > 400 * 4 && rays < 400 * 16, "TC02: the beams on the edge were not traced fully");
+		assertEquals(0, (rays - 400 * 4) % 12, "TC02: a beam was traced partially");
+		pixel = rayTracer.traceRay(new Ray(new Point(0, 0, 100), new Vector(0, 0, -1)));
+		assertTrue(pixel.getRed() > 0 && pixel.getBlue() > 0, "TC02: the edge is not blurred " + pixel);
+
+		// TC03: the first rays of the beams hit different faces of a mesh (behind the
+		// camera) - only the first rays of each beam are traced
+		double[] vertices = new double[3 * 9 * 9];
+		int[] indices = new int[6 * 8 * 8];
+		for (int i = 0; i < 9; ++i)
+			for (int j = 0; j < 9; ++j) {
+				vertices[3 * (9 * i + j)] = -400 + 100 * i;
+				vertices[3 * (9 * i + j) + 1] = -400 + 100 * j;
+				vertices[3 * (9 * i + j) + 2] = 150;
+			}
+		for (int i = 0, f = 0; i < 8; ++i)
+			for (int j = 0; j < 8; ++j, f += 6) {
+				int a = 9 * i + j;
+				indices[f] = indices[f + 3] = a;
+				indices[f + 1] = a + 9;
+				indices[f + 2] = indices[f + 4] = a + 10;
+				indices[f + 5] = a + 1;
+			}
+		Scene meshScene = new Scene("Glossy mesh scene");
+		meshScene.geometries.add(new Plane(Point.ZERO, new Vector(0, 0, 1))
+				.setMaterial(new Material().setKr(1).setGlossiness(0.2)),
+				new Mesh(vertices, indices).setEmission(new Color(0, 100, 0)));
+		statistics = new Camera(new Point(0, 0, 100), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(20, 20).setVPDistance(100) //
+				.setImageWriter(new ImageWriter("glossyMesh", 20, 20)) //
+				.setRayTracer(new RayTracerBasic(meshScene).setBeamSize(16)).setadaptive(false).setStatistics(true)
+				.renderImage().getStatistics();
+		assertEquals(400 * 4, statistics.getSecondaryRays(), "TC03: the beams on the mesh were traced fully");
+
+		// TC04: illegal sizes
+		assertThrows(IllegalArgumentException.class, () -> rayTracer.setBeamSize(0), "TC04: zero beam size");
+		assertThrows(IllegalArgumentException.class, () -> new Material().setGlossiness(-1),
+				"TC04: negative glossiness");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a single ray - the perfect reflection
+		statistics = camera.setRayTracer(rayTracer.setBeamSize(1)).renderImage().getStatistics();
+		assertEquals(400, statistics.getSecondaryRays(), "TC11: wrong number of reflected rays");
+
+		// TC12: a deep ray tree between 2 glossy mirrors - the beams shrink to a
+		// single ray at the deep levels (the first 4 rays of a beam of 16 and of a
+		// beam of 4 agree, and then a single ray for each of the 17 following levels)
+		Scene mirrors = new Scene("Glossy mirrors");
+		mirrors.geometries.add(
+				new Plane(Point.ZERO, new Vector(0, 0, 1)).setMaterial(new Material().setKr(1).setGlossiness(0.01)),
+				new Plane(new Point(0, 0, 200), new Vector(0, 0, -1))
+						.setMaterial(new Material().setKr(1).setGlossiness(0.01)));
+		statistics = camera.setImageWriter(new ImageWriter("glossyMirrors", 4, 4))
+				.setRayTracer(new RayTracerBasic(mirrors).setBeamSize(16).setMaxLevel(20)).renderImage()
+				.getStatistics();
+		assertEquals(16 * (4 + 4 * 4 + 4 * 4 * 17), statistics.getSecondaryRays(), "TC12: the deep beams grew");
+	}
+}
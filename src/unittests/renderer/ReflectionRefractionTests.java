@@ -4,6 +4,7 @@ import static java.awt.Color.*;
 
 import org.junit.jupiter.api.Test;
 
+import geometries.Plane;
 import geometries.Sphere;
 import geometries.Triangle;
 import lighting.AmbientLight;
@@ -202,8 +203,38 @@ public class ReflectionRefractionTests {
 				.renderImage() //
 				.writeToImage();
 	}
-	
-	
-	
 
+	/**
+	 * Produce a picture of spheres on a glossy floor, partially seen through a
+	 * frosted glass
+	 */
+	@Test
+	public void glossyFloorFrostedGlass() {
+		Camera camera = new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(200, 200).setVPDistance(1000);
+
+		Material frosted = new Material().setKd(0.1).setKt(0.8).setBlurriness(0.08);
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.1));
+		scene.geometries.add( //
+				new Plane(new Point(0, -50, 0), new Vector(0, 1, 0)).setEmission(new Color(20, 20, 20)) //
+						.setMaterial(new Material().setKd(0.3).setKr(0.6).setGlossiness(0.1)),
+				new Sphere(40d, new Point(-45, -10, -100)).setEmission(new Color(RED)) //
+						.setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(60)),
+				new Sphere(30d, new Point(45, -20, -150)).setEmission(new Color(GREEN)) //
+						.setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(60)),
+				new Triangle(new Point(0, -50, 50), new Point(100, -50, 50), new Point(100, 80, 50)) //
+						.setEmission(new Color(10, 10, 20)) //
+						.setMaterial(frosted),
+				new Triangle(new Point(0, -50, 50), new Point(100, 80, 50), new Point(0, 80, 50)) //
+						.setEmission(new Color(10, 10, 20)) //
+						.setMaterial(frosted));
+		scene.lights.add(new DirectionalLight(new Color(300, 300, 300), new Vector(1, -1, -1)));
+		scene.lights.add(new SpotLight(new Color(600, 400, 400), new Point(-100, 100, 200), new Vector(1, -1, -2)) //
+				.setkL(0.0001).setkQ(0.000005));
+
+		camera.setImageWriter(new ImageWriter("glossyFloorFrostedGlass", 400, 400)) //
+				.setRayTracer(new RayTracerBasic(scene).setBeamSize(16)) //
+				.renderImage() //
+				.writeToImage();
+	}
 }
@@ -0,0 +1,117 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing the statistics of a rendering
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+public class RenderStatisticsTests {
+
+	/**
+	 * Creates a camera of a reflecting sphere in front of a plane, lighted by a
+	 * point light
+	 *
+	 * @return the camera (20x20 pixels, without adaptive super sampling)
+	 */
+	private Camera createCamera() {
+		Scene scene = new Scene("Statistics scene");
+		scene.geometries.add( //
+				new Sphere(30d, new Point(0, 0, -100)).setEmission(new Color(0, 0, 100)) //
+						.setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30).setKr(0.5)),
+				new Plane(new Point(0, 0, -200), new Vector(0, 0, 1)).setEmission(new Color(20, 20, 20)) //
+						.setMaterial(new Material().setKd(0.5)));
+		scene.lights.add(new PointLight(new Color(500, 300, 0), new Point(50, 50, 50)));
+		return new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(100, 100).setVPDistance(1000) //
+				.setRayTracer(new RayTracerBasic(scene)) //
+				.setImageWriter(new ImageWriter("statistics", 20, 20)) //
+				.setadaptive(false);
+	}
+
+	/**
+	 * Test method for {@link renderer.Camera#getStatistics()}.
+	 */
+	@Test
+	public void testGetStatistics() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: Statistics are not collected by default
+		Camera camera = createCamera().renderImage();
+		assertNull(camera.getStatistics(), "Statistics must not be collected by default");
+
+		// TC02: A ray from the camera for each pixel, with shadow and reflected rays
+		RenderStatistics statistics = camera.setStatistics(true).renderImage().getStatistics();
+		assertNotNull(statistics, "Statistics were not collected");
+		assertEquals(400, statistics.getPrimaryRays(), "Wrong number of rays from the camera");
+		assertEquals(1, statistics.getSamplesPerPixel(), 1e-10, "Wrong number of samples per pixel");
+		assertTrue(statistics.getShadowRays() > 0, "Shadow rays were not counted");
+		assertTrue(statistics.getSecondaryRays() > 0, "Reflected rays were not counted");
+		assertTrue(statistics.getMaxDepth() >= 1, "Wrong recursion depth");
+		assertTrue(statistics.getTestsPerRay() >= 1, "Intersection tests were not counted");
+		assertTrue(statistics.getHits().get("Sphere") > 0, "Sphere hits were not counted");
+		assertTrue(statistics.getHits().get("Plane") > 0, "Plane hits were not counted");
+		assertEquals(4, statistics.getTileTimes().length, "Wrong number of tiles");
+
+		// TC03: The same rays are counted when rendering in several threads
+		RenderStatistics parallel = camera.setMultithreading(3).renderImage().getStatistics();
+		assertEquals(statistics.getRays(), parallel.getRays(), "Wrong number of rays in parallel rendering");
+		assertEquals(statistics.getIntersectionTests(), parallel.getIntersectionTests(),
+				"Wrong number of intersection tests in parallel rendering");
+		assertEquals(statistics.getHits(), parallel.getHits(), "Wrong hits in parallel rendering");
+
+		// TC04: Adaptive super sampling subdivides the pixels on the edges
+		statistics = camera.setadaptive(true).setAntiAliasingFactor(9).renderImage().getStatistics();
+		assertTrue(statistics.getSubdivisions() > 0, "Subdivisions were not counted");
+
+		// TC05: Renderings at the same time count their own intersection tests
+		long tests = createCamera().setStatistics(true).renderImage().getStatistics().getIntersectionTests();
+		Camera first = createCamera().setStatistics(true), second = createCamera().setStatistics(true);
+		Thread thread = new Thread(first::renderImage);
+		thread.start();
+		second.renderImage();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			fail("Interrupted");
+		}
+		assertEquals(tests, first.getStatistics().getIntersectionTests(), "Wrong tests of the first rendering");
+		assertEquals(tests, second.getStatistics().getIntersectionTests(), "Wrong tests of the second rendering");
+
+		// TC06: The hits of the faces of a mesh are counted as hits of the mesh
+		Scene scene = new Scene("Mesh statistics scene");
+		scene.geometries
+				.add(new Mesh(new double[] { -50, -50, -100, 50, -50, -100, 0, 50, -100 }, new int[] { 0, 1, 2 }));
+		statistics = new Camera(new Point(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPSize(100, 100).setVPDistance(1000) //
+				.setRayTracer(new RayTracerBasic(scene)) //
+				.setImageWriter(new ImageWriter("meshStatistics", 20, 20)) //
+				.setadaptive(false).setStatistics(true).renderImage().getStatistics();
+		assertTrue(statistics.getHits().get("Mesh") > 0, "Mesh hits were not counted");
+		assertFalse(statistics.getHits().containsKey("Face"), "Mesh hits were counted as faces");
+	}
+
+	/**
+	 * Test method for {@link renderer.RenderStatistics#toJSON()}.
+	 */
+	@Test
+	public void testToJSON() {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: All the statistics are exported
+		String json = createCamera().setStatistics(true).renderImage().getStatistics().toJSON();
+		assertTrue(json.startsWith("{") && json.trim().endsWith("}"), "JSON must be an object");
+		assertTrue(json.contains("\"primaryRays\": 400,"), "Wrong number of rays from the camera");
+		for (String key : new String[] { "rays", "raysPerSecond", "samplesPerPixel", "testsPerRay", "maxDepth",
+				"subdivisions", "hits", "tileMillis" })
+			assertTrue(json.contains('"' + key + "\": "), "Missing " + key);
+		assertTrue(json.contains("\"Sphere\": "), "Missing sphere hits");
+	}
+}
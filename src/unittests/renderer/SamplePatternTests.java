@@ -0,0 +1,159 @@
+package unittests.renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import renderer.Aperture;
+import renderer.Camera;
+import renderer.SamplePattern;
+
+/**
+ * Testing the sample patterns of anti aliasing
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+class SamplePatternTests {
+
+	/** All the patterns */
+	private static final SamplePattern[] PATTERNS = { SamplePattern.GRID, SamplePattern.JITTERED,
+			SamplePattern.HALTON, SamplePattern.SOBOL, SamplePattern.BLUE_NOISE };
+
+	/**
+	 * Counts the samples in each cell of a division of the unit square
+	 *
+	 * @param xs   - the horizontal coordinates of the samples
+	 * @param ys   - the vertical coordinates of the samples
+	 * @param cols - the number of columns of the division
+	 * @param rows - the number of rows of the division
+	 * @return the counts by the index of the cell
+	 */
+	private int[] countCells(double[] xs, double[] ys, int cols, int rows) {
+		int[] counts = new int[cols * rows];
+		for (int i = 0; i < xs.length; ++i)
+			++counts[(int) (ys[i] * rows) * cols + (int) (xs[i] * cols)];
+		return counts;
+	}
+
+	/**
+	 * Test method for {@link renderer.SamplePattern#generate(int, long, double[], double[])}.
+	 */
+	@Test
+	void testGenerate() {
+		final int n = 4;
+		double[] xs = new double[n * n], ys = new double[n * n];
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: all the samples are in the pixel, and the same pixel gets the same
+		// samples
+		for (SamplePattern pattern : PATTERNS) {
+			pattern.generate(n, 1234, xs, ys);
+			for (int i = 0; i < n * n; ++i)
+				assertTrue(xs[i] >= 0 && xs[i] < 1 && ys[i] >= 0 && ys[i] < 1, "TC01: sample out of the pixel");
+			double[] xs2 = new double[n * n], ys2 = new double[n * n];
+			pattern.generate(n, 1234, xs2, ys2);
+			assertArrayEquals(xs, xs2, "TC01: the pattern is not repeatable");
+			assertArrayEquals(ys, ys2, "TC01: the pattern is not repeatable");
+		}
+
+		// TC02: the grid samples are the centers of the sub-pixels
+		SamplePattern.GRID.generate(n, 0, xs, ys);
+		assertEquals(0.125, xs[0], 1e-12, "TC02: wrong grid sample");
+		assertEquals(0.625, xs[6], 1e-12, "TC02: wrong grid sample");
+		assertEquals(0.375, ys[6], 1e-12, "TC02: wrong grid sample");
+
+		// TC03: the jittered samples have a sample in each sub-pixel and differ
+		// between pixels
+		SamplePattern.JITTERED.generate(n, 7, xs, ys);
+		int[] ones = new int[n * n];
+		Arrays.fill(ones, 1);
+		assertArrayEquals(ones, countCells(xs, ys, n, n), "TC03: wrong stratification");
+		double[] other = new double[n * n];
+		SamplePattern.JITTERED.generate(n, 8, other, new double[n * n]);
+		assertFalse(Arrays.equals(xs, other), "TC03: the pixels have the same samples");
+
+		// TC04: the Sobol samples have a sample in each cell of any shape of 1/16 of
+		// the pixel
+		SamplePattern.SOBOL.generate(n, 99, xs, ys);
+		for (int cols = 1; cols <= n * n; cols *= 2)
+			assertArrayEquals(ones, countCells(xs, ys, cols, n * n / cols), "TC04: wrong stratification " + cols);
+
+		// TC05: the blue noise samples are not closer than half the grid spacing
+		SamplePattern.BLUE_NOISE.generate(n, 5, xs, ys);
+		for (int i = 0; i < n * n; ++i)
+			for (int j = 0; j < i; ++j)
+				assertTrue(Math.hypot(xs[i] - xs[j], ys[i] - ys[j]) > 0.5 / n, "TC05: samples too close");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a single sample of the grid is the pixel's center
+		SamplePattern.GRID.generate(1, 0, xs, ys);
+		assertEquals(0.5, xs[0], 1e-12, "TC11: wrong single sample");
+		assertEquals(0.5, ys[0], 1e-12, "TC11: wrong single sample");
+	}
+
+	/**
+	 * Test method for {@link renderer.Camera#constructRays(int, int, int, int)}.
+	 */
+	@Test
+	void testConstructRays() {
+		Camera camera = new Camera(Point.ZERO, new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+				.setVPDistance(10).setVPSize(6, 6).setAntiAliasingFactor(2);
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the grid rays of the center pixel of a 3x3 image
+		List<Ray> rays = camera.constructRays(3, 3, 1, 1);
+		assertEquals(List.of(new Ray(Point.ZERO, new Vector(-0.5, 0.5, -10)),
+				new Ray(Point.ZERO, new Vector(0.5, 0.5, -10)), new Ray(Point.ZERO, new Vector(-0.5, -0.5, -10)),
+				new Ray(Point.ZERO, new Vector(0.5, -0.5, -10))), rays, "TC01: wrong grid rays");
+
+		// TC02: the rays of another pattern pass through the pixel
+		camera.setSamplePattern(SamplePattern.SOBOL).setAntiAliasingFactor(3);
+		rays = camera.constructRays(3, 3, 1, 1);
+		assertEquals(9, rays.size(), "TC02: wrong number of rays");
+		for (Ray ray : rays) {
+			Point p = ray.getPoint(10 / -ray.getDir().getZ());
+			assertTrue(Math.abs(p.getX()) <= 1 && Math.abs(p.getY()) <= 1, "TC02: ray out of the pixel");
+		}
+
+		// =============== Boundary Values Tests ==================
+		// TC11: no pattern
+		assertThrows(IllegalArgumentException.class, () -> camera.setSamplePattern(null), "TC11: null pattern");
+	}
+
+	/**
+	 * Test method for {@link renderer.Aperture#map(double[], double[])}.
+	 */
+	@Test
+	void testApertures() {
+		final int n = 8;
+		double[] xs = new double[n * n], ys = new double[n * n];
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the samples are in the shapes of the apertures
+		SamplePattern.JITTERED.generate(n, 3, xs, ys);
+		Aperture.CIRCLE.map(xs, ys);
+		for (int i = 0; i < n * n; ++i)
+			assertTrue(xs[i] * xs[i] + ys[i] * ys[i] <= 1 + 1e-12, "TC01: sample out of the circle");
+		SamplePattern.JITTERED.generate(n, 3, xs, ys);
+		Aperture.SQUARE.map(xs, ys);
+		for (int i = 0; i < n * n; ++i)
+			assertTrue(Math.abs(xs[i]) <= 1 && Math.abs(ys[i]) <= 1, "TC01: sample out of the square");
+		SamplePattern.JITTERED.generate(n, 3, xs, ys);
+		Aperture.HEXAGON.map(xs, ys);
+		for (int i = 0; i < n * n; ++i)
+			assertTrue(Math.hypot(xs[i], ys[i]) <= 1 + 1e-12 && Math.abs(ys[i]) <= Math.sqrt(3) / 2 + 1e-12,
+					"TC01: sample out of the hexagon");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: the center of the unit square is the center of the aperture
+		double[] x = { 0.5 }, y = { 0.5 };
+		Aperture.CIRCLE.map(x, y);
+		assertEquals(0, Math.hypot(x[0], y[0]), 1e-12, "TC11: wrong center");
+	}
+}
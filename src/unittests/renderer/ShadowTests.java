@@ -111,4 +111,30 @@ public class ShadowTests {
 				.writeToImage();
 	}
 
+	/**
+	 * Produce a picture of the two triangles and the sphere of
+	 * {@link #trianglesSphere()} with a soft shadow of a spherical light
+	 */
+	@Test
+	public void trianglesSphereSoftShadow() {
+		scene.setAmbientLight(new AmbientLight(new Color(WHITE), 0.15));
+
+		scene.geometries.add( //
+				new Triangle(new Point(-150, -150, -115), new Point(150, -150, -135), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKs(0.8).setShininess(60)), //
+				new Triangle(new Point(-150, -150, -115), new Point(-70, 70, -140), new Point(75, 75, -150)) //
+						.setMaterial(new Material().setKs(0.8).setShininess(60)), //
+				new Sphere(30d, new Point(0, 0, -11)) //
+						.setEmission(new Color(BLUE)) //
+						.setMaterial(new Material().setKd(0.5).setKs(0.5).setShininess(30)) //
+		);
+		scene.lights.add( //
+				new SphereLight(new Color(700, 400, 400), new Point(40, 40, 115), 15) //
+						.setShadowSamples(5).setAdaptiveSamples(4).setkL(4E-4).setkQ(2E-5));
+
+		camera.setImageWriter(new ImageWriter("shadowTrianglesSphereSoft", 600, 600)) //
+				.renderImage() //
+				.writeToImage();
+	}
+
 }
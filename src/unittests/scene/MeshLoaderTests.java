@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package unittests.scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Mesh;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import scene.MeshLoader;
+
+/**
+ * Testing the loading of meshes from files
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+class MeshLoaderTests {
+
+	/**
+	 * Writes a temporary file
+	 *
+	 * @param suffix  - the file name suffix
+	 * @param content - the file content
+	 * @return the path of the file
+	 */
+	private Path write(String suffix, byte[] content) throws IOException {
+		Path file = Files.createTempFile("mesh", suffix);
+		file.toFile().deleteOnExit();
+		return Files.write(file, content);
+	}
+
+	/**
+	 * Creates a binary PLY file of a unit square in the plane z=1 (a single face of
+	 * 4 vertices) with an additional color property of the vertices
+	 *
+	 * @param order - the byte order of the file
+	 * @return the content of the file
+	 */
+	private byte[] createPLY(ByteOrder order) {
+		String header = "ply\nformat " + (order == ByteOrder.LITTLE_ENDIAN ? "binary_little_endian" : "binary_big_endian")
+				+ " 1.0\ncomment a unit square\nelement vertex 4\nproperty float x\nproperty float y\nproperty double z\n"
+				+ "property uchar red\nelement face 1\nproperty list uchar int vertex_indices\nend_header\n";
+		byte[] headerBytes = header.getBytes(StandardCharsets.US_ASCII);
+		ByteBuffer buffer = ByteBuffer.allocate(headerBytes.length + 4 * 17 + 17).order(order);
+		buffer.put(headerBytes);
+		float[][] vertices = { { 0, 0 }, { 1, 0 }, { 1, 1 }, { 0, 1 } };
+		for (float[] vertex : vertices)
+			buffer.putFloat(vertex[0]).putFloat(vertex[1]).putDouble(1).put((byte) 200);
+		buffer.put((byte) 4).putInt(0).putInt(1).putInt(2).putInt(3);
+		return buffer.array();
+	}
+
+	/**
+	 * Test method for {@link scene.MeshLoader#loadOBJ(Path)}.
+	 */
+	@Test
+	void testLoadOBJ() throws IOException {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: a quad and a triangle with comments, texture coordinates and groups
+		String obj = """
+				# a unit square and a triangle
+				mtllib scene.mtl
+				o square
+				v 0 0 1
+				v 1.0 0 1
+				v 1 1e0 1
+				  v 0 1 1.0  # indented with a comment
+				vt 0 0
+				g square
+				f 1/1 2/1 3/1 4/1
+
+				v 5 5 -2
+				v 6 5 -2
+				v 5 6 -2
+				f -3 -2 -1
+				""";
+		Mesh mesh = MeshLoader.loadOBJ(write(".obj", obj.getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(7, mesh.getVerticesCount(), "TC01: wrong vertices count");
+		assertEquals(3, mesh.getFacesCount(), "TC01: wrong faces count");
+		assertEquals(List.of(new Point(0.25, 0.75, 1)),
+				mesh.findIntersections(new Ray(new Point(0.25, 0.75, 5), new Vector(0, 0, -1))),
+				"TC01: wrong intersection with the square");
+		assertEquals(List.of(new Point(5.2, 5.2, -2)),
+				mesh.findIntersections(new Ray(new Point(5.2, 5.2, 5), new Vector(0, 0, -1))),
+				"TC01: wrong intersection with the triangle");
+
+		// TC02: smooth faces with normals (with Windows line ends)
+		obj = "v 0 0 0\r\nv 1 0 0\r\nv 0 1 0\r\nvn 0 0 1\r\nvn 1 0 1\r\nvn 0 1 1\r\nf 1//1 2//2 3//3\r\n";
+		mesh = MeshLoader.load(write(".obj", obj.getBytes(StandardCharsets.US_ASCII)));
+		GeoPoint gp = mesh.findClosestGeoIntersection(new Ray(new Point(0.5, 0.25, 1), new Vector(0, 0, -1)));
+		assertEquals(new Vector(0.5, 0.25, 1).normalize(), gp.geometry.getNormal(gp.point),
+				"TC02: wrong interpolated normal");
+
+		// TC03: an index out of range
+		Path illegal = write(".obj", "v 0 0 0\nv 1 0 0\nf 1 2 3\n".getBytes(StandardCharsets.US_ASCII));
+		assertThrows(IllegalArgumentException.class, () -> MeshLoader.loadOBJ(illegal), "TC03: illegal index");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a file without faces
+		Path empty = write(".obj", "v 0 0 0\n".getBytes(StandardCharsets.US_ASCII));
+		assertThrows(IllegalArgumentException.class, () -> MeshLoader.loadOBJ(empty), "TC11: no faces");
+	}
+
+	/**
+	 * Test method for {@link scene.MeshLoader#loadPLY(Path)}.
+	 */
+	@Test
+	void testLoadPLY() throws IOException {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: a little endian file with a skipped property
+		Ray ray = new Ray(new Point(0.75, 0.25, 5), new Vector(0, 0, -1));
+		Mesh mesh = MeshLoader.loadPLY(write(".ply", createPLY(ByteOrder.LITTLE_ENDIAN)));
+		assertEquals(4, mesh.getVerticesCount(), "TC01: wrong vertices count");
+		assertEquals(2, mesh.getFacesCount(), "TC01: wrong faces count");
+		assertEquals(List.of(new Point(0.75, 0.25, 1)), mesh.findIntersections(ray), "TC01: wrong intersection");
+
+		// TC02: a big endian file
+		mesh = MeshLoader.load(write(".ply", createPLY(ByteOrder.BIG_ENDIAN)));
+		assertEquals(List.of(new Point(0.75, 0.25, 1)), mesh.findIntersections(ray), "TC02: wrong intersection");
+
+		// TC03: an ascii file is not supported
+		Path ascii = write(".ply", "ply\nformat ascii 1.0\nend_header\n".getBytes(StandardCharsets.US_ASCII));
+		assertThrows(IllegalArgumentException.class, () -> MeshLoader.loadPLY(ascii), "TC03: ascii file");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a truncated file
+		byte[] content = createPLY(ByteOrder.LITTLE_ENDIAN);
+		Path truncated = write(".ply", Arrays.copyOf(content, content.length - 3));
+		assertThrows(IllegalArgumentException.class, () -> MeshLoader.loadPLY(truncated), "TC11: truncated file");
+	}
+}
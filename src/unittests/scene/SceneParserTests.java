@@ -0,0 +1,199 @@
+/**
+ *
+ */
+package unittests.scene;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.MissingResourceException;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import lighting.SpotLight;
+import primitives.Color;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+import scene.SceneDescription;
+import scene.SceneParser;
+
+/**
+ * Testing the parsing and the caching of scene files
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+class SceneParserTests {
+
+	/** A scene with a camera, lights, a material and each kind of geometry */
+	private static final String SCENE = """
+			<?xml version="1.0"?>
+			<scene name="parser test" background="10 20 30">
+			  <camera position="0 0 1000" direction="0 0 -1" up="0 1 0" vp-size="200 100" vp-distance="1000"
+			          resolution="40 20" anti-aliasing="3" adaptive="false" threads="2"/>
+			  <ambient-light color="255 255 255" k="0.1"/>
+			  <lights>
+			    <point-light intensity="500 300 0" position="50 50 50" kL="0.00001" kQ="0.000005"/>
+			    <spot-light intensity="500 300 0" position="50 50 50" direction="-1 -1 -4"/>
+			    <directional-light intensity="100 100 100" direction="0 0 -1"/>
+			  </lights>
+			  <materials>
+			    <material id="glass" kD="0.2" kS="0.5 0.5 0.4" kT="0.6" shininess="100"/>
+			  </materials>
+			  <geometries bvh="true">
+			    <sphere center="0 0 -100" radius="50" emission="0 0 100" material="glass"/>
+			    <triangle p0="-150 -150 -115" p1="150 -150 -135" p2="75 75 -150"/>
+			    <polygon vertices="0 0 -200, 10 0 -200, 10 10 -200, 0 10 -200"/>
+			    <plane point="0 0 -500" normal="0 0 1"/>
+			    <tube axis-point="300 0 0" axis-direction="0 1 0" radius="5"/>
+			    <cylinder axis-point="-300 0 0" axis-direction="0 1 0" radius="5" height="20"/>
+			    <mesh file="%s"/>
+			  </geometries>
+			</scene>
+			""";
+
+	/**
+	 * Writes a scene file with a mesh file next to it
+	 *
+	 * @return the path of the scene file
+	 */
+	private Path writeScene() throws IOException {
+		Path directory = Files.createTempDirectory("scene");
+		directory.toFile().deleteOnExit();
+		Path mesh = Files.writeString(directory.resolve("square.obj"), "v 0 0 1\nv 1 0 1\nv 1 1 1\nv 0 1 1\nf 1 2 3 4\n");
+		mesh.toFile().deleteOnExit();
+		Path file = Files.writeString(directory.resolve("scene.xml"), SCENE.formatted(mesh.getFileName()));
+		file.toFile().deleteOnExit();
+		directory.resolve("scene.xml" + SceneParser.CACHE_SUFFIX).toFile().deleteOnExit();
+		return file;
+	}
+
+	/**
+	 * Test method for {@link scene.SceneParser#parse(Path)}.
+	 */
+	@Test
+	void testParse() throws IOException {
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: a scene with all the elements
+		SceneDescription description = SceneParser.parse(writeScene());
+		assertEquals("parser test", description.scene.name, "TC01: wrong name");
+		assertEquals(new Color(10, 20, 30).getColor(), description.scene.background.getColor(), "TC01: wrong background");
+		assertEquals(3, description.scene.lights.size(), "TC01: wrong lights count");
+		assertInstanceOf(SpotLight.class, description.scene.lights.get(1), "TC01: wrong light");
+		Ray ray = new Ray(new Point(0, 0, 1000), new Vector(0, 0, -1));
+		var gp = description.scene.geometries.findClosestGeoIntersection(ray);
+		Sphere sphere = assertInstanceOf(Sphere.class, gp.geometry, "TC01: the sphere is the closest");
+		assertEquals(new Color(0, 0, 100).getColor(), sphere.getEmission().getColor(), "TC01: wrong emission");
+		assertEquals(new Double3(0.5, 0.5, 0.4), sphere.getMaterial().kS, "TC01: wrong material");
+		assertEquals(List.of(new Point(0.25, 0.75, 1)),
+				description.scene.geometries.findIntersections(new Ray(new Point(0.25, 0.75, 5), new Vector(0, 0, -1)))
+						.stream().filter(p -> p.getZ() == 1).toList(),
+				"TC01: wrong mesh intersection");
+		assertTrue(description.hasCamera(), "TC01: a camera is expected");
+		assertDoesNotThrow(description::createCamera, "TC01: wrong camera");
+
+		// TC02: a scene without a camera
+		Path noCamera = Files.createTempFile("scene", ".xml");
+		noCamera.toFile().deleteOnExit();
+		Files.writeString(noCamera, "<scene name='empty'><geometries/></scene>");
+		SceneDescription empty = SceneParser.parse(noCamera);
+		assertFalse(empty.hasCamera(), "TC02: no camera expected");
+		assertThrows(MissingResourceException.class, empty::createCamera, "TC02: no camera to create");
+
+		// TC03: a missing attribute
+		Files.writeString(noCamera, "<scene name='bad'><sphere center='0 0 0'/></scene>");
+		assertThrows(IllegalArgumentException.class, () -> SceneParser.parse(noCamera), "TC03: missing radius");
+
+		// TC04: an unknown material
+		Files.writeString(noCamera, "<scene name='bad'><sphere center='0 0 0' radius='1' material='x'/></scene>");
+		assertThrows(IllegalArgumentException.class, () -> SceneParser.parse(noCamera), "TC04: unknown material");
+
+		// TC05: an illegal XML
+		Files.writeString(noCamera, "<scene name='bad'><sphere", StandardCharsets.US_ASCII);
+		assertThrows(IllegalArgumentException.class, () -> SceneParser.parse(noCamera), "TC05: illegal XML");
+
+		// TC06: a mesh file out of the directory of the scene
+		for (String mesh : List.of("../square.obj", "sub/../../square.obj", "/etc/passwd")) {
+			Files.writeString(noCamera, "<scene name='bad'><mesh file='" + mesh + "'/></scene>");
+			assertThrows(IllegalArgumentException.class, () -> SceneParser.parse(noCamera), "TC06: " + mesh);
+		}
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a point of 2 coordinates
+		Files.writeString(noCamera, "<scene name='bad'><sphere center='0 0' radius='1'/></scene>");
+		assertThrows(IllegalArgumentException.class, () -> SceneParser.parse(noCamera), "TC11: partial point");
+	}
+
+	/**
+	 * Test method for {@link scene.SceneParser#load(Path)}.
+	 */
+	@Test
+	void testLoad() throws IOException {
+		Path file = writeScene();
+		Path cache = file.resolveSibling(file.getFileName() + SceneParser.CACHE_SUFFIX);
+		Ray ray = new Ray(new Point(0, 0, 1000), new Vector(0, 0, -1));
+
+		// ============ Equivalence Partitions Tests ==============
+		// TC01: the first loading parses the file and writes the snapshot
+		SceneDescription first = SceneParser.load(file);
+		assertTrue(Files.isRegularFile(cache), "TC01: a snapshot is expected");
+		try (var files = Files.list(file.getParent())) {
+			assertTrue(files.noneMatch(f -> f.toString().endsWith(".tmp")), "TC01: a temporary snapshot was left");
+		}
+
+		// TC02: the second loading reads the same scene from the snapshot
+		SceneDescription second = SceneParser.load(file);
+		assertNotSame(first, second, "TC02: a new description is expected");
+		assertEquals("parser test", second.scene.name, "TC02: wrong name");
+		assertEquals(first.scene.geometries.findClosestGeoIntersection(ray).point,
+				second.scene.geometries.findClosestGeoIntersection(ray).point, "TC02: wrong snapshot geometries");
+		assertTrue(second.hasCamera(), "TC02: wrong snapshot camera");
+
+		// TC03: a changed scene file makes the snapshot obsolete
+		Files.writeString(file, Files.readString(file).replace("parser test", "parser tests"));
+		assertEquals("parser tests", SceneParser.load(file).scene.name, "TC03: the file is not parsed again");
+
+		// TC04: a changed mesh file makes the snapshot obsolete
+		Path mesh = file.resolveSibling("square.obj");
+		Files.writeString(mesh, "v 0 0 2\nv 1 0 2\nv 1 1 2\nv 0 1 2\nf 1 2 3 4\n");
+		SceneDescription changed = SceneParser.load(file);
+		assertEquals(1, changed.scene.geometries.findIntersections(new Ray(new Point(0.25, 0.75, 5), new Vector(0, 0, -1)))
+				.stream().filter(p -> p.getZ() == 2).count(), "TC04: the mesh file is not read again");
+
+		// TC05: a corrupted snapshot is ignored
+		Files.write(cache, new byte[] { 1, 2, 3 });
+		assertEquals("parser tests", SceneParser.load(file).scene.name, "TC05: wrong name");
+
+		// TC06: a snapshot with another header is ignored, and the file is parsed
+		// again (the block of the header follows the 4 bytes of the stream header)
+		byte[] snapshot = Files.readAllBytes(cache);
+		byte[] header = Arrays.copyOfRange(snapshot, 0, 14);
+		++snapshot[13];
+		Files.write(cache, snapshot);
+		assertEquals("parser tests", SceneParser.load(file).scene.name, "TC06: wrong name");
+		assertArrayEquals(header, Arrays.copyOfRange(Files.readAllBytes(cache), 0, 14),
+				"TC06: the snapshot was not written again");
+
+		// TC07: a snapshot of a class whose fields were changed since it was written
+		// (here the background field of the scene is missing) is ignored
+		snapshot = Files.readAllBytes(cache);
+		String text = new String(snapshot, StandardCharsets.ISO_8859_1);
+		assertTrue(text.contains("background"), "TC07: no background field in the snapshot");
+		Files.write(cache, text.replace("background", "backgrounx").getBytes(StandardCharsets.ISO_8859_1));
+		assertEquals(new Color(10, 20, 30).getColor(), SceneParser.load(file).scene.background.getColor(),
+				"TC07: a stale snapshot was read");
+
+		// =============== Boundary Values Tests ==================
+		// TC11: a snapshot that cannot be written
+		assertDoesNotThrow(() -> SceneParser.load(file, file.resolveSibling("missing").resolve("cache")),
+				"TC11: the snapshot is optional");
+		assertFalse(Files.exists(file.resolveSibling("missing")), "TC11: no snapshot expected");
+	}
+}
@@ -0,0 +1,264 @@
+/**
+ *
+ */
+package unittests.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import service.RenderService;
+
+/**
+ * Testing the rendering service
+ *
+ * @author Hadas Carmen &amp; Naama Schweitzer
+ */
+class RenderServiceTests {
+
+	/** A scene of a red sphere in a 40x40 image (several tiles) */
+	private static final String SCENE = """
+			<scene name="service" background="0 0 50">
+			  <camera position="0 0 100" direction="0 0 -1" up="0 1 0" vp-size="20 20" vp-distance="100"
+			          resolution="40 40"/>
+			  <geometries>
+			    <sphere center="0 0 0" radius="5" emission="200 0 0"/>
+			  </geometries>
+			</scene>
+			""";
+
+	/** A scene that takes long to render, it keeps the single worker busy */
+	private static final String SLOW_SCENE = """
+			<scene name="slow">
+			  <camera position="0 0 100" direction="0 0 -1" up="0 1 0" vp-size="20 20" vp-distance="100"
+			          resolution="1000 1000" anti-aliasing="16" adaptive="false"/>
+			  <geometries>
+			    <sphere center="0 0 0" radius="5" emission="0 200 0"/>
+			  </geometries>
+			</scene>
+			""";
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	/**
+	 * Sends a request
+	 *
+	 * @param service - the service
+	 * @param method  - the request method
+	 * @param path    - the path and the query of the request
+	 * @param body    - the body of the request, null for none
+	 * @return the response
+	 */
+	private HttpResponse<byte[]> send(RenderService service, String method, String path, String body)
+			throws IOException, InterruptedException {
+		URI uri = URI.create("http://localhost:" + service.getAddress().getPort() + path);
+		HttpRequest request = HttpRequest.newBuilder(uri)
+				.method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+						: HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	/**
+	 * @param response - a response
+	 * @return the body of the response as text
+	 */
+	private String text(HttpResponse<byte[]> response) {
+		return new String(response.body());
+	}
+
+	/**
+	 * @param json - the status of a job
+	 * @return the identifier of the job
+	 */
+	private String id(String json) {
+		Matcher matcher = Pattern.compile("\"id\":(\\d+)").matcher(json);
+		assertTrue(matcher.find(), "No job identifier in " + json);
+		return matcher.group(1);
+	}
+
+	/**
+	 * Posts a scene while the single worker is busy, follows its tiles from
+	 * before its rendering starts, and then releases the worker
+	 *
+	 * @param service - the service, with a single worker
+	 * @param path    - the path and the query of the rendering request
+	 * @return the status of the new job, and then the lines of its streamed tiles
+	 */
+	private List<String> renderFollowed(RenderService service, String path)
+			throws IOException, InterruptedException {
+		HttpResponse<byte[]> response = send(service, "POST", "/render", SLOW_SCENE);
+		assertEquals(202, response.statusCode(), "Wrong status of the slow job " + text(response));
+		String slowJob = "/jobs/" + id(text(response));
+		response = send(service, "POST", path, SCENE);
+		assertEquals(202, response.statusCode(), "Wrong status " + text(response));
+		String status = text(response);
+		URI uri = URI.create("http://localhost:" + service.getAddress().getPort() + "/jobs/" + id(status) + "/tiles");
+		// the tiles are followed once the headers of the stream arrive
+		HttpResponse<Stream<String>> tiles = client
+				.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofLines()).join();
+		assertTrue(text(send(service, "DELETE", slowJob, null)).contains("\"state\":\"CANCELLED\""),
+				"The slow job was not cancelled");
+		List<String> lines = new ArrayList<>(List.of(status));
+		lines.addAll(tiles.body().toList());
+		return lines;
+	}
+
+	/**
+	 * Waits for a job to end
+	 *
+	 * @param service - the service
+	 * @param json    - the status of the job when it was posted
+	 * @return the final status of the job
+	 */
+	private String end(RenderService service, String json) throws IOException, InterruptedException {
+		return text(send(service, "GET", "/jobs/" + id(json) + "/tiles", null)).strip();
+	}
+
+	/**
+	 * Checks the streamed tiles of a job, which waits for the job to end
+	 *
+	 * @param lines - the lines of the stream
+	 * @return the total area of the tiles
+	 */
+	private int checkTiles(List<String> lines) {
+		Pattern pattern = Pattern.compile("\"height\":(\\d+),\"width\":(\\d+),\"rgb\":\"([^\"]*)\"");
+		int area = 0;
+		for (String line : lines.subList(0, lines.size() - 1)) {
+			Matcher matcher = pattern.matcher(line);
+			assertTrue(matcher.find(), "Wrong tile " + line);
+			int tileArea = Integer.parseInt(matcher.group(1)) * Integer.parseInt(matcher.group(2));
+			assertEquals(3 * tileArea, Base64.getDecoder().decode(matcher.group(3)).length, "Wrong tile pixels");
+			area += tileArea;
+		}
+		return area;
+	}
+
+	/**
+	 * Test method for {@link service.RenderService}.
+	 */
+	@Test
+	void testRender() throws IOException, InterruptedException {
+		Path directory = Files.createTempDirectory("scenes");
+		RenderService service = new RenderService(new InetSocketAddress("localhost", 0), directory, 1, 4).start();
+		try {
+			// ============ Equivalence Partitions Tests ==============
+			// TC01: a scene is rendered fully, and its tiles are streamed
+			List<String> lines = renderFollowed(service, "/render");
+			String job = "/jobs/" + id(lines.get(0));
+			lines = lines.subList(1, lines.size());
+			assertTrue(lines.get(lines.size() - 1).contains("\"state\":\"DONE\""), "TC01: the job is not done");
+			assertTrue(lines.get(lines.size() - 1).contains("\"cached\":false"), "TC01: the scene was not built");
+			assertEquals(40 * 40, checkTiles(lines), "TC01: wrong tiles");
+
+			// TC02: the image of the job
+			HttpResponse<byte[]> response = send(service, "GET", job + "/image", null);
+			assertEquals(200, response.statusCode(), "TC02: wrong status");
+			BufferedImage image = ImageIO.read(new ByteArrayInputStream(response.body()));
+			assertEquals(40, image.getWidth(), "TC02: wrong image width");
+			assertEquals(0xC80000, image.getRGB(20, 20) & 0xFFFFFF, "TC02: wrong sphere pixel");
+			assertEquals(0x000032, image.getRGB(0, 0) & 0xFFFFFF, "TC02: wrong background pixel");
+
+			// TC03: illegal scenes fail their jobs, and illegal parameters
+			for (String scene : List.of("<scene", "<scene name=\"empty\"/>")) {
+				response = send(service, "POST", "/render", scene);
+				assertEquals(202, response.statusCode(), "TC03: wrong status " + text(response));
+				String status = end(service, text(response));
+				assertTrue(status.contains("\"state\":\"FAILED\"") && status.contains("\"error\":"),
+						"TC03: an illegal scene did not fail " + status);
+			}
+			assertEquals(400, send(service, "POST", "/render?budget=-5", SCENE).statusCode(), "TC03: illegal budget");
+
+			// TC04: unknown jobs and methods
+			assertEquals(404, send(service, "GET", "/jobs/12345", null).statusCode(), "TC04: unknown job");
+			assertEquals(404, send(service, "GET", "/jobs/x", null).statusCode(), "TC04: illegal job");
+			assertEquals(404, send(service, "GET", job + "/pixels", null).statusCode(), "TC04: unknown resource");
+			assertEquals(405, send(service, "GET", "/render", null).statusCode(), "TC04: wrong method");
+
+			// TC05: the tiles of an ended job are not kept
+			lines = text(send(service, "GET", job + "/tiles", null)).lines().toList();
+			assertEquals(1, lines.size(), "TC05: tiles were kept");
+			assertTrue(lines.get(0).contains("\"state\":\"DONE\""), "TC05: wrong status " + lines.get(0));
+
+			// TC06: a mesh file out of the scenes directory is not loaded, whether it
+			// exists or not
+			Path secret = Files.writeString(Files.createTempDirectory("secret").resolve("secret.obj"),
+					"v 0 0 0\nv 1 0 0\nv 0 1 0\nf 1 2 3\n");
+			String outside = directory.relativize(secret).toString().replace('\\', '/');
+			for (String mesh : List.of(secret.toString(), outside, outside.replace("secret.obj", "missing.obj"))) {
+				response = send(service, "POST", "/render", SCENE.replace("<geometries>",
+						"<geometries><mesh file=\"" + mesh + "\"/>"));
+				String status = end(service, text(response));
+				assertTrue(status.contains("\"state\":\"FAILED\"") && status.contains("out of the directory"),
+						"TC06: the mesh " + mesh + " was loaded " + status);
+			}
+
+			// =============== Boundary Values Tests ==================
+			// TC11: the same scene again is taken from the cache, and a progressive
+			// rendering without time renders the preview only
+			lines = renderFollowed(service, "/render?budget=0");
+			job = "/jobs/" + id(lines.get(0));
+			lines = lines.subList(1, lines.size());
+			assertTrue(lines.get(lines.size() - 1).contains("\"state\":\"DONE\""), "TC11: the job is not done");
+			assertTrue(lines.get(lines.size() - 1).contains("\"cached\":true"), "TC11: the scene was not cached");
+			assertEquals(40 * 40, checkTiles(lines), "TC11: wrong preview tiles");
+
+			// TC12: a finished job is not cancelled
+			response = send(service, "DELETE", job, null);
+			assertEquals(200, response.statusCode(), "TC12: wrong status");
+			assertTrue(text(response).contains("\"state\":\"DONE\""), "TC12: a finished job was cancelled");
+
+			// TC13: scenes beyond the limits of the service fail their jobs
+			String light = "<lights><rectangle-light intensity=\"100 100 100\" center=\"0 0 50\" width=\"10 0 0\""
+					+ " height=\"0 10 0\" shadow-samples=\"100\"/></lights><geometries>";
+			for (String scene : List.of(SCENE.replace("resolution=\"40 40\"", "resolution=\"100000 100000\""),
+					SCENE.replace("resolution=\"40 40\"", "resolution=\"40 40\" anti-aliasing=\"1000\""),
+					SCENE.replace("resolution=\"40 40\"", "resolution=\"40 40\" threads=\"5000\""),
+					SCENE.replace("<geometries>", light))) {
+				String status = end(service, text(send(service, "POST", "/render", scene)));
+				assertTrue(status.contains("\"state\":\"FAILED\"") && status.contains("beyond the limit"),
+						"TC13: a scene beyond the limits was rendered " + status);
+			}
+		} finally {
+			service.stop();
+		}
+
+		// TC07: the jobs of a scene rendered at the same time load it once
+		service = new RenderService(new InetSocketAddress("localhost", 0), Files.createTempDirectory("scenes"), 4, 4)
+				.start();
+		try {
+			List<String> posted = new ArrayList<>();
+			for (int i = 0; i < 4; ++i)
+				posted.add(text(send(service, "POST", "/render", SCENE)));
+			int built = 0;
+			for (String json : posted) {
+				String status = end(service, json);
+				assertTrue(status.contains("\"state\":\"DONE\""), "TC07: the job is not done " + status);
+				if (status.contains("\"cached\":false"))
+					++built;
+			}
+			assertEquals(1, built, "TC07: the scene was loaded more than once");
+		} finally {
+			service.stop();
+		}
+	}
+}